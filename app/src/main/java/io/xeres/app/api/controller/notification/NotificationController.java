@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -38,7 +38,7 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import static io.xeres.common.rest.PathConfig.NOTIFICATIONS_PATH;
 
-@Tag(name = "Notification", description = "Out of band notifications")
+@Tag(name = "Notification", description = "Out of band notifications. Each event contains an array of notifications")
 @RestController
 @RequestMapping(value = NOTIFICATIONS_PATH, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
 public class NotificationController
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -21,15 +21,22 @@ package io.xeres.app.api.controller.statistics;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import io.xeres.app.job.PeerConnectionJob;
+import io.xeres.app.net.peer.ssl.HandshakeStatistics;
 import io.xeres.app.xrs.service.bandwidth.BandwidthRsService;
 import io.xeres.app.xrs.service.rtt.RttRsService;
 import io.xeres.app.xrs.service.turtle.TurtleRsService;
+import io.xeres.common.rest.statistics.ConnectionStatisticsResponse;
 import io.xeres.common.rest.statistics.DataCounterStatisticsResponse;
+import io.xeres.common.rest.statistics.HandshakeStatisticsResponse;
 import io.xeres.common.rest.statistics.RttStatisticsResponse;
+import io.xeres.common.rest.statistics.TrafficResolution;
+import io.xeres.common.rest.statistics.TrafficStatisticsResponse;
 import io.xeres.common.rest.statistics.TurtleStatisticsResponse;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import static io.xeres.app.api.controller.statistics.StatisticsMapper.toDTO;
@@ -43,12 +50,16 @@ public class StatisticsController
 	private final TurtleRsService turtleRsService;
 	private final RttRsService rttRsService;
 	private final BandwidthRsService bandwidthRsService;
+	private final PeerConnectionJob peerConnectionJob;
+	private final HandshakeStatistics handshakeStatistics;
 
-	public StatisticsController(TurtleRsService turtleRsService, RttRsService rttRsService, BandwidthRsService bandwidthRsService)
+	public StatisticsController(TurtleRsService turtleRsService, RttRsService rttRsService, BandwidthRsService bandwidthRsService, PeerConnectionJob peerConnectionJob, HandshakeStatistics handshakeStatistics)
 	{
 		this.turtleRsService = turtleRsService;
 		this.rttRsService = rttRsService;
 		this.bandwidthRsService = bandwidthRsService;
+		this.peerConnectionJob = peerConnectionJob;
+		this.handshakeStatistics = handshakeStatistics;
 	}
 
 	@GetMapping("/turtle")
@@ -71,4 +82,25 @@ public class StatisticsController
 	{
 		return bandwidthRsService.getDataCounterStatistics();
 	}
+
+	@GetMapping("/traffic")
+	@Operation(summary = "Gets the traffic with each peer, per service, for the last hour (seconds) or the last 24 hours (minutes)")
+	public TrafficStatisticsResponse getTrafficStatistics(@RequestParam(value = "resolution", defaultValue = "SECONDS") TrafficResolution resolution, @RequestParam(value = "buckets", defaultValue = "120") int buckets)
+	{
+		return bandwidthRsService.getTrafficStatistics(resolution, buckets);
+	}
+
+	@GetMapping("/connections")
+	@Operation(summary = "Gets outgoing connection statistics")
+	public ConnectionStatisticsResponse getConnectionStatistics()
+	{
+		return peerConnectionJob.getStatistics();
+	}
+
+	@GetMapping("/handshakes")
+	@Operation(summary = "Gets TLS handshake statistics")
+	public HandshakeStatisticsResponse getHandshakeStatistics()
+	{
+		return handshakeStatistics.getStatistics();
+	}
 }
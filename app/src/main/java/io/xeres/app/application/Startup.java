@@ -30,9 +30,11 @@ import io.xeres.app.database.model.settings.Settings;
 import io.xeres.app.net.peer.PeerConnectionManager;
 import io.xeres.app.service.*;
 import io.xeres.app.service.UiBridgeService.SplashStatus;
+import io.xeres.app.service.file.ShareWatcher;
 import io.xeres.app.service.notification.file.FileNotificationService;
 import io.xeres.app.service.notification.status.StatusNotificationService;
 import io.xeres.app.service.shell.ShellService;
+import io.xeres.app.xrs.service.chat.ChatBacklogService;
 import io.xeres.app.xrs.service.identity.IdentityManager;
 import io.xeres.common.events.ConnectWebSocketsEvent;
 import io.xeres.common.events.StartupEvent;
@@ -79,11 +81,13 @@ public class Startup implements ApplicationRunner, SmartLifecycle
 	private final AutoStart autoStart;
 	private final ShellService shellService;
 	private final FileNotificationService fileNotificationService;
+	private final ShareWatcher shareWatcher;
 	private final InfoService infoService;
 	private final UpgradeService upgradeService;
+	private final ChatBacklogService chatBacklogService;
 	private final ApplicationEventPublisher publisher;
 
-	public Startup(LocationService locationService, SettingsService settingsService, DatabaseSessionManager databaseSessionManager, NetworkService networkService, PeerConnectionManager peerConnectionManager, UiBridgeService uiBridgeService, IdentityManager identityManager, StatusNotificationService statusNotificationService, AutoStart autoStart, ShellService shellService, FileNotificationService fileNotificationService, InfoService infoService, UpgradeService upgradeService, ApplicationEventPublisher publisher)
+	public Startup(LocationService locationService, SettingsService settingsService, DatabaseSessionManager databaseSessionManager, NetworkService networkService, PeerConnectionManager peerConnectionManager, UiBridgeService uiBridgeService, IdentityManager identityManager, StatusNotificationService statusNotificationService, AutoStart autoStart, ShellService shellService, FileNotificationService fileNotificationService, ShareWatcher shareWatcher, InfoService infoService, UpgradeService upgradeService, ChatBacklogService chatBacklogService, ApplicationEventPublisher publisher)
 	{
 		this.locationService = locationService;
 		this.settingsService = settingsService;
@@ -96,8 +100,10 @@ public class Startup implements ApplicationRunner, SmartLifecycle
 		this.autoStart = autoStart;
 		this.shellService = shellService;
 		this.fileNotificationService = fileNotificationService;
+		this.shareWatcher = shareWatcher;
 		this.infoService = infoService;
 		this.upgradeService = upgradeService;
+		this.chatBacklogService = chatBacklogService;
 		this.publisher = publisher;
 	}
 
@@ -117,11 +123,15 @@ public class Startup implements ApplicationRunner, SmartLifecycle
 		log.info("Shutting down...");
 		identityManager.shutdown();
 		peerConnectionManager.shutdown();
+		shareWatcher.shutdown();
 
 		statusNotificationService.shutdown();
 		fileNotificationService.shutdown();
 
 		networkService.stop();
+
+		chatBacklogService.shutdown();
+		locationService.shutdown();
 	}
 
 	@Override
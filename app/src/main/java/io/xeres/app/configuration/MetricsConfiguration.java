@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.netty4.NettyAllocatorMetrics;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.xeres.app.job.PeerConnectionJob;
+import io.xeres.app.net.peer.ssl.HandshakeStatistics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics that are not recorded directly where they happen. They're exported by the
+ * Prometheus endpoint, which is only reachable from the local host.
+ * <p>
+ * Other metrics are recorded in place using the global registry: item handling time per service,
+ * GXS verifications, traffic per service and queue depths. Spring adds the repository
+ * invocation times, the connection pool, the JVM and the executors.
+ */
+@Configuration
+public class MetricsConfiguration
+{
+	@Bean
+	public MeterBinder nettyAllocatorMetrics()
+	{
+		return registry -> {
+			if (ByteBufAllocator.DEFAULT instanceof ByteBufAllocatorMetricProvider metricProvider)
+			{
+				new NettyAllocatorMetrics(metricProvider).bindTo(registry);
+			}
+		};
+	}
+
+	@Bean
+	public MeterBinder peerConnectionMetrics(PeerConnectionJob peerConnectionJob)
+	{
+		return registry -> {
+			Gauge.builder("xrs.connections.dialing", peerConnectionJob, job -> job.getStatistics().dialing())
+					.description("Outgoing connections in progress")
+					.register(registry);
+			Gauge.builder("xrs.connections.backing.off", peerConnectionJob, job -> job.getStatistics().backingOff())
+					.description("Addresses waiting before being tried again")
+					.register(registry);
+			TimeGauge.builder("xrs.connections.reconnect.all", peerConnectionJob, TimeUnit.MILLISECONDS, job -> job.getStatistics().reconnectAllTime())
+					.description("Time it took to try all the unconnected locations after startup or the last IP change")
+					.register(registry);
+		};
+	}
+
+	@Bean
+	public MeterBinder handshakeMetrics(HandshakeStatistics handshakeStatistics)
+	{
+		return registry -> {
+			FunctionCounter.builder("xrs.handshakes", handshakeStatistics, statistics -> statistics.getStatistics().handshakes())
+					.description("Successful TLS handshakes")
+					.register(registry);
+			FunctionCounter.builder("xrs.handshakes.failed", handshakeStatistics, statistics -> statistics.getStatistics().failed())
+					.description("Failed TLS handshakes")
+					.register(registry);
+			TimeGauge.builder("xrs.handshakes.time.p90", handshakeStatistics, TimeUnit.MILLISECONDS, statistics -> statistics.getStatistics().p90())
+					.description("90th percentile of the recent handshake times")
+					.register(registry);
+		};
+	}
+}
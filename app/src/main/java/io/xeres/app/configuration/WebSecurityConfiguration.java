@@ -42,6 +42,12 @@ import static org.springframework.security.config.http.SessionCreationPolicy.STA
 @EnableWebSecurity
 public class WebSecurityConfiguration
 {
+	/**
+	 * The metrics can be scraped without password but only from the local host.
+	 */
+	static final String METRICS_PATH = "/api/v1/actuator/prometheus";
+	private static final String LOCAL_HOST_ONLY = "hasIpAddress('127.0.0.1') or hasIpAddress('::1')";
+
 	@Bean
 	public SecurityFilterChain securityFilterChain(HttpSecurity http, SettingsService settingsService, Environment environment)
 	{
@@ -49,6 +55,7 @@ public class WebSecurityConfiguration
 				.csrf(AbstractHttpConfigurer::disable) // Not needed for desktop app
 				.authorizeHttpRequests(authorize -> {
 					authorize.requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll();
+					authorize.requestMatchers(METRICS_PATH).access(new WebExpressionAuthorizationManager(LOCAL_HOST_ONLY));
 					if (environment.acceptsProfiles(Profiles.of("dev")))
 					{
 						authorize.requestMatchers("/h2-console").permitAll();
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -22,20 +22,40 @@ package io.xeres.app.configuration;
 import io.xeres.app.application.environment.LocalPortFinder;
 import io.xeres.app.service.SettingsService;
 import io.xeres.common.properties.StartupProperties;
+import io.xeres.common.util.RemoteUtils;
+import jakarta.servlet.ServletException;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.apache.coyote.http11.Http11NioProtocol;
 import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.tomcat.servlet.TomcatServletWebServerFactory;
 import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.boot.web.server.servlet.ConfigurableServletWebServerFactory;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
 import java.net.InetAddress;
+import java.net.StandardProtocolFamily;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Objects;
 
 import static io.xeres.common.properties.StartupProperties.Property.CONTROL_PORT;
+import static io.xeres.common.properties.StartupProperties.Property.UI;
 
 @Configuration
 public class WebServerConfiguration implements WebServerFactoryCustomizer<ConfigurableServletWebServerFactory>
 {
+	private static final Logger log = LoggerFactory.getLogger(WebServerConfiguration.class);
+
+	private static final String CONTROL_SOCKET_NAME = "control.sock";
+
 	private final SettingsService settingsService;
 
 	public WebServerConfiguration(SettingsService settingsService)
@@ -59,6 +79,90 @@ public class WebServerConfiguration implements WebServerFactoryCustomizer<Config
 			LocalPortFinder.ensureFreePort();
 			factory.setPort(Objects.requireNonNull(StartupProperties.getInteger(StartupProperties.Property.CONTROL_PORT)));
 		}
+
+		// If the UI runs in the same process, let it use a local socket
+		if (StartupProperties.getBoolean(UI, true) && factory instanceof TomcatServletWebServerFactory tomcatFactory)
+		{
+			addControlSocket(tomcatFactory);
+		}
+	}
+
+	/**
+	 * Adds a plain HTTP connector on a Unix domain socket which is only accessible by the current user. The UI uses it
+	 * instead of HTTPS over TCP when it runs in the same process. The socket is in its own temporary directory so that
+	 * several instances can run at the same time.
+	 *
+	 * @param factory the Tomcat factory
+	 */
+	static void addControlSocket(TomcatServletWebServerFactory factory)
+	{
+		if (!isUnixDomainSocketSupported())
+		{
+			log.info("Unix domain sockets aren't supported, the UI will use TCP");
+			return;
+		}
+
+		Path socketPath;
+		try
+		{
+			var directory = Files.createTempDirectory("xeres");
+			directory.toFile().deleteOnExit();
+			socketPath = directory.resolve(CONTROL_SOCKET_NAME);
+			socketPath.toFile().deleteOnExit();
+		}
+		catch (IOException e)
+		{
+			log.warn("Couldn't create the control socket directory, the UI will use TCP: {}", e.getMessage());
+			return;
+		}
+
+		var connector = new Connector(Http11NioProtocol.class.getName());
+		connector.setProperty("unixDomainSocketPath", socketPath.toString());
+		connector.setProperty("unixDomainSocketPathPermissions", "rw-------");
+		factory.addAdditionalConnectors(connector);
+		factory.addContextValves(new ControlSocketValve(connector));
+		RemoteUtils.setControlSocket(socketPath);
+		log.debug("Control socket: {}", socketPath);
+	}
+
+	/**
+	 * Makes requests coming from the control socket look like they're coming from the loopback
+	 * interface, which is what they are, so that the same access rules apply.
+	 */
+	private static final class ControlSocketValve extends ValveBase
+	{
+		private static final String LOOPBACK_ADDRESS = "127.0.0.1";
+
+		private final Connector connector;
+
+		private ControlSocketValve(Connector connector)
+		{
+			super(true);
+			this.connector = connector;
+		}
+
+		@Override
+		public void invoke(Request request, Response response) throws IOException, ServletException
+		{
+			if (request.getConnector() == connector)
+			{
+				request.setRemoteAddr(LOOPBACK_ADDRESS);
+				request.setRemoteHost(LOOPBACK_ADDRESS);
+			}
+			getNext().invoke(request, response);
+		}
+	}
+
+	private static boolean isUnixDomainSocketSupported()
+	{
+		try (var _ = ServerSocketChannel.open(StandardProtocolFamily.UNIX))
+		{
+			return true;
+		}
+		catch (IOException | UnsupportedOperationException _)
+		{
+			return false;
+		}
 	}
 
 	private static InetAddress getAllInterfaces()
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -130,6 +130,44 @@ public final class AEAD
 		}
 	}
 
+	/**
+	 * Encrypts using ChaCha20 as an AEAD cipher with Poly1305 as the authenticator. The encrypted data and the tag are
+	 * written directly into the output buffer, without intermediate arrays.
+	 *
+	 * @param key                         the secret key, not null
+	 * @param nonce                       a unique, securely generated nonce, not null
+	 * @param plainText                   the data to encrypt, from its position to its limit, not null
+	 * @param output                      the buffer to write the encrypted data and the tag to, must have at least {@code plainText.remaining() + 16} bytes remaining, not null
+	 * @param additionalAuthenticatedData additional authenticated data. Is used to authenticate the nonce, not null
+	 * @return the number of bytes written to the output
+	 * @see <a href="https://datatracker.ietf.org/doc/html/rfc7539">RFC 7539</a>
+	 */
+	public static int encryptChaCha20Poly1305(SecretKey key, byte[] nonce, ByteBuffer plainText, ByteBuffer output, byte[] additionalAuthenticatedData)
+	{
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(nonce);
+		Objects.requireNonNull(plainText);
+		Objects.requireNonNull(output);
+		Objects.requireNonNull(additionalAuthenticatedData);
+		if (nonce.length != 12)
+		{
+			throw new IllegalArgumentException("Nonce must be 12 bytes");
+		}
+
+		try
+		{
+			var cipher = Cipher.getInstance(ENCRYPTION_TRANSFORMATION_CHACHA20_POLY1305);
+			var keySpec = new SecretKeySpec(key.getEncoded(), ENCRYPTION_ALGORITHM_CHACHA20);
+			cipher.init(ENCRYPT_MODE, keySpec, new IvParameterSpec(nonce));
+			cipher.updateAAD(additionalAuthenticatedData);
+			return cipher.doFinal(plainText, output);
+		}
+		catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidAlgorithmParameterException | IllegalBlockSizeException | BadPaddingException | InvalidKeyException | ShortBufferException e)
+		{
+			throw new IllegalArgumentException(e);
+		}
+	}
+
 	private static byte[] doChaCha20Poly1305(SecretKey key, int operation, byte[] nonce, byte[] dataIn, byte[] additionalAuthenticatedData) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException
 	{
 		var cipher = Cipher.getInstance(ENCRYPTION_TRANSFORMATION_CHACHA20_POLY1305);
@@ -223,6 +261,50 @@ public final class AEAD
 		}
 	}
 
+	/**
+	 * Encrypts using ChaCha20 as an AEAD cipher with HMAC SHA-256. The encrypted data and the tag are
+	 * written directly into the output buffer, without intermediate arrays.
+	 *
+	 * @param key                         the secret key, not null
+	 * @param nonce                       a unique, securely generated nonce, not null
+	 * @param plainText                   the data to encrypt, from its position to its limit, not null
+	 * @param output                      the buffer to write the encrypted data and the tag to, must have at least {@code plainText.remaining() + 16} bytes remaining, not null
+	 * @param additionalAuthenticatedData additional authenticated data. Can be used to authenticate the nonce, not null
+	 * @return the number of bytes written to the output
+	 * @see <a href="https://datatracker.ietf.org/doc/html/rfc7539">RFC 7539</a>
+	 */
+	public static int encryptChaCha20Sha256(SecretKey key, byte[] nonce, ByteBuffer plainText, ByteBuffer output, byte[] additionalAuthenticatedData)
+	{
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(nonce);
+		Objects.requireNonNull(plainText);
+		Objects.requireNonNull(output);
+		Objects.requireNonNull(additionalAuthenticatedData);
+		if (nonce.length != 12)
+		{
+			throw new IllegalArgumentException("Nonce must be 12 bytes");
+		}
+
+		try
+		{
+			var cipher = Cipher.getInstance(ENCRYPTION_TRANSFORMATION_CHACHA20);
+			var keySpec = new SecretKeySpec(key.getEncoded(), ENCRYPTION_ALGORITHM_CHACHA20);
+			cipher.init(ENCRYPT_MODE, keySpec, new ChaCha20ParameterSpec(nonce, 1));
+			var start = output.position();
+			var size = cipher.doFinal(plainText, output);
+
+			var hmac = new Sha256HMac(key);
+			hmac.update(additionalAuthenticatedData);
+			hmac.update(output.duplicate().position(start).limit(start + size));
+			output.put(hmac.getBytes(), 0, TAG_SIZE);
+			return size + TAG_SIZE;
+		}
+		catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidAlgorithmParameterException | IllegalBlockSizeException | BadPaddingException | InvalidKeyException | ShortBufferException e)
+		{
+			throw new IllegalArgumentException(e);
+		}
+	}
+
 	private static byte[] doChaCha20(SecretKey key, int operation, byte[] nonce, byte[] dataIn) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException
 	{
 		var cipher = Cipher.getInstance(ENCRYPTION_TRANSFORMATION_CHACHA20);
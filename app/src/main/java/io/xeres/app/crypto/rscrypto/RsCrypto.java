@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -24,6 +24,7 @@ import io.xeres.common.util.SecureRandomUtils;
 
 import javax.crypto.SecretKey;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * This class implements the custom RS encryption, notably to encrypt file transfer tunnels.
@@ -62,21 +63,23 @@ public final class RsCrypto
 
 	public static byte[] encryptAuthenticateData(SecretKey key, byte[] plainText, EncryptionFormat format)
 	{
-		// Initialization vector (AAD)
-		var initializationVector = new byte[INITIALIZATION_VECTOR_SIZE];
-		SecureRandomUtils.nextBytes(initializationVector);
-
-		var aad = new byte[INITIALIZATION_VECTOR_SIZE + EDATA_SIZE];
-		System.arraycopy(initializationVector, 0, aad, 0, INITIALIZATION_VECTOR_SIZE);
-
-		aad[INITIALIZATION_VECTOR_SIZE] = (byte) ((plainText.length) & 0xff);
-		aad[INITIALIZATION_VECTOR_SIZE + 1] = (byte) ((plainText.length >> 8) & 0xff);
-		aad[INITIALIZATION_VECTOR_SIZE + 2] = (byte) ((plainText.length >> 16) & 0xff);
-		aad[INITIALIZATION_VECTOR_SIZE + 3] = (byte) ((plainText.length >> 24) & 0xff);
+		return encryptAuthenticateData(key, ByteBuffer.wrap(plainText), format);
+	}
 
-		var totalSize = HEADER_SIZE + INITIALIZATION_VECTOR_SIZE + EDATA_SIZE + plainText.length + AUTHENTICATION_TAG_SIZE;
+	/**
+	 * Encrypts data. The cipher text is written directly into the resulting array so the plain text
+	 * can be a direct buffer without having to copy it first.
+	 *
+	 * @param key       the key
+	 * @param plainText the plain text, from its position to its limit
+	 * @param format    the encryption format
+	 * @return the encrypted data, including the header and the authentication tag
+	 */
+	public static byte[] encryptAuthenticateData(SecretKey key, ByteBuffer plainText, EncryptionFormat format)
+	{
+		var plainTextLength = plainText.remaining();
+		var totalSize = HEADER_SIZE + INITIALIZATION_VECTOR_SIZE + EDATA_SIZE + plainTextLength + AUTHENTICATION_TAG_SIZE;
 		var encryptedData = new byte[totalSize];
-		var offset = 0;
 
 		// Header
 		encryptedData[0] = (byte) 0xae;
@@ -84,29 +87,26 @@ public final class RsCrypto
 		encryptedData[2] = (byte) format.getValue();
 		encryptedData[3] = (byte) 0x1;
 
-		offset += HEADER_SIZE;
+		// Initialization vector (AAD)
+		var initializationVector = new byte[INITIALIZATION_VECTOR_SIZE];
+		SecureRandomUtils.nextBytes(initializationVector);
+		System.arraycopy(initializationVector, 0, encryptedData, HEADER_SIZE, INITIALIZATION_VECTOR_SIZE);
 
-		// Copy AAD data (initialization vector + length)
-		System.arraycopy(aad, 0, encryptedData, offset, aad.length);
-		offset += aad.length;
+		// Length (AAD)
+		var offset = HEADER_SIZE + INITIALIZATION_VECTOR_SIZE;
+		encryptedData[offset] = (byte) (plainTextLength & 0xff);
+		encryptedData[offset + 1] = (byte) ((plainTextLength >> 8) & 0xff);
+		encryptedData[offset + 2] = (byte) ((plainTextLength >> 16) & 0xff);
+		encryptedData[offset + 3] = (byte) ((plainTextLength >> 24) & 0xff);
 
-		byte[] cipherText;
+		var aad = Arrays.copyOfRange(encryptedData, HEADER_SIZE, HEADER_SIZE + INITIALIZATION_VECTOR_SIZE + EDATA_SIZE);
+		var output = ByteBuffer.wrap(encryptedData, HEADER_SIZE + aad.length, plainTextLength + AUTHENTICATION_TAG_SIZE);
 
-		if (encryptedData[2] == EncryptionFormat.CHACHA20_POLY1305.getValue())
+		switch (format)
 		{
-			cipherText = AEAD.encryptChaCha20Poly1305(key, initializationVector, plainText, aad);
+			case CHACHA20_POLY1305 -> AEAD.encryptChaCha20Poly1305(key, initializationVector, plainText, output, aad);
+			case CHACHA20_SHA256 -> AEAD.encryptChaCha20Sha256(key, initializationVector, plainText, output, aad);
 		}
-		else if (encryptedData[2] == EncryptionFormat.CHACHA20_SHA256.getValue())
-		{
-			cipherText = AEAD.encryptChaCha20Sha256(key, initializationVector, plainText, aad);
-		}
-		else
-		{
-			throw new IllegalArgumentException("Unsupported encrypted data type: " + encryptedData[2]);
-		}
-
-		System.arraycopy(cipherText, 0, encryptedData, offset, cipherText.length);
-
 		return encryptedData;
 	}
 
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.database;
+
+import io.micrometer.core.instrument.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A bounded queue whose entries are written in batches by a dedicated thread.
+ * <p>
+ * {@link #flush()} writes everything that is queued on the caller's thread, so that a reader
+ * can see all the entries added before. When the queue is full, the caller flushes it itself
+ * instead of dropping entries. Entries added before {@link #start()} are kept until then.
+ * <p>
+ * A batch that fails to be written is kept and tried again first on the next flush. It's only
+ * dropped after {@link #WRITE_ATTEMPTS} failures, so that a bad entry can't block the queue forever.
+ *
+ * @param <T> the type of entries
+ */
+public class WriteBehindQueue<T>
+{
+	private static final Logger log = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+	/**
+	 * How long to wait for more entries before writing, so that bursts are written together.
+	 */
+	private static final Duration FLUSH_DELAY = Duration.ofMillis(100);
+
+	static final int WRITE_ATTEMPTS = 3;
+
+	private final String name;
+	private final BlockingQueue<T> queue;
+	private final int batchSize;
+	private final Consumer<List<T>> writer;
+	private final Object flushLock = new Object();
+	private final Timer flushTimer;
+	private final DistributionSummary batchSizeSummary;
+	private final Counter droppedCounter;
+	private volatile Thread thread;
+	private volatile boolean stopped;
+	private volatile List<T> failedBatch;
+	private int failedAttempts;
+
+	private long flushes;
+	private long written;
+	private long totalFlushTime;
+	private long lastFlushTime;
+	private int maxBatchSize;
+
+	/**
+	 * Creates a write-behind queue.
+	 *
+	 * @param name      the name, also used for the thread
+	 * @param capacity  the maximum number of entries waiting to be written
+	 * @param batchSize the maximum number of entries given to the writer at once
+	 * @param writer    the writer, called with the entries in the order they were added
+	 */
+	public WriteBehindQueue(String name, int capacity, int batchSize, Consumer<List<T>> writer)
+	{
+		if (batchSize < 1 || capacity < batchSize)
+		{
+			throw new IllegalArgumentException("batchSize must be greater than 0 and not greater than capacity");
+		}
+		this.name = name;
+		this.batchSize = batchSize;
+		this.writer = writer;
+		queue = new ArrayBlockingQueue<>(capacity);
+
+		Gauge.builder("xrs.queue.size", this, WriteBehindQueue::size)
+				.description("Entries waiting to be written")
+				.tag("queue", name)
+				.register(Metrics.globalRegistry);
+		FunctionCounter.builder("xrs.queue.written", this, WriteBehindQueue::getWritten)
+				.description("Entries written")
+				.tag("queue", name)
+				.register(Metrics.globalRegistry);
+		flushTimer = Timer.builder("xrs.queue.flush")
+				.description("Time taken to write a batch")
+				.tag("queue", name)
+				.register(Metrics.globalRegistry);
+		batchSizeSummary = DistributionSummary.builder("xrs.queue.batch")
+				.description("Number of entries written at once")
+				.tag("queue", name)
+				.register(Metrics.globalRegistry);
+		droppedCounter = Counter.builder("xrs.queue.dropped")
+				.description("Entries dropped after failing to be written")
+				.tag("queue", name)
+				.register(Metrics.globalRegistry);
+	}
+
+	public void start()
+	{
+		stopped = false;
+		thread = Thread.ofVirtual()
+				.name(name)
+				.start(this::run);
+	}
+
+	/**
+	 * Adds an entry to be written.
+	 *
+	 * @param entry the entry
+	 */
+	public void add(T entry)
+	{
+		while (!queue.offer(entry))
+		{
+			log.debug("{} is full, flushing on the caller", name);
+			flush();
+		}
+		var currentThread = thread;
+		if (currentThread != null)
+		{
+			LockSupport.unpark(currentThread);
+		}
+		else if (stopped)
+		{
+			flush();
+		}
+	}
+
+	/**
+	 * Writes all the queued entries and waits for any write in progress. Stops at the first batch that
+	 * fails to be written, it's tried again on the next flush.
+	 */
+	public void flush()
+	{
+		synchronized (flushLock)
+		{
+			var batch = failedBatch;
+			if (batch == null)
+			{
+				batch = new ArrayList<>(batchSize);
+				queue.drainTo(batch, batchSize);
+			}
+			while (!batch.isEmpty())
+			{
+				if (!tryWrite(batch))
+				{
+					return;
+				}
+				batch = new ArrayList<>(batchSize);
+				queue.drainTo(batch, batchSize);
+			}
+		}
+	}
+
+	/**
+	 * Stops the thread and writes the remaining entries. Entries added afterward are written immediately.
+	 */
+	public void shutdown()
+	{
+		var oldThread = thread;
+		stopped = true;
+		thread = null;
+		if (oldThread != null)
+		{
+			// Not interrupted, so that a write in progress isn't disturbed
+			LockSupport.unpark(oldThread);
+			try
+			{
+				oldThread.join(Duration.ofSeconds(5));
+			}
+			catch (InterruptedException _)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+		flush();
+		log.info("{}: {} entries written in {} flushes, average flush time: {} ms, largest batch: {}", name, written, flushes, getAverageFlushTime().toMillis(), maxBatchSize);
+	}
+
+	public int size()
+	{
+		return queue.size();
+	}
+
+	public long getFlushes()
+	{
+		synchronized (flushLock)
+		{
+			return flushes;
+		}
+	}
+
+	public long getWritten()
+	{
+		synchronized (flushLock)
+		{
+			return written;
+		}
+	}
+
+	public int getMaxBatchSize()
+	{
+		synchronized (flushLock)
+		{
+			return maxBatchSize;
+		}
+	}
+
+	public Duration getLastFlushTime()
+	{
+		synchronized (flushLock)
+		{
+			return Duration.ofNanos(lastFlushTime);
+		}
+	}
+
+	public Duration getAverageFlushTime()
+	{
+		synchronized (flushLock)
+		{
+			return flushes == 0 ? Duration.ZERO : Duration.ofNanos(totalFlushTime / flushes);
+		}
+	}
+
+	/**
+	 * Runs until {@link #shutdown()}, which does the final flush.
+	 */
+	private void run()
+	{
+		while (!stopped)
+		{
+			if (queue.isEmpty() && failedBatch == null)
+			{
+				LockSupport.park(this);
+				continue;
+			}
+			LockSupport.parkNanos(this, FLUSH_DELAY.toNanos());
+			if (!stopped)
+			{
+				flush();
+			}
+		}
+	}
+
+	/**
+	 * Writes a batch, keeping it for later if that fails.
+	 *
+	 * @param batch the batch
+	 * @return true if the batch is done with, false if it has to be tried again
+	 */
+	private boolean tryWrite(List<T> batch)
+	{
+		if (write(batch))
+		{
+			failedBatch = null;
+			failedAttempts = 0;
+			return true;
+		}
+		if (++failedAttempts >= WRITE_ATTEMPTS)
+		{
+			log.error("{}: dropping {} entries after {} failed attempts", name, batch.size(), failedAttempts);
+			droppedCounter.increment(batch.size());
+			failedBatch = null;
+			failedAttempts = 0;
+			return true;
+		}
+		failedBatch = batch;
+		return false;
+	}
+
+	private boolean write(List<T> batch)
+	{
+		var start = System.nanoTime();
+		var success = true;
+		try
+		{
+			writer.accept(batch);
+			written += batch.size();
+		}
+		catch (RuntimeException e)
+		{
+			log.error("{}: failed to write {} entries: {}", name, batch.size(), e.getMessage(), e);
+			success = false;
+		}
+		var elapsed = System.nanoTime() - start;
+		flushes++;
+		totalFlushTime += elapsed;
+		lastFlushTime = elapsed;
+		maxBatchSize = Math.max(maxBatchSize, batch.size());
+		flushTimer.record(elapsed, TimeUnit.NANOSECONDS);
+		batchSizeSummary.record(batch.size());
+		log.debug("{}: wrote {} entries in {} ms", name, batch.size(), elapsed / 1_000_000L);
+		return success;
+	}
+}
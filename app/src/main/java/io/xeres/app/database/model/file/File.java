@@ -40,6 +40,7 @@ public class File
 
 	private static final int NAME_SIZE_MIN = 1;
 	private static final int NAME_SIZE_MAX = 255;
+	private static final int FILE_KEY_SIZE_MAX = 64;
 
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -70,6 +71,9 @@ public class File
 
 	private Instant modified;
 
+	@Size(max = FILE_KEY_SIZE_MAX)
+	private String fileKey;
+
 	public static File createDirectory(File parent, String name, Instant modified)
 	{
 		var file = new File();
@@ -226,6 +230,16 @@ public class File
 		this.modified = modified;
 	}
 
+	public String getFileKey()
+	{
+		return fileKey;
+	}
+
+	public void setFileKey(String fileKey)
+	{
+		this.fileKey = fileKey;
+	}
+
 	@Override
 	public String toString()
 	{
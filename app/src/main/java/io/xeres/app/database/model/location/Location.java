@@ -43,7 +43,6 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Stream;
 
 import static io.xeres.common.dto.location.LocationConstants.OWN_LOCATION_ID;
 import static java.util.Comparator.*;
@@ -339,25 +338,18 @@ public class Location implements Comparable<Location>
 	}
 
 	/**
-	 * Returns the best connection. Prefers connections most recently connected to and prefers the LAN
+	 * Returns the connections, the most reliable first. Prefers connections most recently connected to and prefers the LAN
 	 * address if the external address is the same as the host.
 	 *
-	 * @param index     index of the connection, is supposed to always increment so that a different connection is returned
 	 * @param ipToAvoid the IP to put last
-	 * @return a connection or empty if none
+	 * @return the connections
 	 */
-	public Stream<Connection> getBestConnection(int index, String ipToAvoid)
+	public List<Connection> getConnectionsByReliability(String ipToAvoid)
 	{
-		if (connections.isEmpty())
-		{
-			return Stream.empty();
-		}
-		var connectionsSortedByMostReliable = connections.stream()
+		return connections.stream()
 				.sorted(comparing(Location::getConnectionAsIpv4, new OwnIpComparator<>(ipToAvoid))
 						.thenComparing(Connection::getLastConnected, nullsLast(reverseOrder())))
 				.toList();
-
-		return Stream.of(connectionsSortedByMostReliable.get(index % connectionsSortedByMostReliable.size()));
 	}
 
 	@Override
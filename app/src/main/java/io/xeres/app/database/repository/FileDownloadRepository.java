@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -25,6 +25,7 @@ import io.xeres.common.id.Sha1Sum;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,6 +34,8 @@ public interface FileDownloadRepository extends JpaRepository<FileDownload, Long
 {
 	Optional<FileDownload> findByHash(Sha1Sum hash);
 
+	List<FileDownload> findAllByHashIn(Collection<Sha1Sum> hashes);
+
 	List<FileDownload> findAllByLocationIsNull();
 
 	List<FileDownload> findAllByLocation(Location location);
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -20,10 +20,13 @@
 package io.xeres.app.database.repository;
 
 import io.xeres.app.database.model.file.File;
+import io.xeres.app.database.model.file.FileEncryptedHash;
 import io.xeres.common.id.Sha1Sum;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,7 +43,15 @@ public interface FileRepository extends JpaRepository<File, Long>
 
 	int countByParent(File parent);
 
+	List<File> findAllByParent(File parent);
+
+	Optional<File> findFirstByFileKeyAndSizeAndModified(String fileKey, long size, Instant modified);
+
 	List<File> findByHash(Sha1Sum hash);
 
 	List<File> findByEncryptedHash(Sha1Sum encryptedHash);
+
+	List<FileEncryptedHash> findByIdGreaterThanAndEncryptedHashIsNotNullOrderByIdAsc(long id, Limit limit);
+
+	long countByEncryptedHashIsNotNull();
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2023 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -20,14 +20,18 @@
 package io.xeres.app.database.repository;
 
 import io.xeres.app.database.model.location.Location;
+import io.xeres.app.net.protocol.PeerAddress;
 import io.xeres.common.id.LocationIdentifier;
+import io.xeres.common.location.Availability;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,7 +40,14 @@ public interface LocationRepository extends JpaRepository<Location, Long>
 {
 	Optional<Location> findByLocationIdentifier(LocationIdentifier locationIdentifier);
 
-	Slice<Location> findAllByConnectedFalse(Pageable pageable);
+	/**
+	 * Finds the locations that aren't connected together with their connections, the most recently connected first.
+	 * Locations without any connection are left out.
+	 *
+	 * @return the locations
+	 */
+	@Query("SELECT l FROM Location l JOIN FETCH l.connections WHERE l.connected = false ORDER BY l.lastConnected DESC NULLS LAST")
+	List<Location> findAllByConnectedFalseWithConnections();
 
 	Slice<Location> findAllByConnectedFalseAndDhtTrue(Pageable pageable);
 
@@ -46,4 +57,28 @@ public interface LocationRepository extends JpaRepository<Location, Long>
 	@Transactional
 	@Query("UPDATE Location l SET l.connected = false WHERE l.connected = true")
 	void putAllConnectedToFalse();
+
+	@Modifying
+	@Transactional
+	@Query("UPDATE Location l SET l.connected = :connected, l.lastConnected = :lastConnected WHERE l.id = :id")
+	int updateConnected(@Param("id") long id, @Param("connected") boolean connected, @Param("lastConnected") Instant lastConnected);
+
+	@Modifying
+	@Transactional
+	@Query("UPDATE Location l SET l.availability = :availability WHERE l.id = :id")
+	int updateAvailability(@Param("id") long id, @Param("availability") Availability availability);
+
+	/**
+	 * Updates the last connection time of the addresses of a location that have the same origin (same IP but any port).
+	 *
+	 * @param id            the location id
+	 * @param type          the address type
+	 * @param external      if the address is external
+	 * @param addressPrefix the address without its port, followed by ":%"
+	 * @param lastConnected the last connection time, older times are ignored
+	 */
+	@Modifying
+	@Transactional
+	@Query("UPDATE Connection c SET c.lastConnected = :lastConnected WHERE c.location.id = :id AND c.type = :type AND c.external = :external AND c.address LIKE :addressPrefix AND (c.lastConnected IS NULL OR c.lastConnected < :lastConnected)")
+	void updateConnectionLastConnected(@Param("id") long id, @Param("type") PeerAddress.Type type, @Param("external") boolean external, @Param("addressPrefix") String addressPrefix, @Param("lastConnected") Instant lastConnected);
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.app.job;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Remembers the outcome of the outgoing connections to each address and tells when an address can be
+ * tried again. Each failure doubles the time before the next attempt, up to a maximum, with some jitter
+ * so that addresses which failed together aren't all tried again at the same time.
+ * <p>
+ * All times are in nanoseconds, as returned by {@link System#nanoTime()}.
+ */
+class DialHistory
+{
+	static final Duration MIN_BACKOFF = Duration.ofSeconds(30);
+	static final Duration MAX_BACKOFF = Duration.ofMinutes(30);
+	private static final double JITTER = 0.2;
+
+	private record Entry(int failures, long nextAttempt)
+	{
+	}
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Tells if an address can be tried.
+	 *
+	 * @param address the address
+	 * @param now     the current time
+	 * @return true if the address never failed or its backoff is over
+	 */
+	public boolean isDue(String address, long now)
+	{
+		var entry = entries.get(address);
+		return entry == null || now - entry.nextAttempt() >= 0L;
+	}
+
+	public void recordSuccess(String address)
+	{
+		entries.remove(address);
+	}
+
+	public void recordFailure(String address, long now)
+	{
+		entries.compute(address, (_, entry) -> {
+			var failures = entry != null ? entry.failures() + 1 : 1;
+			return new Entry(failures, now + getBackoff(failures).toNanos());
+		});
+	}
+
+	public int getFailures(String address)
+	{
+		var entry = entries.get(address);
+		return entry != null ? entry.failures() : 0;
+	}
+
+	/**
+	 * Gets the number of addresses which are waiting for their backoff to be over.
+	 *
+	 * @param now the current time
+	 * @return the number of addresses
+	 */
+	public int getBackingOff(long now)
+	{
+		return (int) entries.values().stream()
+				.filter(entry -> now - entry.nextAttempt() < 0L)
+				.count();
+	}
+
+	/**
+	 * Makes all addresses available again, for example because our own network changed and the
+	 * previous failures might not mean anything anymore. The failure counts are kept.
+	 *
+	 * @param now the current time
+	 */
+	public void reset(long now)
+	{
+		entries.replaceAll((_, entry) -> new Entry(entry.failures(), now));
+	}
+
+	/**
+	 * Forgets the addresses whose backoff has been over for a long time without them being tried
+	 * again, because they aren't used anymore or their location connected to us.
+	 *
+	 * @param now the current time
+	 */
+	public void forgetStale(long now)
+	{
+		entries.values().removeIf(entry -> now - entry.nextAttempt() > MAX_BACKOFF.toNanos());
+	}
+
+	static Duration getBackoff(int failures)
+	{
+		var backoff = MIN_BACKOFF.multipliedBy(1L << Math.min(failures - 1, 16));
+		if (backoff.compareTo(MAX_BACKOFF) > 0)
+		{
+			backoff = MAX_BACKOFF;
+		}
+		var jitter = 1.0 + ThreadLocalRandom.current().nextDouble(-JITTER, JITTER);
+		return Duration.ofNanos((long) (backoff.toNanos() * jitter));
+	}
+}
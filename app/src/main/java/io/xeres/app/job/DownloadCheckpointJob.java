@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.job;
+
+import io.xeres.app.service.PeerService;
+import io.xeres.app.xrs.service.filetransfer.FileTransferRsService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the chunk maps of the downloads, so that they can resume from where they were after a crash.
+ */
+@Component
+public class DownloadCheckpointJob
+{
+	private final PeerService peerService;
+	private final FileTransferRsService fileTransferRsService;
+
+	public DownloadCheckpointJob(PeerService peerService, FileTransferRsService fileTransferRsService)
+	{
+		this.peerService = peerService;
+		this.fileTransferRsService = fileTransferRsService;
+	}
+
+	@Scheduled(initialDelay = 30, fixedDelay = 10, timeUnit = TimeUnit.SECONDS)
+	void saveCheckpoints()
+	{
+		if (JobUtils.canRun(peerService))
+		{
+			fileTransferRsService.saveChunkMapCheckpoints();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -20,7 +20,7 @@
 package io.xeres.app.job;
 
 import io.xeres.app.service.PeerService;
-import io.xeres.app.service.file.FileService;
+import io.xeres.app.service.file.ShareWatcher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -33,12 +33,12 @@ import java.util.concurrent.TimeUnit;
 public class FileIndexingJob
 {
 	private final PeerService peerService;
-	private final FileService fileService;
+	private final ShareWatcher shareWatcher;
 
-	public FileIndexingJob(PeerService peerService, FileService fileService)
+	public FileIndexingJob(PeerService peerService, ShareWatcher shareWatcher)
 	{
 		this.peerService = peerService;
-		this.fileService = fileService;
+		this.shareWatcher = shareWatcher;
 	}
 
 	@Scheduled(initialDelay = 60, fixedDelay = 30, timeUnit = TimeUnit.SECONDS)
@@ -46,7 +46,8 @@ public class FileIndexingJob
 	{
 		if (JobUtils.canRun(peerService))
 		{
-			fileService.checkForSharesToScan();
+			shareWatcher.watchShares();
+			shareWatcher.scanShares();
 		}
 	}
 }
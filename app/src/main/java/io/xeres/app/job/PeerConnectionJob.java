@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2023 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,21 +19,32 @@
 
 package io.xeres.app.job;
 
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.xeres.app.application.events.IpChangedEvent;
+import io.xeres.app.application.events.PeerConnectedEvent;
 import io.xeres.app.database.model.connection.Connection;
 import io.xeres.app.database.model.location.Location;
+import io.xeres.app.net.peer.PeerAttribute;
 import io.xeres.app.net.peer.bootstrap.PeerI2pClient;
 import io.xeres.app.net.peer.bootstrap.PeerTcpClient;
 import io.xeres.app.net.peer.bootstrap.PeerTorClient;
 import io.xeres.app.net.protocol.PeerAddress;
 import io.xeres.app.service.LocationService;
 import io.xeres.app.service.PeerService;
+import io.xeres.common.id.LocationIdentifier;
 import io.xeres.common.properties.StartupProperties;
+import io.xeres.common.rest.statistics.ConnectionStatisticsResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.Comparator;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
@@ -41,6 +52,10 @@ import static io.xeres.common.properties.StartupProperties.Property.SERVER_ONLY;
 
 /**
  * Handles automatic outgoing connections to peers.
+ * <p>
+ * The locations that were connected most recently are tried first. All addresses of a location are
+ * raced against each other and each address which fails is tried less and less often. Right after
+ * startup or an IP change, more locations are tried at once so that everyone is reconnected quickly.
  */
 @Component
 public class PeerConnectionJob
@@ -48,6 +63,14 @@ public class PeerConnectionJob
 	private static final Logger log = LoggerFactory.getLogger(PeerConnectionJob.class);
 
 	private static final int SIMULTANEOUS_CONNECTIONS = 10; // number of locations to connect at once
+	private static final int BURST_CONNECTIONS = 50; // same, right after startup or an IP change
+	private static final Duration BURST_DURATION = Duration.ofMinutes(5);
+
+	/**
+	 * Delay before trying the next address of a location while the previous attempts are still
+	 * pending, as in RFC 8305 (happy eyeballs).
+	 */
+	private static final Duration ATTEMPT_DELAY = Duration.ofMillis(250);
 
 	private final LocationService locationService;
 	private final PeerTcpClient peerTcpClient;
@@ -55,6 +78,13 @@ public class PeerConnectionJob
 	private final PeerI2pClient peerI2pClient;
 	private final PeerService peerService;
 
+	private final DialHistory dialHistory = new DialHistory();
+	private final Map<LocationIdentifier, Dial> dials = new ConcurrentHashMap<>();
+
+	private long burstStart = System.nanoTime();
+	private Set<LocationIdentifier> untriedLocations; // not tried since the burst started
+	private volatile Duration reconnectAllTime = Duration.ZERO;
+
 	public PeerConnectionJob(LocationService locationService, PeerTcpClient peerTcpClient, PeerTorClient peerTorClient, PeerI2pClient peerI2pClient, PeerService peerService)
 	{
 		this.locationService = locationService;
@@ -64,12 +94,34 @@ public class PeerConnectionJob
 		this.peerService = peerService;
 	}
 
-	@Scheduled(initialDelay = 5, fixedDelay = 60, timeUnit = TimeUnit.SECONDS)
+	@Scheduled(initialDelay = 5, fixedDelay = 10, timeUnit = TimeUnit.SECONDS)
 	void checkConnections()
 	{
 		connectToPeers();
 	}
 
+	@EventListener
+	public void onIpChangedEvent(IpChangedEvent unused)
+	{
+		synchronized (PeerConnectionJob.class)
+		{
+			startBurst(System.nanoTime());
+			dialHistory.reset(burstStart);
+		}
+	}
+
+	/**
+	 * A dial is only over once the peer is authenticated (or its channel closed), otherwise
+	 * a slow TLS handshake would get the location dialed again at the next tick.
+	 *
+	 * @param event the event
+	 */
+	@EventListener
+	public void onPeerConnectedEvent(PeerConnectedEvent event)
+	{
+		dials.remove(event.locationIdentifier());
+	}
+
 	private boolean canRun()
 	{
 		// Also do not execute if we're in server mode (i.e. only accepting connections)
@@ -84,15 +136,77 @@ public class PeerConnectionJob
 		}
 		synchronized (PeerConnectionJob.class)
 		{
-			var connections = locationService.getConnectionsToConnectTo(SIMULTANEOUS_CONNECTIONS);
+			var now = System.nanoTime();
+			var locations = locationService.getAddressesToConnectTo(address -> dialHistory.isDue(address, now));
+			dialHistory.forgetStale(now);
+
+			if (untriedLocations == null)
+			{
+				untriedLocations = new HashSet<>(locations.keySet());
+			}
+			else
+			{
+				untriedLocations.retainAll(locations.keySet()); // Those that connected to us don't count
+			}
 
-			for (var connection : connections)
+			var budget = getBudget(now) - dials.size();
+			for (var entry : locations.entrySet())
 			{
-				connect(connection);
+				if (budget <= 0)
+				{
+					break;
+				}
+				if (dials.containsKey(entry.getKey()))
+				{
+					continue;
+				}
+				var addresses = entry.getValue().stream()
+						.filter(address -> dialHistory.isDue(address, now))
+						.sorted(Comparator.comparingInt(dialHistory::getFailures))
+						.toList();
+
+				if (!addresses.isEmpty())
+				{
+					dial(entry.getKey(), addresses);
+					untriedLocations.remove(entry.getKey());
+					budget--;
+				}
 			}
+			updateReconnectAllTime(now);
+		}
+	}
+
+	private int getBudget(long now)
+	{
+		return now - burstStart < BURST_DURATION.toNanos() ? BURST_CONNECTIONS : SIMULTANEOUS_CONNECTIONS;
+	}
+
+	private void startBurst(long now)
+	{
+		burstStart = now;
+		untriedLocations = null;
+	}
+
+	private void updateReconnectAllTime(long now)
+	{
+		if (untriedLocations != null && untriedLocations.isEmpty())
+		{
+			reconnectAllTime = Duration.ofNanos(now - burstStart);
+			log.info("All unconnected locations tried in {} s", reconnectAllTime.toSeconds());
+			untriedLocations = Set.of(); // Stays empty until the next burst
 		}
 	}
 
+	/**
+	 * Gets the statistics of the outgoing connections.
+	 *
+	 * @return the statistics
+	 */
+	public ConnectionStatisticsResponse getStatistics()
+	{
+		return new ConnectionStatisticsResponse(dials.size(), dialHistory.getBackingOff(System.nanoTime()), reconnectAllTime.toMillis());
+	}
+
 	public void connectImmediately(Location location, int connectionIndex)
 	{
 		if (!canRun())
@@ -109,11 +223,11 @@ public class PeerConnectionJob
 			{
 				if (connectionIndex == -1)
 				{
-					connect(connections.get(ThreadLocalRandom.current().nextInt(connections.size())));
+					connect(connections.get(ThreadLocalRandom.current().nextInt(connections.size())).getAddress());
 				}
 				else if (connectionIndex < connections.size())
 				{
-					connect(connections.get(connectionIndex));
+					connect(connections.get(connectionIndex).getAddress());
 				}
 				else
 				{
@@ -123,29 +237,132 @@ public class PeerConnectionJob
 		}
 	}
 
-	private void connect(Connection connection)
+	private void dial(LocationIdentifier locationIdentifier, List<String> addresses)
+	{
+		var dial = new Dial(locationIdentifier, addresses);
+		dials.put(locationIdentifier, dial);
+		dial.startNext();
+	}
+
+	private ChannelFuture connect(String address)
 	{
-		log.debug("Attempting to connect to {} ...", connection.getAddress());
-		var peerAddress = PeerAddress.fromAddress(connection.getAddress());
+		log.debug("Attempting to connect to {} ...", address);
+		var peerAddress = PeerAddress.fromAddress(address);
 		if (peerAddress.isValid())
 		{
 			if (peerAddress.isHidden())
 			{
-				switch (peerAddress.getType())
+				return switch (peerAddress.getType())
 				{
 					case TOR -> peerTorClient.connect(peerAddress);
 					case I2P -> peerI2pClient.connect(peerAddress);
 					default -> throw new IllegalArgumentException("Wrong type " + peerAddress.getType() + " for hidden address");
-				}
+				};
 			}
 			else
 			{
-				peerTcpClient.connect(peerAddress);
+				return peerTcpClient.connect(peerAddress);
 			}
 		}
 		else
 		{
-			log.error("Automatic connection: invalid address for {}", connection.getAddress());
+			log.error("Automatic connection: invalid address for {}", address);
+			return null;
+		}
+	}
+
+	/**
+	 * The connection attempts to the addresses of one location. Each address is tried after the previous
+	 * one failed or didn't connect in time, without cancelling it. The first connection wins and the other
+	 * attempts are cancelled so that only one TLS session is set up with the peer.
+	 */
+	private final class Dial
+	{
+		private final LocationIdentifier locationIdentifier;
+		private final List<String> addresses;
+		private final List<ChannelFuture> attempts = new ArrayList<>();
+		private int next;
+		private int finished;
+		private Channel winner;
+
+		private Dial(LocationIdentifier locationIdentifier, List<String> addresses)
+		{
+			this.locationIdentifier = locationIdentifier;
+			this.addresses = addresses;
+		}
+
+		private synchronized void startNext()
+		{
+			if (winner != null || next >= addresses.size())
+			{
+				return;
+			}
+			var address = addresses.get(next++);
+			var future = connect(address);
+			if (future == null)
+			{
+				dialHistory.recordFailure(address, System.nanoTime());
+				attemptFinished();
+				startNext();
+				return;
+			}
+			attempts.add(future);
+			future.addListener(_ -> onConnect(address, future));
+			if (next < addresses.size())
+			{
+				CompletableFuture.runAsync(this::startNext, CompletableFuture.delayedExecutor(ATTEMPT_DELAY.toMillis(), TimeUnit.MILLISECONDS));
+			}
+		}
+
+		private synchronized void onConnect(String address, ChannelFuture future)
+		{
+			if (future.isSuccess())
+			{
+				if (winner != null)
+				{
+					future.channel().close(); // Lost the race
+					return;
+				}
+				winner = future.channel();
+				attempts.stream()
+						.filter(attempt -> attempt != future)
+						.forEach(attempt -> attempt.cancel(false));
+				winner.closeFuture().addListener(_ -> onClose(address, future.channel()));
+			}
+			else if (!future.isCancelled())
+			{
+				log.debug("Connection to {} failed: {}", address, future.cause() != null ? future.cause().getMessage() : "unknown");
+				dialHistory.recordFailure(address, System.nanoTime());
+				attemptFinished();
+				startNext();
+			}
+		}
+
+		private void attemptFinished()
+		{
+			if (++finished == addresses.size())
+			{
+				dials.remove(locationIdentifier, this);
+			}
+		}
+
+		/**
+		 * Only a connection that went through TLS and the peer's authentication is a success.
+		 *
+		 * @param address the address
+		 * @param channel the channel
+		 */
+		private void onClose(String address, Channel channel)
+		{
+			dials.remove(locationIdentifier, this);
+			if (channel.attr(PeerAttribute.PEER_CONNECTION).get() != null)
+			{
+				dialHistory.recordSuccess(address);
+			}
+			else
+			{
+				dialHistory.recordFailure(address, System.nanoTime());
+			}
 		}
 	}
 }
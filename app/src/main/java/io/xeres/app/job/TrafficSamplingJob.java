@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.job;
+
+import io.xeres.app.net.peer.traffic.TrafficHistory;
+import io.xeres.common.util.RemoteUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolls the traffic counters of the peers into their history every second.
+ */
+@Component
+public class TrafficSamplingJob
+{
+	private final TrafficHistory trafficHistory;
+
+	public TrafficSamplingJob(TrafficHistory trafficHistory)
+	{
+		this.trafficHistory = trafficHistory;
+	}
+
+	@Scheduled(initialDelay = 1, fixedRate = 1, timeUnit = TimeUnit.SECONDS)
+	void sample()
+	{
+		// Unlike other jobs, this one keeps running when the network is down so that the time series stay continuous
+		if (!RemoteUtils.isRemoteUiClient())
+		{
+			trafficHistory.sample();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2023 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -21,10 +21,13 @@ package io.xeres.app.net.peer;
 
 import io.netty.util.AttributeKey;
 
+import java.net.SocketAddress;
+
 public final class PeerAttribute
 {
 	public static final AttributeKey<Boolean> MULTI_PACKET = AttributeKey.valueOf("MULTI_PACKET");
 	public static final AttributeKey<PeerConnection> PEER_CONNECTION = AttributeKey.valueOf("PEER_CONNECTION");
+	public static final AttributeKey<SocketAddress> PEER_ADDRESS = AttributeKey.valueOf("PEER_ADDRESS"); // The address we connected to, for outgoing connections
 
 	private PeerAttribute()
 	{
@@ -22,6 +22,7 @@ package io.xeres.app.net.peer;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.concurrent.ScheduledFuture;
 import io.xeres.app.database.model.location.Location;
+import io.xeres.app.net.peer.traffic.TrafficCounter;
 import io.xeres.app.xrs.service.RsService;
 import io.xeres.common.util.NoSuppressedRunnable;
 
@@ -52,11 +53,18 @@ public class PeerConnection
 	private final List<ScheduledFuture<?>> schedules = new ArrayList<>();
 	private final LongAdder sent = new LongAdder();
 	private final LongAdder received = new LongAdder();
+	private final TrafficCounter trafficCounter;
 
 	public PeerConnection(Location location, ChannelHandlerContext ctx)
+	{
+		this(location, ctx, new TrafficCounter());
+	}
+
+	public PeerConnection(Location location, ChannelHandlerContext ctx, TrafficCounter trafficCounter)
 	{
 		this.location = location;
 		this.ctx = ctx;
+		this.trafficCounter = trafficCounter;
 	}
 
 	public ChannelHandlerContext getCtx()
@@ -226,14 +234,16 @@ public class PeerConnection
 		schedules.forEach(scheduledFuture -> scheduledFuture.cancel(false));
 	}
 
-	public void incrementSentCounter(long value)
+	public void incrementSentCounter(int serviceType, int size)
 	{
-		sent.add(value);
+		sent.add(size);
+		trafficCounter.addSent(serviceType, size);
 	}
 
-	public void incrementReceivedCounter(long value)
+	public void incrementReceivedCounter(int serviceType, int size)
 	{
-		received.add(value);
+		received.add(size);
+		trafficCounter.addReceived(serviceType, size);
 	}
 
 	public long getSentCounter()
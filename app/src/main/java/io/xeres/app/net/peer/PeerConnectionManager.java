@@ -24,9 +24,11 @@ import io.netty.util.concurrent.FailedFuture;
 import io.xeres.app.application.events.PeerConnectedEvent;
 import io.xeres.app.application.events.PeerDisconnectedEvent;
 import io.xeres.app.database.model.location.Location;
+import io.xeres.app.net.peer.traffic.TrafficHistory;
 import io.xeres.app.service.notification.availability.AvailabilityNotificationService;
 import io.xeres.app.service.notification.status.StatusNotificationService;
 import io.xeres.app.xrs.item.Item;
+import io.xeres.app.xrs.item.RawItem;
 import io.xeres.app.xrs.serialization.SerializationFlags;
 import io.xeres.app.xrs.service.RsService;
 import io.xeres.app.xrs.service.sliceprobe.item.SliceProbeItem;
@@ -36,7 +38,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
@@ -55,28 +59,33 @@ public class PeerConnectionManager
 	private final StatusNotificationService statusNotificationService;
 	private final AvailabilityNotificationService availabilityNotificationService;
 	private final ApplicationEventPublisher publisher;
+	private final TrafficHistory trafficHistory;
 
 	private final Map<Long, PeerConnection> peers = new ConcurrentHashMap<>();
 
-	PeerConnectionManager(StatusNotificationService statusNotificationService, AvailabilityNotificationService availabilityNotificationService, ApplicationEventPublisher publisher)
+	PeerConnectionManager(StatusNotificationService statusNotificationService, AvailabilityNotificationService availabilityNotificationService, ApplicationEventPublisher publisher, TrafficHistory trafficHistory)
 	{
 		this.statusNotificationService = statusNotificationService;
 		this.availabilityNotificationService = availabilityNotificationService;
 		this.publisher = publisher;
+		this.trafficHistory = trafficHistory;
 	}
 
 	/**
-	 * Adds a connected peer.
+	 * Adds a connected peer. This is atomic for each location so that an incoming and an outgoing
+	 * connection with the same peer cannot both be added.
 	 *
 	 * @param location the location of the peer
 	 * @param ctx      the context
 	 * @return a peer connection
+	 * @throws IllegalStateException if the location is already connected
 	 */
 	public PeerConnection addPeer(Location location, ChannelHandlerContext ctx)
 	{
-		var peerConnection = new PeerConnection(location, ctx);
-		if (peers.put(location.getId(), peerConnection) != null)
+		var peerConnection = new PeerConnection(location, ctx, trafficHistory.acquireCounter(location.getId()));
+		if (peers.putIfAbsent(location.getId(), peerConnection) != null)
 		{
+			trafficHistory.releaseCounter(location.getId());
 			throw new IllegalStateException("Location " + location + " added already");
 		}
 		ctx.channel().attr(PEER_CONNECTION).set(peerConnection);
@@ -97,6 +106,7 @@ public class PeerConnectionManager
 		{
 			throw new IllegalStateException("Location " + location + " is not in the list of peers");
 		}
+		trafficHistory.releaseCounter(location.getId());
 		availabilityNotificationService.changeAvailability(location, Availability.OFFLINE);
 		updateCurrentUsersCount();
 		publisher.publishEvent(new PeerDisconnectedEvent(location.getId(), location.getLocationIdentifier()));
@@ -168,6 +178,48 @@ public class PeerConnectionManager
 		return new DefaultItemFuture(new FailedFuture<>(null, new IllegalStateException("Peer with connection " + peerConnection.getLocation() + " not found while trying to write item. User disconnected?")));
 	}
 
+	/**
+	 * Writes the same item to several locations. The item is only serialized once and the resulting buffer
+	 * is shared by all the writes.
+	 *
+	 * @param locations the target locations
+	 * @param item      the item to write, it must not be used afterward
+	 * @param rsService the service concerned
+	 * @return the ItemFuture of each location, in the same order
+	 */
+	public Map<Location, ItemFuture> writeItem(Collection<Location> locations, Item item, RsService rsService)
+	{
+		Map<Location, ItemFuture> futures = LinkedHashMap.newLinkedHashMap(locations.size());
+		RawItem rawItem = null;
+		try
+		{
+			for (var location : locations)
+			{
+				var peer = peers.get(location.getId());
+				if (peer == null)
+				{
+					futures.put(location, new DefaultItemFuture(new FailedFuture<>(null, new IllegalStateException("Peer with connection " + location + " not found while trying to write item. User disconnected?"))));
+					continue;
+				}
+				if (rawItem == null)
+				{
+					item.setOutgoing(peer.getCtx().alloc(), rsService);
+					rawItem = item.serializeItem(EnumSet.noneOf(SerializationFlags.class));
+					log.debug("==> {} to {} peers", item, locations.size());
+				}
+				futures.put(location, writeRawItem(peer, new RawItem(rawItem.getBuffer().retainedDuplicate(), rawItem.getPriority())));
+			}
+		}
+		finally
+		{
+			if (rawItem != null)
+			{
+				rawItem.dispose();
+			}
+		}
+		return futures;
+	}
+
 	/**
 	 * Executes an action for all peers.
 	 *
@@ -241,10 +293,15 @@ public class PeerConnectionManager
 	private static ItemFuture writeItem(PeerConnection peerConnection, Item item)
 	{
 		var rawItem = item.serializeItem(EnumSet.noneOf(SerializationFlags.class));
-		var size = rawItem.getSize(); // get it before it's written
 		log.debug("==> {}", item);
+		return writeRawItem(peerConnection, rawItem);
+	}
+
+	private static ItemFuture writeRawItem(PeerConnection peerConnection, RawItem rawItem)
+	{
+		var size = rawItem.getSize(); // get it before it's written
 		log.trace("Message content: {}", rawItem);
-		peerConnection.incrementSentCounter(size);
+		peerConnection.incrementSentCounter(rawItem.getPacketService(), size);
 		return new DefaultItemFuture(peerConnection.getCtx().writeAndFlush(rawItem), size);
 	}
 
@@ -19,14 +19,15 @@
 
 package io.xeres.app.net.peer.bootstrap;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.MultiThreadIoEventLoopGroup;
-import io.netty.channel.nio.NioIoHandler;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.resolver.AddressResolverGroup;
 import io.xeres.app.database.DatabaseSessionManager;
 import io.xeres.app.net.peer.PeerConnectionManager;
+import io.xeres.app.net.peer.ssl.HandshakeStatistics;
 import io.xeres.app.net.protocol.PeerAddress;
 import io.xeres.app.properties.NetworkProperties;
 import io.xeres.app.service.LocationService;
@@ -41,6 +42,7 @@ import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
 
+import static io.xeres.app.net.peer.PeerAttribute.PEER_ADDRESS;
 import static io.xeres.common.properties.StartupProperties.Property.FAST_SHUTDOWN;
 
 abstract class PeerClient
@@ -57,6 +59,7 @@ abstract class PeerClient
 	protected final ServiceInfoRsService serviceInfoRsService;
 	protected final UiBridgeService uiBridgeService;
 	protected final RsServiceRegistry rsServiceRegistry;
+	protected final HandshakeStatistics handshakeStatistics;
 
 	private Bootstrap bootstrap;
 	private EventLoopGroup group;
@@ -65,7 +68,7 @@ abstract class PeerClient
 
 	public abstract AddressResolverGroup<? extends SocketAddress> getAddressResolverGroup();
 
-	protected PeerClient(SettingsService settingsService, NetworkProperties networkProperties, ProfileService profileService, LocationService locationService, PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, ServiceInfoRsService serviceInfoRsService, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry)
+	protected PeerClient(SettingsService settingsService, NetworkProperties networkProperties, ProfileService profileService, LocationService locationService, PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, ServiceInfoRsService serviceInfoRsService, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry, HandshakeStatistics handshakeStatistics)
 	{
 		this.settingsService = settingsService;
 		this.networkProperties = networkProperties;
@@ -76,18 +79,26 @@ abstract class PeerClient
 		this.serviceInfoRsService = serviceInfoRsService;
 		this.uiBridgeService = uiBridgeService;
 		this.rsServiceRegistry = rsServiceRegistry;
+		this.handshakeStatistics = handshakeStatistics;
+
+		Gauge.builder("xrs.netty.tasks.pending", this, peer -> PeerTransport.getPendingTasks(peer.group))
+				.description("Tasks waiting to run on the event loops")
+				.tag("group", getClass().getSimpleName())
+				.register(Metrics.globalRegistry);
 	}
 
 	public void start()
 	{
-		log.info("Starting peer client...");
-		group = new MultiThreadIoEventLoopGroup(NioIoHandler.newFactory());
+		var transport = PeerTransport.select(networkProperties.getTransport());
+		log.info("Starting peer client using {} transport...", transport);
+		group = transport.createEventLoopGroup(networkProperties.getIoThreads());
 
 		bootstrap = new Bootstrap();
 		setAddressResolver();
 		bootstrap.group(group)
-				.channel(NioSocketChannel.class)
-				.handler(getPeerInitializer());
+				.channel(transport.getSocketChannelClass());
+		PeerTransport.setOptions(transport.getSocketOptions(networkProperties, true), bootstrap::option);
+		bootstrap.handler(getPeerInitializer());
 	}
 
 	private void setAddressResolver()
@@ -126,11 +137,21 @@ abstract class PeerClient
 		}
 	}
 
-	public void connect(PeerAddress peerAddress)
+	/**
+	 * Connects to a peer.
+	 *
+	 * @param peerAddress the address of the peer
+	 * @return the future of the connection, or null if the client isn't started
+	 */
+	public ChannelFuture connect(PeerAddress peerAddress)
 	{
 		if (group != null)
 		{
-			bootstrap.connect(peerAddress.getSocketAddress());
+			var socketAddress = peerAddress.getSocketAddress();
+			return bootstrap.clone()
+					.attr(PEER_ADDRESS, socketAddress) // Allows to resume a previous TLS session with that peer
+					.connect(socketAddress);
 		}
+		return null;
 	}
 }
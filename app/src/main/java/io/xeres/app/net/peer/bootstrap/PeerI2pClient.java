@@ -23,6 +23,7 @@ import io.netty.resolver.AddressResolverGroup;
 import io.netty.resolver.NoopAddressResolverGroup;
 import io.xeres.app.database.DatabaseSessionManager;
 import io.xeres.app.net.peer.PeerConnectionManager;
+import io.xeres.app.net.peer.ssl.HandshakeStatistics;
 import io.xeres.app.properties.NetworkProperties;
 import io.xeres.app.service.LocationService;
 import io.xeres.app.service.ProfileService;
@@ -39,15 +40,15 @@ import static io.xeres.app.net.peer.ConnectionType.I2P_OUTGOING;
 @Component
 public class PeerI2pClient extends PeerClient
 {
-	public PeerI2pClient(SettingsService settingsService, NetworkProperties networkProperties, ProfileService profileService, LocationService locationService, PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, ServiceInfoRsService serviceInfoRsService, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry)
+	public PeerI2pClient(SettingsService settingsService, NetworkProperties networkProperties, ProfileService profileService, LocationService locationService, PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, ServiceInfoRsService serviceInfoRsService, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry, HandshakeStatistics handshakeStatistics)
 	{
-		super(settingsService, networkProperties, profileService, locationService, peerConnectionManager, databaseSessionManager, serviceInfoRsService, uiBridgeService, rsServiceRegistry);
+		super(settingsService, networkProperties, profileService, locationService, peerConnectionManager, databaseSessionManager, serviceInfoRsService, uiBridgeService, rsServiceRegistry, handshakeStatistics);
 	}
 
 	@Override
 	public PeerInitializer getPeerInitializer()
 	{
-		return new PeerInitializer(peerConnectionManager, databaseSessionManager, locationService, settingsService, networkProperties, serviceInfoRsService, I2P_OUTGOING, profileService, uiBridgeService, rsServiceRegistry);
+		return new PeerInitializer(peerConnectionManager, databaseSessionManager, locationService, settingsService, networkProperties, serviceInfoRsService, I2P_OUTGOING, profileService, uiBridgeService, rsServiceRegistry, handshakeStatistics);
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -29,6 +29,7 @@ import io.xeres.app.crypto.x509.X509;
 import io.xeres.app.database.DatabaseSessionManager;
 import io.xeres.app.net.peer.ConnectionType;
 import io.xeres.app.net.peer.PeerConnectionManager;
+import io.xeres.app.net.peer.ssl.HandshakeStatistics;
 import io.xeres.app.net.peer.pipeline.*;
 import io.xeres.app.net.peer.ssl.SSL;
 import io.xeres.app.properties.NetworkProperties;
@@ -48,6 +49,7 @@ import java.time.Duration;
 
 import static io.xeres.app.net.peer.ConnectionType.I2P_OUTGOING;
 import static io.xeres.app.net.peer.ConnectionType.TOR_OUTGOING;
+import static io.xeres.app.net.peer.PeerAttribute.PEER_ADDRESS;
 
 public class PeerInitializer extends ChannelInitializer<SocketChannel>
 {
@@ -65,12 +67,13 @@ public class PeerInitializer extends ChannelInitializer<SocketChannel>
 	private final ServiceInfoRsService serviceInfoRsService;
 	private final UiBridgeService uiBridgeService;
 	private final RsServiceRegistry rsServiceRegistry;
+	private final HandshakeStatistics handshakeStatistics;
 
 	private static final ChannelHandler SIMPLE_PACKET_ENCODER = new SimplePacketEncoder();
 	private static final ChannelHandler ITEM_ENCODER = new ItemEncoder();
 	private static final ChannelHandler IDLE_EVENT_HANDLER = new IdleEventHandler(PEER_IDLE_TIMEOUT);
 
-	public PeerInitializer(PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, LocationService locationService, SettingsService settingsService, NetworkProperties networkProperties, ServiceInfoRsService serviceInfoRsService, ConnectionType connectionType, ProfileService profileService, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry)
+	public PeerInitializer(PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, LocationService locationService, SettingsService settingsService, NetworkProperties networkProperties, ServiceInfoRsService serviceInfoRsService, ConnectionType connectionType, ProfileService profileService, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry, HandshakeStatistics handshakeStatistics)
 	{
 		this.settingsService = settingsService;
 		this.profileService = profileService;
@@ -86,6 +89,7 @@ public class PeerInitializer extends ChannelInitializer<SocketChannel>
 		this.networkProperties = networkProperties;
 		this.serviceInfoRsService = serviceInfoRsService;
 		this.rsServiceRegistry = rsServiceRegistry;
+		this.handshakeStatistics = handshakeStatistics;
 		this.locationService = locationService;
 		this.peerConnectionManager = peerConnectionManager;
 		this.databaseSessionManager = databaseSessionManager;
@@ -113,8 +117,17 @@ public class PeerInitializer extends ChannelInitializer<SocketChannel>
 			pipeline.addLast(new Socks5ProxyHandler(new InetSocketAddress(hostPort.host(), hostPort.port())));
 		}
 
-		// add SSL to encrypt and decrypt everything
-		pipeline.addLast(sslContext.newHandler(channel.alloc()));
+		// add SSL to encrypt and decrypt everything. Outgoing connections give the peer address so that
+		// a previous session with it can be resumed
+		var peerAddress = channel.attr(PEER_ADDRESS).get();
+		if (peerAddress instanceof InetSocketAddress inetSocketAddress)
+		{
+			pipeline.addLast(sslContext.newHandler(channel.alloc(), inetSocketAddress.getHostString(), inetSocketAddress.getPort()));
+		}
+		else
+		{
+			pipeline.addLast(sslContext.newHandler(channel.alloc()));
+		}
 
 		// decoder (inbound)
 		pipeline.addLast(new PacketDecoder());
@@ -131,6 +144,6 @@ public class PeerInitializer extends ChannelInitializer<SocketChannel>
 		// ^^^^^^^^
 		// Outbound
 
-		pipeline.addLast(new PeerHandler(profileService, locationService, peerConnectionManager, databaseSessionManager, serviceInfoRsService, connectionType, uiBridgeService, rsServiceRegistry));
+		pipeline.addLast(new PeerHandler(profileService, locationService, peerConnectionManager, databaseSessionManager, serviceInfoRsService, connectionType, uiBridgeService, rsServiceRegistry, handshakeStatistics));
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,17 +19,16 @@
 
 package io.xeres.app.net.peer.bootstrap;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
-import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.MultiThreadIoEventLoopGroup;
-import io.netty.channel.nio.NioIoHandler;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.xeres.app.database.DatabaseSessionManager;
 import io.xeres.app.net.peer.PeerConnectionManager;
+import io.xeres.app.net.peer.ssl.HandshakeStatistics;
 import io.xeres.app.properties.NetworkProperties;
 import io.xeres.app.service.LocationService;
 import io.xeres.app.service.ProfileService;
@@ -60,12 +59,13 @@ abstract class PeerServer
 	private final ServiceInfoRsService serviceInfoRsService;
 	private final UiBridgeService uiBridgeService;
 	private final RsServiceRegistry rsServiceRegistry;
+	private final HandshakeStatistics handshakeStatistics;
 
 	private EventLoopGroup bossGroup;
 	private EventLoopGroup workerGroup;
 	private ChannelFuture channel;
 
-	protected PeerServer(SettingsService settingsService, NetworkProperties networkProperties, ProfileService profileService, LocationService locationService, PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, ServiceInfoRsService serviceInfoRsService, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry)
+	protected PeerServer(SettingsService settingsService, NetworkProperties networkProperties, ProfileService profileService, LocationService locationService, PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, ServiceInfoRsService serviceInfoRsService, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry, HandshakeStatistics handshakeStatistics)
 	{
 		this.settingsService = settingsService;
 		this.networkProperties = networkProperties;
@@ -76,26 +76,32 @@ abstract class PeerServer
 		this.serviceInfoRsService = serviceInfoRsService;
 		this.uiBridgeService = uiBridgeService;
 		this.rsServiceRegistry = rsServiceRegistry;
+		this.handshakeStatistics = handshakeStatistics;
+
+		Gauge.builder("xrs.netty.tasks.pending", this, peer -> PeerTransport.getPendingTasks(peer.workerGroup))
+				.description("Tasks waiting to run on the event loops")
+				.tag("group", getClass().getSimpleName())
+				.register(Metrics.globalRegistry);
 	}
 
 	public void start(String host, int localPort)
 	{
-		var factory = NioIoHandler.newFactory();
-		bossGroup = new MultiThreadIoEventLoopGroup(1, factory);
-		workerGroup = new MultiThreadIoEventLoopGroup(factory);
+		var transport = PeerTransport.select(networkProperties.getTransport());
+		bossGroup = transport.createEventLoopGroup(1);
+		workerGroup = transport.createEventLoopGroup(networkProperties.getIoThreads());
 
 		try
 		{
 			var serverBootstrap = new ServerBootstrap();
 			serverBootstrap.group(bossGroup, workerGroup)
-					.channel(NioServerSocketChannel.class)
-					.option(ChannelOption.SO_BACKLOG, 128) // should be more
-					.option(ChannelOption.SO_REUSEADDR, true)
-					.handler(new LoggingHandler(LogLevel.DEBUG))
-					.childHandler(new PeerInitializer(peerConnectionManager, databaseSessionManager, locationService, settingsService, networkProperties, serviceInfoRsService, TCP_INCOMING, profileService, uiBridgeService, rsServiceRegistry));
+					.channel(transport.getServerSocketChannelClass());
+			PeerTransport.setOptions(transport.getServerOptions(networkProperties), serverBootstrap::option);
+			PeerTransport.setOptions(transport.getSocketOptions(networkProperties, false), serverBootstrap::childOption);
+			serverBootstrap.handler(new LoggingHandler(LogLevel.DEBUG))
+					.childHandler(new PeerInitializer(peerConnectionManager, databaseSessionManager, locationService, settingsService, networkProperties, serviceInfoRsService, TCP_INCOMING, profileService, uiBridgeService, rsServiceRegistry, handshakeStatistics));
 
 			channel = StringUtils.isBlank(host) ? serverBootstrap.bind(localPort).sync() : serverBootstrap.bind(host, localPort).sync();
-			log.info("Listening on {}, port {}", channel.channel().localAddress(), localPort);
+			log.info("Listening on {}, port {}, using {} transport", channel.channel().localAddress(), localPort, transport);
 		}
 		catch (InterruptedException e)
 		{
@@ -22,6 +22,7 @@ package io.xeres.app.net.peer.bootstrap;
 import io.netty.resolver.AddressResolverGroup;
 import io.xeres.app.database.DatabaseSessionManager;
 import io.xeres.app.net.peer.PeerConnectionManager;
+import io.xeres.app.net.peer.ssl.HandshakeStatistics;
 import io.xeres.app.properties.NetworkProperties;
 import io.xeres.app.service.LocationService;
 import io.xeres.app.service.ProfileService;
@@ -38,15 +39,15 @@ import static io.xeres.app.net.peer.ConnectionType.TCP_OUTGOING;
 @Component
 public class PeerTcpClient extends PeerClient
 {
-	public PeerTcpClient(SettingsService settingsService, NetworkProperties networkProperties, ProfileService profileService, LocationService locationService, PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, ServiceInfoRsService serviceInfoRsService, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry)
+	public PeerTcpClient(SettingsService settingsService, NetworkProperties networkProperties, ProfileService profileService, LocationService locationService, PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, ServiceInfoRsService serviceInfoRsService, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry, HandshakeStatistics handshakeStatistics)
 	{
-		super(settingsService, networkProperties, profileService, locationService, peerConnectionManager, databaseSessionManager, serviceInfoRsService, uiBridgeService, rsServiceRegistry);
+		super(settingsService, networkProperties, profileService, locationService, peerConnectionManager, databaseSessionManager, serviceInfoRsService, uiBridgeService, rsServiceRegistry, handshakeStatistics);
 	}
 
 	@Override
 	public PeerInitializer getPeerInitializer()
 	{
-		return new PeerInitializer(peerConnectionManager, databaseSessionManager, locationService, settingsService, networkProperties, serviceInfoRsService, TCP_OUTGOING, profileService, uiBridgeService, rsServiceRegistry);
+		return new PeerInitializer(peerConnectionManager, databaseSessionManager, locationService, settingsService, networkProperties, serviceInfoRsService, TCP_OUTGOING, profileService, uiBridgeService, rsServiceRegistry, handshakeStatistics);
 	}
 
 	@Override
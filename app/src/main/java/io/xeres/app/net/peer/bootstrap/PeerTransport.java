@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.net.peer.bootstrap;
+
+import io.netty.channel.*;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollIoHandler;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.uring.IoUring;
+import io.netty.channel.uring.IoUringIoHandler;
+import io.netty.channel.uring.IoUringServerSocketChannel;
+import io.netty.channel.uring.IoUringSocketChannel;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import io.xeres.app.properties.NetworkProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static io.xeres.app.properties.NetworkProperties.*;
+
+/**
+ * The Netty transport used by the peer server and clients. The native transports have a lower system
+ * call overhead and support more socket options but are only available on Linux.
+ */
+enum PeerTransport
+{
+	IO_URING,
+	EPOLL,
+	NIO;
+
+	private static final Logger log = LoggerFactory.getLogger(PeerTransport.class);
+
+	/**
+	 * Length of the queue of connections that can send data with their SYN when TCP Fast Open is enabled.
+	 */
+	private static final int TCP_FASTOPEN_QUEUE_LENGTH = 256;
+
+	/**
+	 * Selects a transport. If it's not available, NIO is used instead.
+	 *
+	 * @param name the name of the transport, as in {@link NetworkProperties#getTransport()}
+	 * @return the transport
+	 */
+	static PeerTransport select(String name)
+	{
+		var transport = switch (name)
+		{
+			case TRANSPORT_AUTO -> EPOLL.isAvailable() ? EPOLL : NIO; // io_uring is often disabled in containers, so it has to be asked for
+			case TRANSPORT_EPOLL -> EPOLL;
+			case TRANSPORT_IO_URING -> IO_URING;
+			case TRANSPORT_NIO -> NIO;
+			default -> throw new IllegalArgumentException("Unsupported transport: " + name);
+		};
+		if (!transport.isAvailable())
+		{
+			log.warn("{} transport is not available ({}), using NIO", transport, transport.getUnavailabilityCause());
+			return NIO;
+		}
+		return transport;
+	}
+
+	boolean isAvailable()
+	{
+		return switch (this)
+		{
+			case IO_URING -> IoUring.isAvailable();
+			case EPOLL -> Epoll.isAvailable();
+			case NIO -> true;
+		};
+	}
+
+	private String getUnavailabilityCause()
+	{
+		var cause = switch (this)
+		{
+			case IO_URING -> IoUring.unavailabilityCause();
+			case EPOLL -> Epoll.unavailabilityCause();
+			case NIO -> null;
+		};
+		return cause != null ? cause.getMessage() : "unknown cause";
+	}
+
+	/**
+	 * Creates an event loop group.
+	 *
+	 * @param threads the number of threads, 0 for Netty's default which depends on the number of processors
+	 * @return the event loop group
+	 */
+	EventLoopGroup createEventLoopGroup(int threads)
+	{
+		var factory = switch (this)
+		{
+			case IO_URING -> IoUringIoHandler.newFactory();
+			case EPOLL -> EpollIoHandler.newFactory();
+			case NIO -> NioIoHandler.newFactory();
+		};
+		return new MultiThreadIoEventLoopGroup(threads, factory);
+	}
+
+	Class<? extends SocketChannel> getSocketChannelClass()
+	{
+		return switch (this)
+		{
+			case IO_URING -> IoUringSocketChannel.class;
+			case EPOLL -> EpollSocketChannel.class;
+			case NIO -> NioSocketChannel.class;
+		};
+	}
+
+	Class<? extends ServerSocketChannel> getServerSocketChannelClass()
+	{
+		return switch (this)
+		{
+			case IO_URING -> IoUringServerSocketChannel.class;
+			case EPOLL -> EpollServerSocketChannel.class;
+			case NIO -> NioServerSocketChannel.class;
+		};
+	}
+
+	/**
+	 * Gets the options of the sockets connected to peers, both incoming and outgoing.
+	 *
+	 * @param networkProperties the network properties
+	 * @param outgoing          true for the sockets of a client
+	 * @return the options
+	 */
+	Map<ChannelOption<?>, Object> getSocketOptions(NetworkProperties networkProperties, boolean outgoing)
+	{
+		Map<ChannelOption<?>, Object> options = new LinkedHashMap<>();
+		if (networkProperties.getSendBufferSize() > 0)
+		{
+			options.put(ChannelOption.SO_SNDBUF, networkProperties.getSendBufferSize() * 1024);
+		}
+		if (networkProperties.getReceiveBufferSize() > 0)
+		{
+			options.put(ChannelOption.SO_RCVBUF, networkProperties.getReceiveBufferSize() * 1024);
+		}
+		options.put(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(networkProperties.getWriteBufferLowWaterMark() * 1024, networkProperties.getWriteBufferHighWaterMark() * 1024));
+		if (this == EPOLL && networkProperties.getNotSentLowWaterMark() > 0)
+		{
+			options.put(EpollChannelOption.TCP_NOTSENT_LOWAT, networkProperties.getNotSentLowWaterMark() * 1024L);
+		}
+		if (outgoing && this != NIO && networkProperties.isTcpFastOpen())
+		{
+			options.put(ChannelOption.TCP_FASTOPEN_CONNECT, true);
+		}
+		return options;
+	}
+
+	/**
+	 * Gets the options of the listening socket of the server.
+	 *
+	 * @param networkProperties the network properties
+	 * @return the options
+	 */
+	Map<ChannelOption<?>, Object> getServerOptions(NetworkProperties networkProperties)
+	{
+		Map<ChannelOption<?>, Object> options = new LinkedHashMap<>();
+		options.put(ChannelOption.SO_BACKLOG, 128); // should be more
+		options.put(ChannelOption.SO_REUSEADDR, true);
+		if (this != NIO && networkProperties.isTcpFastOpen())
+		{
+			options.put(ChannelOption.TCP_FASTOPEN, TCP_FASTOPEN_QUEUE_LENGTH);
+		}
+		return options;
+	}
+
+	/**
+	 * Gets the number of tasks waiting to run on the event loops of a group.
+	 *
+	 * @param group the event loop group, can be null
+	 * @return the number of pending tasks
+	 */
+	static double getPendingTasks(EventLoopGroup group)
+	{
+		if (group == null)
+		{
+			return 0.0;
+		}
+		var pendingTasks = 0;
+		for (var executor : group)
+		{
+			if (executor instanceof SingleThreadEventExecutor singleThreadEventExecutor)
+			{
+				pendingTasks += singleThreadEventExecutor.pendingTasks();
+			}
+		}
+		return pendingTasks;
+	}
+
+	@SuppressWarnings("unchecked")
+	static void setOptions(Map<ChannelOption<?>, Object> options, OptionSetter setter)
+	{
+		options.forEach((option, value) -> setter.set((ChannelOption<Object>) option, value));
+	}
+
+	@FunctionalInterface
+	interface OptionSetter
+	{
+		void set(ChannelOption<Object> option, Object value);
+	}
+}
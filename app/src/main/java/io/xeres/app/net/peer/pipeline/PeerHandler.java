@@ -19,6 +19,8 @@
 
 package io.xeres.app.net.peer.pipeline;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.TooLongFrameException;
@@ -27,17 +29,19 @@ import io.netty.handler.ssl.SslHandshakeCompletionEvent;
 import io.netty.util.ReferenceCountUtil;
 import io.xeres.app.database.DatabaseSession;
 import io.xeres.app.database.DatabaseSessionManager;
-import io.xeres.app.database.model.location.Location;
 import io.xeres.app.net.peer.ConnectionType;
 import io.xeres.app.net.peer.PeerAttribute;
 import io.xeres.app.net.peer.PeerConnection;
 import io.xeres.app.net.peer.PeerConnectionManager;
+import io.xeres.app.net.peer.ssl.HandshakeStatistics;
 import io.xeres.app.net.peer.ssl.SSL;
+import io.xeres.app.net.peer.traffic.TrafficCounter;
 import io.xeres.app.service.LocationService;
 import io.xeres.app.service.ProfileService;
 import io.xeres.app.service.UiBridgeService;
 import io.xeres.app.xrs.item.Item;
 import io.xeres.app.xrs.item.RawItem;
+import io.xeres.app.xrs.service.RsService;
 import io.xeres.app.xrs.service.RsServiceRegistry;
 import io.xeres.app.xrs.service.serviceinfo.ServiceInfoRsService;
 import io.xeres.common.i18n.I18nUtils;
@@ -51,6 +55,7 @@ import java.security.cert.CertificateException;
 import java.text.MessageFormat;
 import java.time.Duration;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import static io.xeres.app.net.peer.ConnectionType.TCP_INCOMING;
 import static io.xeres.common.tray.TrayNotificationType.CONNECTION;
@@ -62,6 +67,10 @@ public class PeerHandler extends ChannelDuplexHandler
 	private static final int SERVICE_INFO_SENDING_SECONDS_MIN = 2;
 	private static final int SERVICE_INFO_SENDING_SECONDS_MAX = 9;
 
+	private static final Timer PIPELINE_LATENCY = Timer.builder("xrs.item.pipeline")
+			.description("Time between the decoding of an incoming item and its handling")
+			.register(Metrics.globalRegistry);
+
 	private final ConnectionType connectionType;
 	private final ProfileService profileService;
 	private final LocationService locationService;
@@ -70,8 +79,11 @@ public class PeerHandler extends ChannelDuplexHandler
 	private final ServiceInfoRsService serviceInfoRsService;
 	private final UiBridgeService uiBridgeService;
 	private final RsServiceRegistry rsServiceRegistry;
+	private final HandshakeStatistics handshakeStatistics;
+
+	private long handshakeStart;
 
-	public PeerHandler(ProfileService profileService, LocationService locationService, PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, ServiceInfoRsService serviceInfoRsService, ConnectionType connectionType, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry)
+	public PeerHandler(ProfileService profileService, LocationService locationService, PeerConnectionManager peerConnectionManager, DatabaseSessionManager databaseSessionManager, ServiceInfoRsService serviceInfoRsService, ConnectionType connectionType, UiBridgeService uiBridgeService, RsServiceRegistry rsServiceRegistry, HandshakeStatistics handshakeStatistics)
 	{
 		super();
 		this.profileService = profileService;
@@ -82,6 +94,7 @@ public class PeerHandler extends ChannelDuplexHandler
 		this.databaseSessionManager = databaseSessionManager;
 		this.uiBridgeService = uiBridgeService;
 		this.rsServiceRegistry = rsServiceRegistry;
+		this.handshakeStatistics = handshakeStatistics;
 	}
 
 	@Override
@@ -101,8 +114,14 @@ public class PeerHandler extends ChannelDuplexHandler
 		log.trace("Got message: {}", msg);
 		var rawItem = (RawItem) msg;
 		Item item = null;
+		RsService service = null;
 		var sessionBound = false;
-		peerConnection.incrementReceivedCounter(rawItem.getSize());
+		peerConnection.incrementReceivedCounter(getTrafficServiceType(rawItem.getPacketService()), rawItem.getSize());
+		var start = System.nanoTime();
+		if (rawItem.getDecodeTime() > 0) // Only items decoded from packets have it
+		{
+			PIPELINE_LATENCY.record(start - rawItem.getDecodeTime(), TimeUnit.NANOSECONDS);
+		}
 
 		try
 		{
@@ -111,7 +130,7 @@ public class PeerHandler extends ChannelDuplexHandler
 			rawItem.deserialize(item);
 			log.debug("   \\- : {}", item);
 
-			var service = rsServiceRegistry.getServiceFromType(item.getServiceType());
+			service = rsServiceRegistry.getServiceFromType(item.getServiceType());
 			assert service != null;
 			var handleItemMethod = service.getClass().getDeclaredMethod("handleItem", PeerConnection.class, Item.class);
 			if (handleItemMethod.isAnnotationPresent(Transactional.class))
@@ -128,6 +147,11 @@ public class PeerHandler extends ChannelDuplexHandler
 		}
 		finally
 		{
+			if (service != null)
+			{
+				service.recordHandleTime(System.nanoTime() - start); // Also when it failed, it can be slow too
+			}
+
 			if (sessionBound)
 			{
 				databaseSessionManager.unbindSession();
@@ -140,6 +164,11 @@ public class PeerHandler extends ChannelDuplexHandler
 		}
 	}
 
+	private int getTrafficServiceType(int serviceType)
+	{
+		return rsServiceRegistry.getServiceFromType(serviceType) != null ? serviceType : TrafficCounter.UNKNOWN_SERVICE;
+	}
+
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
 	{
@@ -169,6 +198,7 @@ public class PeerHandler extends ChannelDuplexHandler
 	{
 		log.debug("{} connection with {}", connectionType == TCP_INCOMING ? "Incoming" : "Outgoing", ctx.channel().remoteAddress());
 		ctx.channel().attr(PeerAttribute.MULTI_PACKET).set(false);
+		handshakeStart = System.nanoTime();
 	}
 
 	@Override
@@ -179,21 +209,30 @@ public class PeerHandler extends ChannelDuplexHandler
 			if (!sslHandshakeCompletionEvent.isSuccess())
 			{
 				log.debug("SSL handshake failed"); // There doesn't seem to ever be a useful message in the even so we don't display any
+				handshakeStatistics.addFailure();
 				ctx.close();
 				return;
 			}
 
 			try (var ignored = new DatabaseSession(databaseSessionManager))
 			{
-				Location location;
+				var session = ctx.pipeline().get(SslHandler.class).engine().getSession();
+				var location = SSL.checkPeerCertificate(profileService, locationService, session.getPeerCertificates());
 
-				synchronized (PeerHandler.class) // Make sure we cannot have an outgoing and incoming connection with the same peer at the same time
+				PeerConnection peerConnection;
+				try
+				{
+					peerConnection = peerConnectionManager.addPeer(location, ctx); // Makes sure we cannot have an outgoing and incoming connection with the same peer at the same time
+				}
+				catch (IllegalStateException _)
 				{
-					location = SSL.checkPeerCertificate(profileService, locationService, ctx.pipeline().get(SslHandler.class).engine().getSession().getPeerCertificates());
-					locationService.updateConnectionAndSetConnected(location, connectionType.isHidden() ? null : ctx.channel().remoteAddress());
-					var peerConnection = peerConnectionManager.addPeer(location, ctx);
-					peerConnection.scheduleOnce(() -> serviceInfoRsService.init(peerConnection), Duration.ofSeconds(ThreadLocalRandom.current().nextInt(SERVICE_INFO_SENDING_SECONDS_MIN, SERVICE_INFO_SENDING_SECONDS_MAX)));
+					log.debug("Already connected with {}, closing duplicate connection", location.getSafeName());
+					ctx.close();
+					return;
 				}
+				locationService.updateConnectionAndSetConnected(location, connectionType.isHidden() ? null : ctx.channel().remoteAddress());
+				peerConnection.scheduleOnce(() -> serviceInfoRsService.init(peerConnection), Duration.ofSeconds(ThreadLocalRandom.current().nextInt(SERVICE_INFO_SENDING_SECONDS_MIN, SERVICE_INFO_SENDING_SECONDS_MAX)));
+				handshakeStatistics.addHandshake(Duration.ofNanos(System.nanoTime() - handshakeStart));
 
 				log.info("Established {} connection with {} ({})", connectionType.getLoggingDescription(), location.getProfile().getName(), location.getSafeName());
 				uiBridgeService.showTrayNotification(CONNECTION, MessageFormat.format(I18nUtils.getBundle().getString("notification.connection"), connectionType, location.getProfile().getName(), location.getSafeName()));
@@ -203,6 +242,7 @@ public class PeerHandler extends ChannelDuplexHandler
 			catch (CertificateException | SSLPeerUnverifiedException e)
 			{
 				log.error("Certificate error: {}", e.getMessage());
+				handshakeStatistics.addFailure();
 				ctx.close();
 			}
 		}
@@ -222,10 +262,7 @@ public class PeerHandler extends ChannelDuplexHandler
 				log.warn("Closing connection with {}", remote);
 			}
 			peerConnection.cleanup();
-			try (var ignored = new DatabaseSession(databaseSessionManager))
-			{
-				locationService.setDisconnected(peerConnection.getLocation());
-			}
+			locationService.setDisconnected(peerConnection.getLocation());
 			peerConnectionManager.removePeer(peerConnection.getLocation());
 		}
 	}
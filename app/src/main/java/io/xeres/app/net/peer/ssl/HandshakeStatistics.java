@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.net.peer.ssl;
+
+import io.xeres.common.rest.statistics.HandshakeStatisticsResponse;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Keeps track of the time taken by the TLS handshakes with peers, including the certificate check.
+ * Only the most recent handshakes are used for the percentiles.
+ */
+@Component
+public class HandshakeStatistics
+{
+	private static final int SAMPLES_MAX = 512;
+
+	private final long[] samples = new long[SAMPLES_MAX]; // Nanoseconds
+	private int next;
+	private int count;
+
+	private long handshakes;
+	private long failed;
+
+	/**
+	 * Adds a successful handshake.
+	 *
+	 * @param duration the time from the TCP connection to the peer being accepted
+	 */
+	public synchronized void addHandshake(Duration duration)
+	{
+		samples[next] = duration.toNanos();
+		next = (next + 1) % SAMPLES_MAX;
+		count = Math.min(count + 1, SAMPLES_MAX);
+		handshakes++;
+	}
+
+	/**
+	 * Adds a handshake that failed, either in TLS or because the certificate was refused.
+	 */
+	public synchronized void addFailure()
+	{
+		failed++;
+	}
+
+	public HandshakeStatisticsResponse getStatistics()
+	{
+		long[] sorted;
+		long handshakesCopy;
+		long failedCopy;
+
+		synchronized (this)
+		{
+			sorted = Arrays.copyOf(samples, count);
+			handshakesCopy = handshakes;
+			failedCopy = failed;
+		}
+		Arrays.sort(sorted);
+
+		return new HandshakeStatisticsResponse(handshakesCopy,
+				failedCopy,
+				SSL.getVerifiedCertificateHits(),
+				getPercentile(sorted, 50),
+				getPercentile(sorted, 90),
+				getPercentile(sorted, 99),
+				getPercentile(sorted, 100));
+	}
+
+	/**
+	 * Gets a percentile using the nearest rank method.
+	 *
+	 * @param sorted     the sorted samples, in nanoseconds
+	 * @param percentile the percentile, from 1 to 100
+	 * @return the value in milliseconds, 0 if there are no samples
+	 */
+	static long getPercentile(long[] sorted, int percentile)
+	{
+		if (sorted.length == 0)
+		{
+			return 0L;
+		}
+		var rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+		return Duration.ofNanos(sorted[Math.clamp(rank - 1, 0, sorted.length - 1)]).toMillis();
+	}
+}
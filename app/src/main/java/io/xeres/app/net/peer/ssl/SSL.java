@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -51,6 +51,7 @@ import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.security.spec.InvalidKeySpecException;
+import java.time.Duration;
 import java.util.Locale;
 import java.util.regex.Pattern;
 
@@ -62,6 +63,20 @@ public final class SSL
 
 	private static final Pattern ISSUER_MATCHER = Pattern.compile("^CN=(\\p{XDigit}{16})$");
 
+	/**
+	 * How many TLS sessions are kept so that peers reconnecting can resume them.
+	 */
+	private static final int SESSION_CACHE_SIZE = 1024;
+
+	/**
+	 * How long a TLS session can be resumed.
+	 */
+	private static final Duration SESSION_TIMEOUT = Duration.ofHours(24);
+
+	private static final VerifiedCertificateCache VERIFIED_CERTIFICATES = new VerifiedCertificateCache(1024);
+
+	private static final Object NEW_LOCATION_LOCK = new Object();
+
 	private SSL()
 	{
 		throw new UnsupportedOperationException("Utility class");
@@ -69,6 +84,9 @@ public final class SSL
 
 	/**
 	 * Creates an SSL context.
+	 * <p>
+	 * Sessions can be resumed with TLS 1.3 session tickets, which skips the key exchange. A client only
+	 * resumes a session if its handler is created with the host and port of the peer.
 	 *
 	 * @param privateKeyData the private key
 	 * @param certificate    the certificate
@@ -96,6 +114,8 @@ public final class SSL
 				.protocols("TLSv1.3")
 				.clientAuth(ClientAuth.REQUIRE)
 				.trustManager(InsecureTrustManagerFactory.INSTANCE)
+				.sessionCacheSize(SESSION_CACHE_SIZE)
+				.sessionTimeout(SESSION_TIMEOUT.toSeconds())
 				.build();
 	}
 
@@ -112,8 +132,6 @@ public final class SSL
 	 */
 	public static Location checkPeerCertificate(ProfileService profileService, LocationService locationService, Certificate[] chain) throws CertificateException
 	{
-		var isNewLocation = false;
-
 		if (chain == null || chain.length == 0)
 		{
 			throw new CertificateException("Empty certificate");
@@ -125,39 +143,69 @@ public final class SSL
 		log.debug("SSL ID: {}", locationIdentifier);
 
 		var location = locationService.findLocationByLocationIdentifier(locationIdentifier).orElse(null);
-		if (location == null)
+		if (location != null)
+		{
+			return checkLocation(profileService, location, x509Certificate, false);
+		}
+
+		synchronized (NEW_LOCATION_LOCK) // Simultaneous incoming and outgoing connections of a new location must not both create it
 		{
+			location = locationService.findLocationByLocationIdentifier(locationIdentifier).orElse(null);
+			if (location != null)
+			{
+				return checkLocation(profileService, location, x509Certificate, false);
+			}
 			location = createLocationIfAcceptedProfile(locationIdentifier, x509Certificate, profileService);
 			if (location == null)
 			{
 				throw new CertificateException("Unknown location (SSL ID: " + locationIdentifier + ")");
 			}
-			isNewLocation = true;
-		}
-		log.debug("Found location: {} {}", location.getSafeName(), location.isConnected() ? ", is already connected" : "");
-		if (location.isConnected())
-		{
-			throw new CertificateException("Already connected");
+			return checkLocation(profileService, location, x509Certificate, true);
 		}
+	}
+
+	private static Location checkLocation(ProfileService profileService, Location location, X509Certificate x509Certificate, boolean isNewLocation) throws CertificateException
+	{
+		log.debug("Found location: {}", location.getSafeName());
+		// Simultaneous connections are refused by PeerConnectionManager, the connected flag in the database can be written later
 
-		if (location.getProfile().isComplete())
+		var profile = location.getProfile();
+		if (profile.isComplete())
 		{
-			try
+			if (VERIFIED_CERTIFICATES.contains(x509Certificate, profile))
 			{
-				verify(PGP.getPGPPublicKey(location.getProfile().getPgpPublicKeyData()), x509Certificate);
-				if (isNewLocation)
+				log.debug("Certificate verified already");
+			}
+			else
+			{
+				try
+				{
+					verify(PGP.getPGPPublicKey(profile.getPgpPublicKeyData()), x509Certificate);
+				}
+				catch (InvalidKeyException e)
 				{
-					profileService.createOrUpdateProfile(location.getProfile());
+					throw new CertificateException(e.getMessage(), e);
 				}
+				VERIFIED_CERTIFICATES.add(x509Certificate, profile);
 			}
-			catch (InvalidKeyException e)
+			if (isNewLocation)
 			{
-				throw new CertificateException(e.getMessage(), e);
+				profileService.createOrUpdateProfile(profile);
 			}
 		}
 		return location;
 	}
 
+	/**
+	 * Gets the number of certificate checks that didn't need to verify the signature again.
+	 *
+	 * @return the number of hits of the verified certificate cache
+	 */
+	static long getVerifiedCertificateHits()
+	{
+		return VERIFIED_CERTIFICATES.getHits();
+	}
+
 	private static Location createLocationIfAcceptedProfile(LocationIdentifier locationIdentifier, X509Certificate x509Certificate, ProfileService profileService)
 	{
 		var issuer = x509Certificate.getIssuerX500Principal().getName();
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.net.peer.ssl;
+
+import io.xeres.app.crypto.hash.sha1.Sha1MessageDigest;
+import io.xeres.app.database.model.profile.Profile;
+import io.xeres.common.id.ProfileFingerprint;
+import io.xeres.common.id.Sha1Sum;
+
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers which certificates were verified against which profile key so that peers
+ * reconnecting with the same certificate don't go through the PGP signature verification again.
+ * <p>
+ * The least recently used entries are removed when the cache is full.
+ */
+final class VerifiedCertificateCache
+{
+	private record Key(Sha1Sum certificate, ProfileFingerprint profile)
+	{
+	}
+
+	private final Map<Key, Boolean> entries;
+	private long hits;
+	private long misses;
+
+	VerifiedCertificateCache(int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("capacity must be greater than 0");
+		}
+		entries = new LinkedHashMap<>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest)
+			{
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Tells if a certificate was verified already.
+	 *
+	 * @param certificate the certificate
+	 * @param profile     the profile whose key signed the certificate
+	 * @return true if the certificate was verified against that profile's key
+	 * @throws CertificateEncodingException if the certificate cannot be encoded
+	 */
+	synchronized boolean contains(X509Certificate certificate, Profile profile) throws CertificateEncodingException
+	{
+		if (entries.get(getKey(certificate, profile)) != null)
+		{
+			hits++;
+			return true;
+		}
+		misses++;
+		return false;
+	}
+
+	/**
+	 * Adds a certificate that was verified successfully.
+	 *
+	 * @param certificate the certificate
+	 * @param profile     the profile whose key signed the certificate
+	 * @throws CertificateEncodingException if the certificate cannot be encoded
+	 */
+	synchronized void add(X509Certificate certificate, Profile profile) throws CertificateEncodingException
+	{
+		entries.put(getKey(certificate, profile), Boolean.TRUE);
+	}
+
+	synchronized int size()
+	{
+		return entries.size();
+	}
+
+	synchronized long getHits()
+	{
+		return hits;
+	}
+
+	synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	private static Key getKey(X509Certificate certificate, Profile profile) throws CertificateEncodingException
+	{
+		var md = new Sha1MessageDigest();
+		md.update(certificate.getEncoded());
+		return new Key(md.getSum(), profile.getProfileFingerprint());
+	}
+}
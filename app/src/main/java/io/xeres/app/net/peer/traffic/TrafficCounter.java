@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.net.peer.traffic;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the bytes and items sent and received by a peer connection, for each service. It's updated
+ * from the I/O path without locking and drained by {@link TrafficHistory} every second.
+ */
+public class TrafficCounter
+{
+	/**
+	 * The service type to use for the items of services that aren't registered, so that a peer
+	 * cannot make the counters grow at will.
+	 */
+	public static final int UNKNOWN_SERVICE = 0;
+
+	private final Map<Integer, ServiceCounter> services = new ConcurrentHashMap<>();
+	int users; // Only used by TrafficHistory, within the counters' map
+
+	private static final class ServiceCounter
+	{
+		private final LongAdder sentBytes = new LongAdder();
+		private final LongAdder receivedBytes = new LongAdder();
+		private final LongAdder sentItems = new LongAdder();
+		private final LongAdder receivedItems = new LongAdder();
+	}
+
+	@FunctionalInterface
+	public interface TrafficConsumer
+	{
+		void accept(int serviceType, long sentBytes, long receivedBytes, long sentItems, long receivedItems);
+	}
+
+	/**
+	 * Accounts for a sent item.
+	 *
+	 * @param serviceType the service type of the item
+	 * @param size        the size of the item, including its header
+	 */
+	public void addSent(int serviceType, int size)
+	{
+		var serviceCounter = getServiceCounter(serviceType);
+		serviceCounter.sentBytes.add(size);
+		serviceCounter.sentItems.increment();
+	}
+
+	/**
+	 * Accounts for a received item.
+	 *
+	 * @param serviceType the service type of the item
+	 * @param size        the size of the item, including its header
+	 */
+	public void addReceived(int serviceType, int size)
+	{
+		var serviceCounter = getServiceCounter(serviceType);
+		serviceCounter.receivedBytes.add(size);
+		serviceCounter.receivedItems.increment();
+	}
+
+	/**
+	 * Gives out what was counted since the last call and resets the counters. Updates done
+	 * concurrently are not lost, they're just given out the next time.
+	 *
+	 * @param consumer the consumer, called for each service that had some traffic
+	 */
+	void drain(TrafficConsumer consumer)
+	{
+		services.forEach((serviceType, serviceCounter) -> {
+			var sentBytes = serviceCounter.sentBytes.sumThenReset();
+			var receivedBytes = serviceCounter.receivedBytes.sumThenReset();
+			var sentItems = serviceCounter.sentItems.sumThenReset();
+			var receivedItems = serviceCounter.receivedItems.sumThenReset();
+			if (sentItems != 0L || receivedItems != 0L)
+			{
+				consumer.accept(serviceType, sentBytes, receivedBytes, sentItems, receivedItems);
+			}
+		});
+	}
+
+	private ServiceCounter getServiceCounter(int serviceType)
+	{
+		var serviceCounter = services.get(serviceType); // Avoids locking a bin of the map once the counter exists
+		if (serviceCounter == null)
+		{
+			serviceCounter = services.computeIfAbsent(serviceType, _ -> new ServiceCounter());
+		}
+		return serviceCounter;
+	}
+}
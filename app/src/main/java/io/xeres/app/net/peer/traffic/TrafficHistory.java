@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.net.peer.traffic;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.xeres.common.protocol.xrs.RsServiceType;
+import io.xeres.common.rest.statistics.TrafficPeer;
+import io.xeres.common.rest.statistics.TrafficResolution;
+import io.xeres.common.rest.statistics.TrafficService;
+import io.xeres.common.rest.statistics.TrafficStatisticsResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+
+import static io.xeres.app.net.peer.traffic.TrafficSeries.*;
+import static io.xeres.common.rest.statistics.TrafficResolution.MINUTES;
+import static io.xeres.common.rest.statistics.TrafficResolution.SECONDS;
+
+/**
+ * Keeps the history of the traffic, per service and per peer. The counters of the peer connections
+ * are rolled every second into a time series of each service, all peers together, with one slot per
+ * second for the last hour and one slot per minute for the last 24 hours.
+ * <p>
+ * Each peer only keeps the totals of its services, with one slot per minute for the last hour and one
+ * slot per hour for the last 24 hours, so that hundreds of peers don't take much memory. The totals
+ * include the current minute or hour so they can cover a bit more than the period.
+ * <p>
+ * The counters are kept per location so that a peer reconnecting keeps its history and nothing is lost
+ * when it disconnects between two samples. They're removed once no connection uses them anymore. The
+ * history of a peer without any traffic for 24 hours is removed. The totals of each service are also
+ * exported as metrics.
+ */
+@Component
+public class TrafficHistory
+{
+	private static final int SECONDS_PER_MINUTE = 60;
+	private static final int SECONDS_PER_HOUR = 3600;
+	private static final int MINUTES_PER_HOUR = 60;
+	private static final int HOURS_PER_DAY = 24;
+	private static final int MAX_IDLE_SECONDS = HOURS_PER_DAY * SECONDS_PER_HOUR;
+	private static final String UNKNOWN_SERVICE_NAME = "unknown";
+
+	private final Map<Long, TrafficCounter> counters = new ConcurrentHashMap<>();
+	private final Map<Integer, ServiceHistory> services = new HashMap<>();
+	private final Map<Key, PeerHistory> peers = new HashMap<>();
+	private final Map<String, Counter[]> meters = new HashMap<>(); // Per service only, the peers would make too many
+	private long ticks;
+
+	private record Key(long locationId, int serviceType)
+	{
+	}
+
+	private record ServiceEntry(int serviceType, long sentBytes, long[] sent, long[] received)
+	{
+	}
+
+	private record PeerEntry(Key key, long[] totals)
+	{
+	}
+
+	/**
+	 * The time series of a service, all peers together.
+	 */
+	private static final class ServiceHistory
+	{
+		private final TrafficSeries seconds = new TrafficSeries(SECONDS.getSlots());
+		private final TrafficSeries minutes = new TrafficSeries(MINUTES.getSlots());
+		private final long[] second = new long[4];
+		private final long[] minute = new long[4];
+
+		private void add(long sentBytes, long receivedBytes, long sentItems, long receivedItems)
+		{
+			second[SENT_BYTES] += sentBytes;
+			second[RECEIVED_BYTES] += receivedBytes;
+			second[SENT_ITEMS] += sentItems;
+			second[RECEIVED_ITEMS] += receivedItems;
+		}
+
+		/**
+		 * Moves to the next second.
+		 *
+		 * @param endOfMinute true if a minute is complete
+		 */
+		private void advance(boolean endOfMinute)
+		{
+			seconds.add(second[SENT_BYTES], second[RECEIVED_BYTES], second[SENT_ITEMS], second[RECEIVED_ITEMS]);
+			addTo(minute, second);
+			if (endOfMinute)
+			{
+				minutes.add(minute[SENT_BYTES], minute[RECEIVED_BYTES], minute[SENT_ITEMS], minute[RECEIVED_ITEMS]);
+				Arrays.fill(minute, 0L);
+			}
+		}
+
+		private TrafficSeries getSeries(TrafficResolution resolution)
+		{
+			return switch (resolution)
+			{
+				case SECONDS -> seconds;
+				case MINUTES -> minutes;
+			};
+		}
+	}
+
+	/**
+	 * The totals of a service with one peer.
+	 */
+	private static final class PeerHistory
+	{
+		private final TrafficSeries minutes = new TrafficSeries(MINUTES_PER_HOUR);
+		private final TrafficSeries hours = new TrafficSeries(HOURS_PER_DAY);
+		private final long[] minute = new long[4];
+		private final long[] hour = new long[4];
+		private boolean active;
+		private int idleSeconds;
+
+		private void add(long sentBytes, long receivedBytes, long sentItems, long receivedItems)
+		{
+			minute[SENT_BYTES] += sentBytes;
+			minute[RECEIVED_BYTES] += receivedBytes;
+			minute[SENT_ITEMS] += sentItems;
+			minute[RECEIVED_ITEMS] += receivedItems;
+			active = true;
+		}
+
+		/**
+		 * Moves to the next second.
+		 *
+		 * @param endOfMinute true if a minute is complete
+		 * @param endOfHour   true if an hour is complete
+		 * @return true if there was no traffic for too long
+		 */
+		private boolean advance(boolean endOfMinute, boolean endOfHour)
+		{
+			if (endOfMinute)
+			{
+				minutes.add(minute[SENT_BYTES], minute[RECEIVED_BYTES], minute[SENT_ITEMS], minute[RECEIVED_ITEMS]);
+				addTo(hour, minute);
+			}
+			if (endOfHour)
+			{
+				hours.add(hour[SENT_BYTES], hour[RECEIVED_BYTES], hour[SENT_ITEMS], hour[RECEIVED_ITEMS]);
+				Arrays.fill(hour, 0L);
+			}
+			idleSeconds = active ? 0 : idleSeconds + 1;
+			active = false;
+			return idleSeconds >= MAX_IDLE_SECONDS;
+		}
+
+		private long[] getTotals(TrafficResolution resolution)
+		{
+			var totals = minute.clone();
+			for (var metric = 0; metric < totals.length; metric++)
+			{
+				totals[metric] += switch (resolution)
+				{
+					case SECONDS -> minutes.sum(metric);
+					case MINUTES -> hours.sum(metric) + hour[metric];
+				};
+			}
+			return totals;
+		}
+	}
+
+	/**
+	 * Gets the counter of a location. It's meant to be used by its peer connection, which must release
+	 * it when it's closed.
+	 *
+	 * @param locationId the id of the location
+	 * @return the counter
+	 */
+	public TrafficCounter acquireCounter(long locationId)
+	{
+		return counters.compute(locationId, (_, counter) -> {
+			var result = counter != null ? counter : new TrafficCounter();
+			result.users++;
+			return result;
+		});
+	}
+
+	/**
+	 * Releases the counter of a location. It's removed after the next sample if nothing else uses it.
+	 *
+	 * @param locationId the id of the location
+	 */
+	public void releaseCounter(long locationId)
+	{
+		counters.computeIfPresent(locationId, (_, counter) -> {
+			counter.users--;
+			return counter;
+		});
+	}
+
+	/**
+	 * Rolls the counters into the time series. Must be called every second.
+	 */
+	public synchronized void sample()
+	{
+		for (var locationId : counters.keySet())
+		{
+			counters.computeIfPresent(locationId, (_, counter) -> {
+				counter.drain((serviceType, sentBytes, receivedBytes, sentItems, receivedItems) -> {
+					services.computeIfAbsent(serviceType, _ -> new ServiceHistory())
+							.add(sentBytes, receivedBytes, sentItems, receivedItems);
+					peers.computeIfAbsent(new Key(locationId, serviceType), _ -> new PeerHistory())
+							.add(sentBytes, receivedBytes, sentItems, receivedItems);
+
+					var serviceMeters = meters.computeIfAbsent(getMeterName(serviceType), TrafficHistory::createMeters);
+					serviceMeters[SENT_BYTES].increment(sentBytes);
+					serviceMeters[RECEIVED_BYTES].increment(receivedBytes);
+					serviceMeters[SENT_ITEMS].increment(sentItems);
+					serviceMeters[RECEIVED_ITEMS].increment(receivedItems);
+				});
+				return counter.users > 0 ? counter : null;
+			});
+		}
+
+		ticks++;
+		var endOfMinute = ticks % SECONDS_PER_MINUTE == 0;
+		var endOfHour = ticks % SECONDS_PER_HOUR == 0;
+		services.values().forEach(history -> history.advance(endOfMinute));
+		peers.values().removeIf(history -> history.advance(endOfMinute, endOfHour));
+	}
+
+	private static void addTo(long[] total, long[] values)
+	{
+		for (var i = 0; i < values.length; i++)
+		{
+			total[i] += values[i];
+			values[i] = 0L;
+		}
+	}
+
+	/**
+	 * Gets the name of the service for the metrics. Unknown services are all counted together so that
+	 * a peer cannot create new metrics at will.
+	 */
+	private static String getMeterName(int serviceType)
+	{
+		var rsServiceType = RsServiceType.fromType(serviceType);
+		return rsServiceType != RsServiceType.NONE ? rsServiceType.getName() : UNKNOWN_SERVICE_NAME;
+	}
+
+	private static Counter[] createMeters(String service)
+	{
+		var serviceMeters = new Counter[4];
+		serviceMeters[SENT_BYTES] = Metrics.counter("xrs.traffic.bytes", "service", service, "direction", "sent");
+		serviceMeters[RECEIVED_BYTES] = Metrics.counter("xrs.traffic.bytes", "service", service, "direction", "received");
+		serviceMeters[SENT_ITEMS] = Metrics.counter("xrs.traffic.items", "service", service, "direction", "sent");
+		serviceMeters[RECEIVED_ITEMS] = Metrics.counter("xrs.traffic.items", "service", service, "direction", "received");
+		return serviceMeters;
+	}
+
+	/**
+	 * Gets the traffic of each service and the totals of each peer. The series of minutes doesn't include the current minute.
+	 *
+	 * @param resolution   the resolution
+	 * @param buckets      the number of buckets to sum the time series into, to keep the response small
+	 * @param peerNames    gives the name of a location from its id
+	 * @param serviceNames gives the name of a service from its type
+	 * @return the traffic, sorted by bytes sent, highest first
+	 */
+	public TrafficStatisticsResponse getStatistics(TrafficResolution resolution, int buckets, LongFunction<String> peerNames, IntFunction<String> serviceNames)
+	{
+		var bucketCount = Math.clamp(buckets, 1, resolution.getSlots());
+		List<ServiceEntry> serviceEntries = new ArrayList<>();
+		List<PeerEntry> peerEntries = new ArrayList<>();
+
+		synchronized (this)
+		{
+			services.forEach((serviceType, history) -> {
+				var series = history.getSeries(resolution);
+				if (series.sum(SENT_ITEMS) != 0L || series.sum(RECEIVED_ITEMS) != 0L)
+				{
+					serviceEntries.add(new ServiceEntry(serviceType,
+							series.sum(SENT_BYTES),
+							series.downsample(SENT_BYTES, bucketCount),
+							series.downsample(RECEIVED_BYTES, bucketCount)));
+				}
+			});
+			peers.forEach((key, history) -> {
+				var totals = history.getTotals(resolution);
+				if (totals[SENT_ITEMS] != 0L || totals[RECEIVED_ITEMS] != 0L)
+				{
+					peerEntries.add(new PeerEntry(key, totals));
+				}
+			});
+		}
+
+		var serviceList = serviceEntries.stream()
+				.sorted(Comparator.comparingLong(ServiceEntry::sentBytes).reversed())
+				.map(entry -> new TrafficService(entry.serviceType(),
+						serviceNames.apply(entry.serviceType()),
+						entry.sent(),
+						entry.received()))
+				.toList();
+
+		Map<Long, String> names = new HashMap<>();
+		var peerList = peerEntries.stream()
+				.sorted(Comparator.comparingLong((PeerEntry entry) -> entry.totals()[SENT_BYTES]).reversed())
+				.map(entry -> new TrafficPeer(entry.key().locationId(),
+						names.computeIfAbsent(entry.key().locationId(), peerNames::apply),
+						entry.key().serviceType(),
+						serviceNames.apply(entry.key().serviceType()),
+						entry.totals()[SENT_BYTES],
+						entry.totals()[RECEIVED_BYTES],
+						entry.totals()[SENT_ITEMS],
+						entry.totals()[RECEIVED_ITEMS]))
+				.toList();
+
+		return new TrafficStatisticsResponse(resolution, resolution.getInterval().toSeconds() * resolution.getSlots() / bucketCount, serviceList, peerList);
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.net.peer.traffic;
+
+/**
+ * A fixed size time series of traffic, kept in a ring buffer. Each slot holds the bytes and items
+ * sent and received during one interval. Slots that were never written are zero.
+ * <p>
+ * This class is not thread safe.
+ */
+class TrafficSeries
+{
+	static final int SENT_BYTES = 0;
+	static final int RECEIVED_BYTES = 1;
+	static final int SENT_ITEMS = 2;
+	static final int RECEIVED_ITEMS = 3;
+	private static final int METRICS = 4;
+
+	private final long[] slots;
+	private final int capacity;
+	private int head; // Next slot to write
+
+	TrafficSeries(int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("capacity must be greater than 0");
+		}
+		this.capacity = capacity;
+		slots = new long[capacity * METRICS];
+	}
+
+	/**
+	 * Adds a slot, overwriting the oldest one.
+	 */
+	void add(long sentBytes, long receivedBytes, long sentItems, long receivedItems)
+	{
+		var index = head * METRICS;
+		slots[index + SENT_BYTES] = sentBytes;
+		slots[index + RECEIVED_BYTES] = receivedBytes;
+		slots[index + SENT_ITEMS] = sentItems;
+		slots[index + RECEIVED_ITEMS] = receivedItems;
+		head = (head + 1) % capacity;
+	}
+
+	/**
+	 * Gets the value of a slot.
+	 *
+	 * @param position the position of the slot, 0 being the oldest and capacity - 1 the newest
+	 * @param metric   the metric, for example {@link #SENT_BYTES}
+	 * @return the value
+	 */
+	long get(int position, int metric)
+	{
+		return slots[(head + position) % capacity * METRICS + metric];
+	}
+
+	/**
+	 * Sums a metric over the whole series.
+	 *
+	 * @param metric the metric
+	 * @return the sum
+	 */
+	long sum(int metric)
+	{
+		var total = 0L;
+		for (var i = metric; i < slots.length; i += METRICS)
+		{
+			total += slots[i];
+		}
+		return total;
+	}
+
+	/**
+	 * Sums a metric into a smaller number of buckets, each covering consecutive slots.
+	 *
+	 * @param metric  the metric
+	 * @param buckets the number of buckets, capped to the capacity
+	 * @return the buckets, oldest first
+	 */
+	long[] downsample(int metric, int buckets)
+	{
+		buckets = Math.clamp(buckets, 1, capacity);
+		var result = new long[buckets];
+		for (var i = 0; i < capacity; i++)
+		{
+			result[(int) ((long) i * buckets / capacity)] += get(i, metric);
+		}
+		return result;
+	}
+
+	int getCapacity()
+	{
+		return capacity;
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.app.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "xrs.file")
+public class FileProperties
+{
+	/**
+	 * Sets the number of threads hashing the files of shares. 0 means automatic, which depends on the
+	 * number of available processors.
+	 */
+	private int hashingThreads;
+
+	/**
+	 * Sets how many files can be read at once from the same device when hashing. Spinning disks are faster
+	 * with a low value while SSDs can use more. 0 means no limit other than the number of threads.
+	 */
+	private int hashingThreadsPerDevice;
+
+	public int getHashingThreads()
+	{
+		return hashingThreads;
+	}
+
+	public void setHashingThreads(int hashingThreads)
+	{
+		this.hashingThreads = hashingThreads;
+	}
+
+	public int getHashingThreadsPerDevice()
+	{
+		return hashingThreadsPerDevice;
+	}
+
+	public void setHashingThreadsPerDevice(int hashingThreadsPerDevice)
+	{
+		this.hashingThreadsPerDevice = hashingThreadsPerDevice;
+	}
+}
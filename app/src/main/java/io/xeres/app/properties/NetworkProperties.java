@@ -23,6 +23,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 @Configuration
 @ConfigurationProperties(prefix = "xrs.network")
 public class NetworkProperties implements SmartLifecycle
@@ -52,6 +54,73 @@ public class NetworkProperties implements SmartLifecycle
 	private String fileTransferStrategy = FILE_TRANSFER_STRATEGY_LINEAR;
 	public static final String FILE_TRANSFER_STRATEGY_LINEAR = "linear";
 	public static final String FILE_TRANSFER_STRATEGY_RANDOM = "random";
+	public static final String FILE_TRANSFER_STRATEGY_RAREST_FIRST = "rarest-first";
+
+	/**
+	 * Sets the number of file transfer workers. Each file is always handled by the same worker. 0 means automatic,
+	 * which depends on the number of available processors.
+	 */
+	private int fileTransferWorkers;
+
+	/**
+	 * Sets the size of the cache (in KB) holding the blocks of the files being uploaded, which
+	 * is shared by all uploads. 0 disables it.
+	 */
+	private int uploadCacheSize = 65536;
+
+	/**
+	 * Sets the transport used for the connections with peers.
+	 * <ul>
+	 *     <li>{@code "auto"}: the best native transport available, otherwise NIO</li>
+	 *     <li>{@code "epoll"}: Linux epoll</li>
+	 *     <li>{@code "io_uring"}: Linux io_uring, needs a recent kernel</li>
+	 *     <li>{@code "nio"}: Java NIO, works everywhere</li>
+	 * </ul>
+	 * A native transport that isn't available falls back to NIO.
+	 */
+	private String transport = TRANSPORT_AUTO;
+	public static final String TRANSPORT_AUTO = "auto";
+	public static final String TRANSPORT_EPOLL = "epoll";
+	public static final String TRANSPORT_IO_URING = "io_uring";
+	public static final String TRANSPORT_NIO = "nio";
+
+	/**
+	 * Sets the number of I/O threads of the peer server and of each peer client. 0 means automatic,
+	 * which depends on the number of available processors.
+	 */
+	private int ioThreads;
+
+	/**
+	 * Sets the size of the socket send buffer (in KB). 0 leaves it to the operating system.
+	 */
+	private int sendBufferSize;
+
+	/**
+	 * Sets the size of the socket receive buffer (in KB). 0 leaves it to the operating system.
+	 */
+	private int receiveBufferSize;
+
+	/**
+	 * Sets the amount of pending outgoing data (in KB) below which a connection is writable again.
+	 */
+	private int writeBufferLowWaterMark = 32;
+
+	/**
+	 * Sets the amount of pending outgoing data (in KB) above which a connection is not writable anymore.
+	 */
+	private int writeBufferHighWaterMark = 64;
+
+	/**
+	 * Sets the amount of unsent data (in KB) the kernel keeps for each socket before telling it's writable,
+	 * which reduces the latency of the data written afterward. 0 disables it. Only works with epoll.
+	 */
+	private int notSentLowWaterMark;
+
+	/**
+	 * Enables TCP Fast Open, which saves one round trip when connecting to a peer again. Only works with
+	 * native transports and both ends must support it.
+	 */
+	private boolean tcpFastOpen;
 
 	private boolean running;
 
@@ -64,6 +133,31 @@ public class NetworkProperties implements SmartLifecycle
 		{
 			throw new IllegalStateException("'network.packet-grouping' property cannot be enabled without 'network.packet-slicing'");
 		}
+
+		if (fileTransferWorkers < 0)
+		{
+			throw new IllegalStateException("'network.file-transfer-workers' property cannot be negative");
+		}
+
+		if (uploadCacheSize < 0)
+		{
+			throw new IllegalStateException("'network.upload-cache-size' property cannot be negative");
+		}
+
+		if (!List.of(TRANSPORT_AUTO, TRANSPORT_EPOLL, TRANSPORT_IO_URING, TRANSPORT_NIO).contains(transport))
+		{
+			throw new IllegalStateException("'network.transport' property must be one of auto, epoll, io_uring or nio");
+		}
+
+		if (ioThreads < 0 || sendBufferSize < 0 || receiveBufferSize < 0 || notSentLowWaterMark < 0)
+		{
+			throw new IllegalStateException("'network.io-threads', 'network.send-buffer-size', 'network.receive-buffer-size' and 'network.not-sent-low-water-mark' properties cannot be negative");
+		}
+
+		if (writeBufferLowWaterMark < 1 || writeBufferHighWaterMark < writeBufferLowWaterMark)
+		{
+			throw new IllegalStateException("'network.write-buffer-low-water-mark' property must be positive and not greater than 'network.write-buffer-high-water-mark'");
+		}
 	}
 
 	@Override
@@ -81,7 +175,8 @@ public class NetworkProperties implements SmartLifecycle
 	public String getFeatures()
 	{
 		return "packet slicing: " + packetSlicing + ", " +
-				"packet grouping: " + packetGrouping;
+				"packet grouping: " + packetGrouping + ", " +
+				"transport: " + transport;
 	}
 
 	public boolean isPacketSlicing()
@@ -123,4 +218,104 @@ public class NetworkProperties implements SmartLifecycle
 	{
 		this.fileTransferStrategy = fileTransferStrategy;
 	}
+
+	public int getFileTransferWorkers()
+	{
+		return fileTransferWorkers;
+	}
+
+	public void setFileTransferWorkers(int fileTransferWorkers)
+	{
+		this.fileTransferWorkers = fileTransferWorkers;
+	}
+
+	public int getUploadCacheSize()
+	{
+		return uploadCacheSize;
+	}
+
+	public void setUploadCacheSize(int uploadCacheSize)
+	{
+		this.uploadCacheSize = uploadCacheSize;
+	}
+
+	public String getTransport()
+	{
+		return transport;
+	}
+
+	public void setTransport(String transport)
+	{
+		this.transport = transport;
+	}
+
+	public int getIoThreads()
+	{
+		return ioThreads;
+	}
+
+	public void setIoThreads(int ioThreads)
+	{
+		this.ioThreads = ioThreads;
+	}
+
+	public int getSendBufferSize()
+	{
+		return sendBufferSize;
+	}
+
+	public void setSendBufferSize(int sendBufferSize)
+	{
+		this.sendBufferSize = sendBufferSize;
+	}
+
+	public int getReceiveBufferSize()
+	{
+		return receiveBufferSize;
+	}
+
+	public void setReceiveBufferSize(int receiveBufferSize)
+	{
+		this.receiveBufferSize = receiveBufferSize;
+	}
+
+	public int getWriteBufferLowWaterMark()
+	{
+		return writeBufferLowWaterMark;
+	}
+
+	public void setWriteBufferLowWaterMark(int writeBufferLowWaterMark)
+	{
+		this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+	}
+
+	public int getWriteBufferHighWaterMark()
+	{
+		return writeBufferHighWaterMark;
+	}
+
+	public void setWriteBufferHighWaterMark(int writeBufferHighWaterMark)
+	{
+		this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+	}
+
+	public int getNotSentLowWaterMark()
+	{
+		return notSentLowWaterMark;
+	}
+
+	public void setNotSentLowWaterMark(int notSentLowWaterMark)
+	{
+		this.notSentLowWaterMark = notSentLowWaterMark;
+	}
+
+	public boolean isTcpFastOpen()
+	{
+		return tcpFastOpen;
+	}
+
+	public void setTcpFastOpen(boolean tcpFastOpen)
+	{
+		this.tcpFastOpen = tcpFastOpen;
+	}
 }
@@ -23,6 +23,7 @@ import io.xeres.app.crypto.pgp.PGP;
 import io.xeres.app.crypto.rsa.RSA;
 import io.xeres.app.crypto.rsid.RSSerialVersion;
 import io.xeres.app.crypto.x509.X509;
+import io.xeres.app.database.WriteBehindQueue;
 import io.xeres.app.database.model.connection.Connection;
 import io.xeres.app.database.model.location.Location;
 import io.xeres.app.database.model.profile.Profile;
@@ -38,12 +39,13 @@ import io.xeres.common.util.ScrambledString;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -56,10 +58,8 @@ import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.spec.InvalidKeySpecException;
 import java.time.Instant;
-import java.util.List;
-import java.util.Locale;
-import java.util.NoSuchElementException;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Predicate;
 
 import static io.xeres.app.net.util.NetworkMode.hasDht;
 import static io.xeres.app.net.util.NetworkMode.isDiscoverable;
@@ -74,21 +74,62 @@ public class LocationService
 
 	private static final int KEY_SIZE = 3072;
 
+	private static final int STATE_QUEUE_CAPACITY = 1_000;
+	private static final int STATE_BATCH_SIZE = 100;
+
+	/**
+	 * A change of the connection state of a location, written later by the state writer.
+	 */
+	sealed interface PendingState permits PendingConnected, PendingDisconnected, PendingAvailability
+	{
+		long locationId();
+	}
+
+	record PendingConnected(long locationId, Connection connection, Instant when) implements PendingState
+	{
+	}
+
+	record PendingDisconnected(long locationId, Instant when) implements PendingState
+	{
+	}
+
+	record PendingAvailability(long locationId, Availability availability) implements PendingState
+	{
+	}
+
 	private final SettingsService settingsService;
 	private final ProfileService profileService;
 	private final PeerConnectionManager peerConnectionManager;
 	private final LocationRepository locationRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final WriteBehindQueue<PendingState> stateWriter;
 
-	private Slice<Location> locations;
-	private int pageIndex;
-	private int connectionIndex = -1;
-
-	public LocationService(SettingsService settingsService, ProfileService profileService, PeerConnectionManager peerConnectionManager, LocationRepository locationRepository)
+	public LocationService(SettingsService settingsService, ProfileService profileService, PeerConnectionManager peerConnectionManager, LocationRepository locationRepository, PlatformTransactionManager transactionManager)
 	{
 		this.settingsService = settingsService;
 		this.profileService = profileService;
 		this.peerConnectionManager = peerConnectionManager;
 		this.locationRepository = locationRepository;
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW); // Callers can be in a transaction already
+		stateWriter = new WriteBehindQueue<>("Location State Writer", STATE_QUEUE_CAPACITY, STATE_BATCH_SIZE, this::writeStates);
+		stateWriter.start();
+	}
+
+	/**
+	 * Writes the pending connection states and stops the writer. States changed afterward are written immediately.
+	 */
+	public void shutdown()
+	{
+		stateWriter.shutdown();
+	}
+
+	/**
+	 * Writes the pending connection states.
+	 */
+	public void flush()
+	{
+		stateWriter.flush();
 	}
 
 	KeyPair generateLocationKeys()
@@ -220,57 +261,156 @@ public class LocationService
 		locationRepository.save(ownLocation);
 	}
 
-	@Transactional
+	/**
+	 * Marks a location as connected. The location is updated right away but the database is written
+	 * in the background, together with other connection changes.
+	 *
+	 * @param location      the location
+	 * @param socketAddress the address the location is connected from, can be null
+	 */
 	public void updateConnectionAndSetConnected(Location location, SocketAddress socketAddress)
 	{
+		Connection connection = null;
+		var now = Instant.now();
+
 		if (socketAddress != null)
 		{
 			var inetSocketAddress = (InetSocketAddress) socketAddress;
 
-			var connection = Connection.from(PeerAddress.from(inetSocketAddress));
+			connection = Connection.from(PeerAddress.from(inetSocketAddress));
 
 			// We only update the connection here and don't set a new one because it could be an external IP that cannot
 			// work the other way round (to accept incoming connections), so it's not useful to store it.
-			location.getConnections().stream()
-					.filter(existing -> existing.originEquals(connection))
-					.findFirst()
-					.ifPresent(existing -> existing.setLastConnected(Instant.now()));
+			updateLastConnected(location, connection, now);
 		}
 
 		location.setConnected(true);
-		// @Transactional should save it automatically, but I'm not sure when exactly. To detect simultaneous connections,
-		// we need to make sure that this method has an updated location.
-		locationRepository.save(location);
+		location.setLastConnected(now);
+		stateWriter.add(new PendingConnected(location.getId(), connection, now));
 	}
 
-	@Transactional
+	/**
+	 * Marks a location as disconnected. The database is written in the background.
+	 *
+	 * @param location the location
+	 */
 	public void setDisconnected(Location location)
 	{
+		var now = Instant.now();
 		location.setConnected(false);
-		locationRepository.save(location); // This is needed because PeerHandler calls it from a non managed context
+		location.setLastConnected(now);
+		stateWriter.add(new PendingDisconnected(location.getId(), now));
 	}
 
-	@Transactional
+	/**
+	 * Sets the availability of a location. The database is written in the background.
+	 *
+	 * @param location     the location
+	 * @param availability the availability
+	 */
 	public void setAvailability(Location location, Availability availability)
 	{
 		location.setAvailability(availability);
-		locationRepository.save(location);
+		stateWriter.add(new PendingAvailability(location.getId(), availability));
 	}
 
+	private static void updateLastConnected(Location location, Connection connection, Instant when)
+	{
+		location.getConnections().stream()
+				.filter(existing -> existing.originEquals(connection))
+				.findFirst()
+				.ifPresent(existing -> existing.setLastConnected(when));
+	}
+
+	/**
+	 * Writes the connection states. Only the columns they change are updated, so that a concurrent
+	 * {@link #update} of the same location isn't overwritten. Only the last state of each kind is
+	 * written for a location.
+	 *
+	 * @param states the states
+	 */
+	private void writeStates(List<PendingState> states)
+	{
+		transactionTemplate.executeWithoutResult(_ -> {
+			Set<Long> connectedWritten = new HashSet<>();
+			Set<Long> availabilityWritten = new HashSet<>();
+
+			for (var state : states.reversed())
+			{
+				var updated = switch (state)
+				{
+					case PendingConnected(var locationId, var connection, var when) ->
+					{
+						if (connection != null && connection.getType() == PeerAddress.Type.IPV4)
+						{
+							locationRepository.updateConnectionLastConnected(locationId, connection.getType(), connection.isExternal(), connection.getIp() + ":%", when);
+						}
+						yield !connectedWritten.add(locationId) || locationRepository.updateConnected(locationId, true, when) > 0;
+					}
+					case PendingDisconnected(var locationId, var when) -> !connectedWritten.add(locationId) || locationRepository.updateConnected(locationId, false, when) > 0;
+					case PendingAvailability(var locationId, var availability) -> !availabilityWritten.add(locationId) || locationRepository.updateAvailability(locationId, availability) > 0;
+				};
+				if (!updated)
+				{
+					log.debug("Location {} is gone, dropping its state", state.locationId());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Updates a location. Nothing is written if the location is already up-to-date.
+	 *
+	 * @param location      the location
+	 * @param locationName  the name
+	 * @param netMode       the net mode
+	 * @param version       the version
+	 * @param networkMode   the network mode
+	 * @param peerAddresses the addresses to add or update
+	 * @return the updated location
+	 */
 	@Transactional
 	public Location update(Location location, String locationName, NetMode netMode, String version, NetworkMode networkMode, List<PeerAddress> peerAddresses)
 	{
+		var changed = location.getId() == 0L
+				|| !Objects.equals(location.getName(), locationName)
+				|| location.getNetMode() != netMode
+				|| !Objects.equals(location.getVersion(), version)
+				|| location.isDiscoverable() != isDiscoverable(networkMode)
+				|| location.isDht() != hasDht(networkMode);
+		var addresses = getAddresses(location);
+
 		location.setName(locationName);
 		location.setNetMode(netMode);
 		location.setVersion(version);
 		location.setDiscoverable(isDiscoverable(networkMode));
 		location.setDht(hasDht(networkMode));
 		peerAddresses.forEach(peerAddress -> addOrUpdateConnection(location, peerAddress));
+
+		if (!changed && addresses.equals(getAddresses(location)))
+		{
+			log.trace("Location {} is already up-to-date", location);
+			return location;
+		}
 		return locationRepository.save(location);
 	}
 
-	@Transactional
-	public List<Connection> getConnectionsToConnectTo(int simultaneousLocations)
+	private static List<String> getAddresses(Location location)
+	{
+		return location.getConnections().stream()
+				.map(Connection::getAddress)
+				.toList();
+	}
+
+	/**
+	 * Gets the addresses of the locations that aren't connected and have at least one address ready to be tried.
+	 * The locations that were connected most recently come first.
+	 *
+	 * @param isDue tells if an address can be tried now
+	 * @return all the addresses of each location, the most reliable first
+	 */
+	@Transactional(readOnly = true)
+	public SequencedMap<LocationIdentifier, List<String>> getAddressesToConnectTo(Predicate<String> isDue)
 	{
 		var ownConnection = findOwnLocation().orElseThrow()
 				.getConnections()
@@ -280,22 +420,26 @@ public class LocationService
 
 		var ownIp = ownConnection != null ? ownConnection.getIp() : null;
 
-		locations = locationRepository.findAllByConnectedFalse(PageRequest.of(getPageIndex(), simultaneousLocations, Sort.by("lastConnected").descending()));
-
-		return locations.stream()
+		SequencedMap<LocationIdentifier, List<String>> addresses = new LinkedHashMap<>();
+		locationRepository.findAllByConnectedFalseWithConnections().stream()
 				.filter(not(Location::isOwn))
-				.flatMap(location -> location.getBestConnection(getConnectionIndex(), ownIp))
-				.limit(simultaneousLocations)
-				.toList();
+				.filter(location -> peerConnectionManager.getPeerByLocation(location.getId()) == null) // The connected flag can be written later
+				.filter(location -> location.getConnections().stream().map(Connection::getAddress).anyMatch(isDue))
+				.forEach(location -> addresses.put(location.getLocationIdentifier(), location.getConnectionsByReliability(ownIp).stream()
+						.map(Connection::getAddress)
+						.toList()));
+		return addresses;
 	}
 
 	public Slice<Location> getUnconnectedLocationsWithDht(Pageable pageable)
 	{
+		flush();
 		return locationRepository.findAllByConnectedFalseAndDhtTrue(pageable);
 	}
 
 	public List<Location> getConnectedLocations()
 	{
+		flush();
 		return locationRepository.findAllByConnectedTrue();
 	}
 
@@ -371,23 +515,4 @@ public class LocationService
 		}
 		return false;
 	}
-
-	private int getPageIndex()
-	{
-		if (locations == null || locations.isLast())
-		{
-			pageIndex = 0;
-			connectionIndex++;
-		}
-		else
-		{
-			pageIndex++;
-		}
-		return pageIndex;
-	}
-
-	private int getConnectionIndex()
-	{
-		return connectionIndex;
-	}
 }
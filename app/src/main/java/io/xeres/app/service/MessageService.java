@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -20,21 +20,55 @@
 package io.xeres.app.service;
 
 import io.xeres.common.id.Identifier;
+import io.xeres.common.message.BatchedMessage;
 import io.xeres.common.message.MessageType;
 import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static io.xeres.common.message.MessageHeaders.DESTINATION_ID;
 import static io.xeres.common.message.MessageHeaders.MESSAGE_TYPE;
+import static io.xeres.common.message.MessagePath.chatRoomDestination;
+import static io.xeres.common.message.MessageType.CHAT_ROOM_LIST;
+import static io.xeres.common.message.MessageType.MESSAGE_BATCH;
 
+/**
+ * Sends messages to the UI and other STOMP consumers.
+ * <p>
+ * Messages to busy destinations are grouped: the first message after a quiet period is sent right away,
+ * the following ones are kept for a short while and sent together as one {@link MessageType#MESSAGE_BATCH} frame.
+ * The order of the messages of a destination is always kept.
+ */
 @Service
 public class MessageService
 {
+	static final Duration BATCH_WINDOW = Duration.ofMillis(50);
+	static final int BATCH_SIZE_MAX = 16;
+
+	/**
+	 * Destinations which can receive batches. Their frame handlers must support them.
+	 */
+	private static final Set<String> BATCHED_PATHS = Set.of(chatRoomDestination());
+
+	/**
+	 * Messages which are big or rare enough to never be worth batching.
+	 */
+	private static final Set<MessageType> UNBATCHED_TYPES = EnumSet.of(CHAT_ROOM_LIST);
+
 	private final SimpMessageSendingOperations messagingTemplate;
+	private final Map<String, PathBatch> batches = new ConcurrentHashMap<>();
+
+	private static final class PathBatch
+	{
+		private final List<BatchedMessage> messages = new ArrayList<>();
+		private long lastSent = System.nanoTime() - BATCH_WINDOW.toNanos();
+		private boolean flushScheduled;
+	}
 
 	public MessageService(SimpMessageSendingOperations messagingTemplate)
 	{
@@ -62,7 +96,79 @@ public class MessageService
 	private void sendToConsumers(String path, Map<String, Object> headers, Object payload)
 	{
 		Objects.requireNonNull(payload, "Payload *must* be an object that can be serialized to JSON");
-		messagingTemplate.convertAndSend(path, payload, headers);
+		if (!BATCHED_PATHS.contains(path))
+		{
+			messagingTemplate.convertAndSend(path, payload, headers);
+			return;
+		}
+
+		var batch = batches.computeIfAbsent(path, _ -> new PathBatch());
+		synchronized (batch)
+		{
+			var messageType = MessageType.valueOf((String) headers.get(MESSAGE_TYPE));
+			if (UNBATCHED_TYPES.contains(messageType))
+			{
+				sendBatch(path, batch);
+				messagingTemplate.convertAndSend(path, payload, headers);
+				return;
+			}
+
+			var now = System.nanoTime();
+			var elapsed = now - batch.lastSent;
+			if (batch.messages.isEmpty() && elapsed >= BATCH_WINDOW.toNanos())
+			{
+				// Nothing happened for a while, no need to delay it
+				batch.lastSent = now;
+				messagingTemplate.convertAndSend(path, payload, headers);
+				return;
+			}
+
+			batch.messages.add(new BatchedMessage(messageType, (String) headers.get(DESTINATION_ID), payload));
+			if (batch.messages.size() >= BATCH_SIZE_MAX)
+			{
+				sendBatch(path, batch);
+			}
+			else if (!batch.flushScheduled)
+			{
+				batch.flushScheduled = true;
+				var delay = Math.max(BATCH_WINDOW.toNanos() - elapsed, 0L);
+				CompletableFuture.runAsync(() -> flush(path, batch), CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS));
+			}
+		}
+	}
+
+	private void flush(String path, PathBatch batch)
+	{
+		synchronized (batch)
+		{
+			batch.flushScheduled = false;
+			sendBatch(path, batch);
+		}
+	}
+
+	/**
+	 * Sends the pending messages of a destination. A lone message is sent as is. Must be called with the batch locked.
+	 *
+	 * @param path  the destination
+	 * @param batch the batch
+	 */
+	private void sendBatch(String path, PathBatch batch)
+	{
+		if (batch.messages.isEmpty())
+		{
+			return;
+		}
+		if (batch.messages.size() == 1)
+		{
+			var message = batch.messages.getFirst();
+			messagingTemplate.convertAndSend(path, message.payload(), buildMessageHeaders(message.messageType(), message.destinationId()));
+		}
+		else
+		{
+			messagingTemplate.convertAndSend(path, List.copyOf(batch.messages), buildMessageHeaders(MESSAGE_BATCH));
+		}
+		batch.messages.clear();
+		batch.lastSent = System.nanoTime();
 	}
 
 	private static Map<String, Object> buildMessageHeaders(MessageType messageType, String id)
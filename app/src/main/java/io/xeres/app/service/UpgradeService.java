@@ -111,6 +111,7 @@ public class UpgradeService
 		{
 			log.debug("Encrypting all hashes...");
 			fileService.encryptAllHashes();
+			fileService.rebuildBloomFilter();
 		}
 
 		if (settingsService.getVersion() < 4)
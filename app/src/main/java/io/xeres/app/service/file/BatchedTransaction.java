@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.service.file;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+/**
+ * Splits a long running job, like a share scan, into transactions of a fixed number of entries. Each commit
+ * flushes the changes in JDBC batches and starts with an empty persistence context, so memory use doesn't grow
+ * with the size of the job. What was done before an interruption is kept.
+ * <p>
+ * Entities loaded before a commit are detached afterwards. They can still be saved (they're merged) or used
+ * as parents of new entities.
+ */
+class BatchedTransaction implements AutoCloseable
+{
+	private final PlatformTransactionManager transactionManager;
+	private final int size;
+	private TransactionStatus transaction;
+	private int processed;
+
+	/**
+	 * Creates a batched transaction and begins the first transaction.
+	 *
+	 * @param transactionManager the transaction manager
+	 * @param size               the number of entries to process before committing
+	 */
+	BatchedTransaction(PlatformTransactionManager transactionManager, int size)
+	{
+		if (size < 1)
+		{
+			throw new IllegalArgumentException("size must be greater than 0");
+		}
+		this.transactionManager = transactionManager;
+		this.size = size;
+		transaction = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+	}
+
+	/**
+	 * Accounts for one processed entry. Commits and begins a new transaction when the batch is full.
+	 */
+	void processed()
+	{
+		if (++processed >= size)
+		{
+			transactionManager.commit(transaction);
+			transaction = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+			processed = 0;
+		}
+	}
+
+	/**
+	 * Commits the last transaction, or rolls it back if it failed.
+	 */
+	@Override
+	public void close()
+	{
+		if (transaction.isCompleted())
+		{
+			return;
+		}
+		if (transaction.isRollbackOnly())
+		{
+			transactionManager.rollback(transaction);
+		}
+		else
+		{
+			transactionManager.commit(transaction);
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.app.service.file;
+
+import io.xeres.common.id.Sha1Sum;
+import io.xeres.common.util.ExecutorUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Hashes files in parallel while a share is being scanned.
+ * <p>
+ * Files are submitted by the thread walking the share and their hashes are collected back by that same thread,
+ * so that everything touching the database stays on it. The number of files read at once from the same device
+ * is limited, so that spinning disks don't waste their time seeking. Files waiting for their device don't hold
+ * a thread. The number of files pending is bounded as well, so that walking a large share doesn't queue it whole
+ * in memory.
+ *
+ * @param <T> the type of the context attached to each file
+ */
+class FileHasher<T> implements AutoCloseable
+{
+	record Result<T>(T context, Path path, Sha1Sum hash)
+	{
+	}
+
+	private static final class Device
+	{
+		private final Deque<Runnable> waiting = new ArrayDeque<>();
+		private int running;
+	}
+
+	private static final int PENDING_PER_THREAD = 4;
+
+	private final ExecutorService executorService;
+	private final int threadsPerDevice;
+	private final int maxPending;
+	private final BiFunction<Path, byte[], Sha1Sum> hashFunction;
+	private final ThreadLocal<byte[]> ioBuffers = ThreadLocal.withInitial(() -> new byte[FileService.SMALL_FILE_SIZE]);
+	private final Map<Object, Device> devices = new HashMap<>();
+	private final BlockingQueue<Result<T>> results = new LinkedBlockingQueue<>();
+	private int pending;
+
+	/**
+	 * Creates a file hasher.
+	 *
+	 * @param threads          the number of hashing threads
+	 * @param threadsPerDevice the maximum number of files hashed at once on the same device, 0 for no limit
+	 * @param hashFunction     the function computing the hash of a file, given a buffer for small files. Returns null on failure
+	 */
+	FileHasher(int threads, int threadsPerDevice, BiFunction<Path, byte[], Sha1Sum> hashFunction)
+	{
+		executorService = Executors.newFixedThreadPool(threads, Thread.ofPlatform()
+				.name("File Hasher #", 0)
+				.daemon()
+				.factory());
+		this.threadsPerDevice = threadsPerDevice;
+		maxPending = threads * PENDING_PER_THREAD;
+		this.hashFunction = hashFunction;
+	}
+
+	/**
+	 * Queues a file for hashing.
+	 *
+	 * @param path    the path of the file
+	 * @param device  the device the file is on, for example its {@link java.nio.file.FileStore}
+	 * @param context what to return along with the hash
+	 */
+	public void submit(Path path, Object device, T context)
+	{
+		pending++;
+		Runnable job = () -> hash(path, device, context);
+
+		synchronized (devices)
+		{
+			var waitingDevice = devices.computeIfAbsent(device, _ -> new Device());
+			if (threadsPerDevice == 0 || waitingDevice.running < threadsPerDevice)
+			{
+				waitingDevice.running++;
+				executorService.execute(job);
+			}
+			else
+			{
+				waitingDevice.waiting.add(job);
+			}
+		}
+	}
+
+	/**
+	 * Gives the results that are available. Waits for more if too many files are pending.
+	 *
+	 * @param consumer the consumer of the results
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void drain(Consumer<Result<T>> consumer) throws InterruptedException
+	{
+		Result<T> result;
+		while ((result = pending > maxPending ? results.take() : results.poll()) != null)
+		{
+			pending--;
+			consumer.accept(result);
+		}
+	}
+
+	/**
+	 * Waits for all the submitted files to be hashed.
+	 *
+	 * @param consumer the consumer of the results
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void await(Consumer<Result<T>> consumer) throws InterruptedException
+	{
+		while (pending > 0)
+		{
+			var result = results.take();
+			pending--;
+			consumer.accept(result);
+		}
+	}
+
+	private void hash(Path path, Object device, T context)
+	{
+		try
+		{
+			results.add(new Result<>(context, path, hashFunction.apply(path, ioBuffers.get())));
+		}
+		catch (RuntimeException e)
+		{
+			results.add(new Result<>(context, path, null));
+			throw e;
+		}
+		finally
+		{
+			runNext(device);
+		}
+	}
+
+	private void runNext(Object device)
+	{
+		synchronized (devices)
+		{
+			var waitingDevice = devices.get(device);
+			var next = waitingDevice.waiting.poll();
+			if (next != null && !executorService.isShutdown())
+			{
+				executorService.execute(next);
+			}
+			else
+			{
+				waitingDevice.running--;
+			}
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		ExecutorUtils.cleanupExecutor(executorService);
+	}
+}
@@ -28,6 +28,7 @@ import io.xeres.app.database.model.share.Share;
 import io.xeres.app.database.repository.FileDownloadRepository;
 import io.xeres.app.database.repository.FileRepository;
 import io.xeres.app.database.repository.ShareRepository;
+import io.xeres.app.properties.FileProperties;
 import io.xeres.app.service.notification.file.FileNotificationService;
 import io.xeres.app.util.expression.Expression;
 import io.xeres.common.annotation.VisibleForTesting;
@@ -39,15 +40,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Duration;
 import java.time.Instant;
@@ -71,6 +70,10 @@ public class FileService
 	private static final Map<Sha1Sum, Path> temporaryHashes = new ConcurrentHashMap<>();
 
 	static final int SMALL_FILE_SIZE = 1024 * 16; // 16 KB
+	private static final int FILE_KEY_SIZE_MAX = 64; // See the file table
+	private static final int PATH_CACHE_SIZE = 10_000; // Number of directories
+	private static final int SCAN_BATCH_SIZE = 500; // Number of entries processed per transaction when scanning a share
+	private static final String LEGACY_BLOOM_FILTER_FILE = "turtle_bf";
 
 	private final FileNotificationService fileNotificationService;
 
@@ -80,10 +83,19 @@ public class FileService
 
 	private final FileDownloadRepository fileDownloadRepository;
 
-	private final HashBloomFilter bloomFilter;
+	private final HashBloomFilterManager bloomFilter;
 
 	private final EntityManager entityManager;
 
+	private final FileProperties fileProperties;
+
+	private final PlatformTransactionManager transactionManager;
+
+	private final PathCache pathCache = new PathCache(PATH_CACHE_SIZE);
+
+	private final Set<Long> scannedShares = ConcurrentHashMap.newKeySet(); // Shares fully scanned since startup
+	private final Set<Long> watchedShares = ConcurrentHashMap.newKeySet(); // Shares kept up to date by the ShareWatcher
+
 	private static final String[] ignoredSuffixes = {
 			".bak",
 			".sys",
@@ -103,15 +115,38 @@ public class FileService
 			"temp."
 	};
 
-	public FileService(FileNotificationService fileNotificationService, ShareRepository shareRepository, FileRepository fileRepository, FileDownloadRepository fileDownloadRepository, EntityManager entityManager)
+	public FileService(FileNotificationService fileNotificationService, ShareRepository shareRepository, FileRepository fileRepository, FileDownloadRepository fileDownloadRepository, EntityManager entityManager, FileProperties fileProperties, PlatformTransactionManager transactionManager)
 	{
 		this.fileNotificationService = fileNotificationService;
 		this.shareRepository = shareRepository;
 		this.fileRepository = fileRepository;
 		this.fileDownloadRepository = fileDownloadRepository;
-		bloomFilter = new HashBloomFilter(DataDirLocator.getDataDir(), 10_000, 0.01d); // XXX: parameters will need experimenting, especially the max files (yes it can be extended, but not reduced)
+		bloomFilter = new HashBloomFilterManager(fileRepository, runnable -> Thread.ofVirtual().name("Bloom Filter Builder").start(runnable));
 		this.entityManager = entityManager;
-		updateBloomFilter();
+		this.fileProperties = fileProperties;
+		this.transactionManager = transactionManager;
+		deleteLegacyBloomFilter();
+		bloomFilter.build();
+	}
+
+	/**
+	 * Deletes the file where the bloom filter used to be persisted. It's now rebuilt at startup.
+	 */
+	private static void deleteLegacyBloomFilter()
+	{
+		var dataDir = DataDirLocator.getDataDir();
+		if (dataDir == null)
+		{
+			return;
+		}
+		try
+		{
+			Files.deleteIfExists(Path.of(dataDir, LEGACY_BLOOM_FILTER_FILE));
+		}
+		catch (IOException e)
+		{
+			log.warn("Couldn't delete the old bloom filter file: {}", e.getMessage());
+		}
 	}
 
 	/**
@@ -145,28 +180,238 @@ public class FileService
 	}
 
 	/**
-	 * Checks shares and scans the oldest one.
+	 * Checks shares and scans the ones that are due, oldest first.
+	 * <p>
+	 * Every share is scanned once at startup. After that, shares watched by the {@link ShareWatcher} are only
+	 * scanned again if it asks for it, the others are scanned every {@link #SCAN_DELAY}.
 	 * <p>
 	 * Note that the user might expect at most each {@link #SCAN_DELAY} for a new file to be picked up, that's why
 	 * the time spent while scanning is included.
+	 * <p>
+	 * This isn't one transaction: each scan commits as it goes, see {@link #scanShare(Share)}.
 	 */
-	@Transactional
 	public void checkForSharesToScan()
 	{
 		var sharesToScan = shareRepository.findAll(Sort.by(Sort.Order.by("lastScanned")).ascending());
 
-		log.debug("Shares to scan: {}", sharesToScan);
+		log.debug("Shares to scan: {}", sharesToScan.stream().map(Share::getName).toList());
 		var now = Instant.now();
 		sharesToScan.stream()
-				.filter(share -> share.getLastScanned() == null || share.getLastScanned().isBefore(now.minus(SCAN_DELAY)))
-				.findFirst().ifPresent(share -> {
-					log.debug("Scanning: {}", share);
+				.filter(share -> isScanNeeded(share, now))
+				.forEach(share -> {
+					log.debug("Scanning: {}", share.getName());
 					share.setLastScanned(now);
 					shareRepository.save(share);
+					scannedShares.add(share.getId());
 					scanShare(share);
 				});
 	}
 
+	private boolean isScanNeeded(Share share, Instant now)
+	{
+		if (!scannedShares.contains(share.getId()))
+		{
+			return true;
+		}
+		return !watchedShares.contains(share.getId()) && (share.getLastScanned() == null || share.getLastScanned().isBefore(now.minus(SCAN_DELAY)));
+	}
+
+	/**
+	 * Tells if a share is kept up to date by watching it, in which case it doesn't need periodic scans.
+	 *
+	 * @param shareId the id of the share
+	 * @param watched true if watched
+	 */
+	public void setShareWatched(long shareId, boolean watched)
+	{
+		if (watched)
+		{
+			watchedShares.add(shareId);
+		}
+		else
+		{
+			watchedShares.remove(shareId);
+		}
+	}
+
+	/**
+	 * Asks for a full scan of a share on the next check, for example because some changes were missed.
+	 *
+	 * @param shareId the id of the share
+	 */
+	public void requestFullScan(long shareId)
+	{
+		scannedShares.remove(shareId);
+	}
+
+	/**
+	 * Gets the paths of all shares.
+	 *
+	 * @return a map of share ids to their path
+	 */
+	@Transactional(readOnly = true)
+	public Map<Long, Path> getSharePaths()
+	{
+		return shareRepository.findAll().stream()
+				.collect(Collectors.toMap(Share::getId, share -> getFilePath(share.getFile())));
+	}
+
+	/**
+	 * Applies changes to some paths of a share. Paths that exist are indexed (directories with their content),
+	 * paths that don't exist anymore are removed from the index.
+	 * <p>
+	 * Like a full scan, the changes are committed every {@link #SCAN_BATCH_SIZE} entries because a path can be
+	 * a big directory that was just moved into the share.
+	 *
+	 * @param shareId the id of the share
+	 * @param paths   the paths that changed, within the share
+	 */
+	public void updateShareFiles(long shareId, Collection<Path> paths)
+	{
+		try (var batchedTransaction = new BatchedTransaction(transactionManager, SCAN_BATCH_SIZE))
+		{
+			var share = shareRepository.findById(shareId).orElse(null);
+			if (share == null)
+			{
+				log.debug("Share {} is gone, ignoring changes", shareId);
+				return;
+			}
+			var root = share.getFile();
+			var rootPath = getFilePath(root);
+			var changed = false;
+
+			// Existing paths go first so that moved files can reuse the hash of their previous entry
+			var sortedPaths = paths.stream()
+					.sorted(Comparator.comparing((Path path) -> Files.notExists(path, LinkOption.NOFOLLOW_LINKS)))
+					.toList();
+
+			try (var fileHasher = createFileHasher())
+			{
+				for (var path : sortedPaths)
+				{
+					changed |= updateShareFile(fileHasher, root, rootPath, path, batchedTransaction::processed);
+				}
+			}
+
+			if (changed)
+			{
+				log.debug("Applied changes to share {}", share.getName());
+			}
+		}
+	}
+
+	private boolean updateShareFile(FileHasher<HashedFile> fileHasher, File root, Path rootPath, Path path, Runnable entryProcessed)
+	{
+		if (!path.startsWith(rootPath) || path.equals(rootPath))
+		{
+			return false;
+		}
+		var relativePath = rootPath.relativize(path);
+		if (isInIgnoredDirectory(relativePath))
+		{
+			return false;
+		}
+		try
+		{
+			var attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			if (isIndexableDirectory(path, attrs))
+			{
+				log.debug("Indexing directory {}", path);
+				return scan(fileHasher, findOrCreateDirectory(root, rootPath, relativePath), path, entryProcessed);
+			}
+			else if (isIndexableFile(path, attrs))
+			{
+				log.debug("Indexing file {}", path);
+				return scan(fileHasher, findOrCreateDirectory(root, rootPath, relativePath.getParent()), path, entryProcessed);
+			}
+			return removeFile(root, relativePath, entryProcessed);
+		}
+		catch (NoSuchFileException _)
+		{
+			return removeFile(root, relativePath, entryProcessed);
+		}
+		catch (IOException e)
+		{
+			log.debug("Couldn't read attributes of {}: {}", path, e.getMessage());
+			return false;
+		}
+	}
+
+	private static boolean isInIgnoredDirectory(Path relativePath)
+	{
+		var parent = relativePath.getParent();
+		if (parent == null)
+		{
+			return false;
+		}
+		for (var component : parent)
+		{
+			if (isIgnoredDirectory(component.toString()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean removeFile(File root, Path relativePath, Runnable entryProcessed)
+	{
+		var file = findFile(root, relativePath);
+		if (file.isPresent())
+		{
+			log.debug("Removing {} from the index", relativePath);
+			removeFromIndex(file.get());
+			entryProcessed.run();
+			return true;
+		}
+		return false;
+	}
+
+	private Optional<File> findFile(File root, Path relativePath)
+	{
+		var file = root;
+		for (var component : relativePath)
+		{
+			var found = fileRepository.findByNameAndParent(component.toString(), file);
+			if (found.isEmpty())
+			{
+				return Optional.empty();
+			}
+			file = found.get();
+		}
+		return Optional.of(file);
+	}
+
+	private File findOrCreateDirectory(File root, Path rootPath, Path relativePath)
+	{
+		var directory = root;
+		if (relativePath == null)
+		{
+			return directory;
+		}
+		var path = rootPath;
+		for (var component : relativePath)
+		{
+			path = path.resolve(component);
+			var parent = directory;
+			var modified = getLastModified(path);
+			directory = fileRepository.findByNameAndParent(component.toString(), parent).orElseGet(() -> fileRepository.save(File.createDirectory(parent, component.toString(), modified)));
+		}
+		return directory;
+	}
+
+	private static Instant getLastModified(Path path)
+	{
+		try
+		{
+			return Files.getLastModifiedTime(path).toInstant();
+		}
+		catch (IOException _)
+		{
+			return Instant.now();
+		}
+	}
+
 	/**
 	 * Synchronizes the list of shares.
 	 *
@@ -192,7 +437,7 @@ public class FileService
 				// XXX: make sure no indexing process is handling this, it will have to be aborted first then. we need to store it in a list
 				var sharedDirectory = share.getFile();
 				shareRepository.delete(share);
-				fileRepository.delete(sharedDirectory);
+				removeFromIndex(sharedDirectory);
 			}
 		});
 	}
@@ -275,7 +520,14 @@ public class FileService
 			}
 			file = parent;
 		}
+		removeFromIndex(file);
+	}
+
+	private void removeFromIndex(File file)
+	{
+		pathCache.remove(file.getId());
 		fileRepository.delete(file);
+		bloomFilter.remove();
 	}
 
 	public List<File> searchFiles(String name)
@@ -328,9 +580,9 @@ public class FileService
 	}
 
 	@Transactional
-	public void suspendDownload(Sha1Sum hash, BitSet chunkMap)
+	public void saveChunkMaps(Map<Sha1Sum, BitSet> chunkMaps)
 	{
-		fileDownloadRepository.findByHash(hash).ifPresent(fileDownload -> fileDownload.setChunkMap(chunkMap));
+		fileDownloadRepository.findAllByHashIn(chunkMaps.keySet()).forEach(fileDownload -> fileDownload.setChunkMap(chunkMaps.get(fileDownload.getHash())));
 	}
 
 	@Transactional
@@ -355,7 +607,7 @@ public class FileService
 		var candidates = fileRepository.findAllByName(path.getFileName().toString());
 		for (File candidate : candidates)
 		{
-			if (getFullPathAsString(candidate).equals(path.toString()))
+			if (getFilePath(candidate).equals(path))
 			{
 				return Optional.of(candidate.getHash());
 			}
@@ -370,13 +622,32 @@ public class FileService
 		return digest.getSum();
 	}
 
+	/**
+	 * Gets the path of a file. The paths of the directories are cached so usually
+	 * none of the parents have to be loaded.
+	 *
+	 * @param file the file
+	 * @return the path
+	 */
 	public Path getFilePath(File file)
 	{
-		if (file.hasParent())
+		if (!file.hasParent())
+		{
+			return Path.of(file.getName());
+		}
+		var parent = file.getParent();
+		var parentId = parent.getId(); // Doesn't initialize the proxy
+		if (parentId == 0L)
+		{
+			return getFilePath(parent).resolve(file.getName());
+		}
+		var parentPath = pathCache.get(parentId);
+		if (parentPath == null)
 		{
-			return getFilePath(file.getParent()).resolve(file.getName());
+			parentPath = getFilePath(parent);
+			pathCache.put(parentId, parentPath);
 		}
-		return Path.of(file.getName());
+		return parentPath.resolve(file.getName());
 	}
 
 	public Sha1Sum calculateTemporaryFileHash(Path path)
@@ -453,22 +724,79 @@ public class FileService
 		return tree;
 	}
 
-	private String getFullPathAsString(File file)
+	private record HashedFile(File file, Instant modified, String fileKey)
 	{
-		return toPath(getFullPath(file));
 	}
 
+	/**
+	 * Scans a share. This is done in three stages:
+	 * <ul>
+	 *     <li>the walking thread traverses the share and looks up the files in the database</li>
+	 *     <li>new or modified files are hashed in parallel by a {@link FileHasher}</li>
+	 *     <li>the hashes are collected back by the walking thread and saved as they come</li>
+	 * </ul>
+	 * The changes are committed every {@link #SCAN_BATCH_SIZE} entries so that big shares don't fill up the
+	 * persistence context. If the scan is interrupted, the next one only has to hash what's left.
+	 *
+	 * @param share the share to scan
+	 */
 	@VisibleForTesting
 	void scanShare(Share share)
 	{
-		try
+		try (var batchedTransaction = new BatchedTransaction(transactionManager, SCAN_BATCH_SIZE))
 		{
-			var ioBuffer = new byte[SMALL_FILE_SIZE];
 			fileNotificationService.startScanning(share);
-			var directory = share.getFile();
+			var directory = fileRepository.findById(share.getFile().getId()).orElseThrow();
 			var directoryPath = getFilePath(directory);
+			if (scan(directory, directoryPath, batchedTransaction::processed))
+			{
+				log.debug("Found changes in share {}", share.getName());
+			}
+			directory.setModified(Files.getLastModifiedTime(directoryPath).toInstant());
+			fileRepository.save(directory);
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+		finally
+		{
+			fileNotificationService.stopScanning();
+		}
+	}
+
+	/**
+	 * Scans a directory or a single file.
+	 *
+	 * @param directory      the directory in the database. If the path is a file, it's its parent
+	 * @param path           the path to scan
+	 * @param entryProcessed called after each entry is written to the database, which allows committing in batches
+	 * @return true if some files were indexed
+	 * @throws IOException if an I/O error occurs
+	 */
+	private boolean scan(File directory, Path path, Runnable entryProcessed) throws IOException
+	{
+		try (var fileHasher = createFileHasher())
+		{
+			return scan(fileHasher, directory, path, entryProcessed);
+		}
+	}
+
+	private FileHasher<HashedFile> createFileHasher()
+	{
+		return new FileHasher<>(getHashingThreads(), Math.max(fileProperties.getHashingThreadsPerDevice(), 0), this::calculateFileHash);
+	}
+
+	private boolean scan(FileHasher<HashedFile> fileHasher, File directory, Path path, Runnable entryProcessed) throws IOException
+	{
+		try
+		{
 			var visitor = new TrackingFileVisitor(fileRepository, directory)
 			{
+				private final Deque<Object> devices = new ArrayDeque<>(List.of(getDevice(Files.isDirectory(path) ? path : path.getParent())));
+				private final Deque<Set<String>> seenNames = new ArrayDeque<>();
+				private final List<File> orphans = new ArrayList<>();
+
 				@Override
 				public @NonNull FileVisitResult visitFile(Path file, @NonNull BasicFileAttributes attrs)
 				{
@@ -476,7 +804,18 @@ public class FileService
 					Objects.requireNonNull(attrs);
 					if (isIndexableFile(file, attrs))
 					{
+						markSeen(file);
 						indexFile(file, attrs);
+						entryProcessed.run();
+					}
+					try
+					{
+						fileHasher.drain(this::saveHashedFile);
+					}
+					catch (InterruptedException _)
+					{
+						Thread.currentThread().interrupt();
+						return FileVisitResult.TERMINATE;
 					}
 					return FileVisitResult.CONTINUE;
 				}
@@ -488,7 +827,9 @@ public class FileService
 					Objects.requireNonNull(attrs);
 					if (isIndexableDirectory(dir, attrs))
 					{
+						markSeen(dir);
 						indexDirectory(dir, attrs);
+						entryProcessed.run();
 						return FileVisitResult.CONTINUE;
 					}
 					else
@@ -501,11 +842,17 @@ public class FileService
 				public @NonNull FileVisitResult postVisitDirectory(Path dir, IOException exc)
 				{
 					Objects.requireNonNull(dir);
-					super.postVisitDirectory(dir, exc);
+					var seen = seenNames.removeLast();
 					if (exc != null)
 					{
 						log.debug("Failed to fully scan directory {}: {}", dir, exc.getMessage());
 					}
+					else
+					{
+						collectOrphans(seen);
+					}
+					super.postVisitDirectory(dir, exc);
+					devices.removeLast();
 					return FileVisitResult.CONTINUE;
 				}
 
@@ -514,23 +861,92 @@ public class FileService
 				{
 					Objects.requireNonNull(file);
 					log.debug("Visiting file {} failed: {}", file, exc.getMessage());
+					markSeen(file); // Don't remove it from the index if it's only temporarily unavailable
 					return FileVisitResult.CONTINUE;
 				}
 
+				private void markSeen(Path file)
+				{
+					if (!seenNames.isEmpty())
+					{
+						seenNames.getLast().add(file.getFileName().toString());
+					}
+				}
+
+				/**
+				 * Collects the entries of the current directory that weren't found in it. They're only removed
+				 * at the end of the scan so that the files that were moved elsewhere can reuse their hash.
+				 *
+				 * @param seen the names found in the directory
+				 */
+				private void collectOrphans(Set<String> seen)
+				{
+					var directory = getCurrentDirectory();
+					if (directory.getId() == 0L)
+					{
+						return;
+					}
+					fileRepository.findAllByParent(directory).stream()
+							.filter(file -> !seen.contains(file.getName()))
+							.forEach(orphans::add);
+				}
+
+				void removeOrphans()
+				{
+					orphans.forEach(file -> {
+						log.debug("Removing {} from the index", file.getName());
+						removeFromIndex(file);
+						setChanged();
+						entryProcessed.run();
+					});
+				}
+
+				/**
+				 * Reuses the hash of a file that has the same identity, size and modification time. This happens
+				 * when a file is moved or renamed.
+				 *
+				 * @return true if the hash could be reused
+				 */
+				private boolean reuseHash(File currentFile, String fileKey, long size, Instant modified)
+				{
+					if (fileKey == null)
+					{
+						return false;
+					}
+					var knownFile = fileRepository.findFirstByFileKeyAndSizeAndModified(fileKey, size, modified).orElse(null);
+					if (knownFile == null || knownFile.getHash() == null)
+					{
+						return false;
+					}
+					log.debug("Reusing hash of {} for moved file {}", knownFile.getName(), currentFile.getName());
+					currentFile.setHash(knownFile.getHash());
+					currentFile.setEncryptedHash(knownFile.getEncryptedHash());
+					currentFile.setModified(modified);
+					currentFile.setFileKey(fileKey);
+					fileRepository.save(currentFile);
+					bloomFilter.add(currentFile.getEncryptedHash());
+					setChanged();
+					return true;
+				}
+
 				private void indexFile(Path file, BasicFileAttributes attrs)
 				{
 					var currentFile = fileRepository.findByNameAndParent(file.getFileName().toString(), getCurrentDirectory()).orElseGet(() -> File.createFile(getCurrentDirectory(), file.getFileName().toString(), attrs.size(), null));
 					var lastModified = attrs.lastModifiedTime().toInstant();
 					log.debug("Checking file {}, modification time: {}", file, lastModified);
+					var fileKey = getFileKey(attrs);
 					if (currentFile.getModified() == null || lastModified.isAfter(currentFile.getModified()))
 					{
 						log.debug("Current file in database, modified: {}", currentFile.getModified());
-						var hash = calculateFileHash(file, ioBuffer);
-						currentFile.setHash(hash);
-						currentFile.setEncryptedHash(encryptHash(hash));
-						currentFile.setModified(lastModified);
+						if (!reuseHash(currentFile, fileKey, attrs.size(), lastModified))
+						{
+							fileHasher.submit(file, devices.getLast(), new HashedFile(currentFile, lastModified, fileKey));
+						}
+					}
+					else if (fileKey != null && !fileKey.equals(currentFile.getFileKey()))
+					{
+						currentFile.setFileKey(fileKey);
 						fileRepository.save(currentFile);
-						setChanged();
 					}
 				}
 
@@ -538,29 +954,93 @@ public class FileService
 				{
 					super.preVisitDirectory(dir, attrs);
 					log.debug("Entering directory {}", dir);
+					devices.addLast(getDevice(dir));
+					seenNames.addLast(new HashSet<>());
 					var directory = getCurrentDirectory();
 					if (fileRepository.findByNameAndParent(directory.getName(), directory.getParent()).isEmpty())
 					{
 						fileRepository.save(directory);
 					}
 				}
+
+				void waitForHashes() throws InterruptedException
+				{
+					fileHasher.await(this::saveHashedFile);
+				}
+
+				private void saveHashedFile(FileHasher.Result<HashedFile> result)
+				{
+					if (result.hash() == null)
+					{
+						log.debug("Couldn't hash file {}, skipping", result.path());
+						return;
+					}
+					var currentFile = result.context().file();
+					currentFile.setHash(result.hash());
+					currentFile.setEncryptedHash(encryptHash(result.hash()));
+					currentFile.setModified(result.context().modified());
+					currentFile.setFileKey(result.context().fileKey());
+					fileRepository.save(currentFile);
+					bloomFilter.add(currentFile.getEncryptedHash());
+					setChanged();
+					entryProcessed.run();
+				}
 			};
-			Files.walkFileTree(directoryPath, visitor);
-			directory.setModified(Files.getLastModifiedTime(directoryPath).toInstant());
-			fileRepository.save(directory);
+			Files.walkFileTree(path, visitor);
+			visitor.waitForHashes();
+			visitor.removeOrphans();
+			return visitor.foundChanges();
+		}
+		catch (InterruptedException _)
+		{
+			log.debug("Interrupted while scanning {}", path);
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
 
-			if (visitor.foundChanges())
-			{
-				updateBloomFilter();
-			}
+	/**
+	 * Gets the identity of a file, which stays the same when it's moved within the same filesystem.
+	 *
+	 * @param attrs the attributes of the file
+	 * @return the file key (device and inode on Unix), or null if the filesystem doesn't provide any
+	 */
+	private static String getFileKey(BasicFileAttributes attrs)
+	{
+		var fileKey = attrs.fileKey();
+		if (fileKey == null)
+		{
+			return null;
 		}
-		catch (IOException e)
+		var key = fileKey.toString();
+		return key.length() <= FILE_KEY_SIZE_MAX ? key : null;
+	}
+
+	private int getHashingThreads()
+	{
+		if (fileProperties.getHashingThreads() > 0)
 		{
-			throw new RuntimeException(e);
+			return fileProperties.getHashingThreads();
 		}
-		finally
+		return Math.clamp(Runtime.getRuntime().availableProcessors(), 1, 8);
+	}
+
+	/**
+	 * Gets the device a directory is on, so that reads from it can be limited.
+	 *
+	 * @param directory the directory
+	 * @return the file store of the directory, or its root if unknown
+	 */
+	private static Object getDevice(Path directory)
+	{
+		try
 		{
-			fileNotificationService.stopScanning();
+			return Files.getFileStore(directory);
+		}
+		catch (IOException e)
+		{
+			log.debug("Couldn't find the file store of {}: {}", directory, e.getMessage());
+			return directory.getRoot();
 		}
 	}
 
@@ -606,7 +1086,7 @@ public class FileService
 		return false;
 	}
 
-	private static boolean isIgnoredDirectory(String dirName)
+	static boolean isIgnoredDirectory(String dirName)
 	{
 		return dirName.startsWith(".");
 	}
@@ -663,7 +1143,7 @@ public class FileService
 		}
 		finally
 		{
-			fileNotificationService.stopScanningFile();
+			fileNotificationService.stopScanningFile(path);
 		}
 	}
 
@@ -683,14 +1163,36 @@ public class FileService
 		}
 		finally
 		{
-			fileNotificationService.stopScanningFile();
+			fileNotificationService.stopScanningFile(path);
 		}
 	}
 
-	private void updateBloomFilter()
+	/**
+	 * Rebuilds the bloom filter in the background if needed. Must be called outside a transaction
+	 * so that the rebuild sees the changes.
+	 */
+	public void maintainBloomFilter()
+	{
+		bloomFilter.maintain();
+	}
+
+	/**
+	 * Rebuilds the bloom filter in the background after the encrypted hashes were rewritten. Must be
+	 * called once they're committed.
+	 */
+	public void rebuildBloomFilter()
+	{
+		bloomFilter.invalidate();
+	}
+
+	/**
+	 * Gets the estimated false positive probability of the encrypted hash lookups, which is the
+	 * probability of an unneeded database access.
+	 *
+	 * @return the probability, between 0 and 1
+	 */
+	public double getBloomFilterFalsePositiveProbability()
 	{
-		// XXX: extend the bloom filter if needed
-		bloomFilter.clear();
-		fileRepository.findAll().forEach(file -> bloomFilter.add(file.getEncryptedHash()));
+		return bloomFilter.getFalsePositiveProbability();
 	}
 }
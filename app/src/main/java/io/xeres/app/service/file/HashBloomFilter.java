@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023-2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2023-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -22,11 +22,8 @@ package io.xeres.app.service.file;
 import com.sangupta.bloomfilter.AbstractBloomFilter;
 import com.sangupta.bloomfilter.core.BitArray;
 import com.sangupta.bloomfilter.core.JavaBitSetArray;
-import com.sangupta.bloomfilter.core.MMapFileBackedBitArray;
 import io.xeres.common.id.Sha1Sum;
 
-import java.io.IOException;
-import java.nio.file.Path;
 import java.util.Collection;
 
 /**
@@ -38,38 +35,22 @@ import java.util.Collection;
  * <p>
  * Removing an entry is not possible. One has to clear and re-add all entries.
  * <p>
- * The entries are persisted to disk.
+ * The entries are only kept in memory.
  */
 public class HashBloomFilter
 {
-	private static final String PERSISTENT_FILE = "turtle_bf";
 	private final AbstractBloomFilter<Sha1Sum> bFilter;
 	private BitArray bArray;
 
-	public HashBloomFilter(String baseDir, int expectedInsertions, double falsePositiveProbability)
+	public HashBloomFilter(int expectedInsertions, double falsePositiveProbability)
 	{
 		bFilter = new AbstractBloomFilter<>(expectedInsertions, falsePositiveProbability, (sha1Sum, byteSink) -> byteSink.putBytes(sha1Sum.getBytes()))
 		{
 			@Override
 			protected BitArray createBitArray(int numBits)
 			{
-				if (baseDir == null)
-				{
-					bArray = new JavaBitSetArray(numBits);
-					return bArray;
-				}
-				else
-				{
-					try
-					{
-						bArray = new MMapFileBackedBitArray(Path.of(baseDir, PERSISTENT_FILE).toFile(), numBits);
-						return bArray;
-					}
-					catch (IOException e)
-					{
-						throw new RuntimeException(e);
-					}
-				}
+				bArray = new JavaBitSetArray(numBits);
+				return bArray;
 			}
 
 			@Override
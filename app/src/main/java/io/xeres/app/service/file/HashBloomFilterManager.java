@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.service.file;
+
+import io.xeres.app.database.model.file.FileEncryptedHash;
+import io.xeres.app.database.repository.FileRepository;
+import io.xeres.common.id.Sha1Sum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps a {@link HashBloomFilter} of the encrypted hashes of the indexed files up to date.
+ * <p>
+ * Hashes are added as files are indexed. Since a bloom filter can't remove entries, removed files
+ * only make it less precise. When there are more entries than the filter was sized for, or too many
+ * of them are stale, a new filter is built in the background from the encrypted hashes only, then
+ * swapped with the current one. Hashes added meanwhile are replayed into it.
+ * <p>
+ * The first filter is built in the background at startup. Until it's ready, or if that fails, every
+ * lookup is a possible match.
+ */
+class HashBloomFilterManager
+{
+	private static final Logger log = LoggerFactory.getLogger(HashBloomFilterManager.class);
+
+	static final int MIN_CAPACITY = 10_000;
+	private static final double FALSE_POSITIVE_PROBABILITY = 0.01d;
+	private static final double MAX_STALE_RATIO = 0.25d;
+	private static final int BATCH_SIZE = 10_000;
+
+	private final FileRepository fileRepository;
+	private final Executor executor;
+
+	private HashBloomFilter filter;
+	private int capacity;
+	private long entries;
+	private boolean changed = true;
+	private List<Sha1Sum> journal; // Hashes added while rebuilding
+	private int generation; // Incremented when the encrypted hashes are rewritten
+
+	HashBloomFilterManager(FileRepository fileRepository, Executor executor)
+	{
+		this.fileRepository = fileRepository;
+		this.executor = executor;
+	}
+
+	/**
+	 * Builds the first filter from the database, in the background.
+	 */
+	void build()
+	{
+		synchronized (this)
+		{
+			if (journal != null)
+			{
+				return;
+			}
+			changed = false;
+			journal = new ArrayList<>();
+		}
+		executor.execute(() -> rebuild(fileRepository.countByEncryptedHashIsNotNull()));
+	}
+
+	/**
+	 * Drops the filter because the encrypted hashes were rewritten, and rebuilds it in the background.
+	 * A rebuild already running starts over.
+	 */
+	void invalidate()
+	{
+		synchronized (this)
+		{
+			filter = null;
+			generation++;
+			changed = true;
+		}
+		maintain();
+	}
+
+	synchronized void add(Sha1Sum encryptedHash)
+	{
+		if (filter != null)
+		{
+			filter.add(encryptedHash);
+			entries++;
+		}
+		if (journal != null)
+		{
+			journal.add(encryptedHash);
+		}
+		changed = true;
+	}
+
+	/**
+	 * Tells that some files were removed. They stay in the filter until it's rebuilt.
+	 */
+	synchronized void remove()
+	{
+		changed = true;
+	}
+
+	synchronized boolean mightContain(Sha1Sum encryptedHash)
+	{
+		return filter == null || filter.mightContain(encryptedHash);
+	}
+
+	/**
+	 * Estimates the current probability of false positives, which grows as entries are added
+	 * beyond the capacity.
+	 *
+	 * @return the probability, between 0 and 1
+	 */
+	synchronized double getFalsePositiveProbability()
+	{
+		if (filter == null)
+		{
+			return 1.0d;
+		}
+		return estimateFalsePositiveProbability(capacity, entries);
+	}
+
+	static double estimateFalsePositiveProbability(int capacity, long entries)
+	{
+		var bits = Math.ceil(-capacity * Math.log(FALSE_POSITIVE_PROBABILITY) / (Math.log(2) * Math.log(2)));
+		var hashFunctions = Math.max(1L, Math.round(bits / capacity * Math.log(2)));
+		return Math.pow(1.0d - Math.exp(-hashFunctions * entries / bits), hashFunctions);
+	}
+
+	/**
+	 * Rebuilds the filter in the background if it's missing, full, or has too many stale entries.
+	 */
+	void maintain()
+	{
+		boolean missingOrFull;
+		synchronized (this)
+		{
+			if (journal != null || !changed)
+			{
+				return;
+			}
+			changed = false;
+			missingOrFull = filter == null || entries > capacity;
+		}
+
+		var liveEntries = fileRepository.countByEncryptedHashIsNotNull();
+
+		synchronized (this)
+		{
+			if (journal != null || (!missingOrFull && entries - liveEntries <= entries * MAX_STALE_RATIO))
+			{
+				return;
+			}
+			journal = new ArrayList<>();
+		}
+		executor.execute(() -> rebuild(liveEntries));
+	}
+
+	private void rebuild(long expectedEntries)
+	{
+		try
+		{
+			int newCapacity;
+			long count;
+			var done = false;
+			do
+			{
+				int startGeneration;
+				synchronized (this)
+				{
+					startGeneration = generation;
+				}
+				newCapacity = (int) Math.clamp(expectedEntries * 2, MIN_CAPACITY, Integer.MAX_VALUE);
+				var newFilter = new HashBloomFilter(newCapacity, FALSE_POSITIVE_PROBABILITY);
+				count = fill(newFilter);
+				expectedEntries = count;
+
+				synchronized (this)
+				{
+					if (count <= newCapacity && generation == startGeneration) // Otherwise it grew too much or the hashes were rewritten in the meantime
+					{
+						journal.forEach(newFilter::add);
+						filter = newFilter;
+						capacity = newCapacity;
+						entries = count + journal.size();
+						journal = null;
+						done = true;
+					}
+				}
+			}
+			while (!done);
+			log.debug("Rebuilt bloom filter with {} entries, capacity: {}, false positive probability: {}", count, newCapacity, getFalsePositiveProbability());
+		}
+		catch (RuntimeException e)
+		{
+			log.error("Failed to rebuild bloom filter: {}", e.getMessage(), e);
+			synchronized (this)
+			{
+				journal = null;
+				changed = true;
+			}
+		}
+	}
+
+	private long fill(HashBloomFilter newFilter)
+	{
+		var count = 0L;
+		var lastId = 0L;
+		List<FileEncryptedHash> batch;
+		do
+		{
+			batch = fileRepository.findByIdGreaterThanAndEncryptedHashIsNotNullOrderByIdAsc(lastId, Limit.of(BATCH_SIZE));
+			for (var file : batch)
+			{
+				newFilter.add(file.getEncryptedHash());
+				lastId = file.getId();
+			}
+			count += batch.size();
+		}
+		while (batch.size() == BATCH_SIZE);
+		return count;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.service.file;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the paths of recently used directories, by file id, so that resolving the path of
+ * a file doesn't need to load all its parents from the database.
+ * <p>
+ * Directory entries are never renamed nor moved (a move creates new entries), so only
+ * removed directories need to be invalidated.
+ */
+class PathCache
+{
+	private final Map<Long, Path> paths;
+
+	PathCache(int maxEntries)
+	{
+		paths = new LinkedHashMap<>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Path> eldest)
+			{
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	synchronized Path get(long id)
+	{
+		return paths.get(id);
+	}
+
+	synchronized void put(long id, Path path)
+	{
+		paths.put(id, path);
+	}
+
+	/**
+	 * Removes a directory and everything below it.
+	 *
+	 * @param id the id of the directory
+	 */
+	synchronized void remove(long id)
+	{
+		var path = paths.remove(id);
+		if (path != null)
+		{
+			paths.values().removeIf(entry -> entry.startsWith(path));
+		}
+	}
+
+	synchronized void clear()
+	{
+		paths.clear();
+	}
+
+	synchronized int size()
+	{
+		return paths.size();
+	}
+}
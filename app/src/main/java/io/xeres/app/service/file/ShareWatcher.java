@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.service.file;
+
+import io.xeres.common.annotation.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the shares for changes and applies them to the index as they happen, so that new files
+ * are available within seconds and idle shares don't need periodic scans.
+ * <p>
+ * Bursts of events on the same path are debounced. Renames show up as a deletion followed by a creation.
+ * If events are lost (overflow) or a share can't be watched (for example because of the inotify limit
+ * on Linux), the share falls back to full scans.
+ */
+@Service
+public class ShareWatcher
+{
+	private static final Logger log = LoggerFactory.getLogger(ShareWatcher.class);
+
+	/**
+	 * How long a path must be quiet before its changes are applied.
+	 */
+	private static final Duration DEBOUNCE = Duration.ofSeconds(2);
+
+	private static final Duration POLL_DELAY = Duration.ofMillis(500);
+
+	private final FileService fileService;
+
+	private final Object scanLock = new Object(); // Full scans and updates must not run at the same time
+
+	private final Map<Long, Path> watchedShares = new HashMap<>();
+	private final Map<WatchKey, WatchedDirectory> watchedDirectories = new HashMap<>();
+	private final Map<Path, PendingChange> pendingChanges = new LinkedHashMap<>();
+
+	private WatchService watchService;
+	private Thread thread;
+
+	private record WatchedDirectory(long shareId, Path path)
+	{
+	}
+
+	private record PendingChange(long shareId, long lastEvent)
+	{
+	}
+
+	public ShareWatcher(FileService fileService)
+	{
+		this.fileService = fileService;
+	}
+
+	/**
+	 * Starts watching new shares and stops watching removed ones.
+	 */
+	public void watchShares()
+	{
+		var sharePaths = fileService.getSharePaths();
+
+		synchronized (watchedDirectories)
+		{
+			if (!startWatchService())
+			{
+				return;
+			}
+
+			watchedShares.keySet().stream()
+					.filter(shareId -> !sharePaths.containsKey(shareId) || !sharePaths.get(shareId).equals(watchedShares.get(shareId)))
+					.toList()
+					.forEach(this::unwatchShare);
+
+			sharePaths.forEach((shareId, path) -> {
+				if (!watchedShares.containsKey(shareId))
+				{
+					watchShare(shareId, path);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Scans the shares that need it. Watched shares only need a full scan at startup or after losing events.
+	 */
+	public void scanShares()
+	{
+		synchronized (scanLock)
+		{
+			fileService.checkForSharesToScan();
+			fileService.maintainBloomFilter();
+		}
+	}
+
+	public void shutdown()
+	{
+		if (thread == null)
+		{
+			return;
+		}
+		thread.interrupt();
+		try
+		{
+			watchService.close();
+			thread.join(Duration.ofSeconds(5));
+		}
+		catch (IOException e)
+		{
+			log.error("Failed to close watch service: {}", e.getMessage());
+		}
+		catch (InterruptedException _)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private boolean startWatchService()
+	{
+		if (watchService != null)
+		{
+			return true;
+		}
+		try
+		{
+			watchService = FileSystems.getDefault().newWatchService();
+		}
+		catch (IOException | UnsupportedOperationException e)
+		{
+			log.warn("Filesystem watching is not available, shares will be scanned periodically: {}", e.getMessage());
+			return false;
+		}
+		thread = Thread.ofVirtual()
+				.name("Share Watcher")
+				.start(this::run);
+		return true;
+	}
+
+	private void watchShare(long shareId, Path path)
+	{
+		watchedShares.put(shareId, path);
+		try
+		{
+			registerTree(shareId, path);
+			fileService.setShareWatched(shareId, true);
+			log.debug("Watching share {}", path);
+		}
+		catch (IOException e)
+		{
+			log.warn("Cannot watch share {}, it will be scanned periodically: {}", path, e.getMessage());
+			cancelKeys(shareId, path);
+			fileService.setShareWatched(shareId, false);
+		}
+	}
+
+	private void unwatchShare(long shareId)
+	{
+		var path = watchedShares.remove(shareId);
+		cancelKeys(shareId, path);
+		synchronized (pendingChanges)
+		{
+			pendingChanges.values().removeIf(pendingChange -> pendingChange.shareId() == shareId);
+		}
+		fileService.setShareWatched(shareId, false);
+		log.debug("Stopped watching share {}", path);
+	}
+
+	private void registerTree(long shareId, Path start) throws IOException
+	{
+		Files.walkFileTree(start, new SimpleFileVisitor<>()
+		{
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+			{
+				if (!dir.equals(start) && FileService.isIgnoredDirectory(dir.getFileName().toString()))
+				{
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				var key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+				watchedDirectories.put(key, new WatchedDirectory(shareId, dir));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc)
+			{
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Cancels the keys of a directory and its subdirectories.
+	 *
+	 * @param shareId the share
+	 * @param path    the directory
+	 */
+	private void cancelKeys(long shareId, Path path)
+	{
+		var iterator = watchedDirectories.entrySet().iterator();
+		while (iterator.hasNext())
+		{
+			var entry = iterator.next();
+			if (entry.getValue().shareId() == shareId && entry.getValue().path().startsWith(path))
+			{
+				entry.getKey().cancel();
+				iterator.remove();
+			}
+		}
+	}
+
+	private void run()
+	{
+		log.debug("Share watcher started");
+		try
+		{
+			while (!Thread.currentThread().isInterrupted())
+			{
+				var key = watchService.poll(POLL_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+				while (key != null)
+				{
+					processEvents(key);
+					key = watchService.poll();
+				}
+				applyChanges(System.nanoTime());
+			}
+		}
+		catch (InterruptedException _)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ClosedWatchServiceException _)
+		{
+			// Shutting down
+		}
+		log.debug("Share watcher stopped");
+	}
+
+	private void processEvents(WatchKey key)
+	{
+		synchronized (watchedDirectories)
+		{
+			var watchedDirectory = watchedDirectories.get(key);
+			if (watchedDirectory == null)
+			{
+				key.cancel();
+				return;
+			}
+
+			for (var event : key.pollEvents())
+			{
+				if (event.kind() == OVERFLOW)
+				{
+					handleOverflow(watchedDirectory.shareId());
+					continue;
+				}
+				var path = watchedDirectory.path().resolve((Path) event.context());
+				log.trace("Event {} on {}", event.kind().name(), path);
+
+				if (event.kind() == ENTRY_MODIFY && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+				{
+					continue; // Changes within it come from its own key
+				}
+				else if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) && !FileService.isIgnoredDirectory(path.getFileName().toString()))
+				{
+					registerDirectory(watchedDirectory.shareId(), path);
+				}
+				else if (event.kind() == ENTRY_DELETE)
+				{
+					// A moved directory keeps its watch, so it must be cancelled before it's registered again with its new name
+					cancelKeys(watchedDirectory.shareId(), path);
+				}
+				addPendingChange(watchedDirectory.shareId(), path, System.nanoTime());
+			}
+
+			if (!key.reset())
+			{
+				watchedDirectories.remove(key);
+			}
+		}
+	}
+
+	private void registerDirectory(long shareId, Path path)
+	{
+		try
+		{
+			registerTree(shareId, path);
+		}
+		catch (IOException e)
+		{
+			log.warn("Cannot watch directory {}, falling back to full scans: {}", path, e.getMessage());
+			fileService.setShareWatched(shareId, false);
+		}
+	}
+
+	private void handleOverflow(long shareId)
+	{
+		log.debug("Lost events for share {}, requesting a full scan", shareId);
+		synchronized (pendingChanges)
+		{
+			pendingChanges.values().removeIf(pendingChange -> pendingChange.shareId() == shareId);
+		}
+		fileService.requestFullScan(shareId);
+	}
+
+	@VisibleForTesting
+	void addPendingChange(long shareId, Path path, long now)
+	{
+		synchronized (pendingChanges)
+		{
+			pendingChanges.remove(path); // Keep the map in order of last event
+			pendingChanges.put(path, new PendingChange(shareId, now));
+		}
+	}
+
+	/**
+	 * Applies the changes that have been quiet for long enough.
+	 *
+	 * @param now the current time, in nanoseconds
+	 * @return the number of applied changes
+	 */
+	@VisibleForTesting
+	int applyChanges(long now)
+	{
+		Map<Long, List<Path>> changes;
+		synchronized (pendingChanges)
+		{
+			changes = new HashMap<>();
+			var iterator = pendingChanges.entrySet().iterator();
+			while (iterator.hasNext())
+			{
+				var entry = iterator.next();
+				if (now - entry.getValue().lastEvent() < DEBOUNCE.toNanos())
+				{
+					break;
+				}
+				changes.computeIfAbsent(entry.getValue().shareId(), _ -> new ArrayList<>()).add(entry.getKey());
+				iterator.remove();
+			}
+		}
+
+		changes.forEach((shareId, paths) -> {
+			log.debug("Applying {} changes to share {}", paths.size(), shareId);
+			synchronized (scanLock)
+			{
+				try
+				{
+					fileService.updateShareFiles(shareId, removeNestedPaths(paths));
+					fileService.maintainBloomFilter();
+				}
+				catch (RuntimeException e)
+				{
+					log.error("Failed to apply changes to share {}, requesting a full scan: {}", shareId, e.getMessage(), e);
+					fileService.requestFullScan(shareId);
+				}
+			}
+		});
+		return changes.values().stream()
+				.mapToInt(List::size)
+				.sum();
+	}
+
+	/**
+	 * Removes the paths that are within another path of the list, since scanning that other path
+	 * will index them too. Paths that don't exist anymore are kept: the scan of the other path only
+	 * removes the entries it doesn't find once it's done, and the other path might be gone as well.
+	 *
+	 * @param paths the paths
+	 * @return the paths without the covered ones
+	 */
+	@VisibleForTesting
+	static List<Path> removeNestedPaths(List<Path> paths)
+	{
+		var allPaths = new HashSet<>(paths);
+		return paths.stream()
+				.filter(path -> !isWithin(path, allPaths) || Files.notExists(path, LinkOption.NOFOLLOW_LINKS))
+				.toList();
+	}
+
+	private static boolean isWithin(Path path, Set<Path> paths)
+	{
+		for (var parent = path.getParent(); parent != null; parent = parent.getParent())
+		{
+			if (paths.contains(parent))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
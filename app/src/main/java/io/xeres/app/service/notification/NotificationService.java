@@ -20,22 +20,51 @@
 package io.xeres.app.service.notification;
 
 import io.xeres.common.rest.notification.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
-import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Sends notifications to the clients using server-sent events. Each event contains an array of notifications:
+ * they're buffered per client and sent together every {@link #getFlushInterval()}, and notifications carrying
+ * a state only keep their latest value (see {@link Notification#coalescingKey()}).
+ * <p>
+ * The flushes are timed by a scheduler shared by all the services and each one is sent from its own virtual
+ * thread, so a slow client only holds up its own stream.
+ */
 public abstract class NotificationService
 {
-	final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+	private static final Logger log = LoggerFactory.getLogger(NotificationService.class);
+
+	private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(100);
+
+	/**
+	 * Maximum number of notifications waiting to be sent to a client.
+	 */
+	private static final int STREAM_CAPACITY = 1000;
+
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+			.name("Notification Scheduler")
+			.daemon()
+			.factory());
+
+	private static final Executor sender = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+			.name("Notification Sender")
+			.factory());
+
+	private record Client(SseEmitter emitter, NotificationStream stream)
+	{
+	}
+
+	final List<Client> clients = new CopyOnWriteArrayList<>();
 
 	private Notification previousNotification;
 	private final AtomicBoolean running = new AtomicBoolean();
@@ -56,6 +85,17 @@ public abstract class NotificationService
 		return null;
 	}
 
+	/**
+	 * Gets how long notifications are buffered before being sent. Streams with many small notifications
+	 * benefit from a longer interval.
+	 *
+	 * @return the flush interval, zero to send the notifications immediately
+	 */
+	protected Duration getFlushInterval()
+	{
+		return DEFAULT_FLUSH_INTERVAL;
+	}
+
 	public SseEmitter addClient()
 	{
 		if (!running.get())
@@ -64,109 +104,104 @@ public abstract class NotificationService
 		}
 
 		var emitter = new SseEmitter(-1L); // no timeout
-		addEmitter(emitter);
-		emitter.onCompletion(() -> removeEmitter(emitter));
-		emitter.onTimeout(() -> removeEmitter(emitter));
+		var client = new Client(emitter, new NotificationStream(STREAM_CAPACITY));
+		clients.add(client);
+		emitter.onCompletion(() -> clients.remove(client));
+		emitter.onTimeout(() -> clients.remove(client));
 
-		CompletableFuture.delayedExecutor(1, TimeUnit.MILLISECONDS).execute(() -> sendInitialNotificationIfNeeded(emitter)); // send a notification to the client that just connected to "sync" it (XXX: remove? what happens if the event is sent immediately? test it... I don't like that delay stuff...)
+		sender.execute(() -> sendInitialNotificationIfNeeded(client)); // "Syncs" the client that just connected. The emitter buffers what is sent before it's returned
 
 		return emitter;
 	}
 
 	public void sendNotification(Notification notification)
 	{
-		sendNotification(notification, null);
+		Objects.requireNonNull(notification);
+
+		if (!running.get())
+		{
+			return;
+		}
+
+		if (notification.ignoreDuplicates() && notification.equals(previousNotification))
+		{
+			return;
+		}
+		previousNotification = notification;
+
+		clients.forEach(client -> queueNotification(client, notification));
 	}
 
 	/**
-	 * Closes all the emitters. If not called, tomcat will complain about non-closed connections
+	 * Sends the pending notifications and closes all the emitters. If not called, tomcat will complain about non-closed connections
 	 * on shutdown.
 	 */
 	public void shutdown()
 	{
 		running.set(false);
-		emitters.forEach(ResponseBodyEmitter::complete);
+		clients.forEach(client -> {
+			flush(client);
+			client.emitter().complete();
+		});
 	}
 
-	private void sendInitialNotificationIfNeeded(SseEmitter emitter)
+	private void sendInitialNotificationIfNeeded(Client client)
 	{
 		var notification = initialNotification();
-		if (notification != null)
+		if (notification != null && running.get())
 		{
-			sendNotification(notification, emitter);
+			queueNotification(client, notification);
 		}
 	}
 
-	private void sendNotification(Notification notification, SseEmitter specificEmitter)
+	private void queueNotification(Client client, Notification notification)
 	{
-		Objects.requireNonNull(notification);
-
-		if (!running.get())
+		if (!client.stream().add(notification))
 		{
 			return;
 		}
 
-		if (specificEmitter != null)
+		var flushInterval = getFlushInterval();
+		if (flushInterval.isZero())
 		{
-			sendSseNotification(specificEmitter, notification);
+			flush(client);
 		}
 		else
 		{
-			if (notification.ignoreDuplicates() && notification.equals(previousNotification))
-			{
-				return;
-			}
-
-			previousNotification = notification;
-
-			sendSseNotification(notification);
+			scheduler.schedule(() -> sender.execute(() -> flush(client)), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
 		}
 	}
 
-	private void addEmitter(SseEmitter emitter)
-	{
-		emitters.add(emitter);
-	}
-
-	private void removeEmitter(SseEmitter emitter)
-	{
-		emitters.remove(emitter);
-	}
-
-	private void sendSseNotification(Notification notification)
+	private void flush(Client client)
 	{
-		List<SseEmitter> deadEmitters = new ArrayList<>();
-
-		emitters.forEach(emitter ->
+		synchronized (client) // Keeps the order if a flush is scheduled while another is still sending
 		{
+			var notifications = client.stream().drain();
+			if (notifications.isEmpty())
+			{
+				return;
+			}
+			var dropped = client.stream().takeDropped();
+			if (dropped > 0)
+			{
+				log.debug("{}: client is too slow, {} notifications were dropped", getClass().getSimpleName(), dropped);
+			}
 			try
 			{
-				emitter.send(createEventBuilder(notification));
+				client.emitter().send(createEventBuilder(notifications));
 			}
-			catch (IOException _)
+			catch (IOException | IllegalStateException _)
 			{
-				deadEmitters.add(emitter);
+				clients.remove(client);
 			}
-		});
-		emitters.removeAll(deadEmitters);
-	}
-
-	private void sendSseNotification(SseEmitter emitter, Notification notification)
-	{
-		try
-		{
-			emitter.send(createEventBuilder(notification));
-		}
-		catch (IOException _)
-		{
-			emitters.remove(emitter);
 		}
 	}
 
-	private static SseEmitter.SseEventBuilder createEventBuilder(Notification notification)
+	private static SseEmitter.SseEventBuilder createEventBuilder(List<Notification> notifications)
 	{
 		var event = SseEmitter.event();
-		event.data(notification, MediaType.APPLICATION_JSON);
+		// An array keeps the element type, a list would be erased and Jackson would leave out the "type" property
+		event.data(notifications.toArray(Notification[]::new), MediaType.APPLICATION_JSON);
 		return event;
 	}
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.service.notification;
+
+import io.xeres.common.rest.notification.Notification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.SequencedMap;
+
+/**
+ * The notifications waiting to be sent to one client. Notifications carrying a state replace the previous
+ * one with the same coalescing key, the others are queued. When the buffer is full, the oldest queued
+ * notification is dropped so that the producer never waits for a slow client.
+ */
+class NotificationStream
+{
+	private record CoalescingKey(Class<?> type, Object key)
+	{
+	}
+
+	private final int capacity;
+	private final SequencedMap<Object, Notification> pending = new LinkedHashMap<>();
+	private long sequence;
+	private boolean flushScheduled;
+	private long dropped;
+
+	NotificationStream(int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("capacity must be greater than 0");
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Adds a notification.
+	 *
+	 * @param notification the notification
+	 * @return true if a flush has to be scheduled, false if one is already
+	 */
+	synchronized boolean add(Notification notification)
+	{
+		var key = notification.coalescingKey();
+		Object mapKey;
+		if (key != null)
+		{
+			mapKey = new CoalescingKey(notification.getClass(), key);
+			pending.remove(mapKey); // The latest state goes last
+		}
+		else
+		{
+			mapKey = sequence++;
+		}
+
+		if (pending.size() >= capacity)
+		{
+			dropOldest();
+		}
+		pending.put(mapKey, notification);
+
+		if (flushScheduled)
+		{
+			return false;
+		}
+		flushScheduled = true;
+		return true;
+	}
+
+	/**
+	 * Removes all the pending notifications.
+	 *
+	 * @return the notifications, in order
+	 */
+	synchronized List<Notification> drain()
+	{
+		flushScheduled = false;
+		if (pending.isEmpty())
+		{
+			return List.of();
+		}
+		var notifications = new ArrayList<>(pending.sequencedValues());
+		pending.clear();
+		return notifications;
+	}
+
+	synchronized int size()
+	{
+		return pending.size();
+	}
+
+	/**
+	 * Gets the number of notifications dropped since the last call.
+	 *
+	 * @return the number of dropped notifications
+	 */
+	synchronized long takeDropped()
+	{
+		var value = dropped;
+		dropped = 0;
+		return value;
+	}
+
+	/**
+	 * Drops the oldest queued notification. States are only dropped if there's nothing else
+	 * because they can't be recovered from the following notifications.
+	 */
+	private void dropOldest()
+	{
+		var iterator = pending.sequencedKeySet().iterator();
+		while (iterator.hasNext())
+		{
+			if (!(iterator.next() instanceof CoalescingKey))
+			{
+				iterator.remove();
+				dropped++;
+				return;
+			}
+		}
+		pending.pollFirstEntry();
+		dropped++;
+	}
+}
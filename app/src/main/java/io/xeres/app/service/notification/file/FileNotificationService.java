@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023 by David Gerber - https://zapek.com
+ * Copyright (c) 2023-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -27,18 +27,30 @@ import io.xeres.common.rest.notification.file.FileNotificationAction;
 import org.springframework.stereotype.Service;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.SequencedSet;
 
 import static io.xeres.common.rest.notification.file.FileNotificationAction.*;
 
 @Service
 public class FileNotificationService extends NotificationService
 {
+	private static final Duration FLUSH_INTERVAL = Duration.ofMillis(250);
+
 	private FileNotificationAction action = NONE;
 	private String shareName;
 	private String scannedFile;
+	private final SequencedSet<Path> scannedFiles = new LinkedHashSet<>(); // Files are hashed in parallel
+
+	@Override
+	protected Duration getFlushInterval()
+	{
+		return FLUSH_INTERVAL;
+	}
 
 	@Override
-	protected Notification initialNotification()
+	protected synchronized Notification initialNotification()
 	{
 		return createNotification();
 	}
@@ -48,32 +60,48 @@ public class FileNotificationService extends NotificationService
 		return new FileNotification(action, shareName, scannedFile);
 	}
 
-	public void startScanning(Share share)
+	public synchronized void startScanning(Share share)
 	{
 		action = START_SCANNING;
 		shareName = share.getName();
 		sendNotification(createNotification());
 	}
 
-	public void startScanningFile(Path scannedFile)
+	public synchronized void startScanningFile(Path scannedFile)
 	{
 		action = START_HASHING;
+		scannedFiles.add(scannedFile);
 		this.scannedFile = scannedFile.toString();
 		sendNotification(createNotification());
 	}
 
-	public void stopScanningFile()
+	/**
+	 * Tells that a file is hashed. If other files are still being hashed, the latest one is shown instead.
+	 *
+	 * @param scannedFile the file
+	 */
+	public synchronized void stopScanningFile(Path scannedFile)
 	{
-		action = STOP_HASHING;
-		scannedFile = null;
+		scannedFiles.remove(scannedFile);
+		if (scannedFiles.isEmpty())
+		{
+			action = STOP_HASHING;
+			this.scannedFile = null;
+		}
+		else
+		{
+			action = START_HASHING;
+			this.scannedFile = scannedFiles.getLast().toString();
+		}
 		sendNotification(createNotification());
 	}
 
-	public void stopScanning()
+	public synchronized void stopScanning()
 	{
 		action = STOP_SCANNING;
 		shareName = null;
 		scannedFile = null;
+		scannedFiles.clear();
 		sendNotification(createNotification());
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -25,9 +25,19 @@ import io.xeres.common.id.Sha1Sum;
 import io.xeres.common.rest.notification.file.FileSearchNotification;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 @Service
 public class FileSearchNotificationService extends NotificationService
 {
+	private static final Duration FLUSH_INTERVAL = Duration.ofMillis(250);
+
+	@Override
+	protected Duration getFlushInterval()
+	{
+		return FLUSH_INTERVAL;
+	}
+
 	public void foundFile(int requestId, String name, long size, Sha1Sum hash)
 	{
 		sendNotification(new FileSearchNotification(requestId, name, size, Id.toString(hash)));
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -33,7 +33,7 @@ public record FileData(
 		return "FileData{" +
 				"fileItem=" + fileItem +
 				", offset=" + offset +
-				", data.length=" + data.length +
+				", data.length=" + (data != null ? data.length : 0) +
 				'}';
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,6 +19,8 @@
 
 package io.xeres.app.xrs.item;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.xeres.app.net.peer.PeerConnection;
 import io.xeres.app.net.peer.PeerConnectionManager;
@@ -88,6 +90,19 @@ public final class ItemUtils
 		return data;
 	}
 
+	/**
+	 * Serializes an item into a pooled buffer. Do not use this within a netty pipeline.
+	 *
+	 * @param item    the item
+	 * @param service the service
+	 * @return the buffer, which must be released by the caller
+	 */
+	public static ByteBuf serializeItemToBuffer(Item item, RsService service)
+	{
+		item.setSerialization(PooledByteBufAllocator.DEFAULT, service);
+		return item.serializeItem(EnumSet.noneOf(SerializationFlags.class)).getBuffer();
+	}
+
 	/**
 	 * Deserializes an item. Do not use this within a netty pipeline.
 	 *
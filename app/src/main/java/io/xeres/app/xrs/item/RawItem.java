@@ -43,6 +43,7 @@ public class RawItem
 
 	private int priority = ItemPriority.DEFAULT.getPriority();
 	protected ByteBuf buf;
+	private long decodeTime;
 
 	public RawItem()
 	{
@@ -52,6 +53,7 @@ public class RawItem
 	{
 		priority = packet.getPriority();
 		buf = packet.getItemBuffer();
+		decodeTime = System.nanoTime();
 	}
 
 	public RawItem(ByteBuf buf, int priority)
@@ -100,6 +102,16 @@ public class RawItem
 		}
 	}
 
+	/**
+	 * Gets the time at which the item was decoded from its packets.
+	 *
+	 * @return the time, as given by {@link System#nanoTime()}, or 0 if the item wasn't received
+	 */
+	public long getDecodeTime()
+	{
+		return decodeTime;
+	}
+
 	public int getPacketVersion()
 	{
 		return buf.getUnsignedByte(0);
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -47,6 +47,16 @@ final class ByteArraySerializer
 		return Integer.BYTES + a.length;
 	}
 
+	static int serialize(ByteBuf buf, ByteBuf data)
+	{
+		var length = data.readableBytes();
+		log.trace("Writing byte buffer of size {}", length);
+		buf.ensureWritable(Integer.BYTES + length);
+		buf.writeInt(length);
+		buf.writeBytes(data, data.readerIndex(), length);
+		return Integer.BYTES + length;
+	}
+
 	static byte[] deserialize(ByteBuf buf)
 	{
 		var len = buf.readInt();
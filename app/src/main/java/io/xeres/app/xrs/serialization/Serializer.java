@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -292,6 +292,18 @@ public final class Serializer
 		return ByteArraySerializer.serialize(buf, a);
 	}
 
+	/**
+	 * Serializes a buffer as a byte array. The buffer is not released.
+	 *
+	 * @param buf  the buffer to serialize into
+	 * @param data the buffer to serialize, from its reader index to its writer index
+	 * @return the number of bytes taken to serialize
+	 */
+	public static int serialize(ByteBuf buf, ByteBuf data)
+	{
+		return ByteArraySerializer.serialize(buf, data);
+	}
+
 	/**
 	 * Deserializes a byte array.
 	 *
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -58,6 +58,18 @@ final class TlvBinarySerializer
 		return len;
 	}
 
+	static int serialize(ByteBuf buf, TlvType type, ByteBuf data)
+	{
+		var length = data.readableBytes();
+		var len = TLV_HEADER_SIZE + length;
+		log.trace("Writing TLV binary data from buffer (size: {})", length);
+		buf.ensureWritable(len);
+		buf.writeShort(type.getValue());
+		buf.writeInt(len);
+		buf.writeBytes(data, data.readerIndex(), length);
+		return len;
+	}
+
 	static int getSize(byte[] data)
 	{
 		return TLV_HEADER_SIZE + (data != null ? data.length : 0);
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -51,6 +51,23 @@ final class TlvFileDataSerializer
 		return len;
 	}
 
+	static int serialize(ByteBuf buf, FileItem fileItem, long offset, ByteBuf data)
+	{
+		log.trace("Writing TlvFileData from buffer");
+
+		var len = TLV_HEADER_SIZE +
+				TlvFileItemSerializer.getSize(fileItem) +
+				TlvUint64Serializer.getSize() +
+				TLV_HEADER_SIZE + data.readableBytes();
+		buf.ensureWritable(len);
+		buf.writeShort(FILE_DATA.getValue());
+		buf.writeInt(len);
+		TlvFileItemSerializer.serialize(buf, fileItem);
+		TlvSerializer.serialize(buf, LONG_OFFSET, offset);
+		TlvBinarySerializer.serialize(buf, BIN_FILE_DATA, data);
+		return len;
+	}
+
 	static int getSize(FileData fileData)
 	{
 		return TLV_HEADER_SIZE +
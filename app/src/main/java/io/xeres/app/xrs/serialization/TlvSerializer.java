@@ -127,6 +127,20 @@ public final class TlvSerializer
 		};
 	}
 
+	/**
+	 * Serializes a TLV file data using a buffer for the data. The buffer is not released.
+	 *
+	 * @param buf      the buffer
+	 * @param fileItem the file item
+	 * @param offset   the offset of the data within the file
+	 * @param data     the data, from its reader index to its writer index
+	 * @return the number of bytes taken
+	 */
+	public static int serializeTlvFileData(ByteBuf buf, FileItem fileItem, long offset, ByteBuf data)
+	{
+		return TlvFileDataSerializer.serialize(buf, fileItem, offset, data);
+	}
+
 	/**
 	 * Serializes a TLV binary with a defined type (needed for GXS)
 	 *
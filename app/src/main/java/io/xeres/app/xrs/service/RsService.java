@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,6 +19,8 @@
 
 package io.xeres.app.xrs.service;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import io.xeres.app.application.events.NetworkReadyEvent;
 import io.xeres.app.net.peer.PeerConnection;
 import io.xeres.app.xrs.item.Item;
@@ -27,6 +29,8 @@ import org.springframework.context.SmartLifecycle;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.event.EventListener;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Base class for "Retroshare services".
  * These services have a unique number assigned which directs matching packets to them.
@@ -49,6 +53,7 @@ public abstract class RsService implements Comparable<RsService>, SmartLifecycle
 	private final RsServiceRegistry rsServiceRegistry;
 	private boolean enabled;
 	private boolean initialized;
+	private Timer handleTimer;
 
 	protected RsService(RsServiceRegistry rsServiceRegistry)
 	{
@@ -142,6 +147,25 @@ public abstract class RsService implements Comparable<RsService>, SmartLifecycle
 		}
 	}
 
+	/**
+	 * Records the time taken to deserialize and handle an incoming item.
+	 *
+	 * @param nanos the time in nanoseconds
+	 */
+	public void recordHandleTime(long nanos)
+	{
+		var timer = handleTimer;
+		if (timer == null)
+		{
+			timer = Timer.builder("xrs.item.handle")
+					.description("Time to deserialize and handle an incoming item")
+					.tag("service", getServiceType().getName())
+					.register(Metrics.globalRegistry);
+			handleTimer = timer; // A race only registers the same timer twice
+		}
+		timer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
 	@Override
 	@SuppressWarnings("java:S1210")
 	public int compareTo(RsService o)
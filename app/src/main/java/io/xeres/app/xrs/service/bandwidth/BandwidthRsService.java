@@ -21,6 +21,8 @@ package io.xeres.app.xrs.service.bandwidth;
 
 import io.xeres.app.net.peer.PeerConnection;
 import io.xeres.app.net.peer.PeerConnectionManager;
+import io.xeres.app.net.peer.traffic.TrafficHistory;
+import io.xeres.app.service.LocationService;
 import io.xeres.app.xrs.item.Item;
 import io.xeres.app.xrs.service.RsService;
 import io.xeres.app.xrs.service.RsServiceInitPriority;
@@ -29,6 +31,8 @@ import io.xeres.app.xrs.service.bandwidth.item.BandwidthAllowedItem;
 import io.xeres.common.protocol.xrs.RsServiceType;
 import io.xeres.common.rest.statistics.DataCounterPeer;
 import io.xeres.common.rest.statistics.DataCounterStatisticsResponse;
+import io.xeres.common.rest.statistics.TrafficResolution;
+import io.xeres.common.rest.statistics.TrafficStatisticsResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -53,12 +57,18 @@ public class BandwidthRsService extends RsService
 	private static final double BANDWIDTH_UTILIZATION = 0.75;
 
 	private final PeerConnectionManager peerConnectionManager;
+	private final RsServiceRegistry rsServiceRegistry;
+	private final TrafficHistory trafficHistory;
+	private final LocationService locationService;
 	private long currentBandwidth;
 
-	BandwidthRsService(RsServiceRegistry rsServiceRegistry, PeerConnectionManager peerConnectionManager)
+	BandwidthRsService(RsServiceRegistry rsServiceRegistry, PeerConnectionManager peerConnectionManager, TrafficHistory trafficHistory, LocationService locationService)
 	{
 		super(rsServiceRegistry);
 		this.peerConnectionManager = peerConnectionManager;
+		this.rsServiceRegistry = rsServiceRegistry;
+		this.trafficHistory = trafficHistory;
+		this.locationService = locationService;
 	}
 
 	@Override
@@ -120,4 +130,27 @@ public class BandwidthRsService extends RsService
 				peerConnection.getReceivedCounter())), null);
 		return new DataCounterStatisticsResponse(peers);
 	}
+
+	/**
+	 * Gets the traffic with each peer, per service.
+	 *
+	 * @param resolution the resolution of the time series
+	 * @param buckets    the number of points of the time series
+	 * @return the traffic statistics
+	 */
+	@Transactional(readOnly = true)
+	public TrafficStatisticsResponse getTrafficStatistics(TrafficResolution resolution, int buckets)
+	{
+		return trafficHistory.getStatistics(resolution, buckets,
+				locationId -> locationService.findLocationById(locationId)
+						.map(location -> location.getProfile().getName() + "@" + location.getSafeName())
+						.orElse("#" + locationId),
+				this::getServiceName);
+	}
+
+	private String getServiceName(int serviceType)
+	{
+		var rsService = rsServiceRegistry.getServiceFromType(serviceType);
+		return rsService != null ? rsService.getServiceType().getName() : "unknown";
+	}
 }
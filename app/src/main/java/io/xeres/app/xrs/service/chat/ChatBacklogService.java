@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,7 +19,9 @@
 
 package io.xeres.app.xrs.service.chat;
 
+import io.xeres.app.database.WriteBehindQueue;
 import io.xeres.app.database.model.chat.ChatBacklog;
+import io.xeres.app.database.model.chat.ChatRoom;
 import io.xeres.app.database.model.chat.ChatRoomBacklog;
 import io.xeres.app.database.model.chat.DistantChatBacklog;
 import io.xeres.app.database.model.location.Location;
@@ -27,27 +29,64 @@ import io.xeres.app.database.repository.*;
 import io.xeres.app.xrs.service.identity.item.IdentityGroupItem;
 import io.xeres.common.id.GxsId;
 import io.xeres.common.id.LocationIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+/**
+ * Stores the chat messages. Messages are written in batches by a background thread so that
+ * receiving or sending a message doesn't wait for the database. Reading or deleting the backlog
+ * writes the pending messages first.
+ */
 @Service
 public class ChatBacklogService
 {
+	private static final Logger log = LoggerFactory.getLogger(ChatBacklogService.class);
+
 	private static final Duration MAXIMUM_DURATION = Duration.ofDays(31);
 
+	private static final int QUEUE_CAPACITY = 10_000;
+	private static final int BATCH_SIZE = 200;
+
+	sealed interface PendingMessage permits PendingRoomMessage, PendingPrivateMessage, PendingDistantMessage
+	{
+	}
+
+	record PendingRoomMessage(long chatRoomId, GxsId from, String nickname, String message) implements PendingMessage
+	{
+	}
+
+	record PendingPrivateMessage(LocationIdentifier with, boolean own, String message) implements PendingMessage
+	{
+	}
+
+	record PendingDistantMessage(GxsId with, boolean own, String message) implements PendingMessage
+	{
+	}
+
 	private final ChatBacklogRepository chatBacklogRepository;
 	private final ChatRoomBacklogRepository chatRoomBacklogRepository;
 	private final DistantChatBacklogRepository distantChatBacklogRepository;
 	private final LocationRepository locationRepository;
 	private final ChatRoomRepository chatRoomRepository;
 	private final GxsIdentityRepository gxsIdentityRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final WriteBehindQueue<PendingMessage> writeBehindQueue;
 
-	ChatBacklogService(ChatBacklogRepository chatBacklogRepository, ChatRoomBacklogRepository chatRoomBacklogRepository, DistantChatBacklogRepository distantChatBacklogRepository, LocationRepository locationRepository, ChatRoomRepository chatRoomRepository, GxsIdentityRepository gxsIdentityRepository)
+	ChatBacklogService(ChatBacklogRepository chatBacklogRepository, ChatRoomBacklogRepository chatRoomBacklogRepository, DistantChatBacklogRepository distantChatBacklogRepository, LocationRepository locationRepository, ChatRoomRepository chatRoomRepository, GxsIdentityRepository gxsIdentityRepository, PlatformTransactionManager transactionManager)
 	{
 		this.chatBacklogRepository = chatBacklogRepository;
 		this.chatRoomBacklogRepository = chatRoomBacklogRepository;
@@ -55,25 +94,42 @@ public class ChatBacklogService
 		this.locationRepository = locationRepository;
 		this.chatRoomRepository = chatRoomRepository;
 		this.gxsIdentityRepository = gxsIdentityRepository;
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW); // Readers can be in a read-only transaction already
+		writeBehindQueue = new WriteBehindQueue<>("Chat Backlog Writer", QUEUE_CAPACITY, BATCH_SIZE, this::writeMessages);
+		writeBehindQueue.start();
+	}
+
+	/**
+	 * Writes the pending messages and stops the writer. Messages stored afterward are written immediately.
+	 */
+	public void shutdown()
+	{
+		writeBehindQueue.shutdown();
+	}
+
+	/**
+	 * Writes the pending messages.
+	 */
+	public void flush()
+	{
+		writeBehindQueue.flush();
 	}
 
-	@Transactional
 	public void storeIncomingChatRoomMessage(long chatRoomId, GxsId from, String nickname, String message)
 	{
-		var chatRoom = chatRoomRepository.findByRoomId(chatRoomId).orElseThrow();
-		chatRoomBacklogRepository.save(new ChatRoomBacklog(chatRoom, from, nickname, message));
+		writeBehindQueue.add(new PendingRoomMessage(chatRoomId, from, nickname, message));
 	}
 
-	@Transactional
 	public void storeOutgoingChatRoomMessage(long chatRoomId, String nickname, String message)
 	{
-		var chatRoom = chatRoomRepository.findByRoomId(chatRoomId).orElseThrow();
-		chatRoomBacklogRepository.save(new ChatRoomBacklog(chatRoom, nickname, message));
+		writeBehindQueue.add(new PendingRoomMessage(chatRoomId, null, nickname, message));
 	}
 
 	@Transactional(readOnly = true)
 	public List<ChatRoomBacklog> getChatRoomMessages(long chatRoomId, Instant from, int maxLines)
 	{
+		flush();
 		var chatRoom = chatRoomRepository.findByRoomId(chatRoomId).orElseThrow();
 		return chatRoomBacklogRepository.findAllByRoomAndCreatedAfterOrderByCreatedDesc(chatRoom, from, Limit.of(maxLines)).reversed();
 	}
@@ -81,57 +137,54 @@ public class ChatBacklogService
 	@Transactional
 	public void deleteChatRoomMessages(long chatRoomId)
 	{
+		flush();
 		var chatRoom = chatRoomRepository.findByRoomId(chatRoomId).orElseThrow();
 		chatRoomBacklogRepository.deleteAllByRoom(chatRoom);
 	}
 
-	@Transactional
 	public void storeIncomingMessage(LocationIdentifier from, String message)
 	{
-		var location = locationRepository.findByLocationIdentifier(from).orElseThrow();
-		chatBacklogRepository.save(new ChatBacklog(location, false, message));
+		writeBehindQueue.add(new PendingPrivateMessage(from, false, message));
 	}
 
-	@Transactional
 	public void storeOutgoingMessage(LocationIdentifier to, String message)
 	{
-		var location = locationRepository.findByLocationIdentifier(to).orElseThrow();
-		chatBacklogRepository.save(new ChatBacklog(location, true, message));
+		writeBehindQueue.add(new PendingPrivateMessage(to, true, message));
 	}
 
 	public List<ChatBacklog> getMessages(Location with, Instant from, int maxLines)
 	{
+		flush();
 		return chatBacklogRepository.findAllByLocationAndCreatedAfterOrderByCreatedDesc(with, from, Limit.of(maxLines)).reversed();
 	}
 
 	@Transactional
 	public void deleteMessages(Location of)
 	{
+		flush();
 		chatBacklogRepository.deleteAllByLocation(of);
 	}
 
-	@Transactional
 	public void storeIncomingDistantMessage(GxsId from, String message)
 	{
-		var gxsId = gxsIdentityRepository.findByGxsId(from).orElseThrow();
-		distantChatBacklogRepository.save(new DistantChatBacklog(gxsId, false, message));
+		writeBehindQueue.add(new PendingDistantMessage(from, false, message));
 	}
 
-	@Transactional
 	public void storeOutgoingDistantMessage(GxsId to, String message)
 	{
-		var gxsId = gxsIdentityRepository.findByGxsId(to).orElseThrow();
-		distantChatBacklogRepository.save(new DistantChatBacklog(gxsId, true, message));
+		writeBehindQueue.add(new PendingDistantMessage(to, true, message));
 	}
 
 	public List<DistantChatBacklog> getDistantMessages(IdentityGroupItem with, Instant from, int maxLines)
 	{
+		flush();
 		return distantChatBacklogRepository.findAllByIdentityGroupItemAndCreatedAfterOrderByCreatedDesc(with, from, Limit.of(maxLines)).reversed();
 	}
 
 	@Transactional
 	public void deleteDistantMessages(IdentityGroupItem of)
 	{
+		flush();
 		distantChatBacklogRepository.deleteAllByIdentityGroupItem(of);
 	}
 
@@ -141,4 +194,41 @@ public class ChatBacklogService
 		chatBacklogRepository.deleteAllByCreatedBefore(Instant.now().minus(MAXIMUM_DURATION));
 		chatRoomBacklogRepository.deleteAllByCreatedBefore(Instant.now().minus(MAXIMUM_DURATION));
 	}
+
+	/**
+	 * Writes a batch of messages in one transaction. The rooms, locations and identities are only
+	 * looked up once per batch. Messages whose recipient is gone are dropped.
+	 *
+	 * @param messages the messages
+	 */
+	private void writeMessages(List<PendingMessage> messages)
+	{
+		transactionTemplate.executeWithoutResult(_ -> {
+			Map<Long, Optional<ChatRoom>> chatRooms = new HashMap<>();
+			Map<LocationIdentifier, Optional<Location>> locations = new HashMap<>();
+			Map<GxsId, Optional<IdentityGroupItem>> identities = new HashMap<>();
+			List<ChatRoomBacklog> chatRoomBacklogs = new ArrayList<>();
+			List<ChatBacklog> chatBacklogs = new ArrayList<>();
+			List<DistantChatBacklog> distantChatBacklogs = new ArrayList<>();
+
+			for (var message : messages)
+			{
+				switch (message)
+				{
+					case PendingRoomMessage(var chatRoomId, var from, var nickname, var content) -> chatRooms.computeIfAbsent(chatRoomId, chatRoomRepository::findByRoomId)
+							.ifPresentOrElse(chatRoom -> chatRoomBacklogs.add(from != null ? new ChatRoomBacklog(chatRoom, from, nickname, content) : new ChatRoomBacklog(chatRoom, nickname, content)),
+									() -> log.warn("Chat room {} not found, dropping message", chatRoomId));
+					case PendingPrivateMessage(var with, var own, var content) -> locations.computeIfAbsent(with, locationRepository::findByLocationIdentifier)
+							.ifPresentOrElse(location -> chatBacklogs.add(new ChatBacklog(location, own, content)),
+									() -> log.warn("Location {} not found, dropping message", with));
+					case PendingDistantMessage(var with, var own, var content) -> identities.computeIfAbsent(with, gxsIdentityRepository::findByGxsId)
+							.ifPresentOrElse(identity -> distantChatBacklogs.add(new DistantChatBacklog(identity, own, content)),
+									() -> log.warn("Identity {} not found, dropping message", with));
+				}
+			}
+			chatRoomBacklogRepository.saveAll(chatRoomBacklogs);
+			chatBacklogRepository.saveAll(chatBacklogs);
+			distantChatBacklogRepository.saveAll(distantChatBacklogs);
+		});
+	}
 }
@@ -162,6 +162,8 @@ public class ChatRsService extends RsService implements GxsTunnelRsClient
 
 	private final Map<GxsId, DistantLocation> distantChatContacts = new ConcurrentHashMap<>();
 
+	private final FloodControl floodControl = new FloodControl();
+
 	@Override
 	public RsServiceType getMasterServiceType()
 	{
@@ -723,7 +725,8 @@ public class ChatRsService extends RsService implements GxsTunnelRsClient
 	@SuppressWarnings("BooleanMethodIsAlwaysInverted")
 	private boolean validateAndBounceItem(PeerConnection peerConnection, ChatRoomBounce item)
 	{
-		if (!chatRooms.containsKey(item.getRoomId()))
+		var chatRoom = chatRooms.get(item.getRoomId());
+		if (chatRoom == null)
 		{
 			log.error("We're not subscribed to chat room id {}, dropping item {}", log.isErrorEnabled() ? Id.toStringLowerCase(item.getRoomId()) : null, item);
 			return false;
@@ -741,12 +744,32 @@ public class ChatRsService extends RsService implements GxsTunnelRsClient
 			return false;
 		}
 
+		// Echoes and floods are dropped before verifying the signature, which is the expensive part
+		if (chatRoom.getMessageCache().exists(item.getMessageId()))
+		{
+			chatRoom.addParticipatingLocation(peerConnection.getLocation());
+			log.debug("Message id {} already received, dropping", item.getMessageId());
+			return false;
+		}
+
+		if (!floodControl.tryAcquirePeer(item.getSignature().getGxsId(), peerConnection.getLocation().getId(), item.getRoomId()))
+		{
+			log.debug("Flooding from {} through peer {}, dropping", item.getSignature().getGxsId(), peerConnection);
+			return false;
+		}
+
 		if (!validateBounceSignature(peerConnection, item))
 		{
 			log.error("Invalid signature for item {} from peer {}, gxsId: {}, dropping", item, peerConnection, item.getSignature().getGxsId());
 			return false;
 		}
 
+		if (!floodControl.tryAcquireIdentity(item.getSignature().getGxsId()))
+		{
+			log.debug("Flooding from {}, dropping", item.getSignature().getGxsId());
+			return false;
+		}
+
 		// XXX: add routing clue (ie. best peer for channel)
 
 		return bounce(peerConnection, item);
@@ -1142,21 +1165,19 @@ public class ChatRsService extends RsService implements GxsTunnelRsClient
 		chatRoom.getMessageCache().add(bounce.getMessageId());
 		chatRoom.updateActivity();
 
-		// XXX: check for antiflood
-
-		// Send to everyone except the originating peer
-		var iterator = chatRoom.getParticipatingLocations().iterator();
-		while (iterator.hasNext())
-		{
-			var location = iterator.next();
-			if (peerConnection == null || !Objects.equals(location, peerConnection.getLocation()))
-			{
-				var status = peerConnectionManager.writeItem(location, bounce.clone(), this); // Netty frees sent items so we need to clone
-				if (status.isDone() && !status.isSuccess())
-				{
-					iterator.remove(); // Failed to write, it means the location disconnected, so we need to remove it from our participating locations
-				}
-			}
+		// Send to everyone except the originating peer. The item is serialized once for all of them.
+		var locations = chatRoom.getParticipatingLocations().stream()
+				.filter(location -> peerConnection == null || !Objects.equals(location, peerConnection.getLocation()))
+				.toList();
+		if (!locations.isEmpty())
+		{
+			peerConnectionManager.writeItem(locations, bounce.clone(), this) // Netty frees sent items so we need to clone
+					.forEach((location, status) -> {
+						if (status.isDone() && !status.isSuccess())
+						{
+							chatRoom.removeParticipatingLocation(location); // Failed to write, it means the location disconnected, so we need to remove it from our participating locations
+						}
+					});
 		}
 
 		chatRoom.incrementConnectionChallengeCount();
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.xrs.service.chat;
+
+import io.xeres.common.id.GxsId;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Limits the rate of chat room items per identity and per peer, so that abusive senders can be
+ * dropped before spending time verifying their signatures. The identity of an item is only charged
+ * once its signature is verified, so that forged items can't use up the tokens of someone else.
+ * <p>
+ * Each sender has a token bucket which refills over {@link #PERIOD}. A peer relays the items of
+ * many identities, so it's allowed more, and it has a bucket for each room, so that a busy room
+ * doesn't throttle the other rooms relayed by the same peer. The number of tracked senders is bounded, the least
+ * recently seen ones are forgotten first.
+ */
+class FloodControl
+{
+	static final int IDENTITY_ITEMS_MAX = 10;
+	static final int PEER_ITEMS_MAX = 100;
+	static final Duration PERIOD = Duration.ofSeconds(10);
+	static final int SENDERS_MAX = 4096;
+
+	private static final class Bucket
+	{
+		private final int capacity;
+		private double tokens;
+		private long lastRefill;
+
+		private Bucket(int capacity, long now)
+		{
+			this.capacity = capacity;
+			tokens = capacity;
+			lastRefill = now;
+		}
+
+		private boolean hasToken(long now)
+		{
+			tokens = Math.min(capacity, tokens + (double) (now - lastRefill) * capacity / PERIOD.toNanos());
+			lastRefill = now;
+			return tokens >= 1.0d;
+		}
+
+		private void take()
+		{
+			tokens -= 1.0d;
+		}
+	}
+
+	private record PeerRoom(long locationId, long roomId)
+	{
+	}
+
+	private final Map<GxsId, Bucket> identities = createBuckets();
+	private final Map<PeerRoom, Bucket> peers = createBuckets();
+
+	private static <K> Map<K, Bucket> createBuckets()
+	{
+		return new LinkedHashMap<>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Bucket> eldest)
+			{
+				return size() > SENDERS_MAX;
+			}
+		};
+	}
+
+	/**
+	 * Accounts for an item received from a peer, before its signature is verified. Only the peer's
+	 * bucket is charged since anyone can put any identity in an item, but items of an identity that
+	 * is already over its limit are refused.
+	 *
+	 * @param gxsId      the identity that claims to have signed the item
+	 * @param locationId the id of the peer's location that sent the item
+	 * @param roomId     the id of the room the item is for
+	 * @return true if the item can be verified, false if it's flooding
+	 */
+	public boolean tryAcquirePeer(GxsId gxsId, long locationId, long roomId)
+	{
+		return tryAcquirePeer(gxsId, locationId, roomId, System.nanoTime());
+	}
+
+	synchronized boolean tryAcquirePeer(GxsId gxsId, long locationId, long roomId, long now)
+	{
+		var identity = identities.get(gxsId);
+		if (identity != null && !identity.hasToken(now))
+		{
+			return false;
+		}
+		var peer = peers.computeIfAbsent(new PeerRoom(locationId, roomId), _ -> new Bucket(PEER_ITEMS_MAX, now));
+		if (!peer.hasToken(now))
+		{
+			return false;
+		}
+		peer.take();
+		return true;
+	}
+
+	/**
+	 * Accounts for an item of an identity, once its signature is verified.
+	 *
+	 * @param gxsId the identity that signed the item
+	 * @return true if the item can be processed, false if it's flooding
+	 */
+	public boolean tryAcquireIdentity(GxsId gxsId)
+	{
+		return tryAcquireIdentity(gxsId, System.nanoTime());
+	}
+
+	synchronized boolean tryAcquireIdentity(GxsId gxsId, long now)
+	{
+		var identity = identities.computeIfAbsent(gxsId, _ -> new Bucket(IDENTITY_ITEMS_MAX, now));
+		if (!identity.hasToken(now))
+		{
+			return false;
+		}
+		identity.take();
+		return true;
+	}
+}
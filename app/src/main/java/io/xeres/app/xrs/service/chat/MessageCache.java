@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2023 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -24,16 +24,30 @@ import io.xeres.common.id.LocationIdentifier;
 import io.xeres.common.util.SecureRandomUtils;
 
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Remembers the ids of the messages seen recently in a chat room, to drop the echoes.
+ * <p>
+ * The ids are kept in the order they were last seen, so the expired ones are always at the head and
+ * can be removed without looking at the others. The number of ids is also bounded, in case a room
+ * is flooded.
+ */
 class MessageCache
 {
 	private static final int CONNECTION_CHALLENGE_MAX_TIME = 30; // maximum age in seconds a message can be used in a connection challenge
 	private static final int LIFETIME_MAX = 1200; // maximum age of a message in seconds
+	static final int MESSAGES_MAX = 16_384;
 
-	private final Map<Long, Integer> messages = new ConcurrentHashMap<>();
-
+	private final LinkedHashMap<Long, Integer> messages = new LinkedHashMap<>()
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest)
+		{
+			return size() > MESSAGES_MAX;
+		}
+	};
 
 	/**
 	 * Checks if a message has been recorded already. If yes, update
@@ -44,7 +58,17 @@ class MessageCache
 	 */
 	public boolean exists(long id)
 	{
-		return messages.replace(id, (int) Instant.now().getEpochSecond()) != null;
+		return exists(id, now());
+	}
+
+	synchronized boolean exists(long id, int now)
+	{
+		if (messages.remove(id) == null)
+		{
+			return false;
+		}
+		messages.put(id, now);
+		return true;
 	}
 
 	/**
@@ -54,7 +78,14 @@ class MessageCache
 	 */
 	public void add(long id)
 	{
-		messages.put(id, (int) Instant.now().getEpochSecond());
+		add(id, now());
+	}
+
+	synchronized void add(long id, int now)
+	{
+		messages.remove(id); // So that it moves to the tail
+		messages.put(id, now);
+		purge(now);
 	}
 
 	/**
@@ -72,7 +103,7 @@ class MessageCache
 	 *
 	 * @return the message id
 	 */
-	public long getNewMessageId()
+	public synchronized long getNewMessageId()
 	{
 		long newId;
 
@@ -88,18 +119,23 @@ class MessageCache
 	/**
 	 * Checks if this message cache contains a challenge code.
 	 *
-	 * @param locationIdentifier    the location identifier of the peer
-	 * @param chatRoomId    the chat room id
-	 * @param challengeCode the challenge code to be matched against
+	 * @param locationIdentifier the location identifier of the peer
+	 * @param chatRoomId         the chat room id
+	 * @param challengeCode      the challenge code to be matched against
 	 * @return true if challengeCode is in one of a suitable message
 	 */
-	public boolean hasConnectionChallenge(LocationIdentifier locationIdentifier, long chatRoomId, long challengeCode)
+	public synchronized boolean hasConnectionChallenge(LocationIdentifier locationIdentifier, long chatRoomId, long challengeCode)
 	{
-		var now = (int) Instant.now().getEpochSecond();
+		var now = now();
 
-		for (var message : messages.entrySet())
+		// Newest first, so we can stop at the first message that is too old
+		for (var message : messages.sequencedEntrySet().reversed())
 		{
-			if (message.getValue() + CONNECTION_CHALLENGE_MAX_TIME + 5 > now && challengeCode == ChatChallenge.code(locationIdentifier, chatRoomId, message.getKey()))
+			if (message.getValue() + CONNECTION_CHALLENGE_MAX_TIME + 5 <= now)
+			{
+				break;
+			}
+			if (challengeCode == ChatChallenge.code(locationIdentifier, chatRoomId, message.getKey()))
 			{
 				return true;
 			}
@@ -112,16 +148,12 @@ class MessageCache
 	 *
 	 * @return the message id of a recent message. If there's nothing suitable, return 0
 	 */
-	public long getRecentMessage()
+	public synchronized long getRecentMessage()
 	{
-		var now = (int) Instant.now().getEpochSecond();
-
-		for (var message : messages.entrySet())
+		var message = messages.lastEntry();
+		if (message != null && message.getValue() + CONNECTION_CHALLENGE_MAX_TIME > now())
 		{
-			if (message.getValue() + CONNECTION_CHALLENGE_MAX_TIME > now)
-			{
-				return message.getKey();
-			}
+			return message.getKey();
 		}
 		return 0L;
 	}
@@ -131,7 +163,25 @@ class MessageCache
 	 */
 	public void purge()
 	{
-		var now = (int) Instant.now().getEpochSecond();
-		messages.entrySet().removeIf(entry -> entry.getValue() + LIFETIME_MAX < now);
+		purge(now());
+	}
+
+	synchronized void purge(int now)
+	{
+		var iterator = messages.values().iterator();
+		while (iterator.hasNext() && iterator.next() + LIFETIME_MAX < now)
+		{
+			iterator.remove();
+		}
+	}
+
+	synchronized int size()
+	{
+		return messages.size();
+	}
+
+	private static int now()
+	{
+		return (int) Instant.now().getEpochSecond();
 	}
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.app.xrs.service.discovery;
+
+import io.xeres.app.net.protocol.PeerAddress;
+import io.xeres.app.xrs.service.discovery.item.DiscoveryContactItem;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which contact information was sent to each peer, so that only the contacts that changed
+ * are sent again. The peers aren't told when they're already up-to-date but the information is sent
+ * again after a while anyway, in case they lost it.
+ * <p>
+ * All times are in nanoseconds, as returned by {@link System#nanoTime()}.
+ */
+class ContactTracker
+{
+	static final Duration MAX_AGE = Duration.ofHours(1);
+
+	private record Contact(long toLocationId, long aboutLocationId)
+	{
+	}
+
+	private record Sent(int hash, long time)
+	{
+	}
+
+	private final Map<Contact, Sent> sentContacts = new ConcurrentHashMap<>();
+
+	/**
+	 * Tells if a contact has to be sent to a peer and if so, remembers it as sent.
+	 *
+	 * @param toLocationId    the location of the peer
+	 * @param aboutLocationId the location the contact is about
+	 * @param item            the contact
+	 * @param now             the current time
+	 * @return true if the peer wasn't told about it yet
+	 */
+	public boolean markSent(long toLocationId, long aboutLocationId, DiscoveryContactItem item, long now)
+	{
+		var hash = getHash(item);
+		var previous = sentContacts.get(new Contact(toLocationId, aboutLocationId));
+		if (previous != null && previous.hash() == hash && now - previous.time() < MAX_AGE.toNanos())
+		{
+			return false;
+		}
+		sentContacts.put(new Contact(toLocationId, aboutLocationId), new Sent(hash, now));
+		return true;
+	}
+
+	/**
+	 * Computes a hash of the content of a contact. The last contact time is left out because
+	 * it changes all the time without anything else changing.
+	 *
+	 * @param item the contact
+	 * @return the hash
+	 */
+	static int getHash(DiscoveryContactItem item)
+	{
+		return Objects.hash(item.getPgpIdentifier(),
+				item.getLocationIdentifier(),
+				item.getLocationName(),
+				item.getVersion(),
+				item.getNetMode(),
+				item.getVsDisc(),
+				item.getVsDht(),
+				getUrl(item.getLocalAddressV4()),
+				getUrl(item.getExternalAddressV4()),
+				getUrl(item.getCurrentConnectAddress()),
+				item.getHostname(),
+				item.getExternalAddressList().stream().map(ContactTracker::getUrl).toList());
+	}
+
+	private static String getUrl(PeerAddress peerAddress)
+	{
+		return peerAddress != null && peerAddress.isValid() ? peerAddress.getUrl() : null;
+	}
+}
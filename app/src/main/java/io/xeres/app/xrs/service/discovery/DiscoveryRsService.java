@@ -62,6 +62,10 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static io.xeres.app.net.util.NetworkMode.getNetworkMode;
 import static io.xeres.common.protocol.xrs.RsServiceType.DISCOVERY;
@@ -74,6 +78,16 @@ public class DiscoveryRsService extends RsService
 {
 	private static final Logger log = LoggerFactory.getLogger(DiscoveryRsService.class);
 
+	/**
+	 * Delay to group the contacts sent to the other peers when a peer connects, so that a peer
+	 * connecting and disconnecting quickly doesn't cause a contact to be sent each time.
+	 */
+	private static final Duration CONTACT_COALESCING_DELAY = Duration.ofSeconds(5);
+
+	private record PendingContact(long toLocationId, long aboutLocationId)
+	{
+	}
+
 	private final ProfileService profileService;
 	private final LocationService locationService;
 	private final IdentityService identityService;
@@ -83,6 +97,10 @@ public class DiscoveryRsService extends RsService
 	private final IdentityManager identityManager;
 	private final StatusNotificationService statusNotificationService;
 
+	private final ContactTracker contactTracker = new ContactTracker();
+	private final Set<PendingContact> pendingContacts = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean pendingContactsScheduled = new AtomicBoolean();
+
 	public DiscoveryRsService(RsServiceRegistry rsServiceRegistry, PeerConnectionManager peerConnectionManager, ProfileService profileService, LocationService locationService, IdentityService identityService, BuildProperties buildProperties, DatabaseSessionManager databaseSessionManager, IdentityManager identityManager, StatusNotificationService statusNotificationService)
 	{
 		super(rsServiceRegistry);
@@ -128,19 +146,26 @@ public class DiscoveryRsService extends RsService
 		}
 	}
 
-	private void sendContact(Location toLocation, Location aboutLocation)
+	private void sendContact(PeerConnection peerConnection, Location aboutLocation)
 	{
-		sendContact(toLocation, aboutLocation, null);
+		sendContact(peerConnection.getLocation(), aboutLocation, peerConnection.getCtx().channel().remoteAddress(), false);
 	}
 
-	private void sendContact(PeerConnection peerConnection, Location aboutLocation)
+	private void sendContactIfChanged(PeerConnection peerConnection, Location aboutLocation)
 	{
-		sendContact(peerConnection.getLocation(), aboutLocation, peerConnection.getCtx().channel().remoteAddress());
+		sendContact(peerConnection.getLocation(), aboutLocation, peerConnection.getCtx().channel().remoteAddress(), true);
 	}
 
-	private void sendContact(Location toLocation, Location aboutLocation, SocketAddress toLocationAddress)
+	/**
+	 * Sends the contact information of a location.
+	 *
+	 * @param toLocation        the location to send it to
+	 * @param aboutLocation     the location to send the contact information of
+	 * @param toLocationAddress the address of toLocation as we see it, can be null
+	 * @param onlyIfChanged     if true, the contact is only sent if toLocation wasn't already told about it
+	 */
+	private void sendContact(Location toLocation, Location aboutLocation, SocketAddress toLocationAddress, boolean onlyIfChanged)
 	{
-		log.debug("Sending contact information of {} to {}", aboutLocation, toLocation);
 
 		var builder = DiscoveryContactItem.builder();
 
@@ -174,7 +199,54 @@ public class DiscoveryRsService extends RsService
 				.filter(connection -> connection.getType() == PeerAddress.Type.HOSTNAME)
 				.findFirst()
 				.ifPresent(connection -> builder.setHostname(connection.getHostname()));
-		peerConnectionManager.writeItem(toLocation, builder.build(), this);
+
+		var item = builder.build();
+		if (!contactTracker.markSent(toLocation.getId(), aboutLocation.getId(), item, System.nanoTime()) && onlyIfChanged)
+		{
+			log.debug("{} already knows the contact information of {}, skipping", toLocation, aboutLocation);
+			return;
+		}
+		log.debug("Sending contact information of {} to {}", aboutLocation, toLocation);
+		peerConnectionManager.writeItem(toLocation, item, this);
+	}
+
+	/**
+	 * Queues contact information to be sent to a peer. The queued contacts are sent together after a short delay.
+	 *
+	 * @param toLocation    the location to send it to
+	 * @param aboutLocation the location to send the contact information of
+	 */
+	private void queueContact(Location toLocation, Location aboutLocation)
+	{
+		pendingContacts.add(new PendingContact(toLocation.getId(), aboutLocation.getId()));
+		if (pendingContactsScheduled.compareAndSet(false, true))
+		{
+			CompletableFuture.runAsync(this::sendPendingContacts, CompletableFuture.delayedExecutor(CONTACT_COALESCING_DELAY.toMillis(), TimeUnit.MILLISECONDS));
+		}
+	}
+
+	private void sendPendingContacts()
+	{
+		pendingContactsScheduled.set(false);
+		try (var ignored = new DatabaseSession(databaseSessionManager))
+		{
+			var iterator = pendingContacts.iterator();
+			while (iterator.hasNext())
+			{
+				var pendingContact = iterator.next();
+				iterator.remove();
+				var toLocation = locationService.findLocationById(pendingContact.toLocationId()).orElse(null);
+				var aboutLocation = locationService.findLocationById(pendingContact.aboutLocationId()).orElse(null);
+				if (toLocation != null && aboutLocation != null && toLocation.isConnected())
+				{
+					sendContact(toLocation, aboutLocation, null, true);
+				}
+			}
+		}
+		catch (RuntimeException e)
+		{
+			log.error("Failed to send contacts: {}", e.getMessage(), e);
+		}
 	}
 
 	private void sendIdentity(PeerConnection peerConnection, IdentityGroupItem identityGroupItem)
@@ -390,12 +462,13 @@ public class DiscoveryRsService extends RsService
 					.filter(location -> location.getName() != null) // Do not send locations that have no name (they have been automatically added using the profile)
 					.toList();
 
-			locationsToSend.forEach(location -> sendContact(peerConnection, location));
+			// Only the contacts that changed since the peer was last told about them are sent.
+			locationsToSend.forEach(location -> sendContactIfChanged(peerConnection, location));
 
 			// Inform all our online mutual friends about peer (except itself as we just sent it above).
 			locationsToSend.stream()
 					.filter(location -> !location.equals(peerConnection.getLocation()) && location.isConnected())
-					.forEach(location -> sendContact(location, peerConnection.getLocation()));
+					.forEach(location -> queueContact(location, peerConnection.getLocation()));
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,6 +19,6 @@
 
 package io.xeres.app.xrs.service.filetransfer;
 
-sealed interface Action permits ActionAddPeer, ActionDownload, ActionGetDownloadsProgress, ActionGetUploadsProgress, ActionReceiveChunkMap, ActionReceiveChunkMapRequest, ActionReceiveData, ActionReceiveDataRequest, ActionReceiveSingleChunkCrc, ActionReceiveSingleChunkCrcRequest, ActionRemoveDownload, ActionRemovePeer
+sealed interface Action permits ActionAddPeer, ActionChunkHashed, ActionDownload, ActionGetDownloadsProgress, ActionGetUploadsProgress, ActionReceiveChunkMap, ActionReceiveChunkMapRequest, ActionReceiveData, ActionReceiveDataRequest, ActionReceiveSingleChunkCrc, ActionReceiveSingleChunkCrcRequest, ActionRemoveDownload, ActionRemovePeer
 {
 }
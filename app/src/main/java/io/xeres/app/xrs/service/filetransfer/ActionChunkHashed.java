@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.app.xrs.service.filetransfer;
+
+import io.xeres.common.id.Sha1Sum;
+
+/**
+ * Result of hashing a chunk in the background, see {@link ChunkVerifier}.
+ *
+ * @param hash             the hash of the file
+ * @param chunkNumber      the chunk number
+ * @param chunkHash        the hash of the chunk, null if it couldn't be read
+ * @param chunkVersion     the version of the chunk when it was hashed
+ * @param digestGeneration the generation of the file digest the chunk was added to, -1 if it wasn't
+ */
+record ActionChunkHashed(Sha1Sum hash, int chunkNumber, Sha1Sum chunkHash, int chunkVersion, int digestGeneration) implements Action
+{
+}
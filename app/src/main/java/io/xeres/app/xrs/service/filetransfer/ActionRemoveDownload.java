@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,6 +19,8 @@
 
 package io.xeres.app.xrs.service.filetransfer;
 
-record ActionRemoveDownload(long id) implements Action
+import io.xeres.common.id.Sha1Sum;
+
+record ActionRemoveDownload(long id, Sha1Sum hash) implements Action
 {
 }
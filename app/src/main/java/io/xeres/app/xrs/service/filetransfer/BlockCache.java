@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.xrs.service.filetransfer;
+
+import io.netty.buffer.ByteBuf;
+import io.xeres.common.id.Sha1Sum;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of file blocks shared by all uploads, so that a file downloaded by many peers at once is only
+ * read once from the disk.
+ * <p>
+ * It's a segmented LRU: new blocks go in a probation segment and are only moved to the protected segment
+ * when they're used again. A peer reading a file once can only evict blocks from the probation segment,
+ * so the blocks of popular files stay in.
+ * <p>
+ * Blocks are reference counted buffers. The cache owns one reference and gives out retained duplicates
+ * which must be released by the caller (sending them does it).
+ */
+class BlockCache
+{
+	private static final int PROTECTED_PERCENT = 80;
+
+	private record Key(Sha1Sum hash, long block)
+	{
+	}
+
+	private final long maxSize;
+	private final long maxProtectedSize;
+
+	private final LinkedHashMap<Key, ByteBuf> probationBlocks = new LinkedHashMap<>(16, 0.75f, true);
+	private final LinkedHashMap<Key, ByteBuf> protectedBlocks = new LinkedHashMap<>(16, 0.75f, true);
+	private long probationSize;
+	private long protectedSize;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Creates a block cache.
+	 *
+	 * @param maxSize the maximum size of the cached blocks, in bytes
+	 */
+	BlockCache(long maxSize)
+	{
+		this.maxSize = maxSize;
+		maxProtectedSize = maxSize * PROTECTED_PERCENT / 100;
+	}
+
+	/**
+	 * Gets a block.
+	 *
+	 * @param hash  the hash of the file
+	 * @param block the block number
+	 * @return the block, which must be released, or null if it's not in the cache
+	 */
+	synchronized ByteBuf get(Sha1Sum hash, long block)
+	{
+		var key = new Key(hash, block);
+		var buf = protectedBlocks.get(key);
+		if (buf == null)
+		{
+			buf = probationBlocks.remove(key);
+			if (buf == null)
+			{
+				misses.increment();
+				return null;
+			}
+			probationSize -= buf.readableBytes();
+			promote(key, buf);
+		}
+		hits.increment();
+		return buf.retainedDuplicate();
+	}
+
+	/**
+	 * Tells if a block is in the cache, without counting as an access.
+	 *
+	 * @param hash  the hash of the file
+	 * @param block the block number
+	 * @return true if it's in the cache
+	 */
+	synchronized boolean contains(Sha1Sum hash, long block)
+	{
+		var key = new Key(hash, block);
+		return protectedBlocks.containsKey(key) || probationBlocks.containsKey(key);
+	}
+
+	/**
+	 * Adds a block. The cache takes over the reference of the buffer.
+	 *
+	 * @param hash  the hash of the file
+	 * @param block the block number
+	 * @param buf   the data of the block
+	 */
+	synchronized void put(Sha1Sum hash, long block, ByteBuf buf)
+	{
+		var key = new Key(hash, block);
+		if (buf.readableBytes() > maxSize || protectedBlocks.containsKey(key) || probationBlocks.containsKey(key))
+		{
+			buf.release();
+			return;
+		}
+		probationBlocks.put(key, buf);
+		probationSize += buf.readableBytes();
+		evict();
+	}
+
+	private void promote(Key key, ByteBuf buf)
+	{
+		protectedBlocks.put(key, buf);
+		protectedSize += buf.readableBytes();
+
+		// Demote the least recently used protected blocks, they get one more chance
+		var iterator = protectedBlocks.entrySet().iterator();
+		while (protectedSize > maxProtectedSize && iterator.hasNext())
+		{
+			var eldest = iterator.next();
+			iterator.remove();
+			protectedSize -= eldest.getValue().readableBytes();
+			probationBlocks.put(eldest.getKey(), eldest.getValue());
+			probationSize += eldest.getValue().readableBytes();
+		}
+		evict();
+	}
+
+	private void evict()
+	{
+		evict(probationBlocks, true);
+		evict(protectedBlocks, false);
+	}
+
+	private void evict(LinkedHashMap<Key, ByteBuf> blocks, boolean probation)
+	{
+		var iterator = blocks.values().iterator();
+		while (probationSize + protectedSize > maxSize && iterator.hasNext())
+		{
+			var buf = iterator.next();
+			iterator.remove();
+			if (probation)
+			{
+				probationSize -= buf.readableBytes();
+			}
+			else
+			{
+				protectedSize -= buf.readableBytes();
+			}
+			buf.release();
+		}
+	}
+
+	/**
+	 * Removes all blocks.
+	 */
+	synchronized void clear()
+	{
+		probationBlocks.values().forEach(ByteBuf::release);
+		protectedBlocks.values().forEach(ByteBuf::release);
+		probationBlocks.clear();
+		protectedBlocks.clear();
+		probationSize = 0L;
+		protectedSize = 0L;
+	}
+
+	synchronized long getSize()
+	{
+		return probationSize + protectedSize;
+	}
+
+	long getHits()
+	{
+		return hits.sum();
+	}
+
+	long getMisses()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * Gets the ratio of reads served from the cache.
+	 *
+	 * @return the hit rate, between 0 and 1
+	 */
+	double getHitRate()
+	{
+		var hitCount = hits.sum();
+		var total = hitCount + misses.sum();
+		return total == 0L ? 0.0d : (double) hitCount / total;
+	}
+}
@@ -49,42 +49,47 @@ class Chunk
 	}
 
 	/**
-	 * Marks the block as written.
+	 * Marks the block as written. Blocks that were already written are left as is.
 	 *
 	 * @param offset the offset within the file
 	 * @param size the total written size
+	 * @return the size of the blocks that weren't written before
 	 */
-	public void setBlocksAsWritten(long offset, int size)
+	public int setBlocksAsWritten(long offset, int size)
 	{
 		if (offset % BLOCK_SIZE != 0)
 		{
 			throw new IllegalArgumentException("Wrong block offset: " + offset);
 		}
 
+		var newSize = 0;
 		while (size > 0)
 		{
 			var blockOffset = offset % CHUNK_SIZE;
 			var blockIndex = blockOffset / BLOCK_SIZE;
+			var blockSize = Math.min(BLOCK_SIZE, size);
 			if (blockIndex < 64)
 			{
-				if ((lowBlocks & 1L << blockIndex) > 0)
+				if ((lowBlocks & 1L << blockIndex) == 0)
 				{
-					return; // Already set
+					lowBlocks |= 1L << blockIndex;
+					remainingBlocks--;
+					newSize += blockSize;
 				}
-				lowBlocks |= 1L << blockIndex;
 			}
 			else
 			{
-				if ((hiBlocks & 1L << blockIndex - 64) > 0)
+				if ((hiBlocks & 1L << blockIndex - 64) == 0)
 				{
-					return; // Already set
+					hiBlocks |= 1L << blockIndex - 64;
+					remainingBlocks--;
+					newSize += blockSize;
 				}
-				hiBlocks |= 1L << blockIndex - 64;
 			}
-			remainingBlocks--;
 			size -= BLOCK_SIZE;
 			offset += BLOCK_SIZE;
 		}
+		return newSize;
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -25,6 +25,7 @@ import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static io.xeres.app.xrs.service.filetransfer.FileTransferStrategy.LINEAR;
+import static io.xeres.app.xrs.service.filetransfer.FileTransferStrategy.RAREST_FIRST;
 
 /**
  * Used to track which chunks are still remaining for a file to be complete.
@@ -33,6 +34,11 @@ class ChunkDistributor
 {
 	private static final int MAX_RANDOM_TRY = 10;
 
+	/**
+	 * How many extra seeders can be given the same chunk in endgame mode.
+	 */
+	private static final int MAX_ENDGAME_COPIES = 2;
+
 	/**
 	 * Time to consider a given chunk as "lost".
 	 * XXX: add a way to update that value when a write for that chunk is received. if possible, make the timeout shorter then
@@ -41,6 +47,8 @@ class ChunkDistributor
 
 	private final BitSet chunkMap; // This is updated externally
 	private final Map<Integer, Instant> givenChunks = new HashMap<>();
+	private final Map<Integer, Integer> endgameCopies = new HashMap<>();
+	private final int[] availability; // Number of seeders having each chunk
 	private final int totalChunks;
 	private final FileTransferStrategy fileTransferStrategy;
 	private int minChunk;
@@ -56,6 +64,61 @@ class ChunkDistributor
 		this.chunkMap = chunkMap;
 		this.totalChunks = totalChunks;
 		this.fileTransferStrategy = fileTransferStrategy;
+		availability = new int[totalChunks];
+	}
+
+	/**
+	 * Updates the availability of the chunks when the chunk map of a seeder changes.
+	 *
+	 * @param oldChunkMap the previous chunk map of the seeder, null if the seeder is new
+	 * @param newChunkMap the new chunk map of the seeder, null if the seeder is gone
+	 */
+	public void updateAvailability(BitSet oldChunkMap, BitSet newChunkMap)
+	{
+		var changed = oldChunkMap != null ? (BitSet) oldChunkMap.clone() : new BitSet();
+		if (newChunkMap != null)
+		{
+			changed.xor(newChunkMap);
+		}
+
+		for (var i = changed.nextSetBit(0); i >= 0 && i < totalChunks; i = changed.nextSetBit(i + 1))
+		{
+			if (newChunkMap != null && newChunkMap.get(i))
+			{
+				availability[i]++;
+			}
+			else
+			{
+				availability[i] = Math.max(availability[i] - 1, 0);
+			}
+		}
+	}
+
+	public int getAvailability(int chunk)
+	{
+		return availability[chunk];
+	}
+
+	/**
+	 * Tells if all the missing chunks have been given out already.
+	 *
+	 * @return true if in endgame mode
+	 */
+	public boolean isEndgame()
+	{
+		return fileTransferStrategy == RAREST_FIRST && !endgameCopies.isEmpty();
+	}
+
+	/**
+	 * Makes a chunk available again after it was removed from the chunk map, for example because it was corrupt.
+	 *
+	 * @param chunk the chunk number
+	 */
+	public void resetChunk(int chunk)
+	{
+		givenChunks.remove(chunk);
+		endgameCopies.remove(chunk);
+		minChunk = Math.min(minChunk, chunk);
 	}
 
 	private void updateChunksInfo()
@@ -67,6 +130,7 @@ class ChunkDistributor
 		// removed to consolidate the set.
 		var beforeSize = givenChunks.size();
 		givenChunks.entrySet().removeIf(entry -> chunkMap.get(entry.getKey()) || givenChunkIsTooOld(entry.getValue()));
+		endgameCopies.keySet().removeIf(chunk -> !givenChunks.containsKey(chunk));
 		if (fileTransferStrategy == LINEAR && beforeSize != givenChunks.size())
 		{
 			minChunk = findMinChunk();
@@ -98,6 +162,18 @@ class ChunkDistributor
 	 * @return an empty chunk which needs to be filled in
 	 */
 	public Optional<Integer> getNextChunk(BitSet availableChunks)
+	{
+		return getNextChunk(availableChunks, -1);
+	}
+
+	/**
+	 * Gets a next available chunk to fill in.
+	 *
+	 * @param availableChunks the chunks that the seeder has
+	 * @param currentChunk    the chunk the seeder is currently sending, so that it's not given to it again in endgame mode. -1 if none
+	 * @return an empty chunk which needs to be filled in
+	 */
+	public Optional<Integer> getNextChunk(BitSet availableChunks, int currentChunk)
 	{
 		updateChunksInfo();
 
@@ -106,11 +182,16 @@ class ChunkDistributor
 		// concept of maximum bits, so it will always find a "free" bit.
 		if (maxChunk == -1 || minChunk == -1 || chunkMap.cardinality() + givenChunks.size() == totalChunks)
 		{
-			return Optional.empty();
+			return fileTransferStrategy == RAREST_FIRST ? getEndgameChunk(availableChunks, currentChunk) : Optional.empty();
 		}
 
-		var chunk = fileTransferStrategy == LINEAR ? getLinearChunk() : getRandomChunk();
-		if (!availableChunks.get(chunk))
+		var chunk = switch (fileTransferStrategy)
+		{
+			case LINEAR -> getLinearChunk();
+			case RANDOM -> getRandomChunk();
+			case RAREST_FIRST -> getRarestChunk(availableChunks);
+		};
+		if (chunk == -1 || !availableChunks.get(chunk))
 		{
 			return Optional.empty();
 		}
@@ -127,6 +208,70 @@ class ChunkDistributor
 		return minChunk;
 	}
 
+	/**
+	 * Gets the chunk that the fewest seeders have, among the ones the seeder has. Ties are
+	 * broken randomly so that seeders don't all compete for the same chunk.
+	 *
+	 * @param availableChunks the chunks that the seeder has
+	 * @return the chunk or -1 if the seeder has none of the needed chunks
+	 */
+	private int getRarestChunk(BitSet availableChunks)
+	{
+		var rarestChunk = -1;
+		var rarestAvailability = Integer.MAX_VALUE;
+		var ties = 0;
+
+		for (var i = availableChunks.nextSetBit(minChunk); i >= 0 && i <= maxChunk; i = availableChunks.nextSetBit(i + 1))
+		{
+			if (chunkMap.get(i) || givenChunks.containsKey(i))
+			{
+				continue;
+			}
+			if (availability[i] < rarestAvailability)
+			{
+				rarestChunk = i;
+				rarestAvailability = availability[i];
+				ties = 1;
+			}
+			else if (availability[i] == rarestAvailability && ThreadLocalRandom.current().nextInt(++ties) == 0)
+			{
+				rarestChunk = i;
+			}
+		}
+		return rarestChunk;
+	}
+
+	/**
+	 * Gives out a chunk that is already being downloaded from another seeder, so that
+	 * the last chunks don't depend on the slowest seeder.
+	 *
+	 * @param availableChunks the chunks that the seeder has
+	 * @param currentChunk    the chunk that the seeder is already sending
+	 * @return the chunk with the fewest copies
+	 */
+	private Optional<Integer> getEndgameChunk(BitSet availableChunks, int currentChunk)
+	{
+		var endgameChunk = -1;
+		var fewestCopies = MAX_ENDGAME_COPIES;
+
+		for (var chunk : givenChunks.keySet())
+		{
+			var copies = endgameCopies.getOrDefault(chunk, 0);
+			if (chunk != currentChunk && availableChunks.get(chunk) && copies < fewestCopies)
+			{
+				endgameChunk = chunk;
+				fewestCopies = copies;
+			}
+		}
+
+		if (endgameChunk == -1)
+		{
+			return Optional.empty();
+		}
+		endgameCopies.merge(endgameChunk, 1, Integer::sum);
+		return Optional.of(endgameChunk);
+	}
+
 	private int getRandomChunk()
 	{
 		int chunk;
@@ -1,31 +1,84 @@
 package io.xeres.app.xrs.service.filetransfer;
 
+import java.util.ArrayDeque;
 import java.util.BitSet;
+import java.util.Deque;
 
+import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.CHUNK_SIZE;
+
+/**
+ * Keeps track of what is requested to a seeder: the chunk being requested in pieces, and the
+ * ranges which were lost and have to be requested again.
+ */
 class ChunkReceiver
 {
-	private boolean receiving;
-	private int chunkNumber;
+	private int chunkNumber = -1;
+	private long requestOffset;
+	private long chunkEnd;
 	private BitSet chunkMap;
+	private final Deque<RequestWindow.Range> retries = new ArrayDeque<>();
 
-	public boolean isReceiving()
+	public int getChunkNumber()
 	{
-		return receiving;
+		return chunkNumber;
 	}
 
-	public void setReceiving(boolean receiving)
+	/**
+	 * Starts requesting a new chunk.
+	 *
+	 * @param chunkNumber the chunk number
+	 * @param fileSize    the size of the file, to know where the last chunk ends
+	 */
+	public void setChunkNumber(int chunkNumber, long fileSize)
 	{
-		this.receiving = receiving;
+		this.chunkNumber = chunkNumber;
+		requestOffset = (long) chunkNumber * CHUNK_SIZE;
+		chunkEnd = Math.min(requestOffset + CHUNK_SIZE, fileSize);
 	}
 
-	public int getChunkNumber()
+	/**
+	 * Tells if the current chunk still has parts that weren't requested.
+	 *
+	 * @return true if there's something left to request
+	 */
+	public boolean hasRemaining()
 	{
-		return chunkNumber;
+		return chunkNumber != -1 && requestOffset < chunkEnd;
 	}
 
-	public void setChunkNumber(int chunkNumber)
+	/**
+	 * Takes the next part of the current chunk.
+	 *
+	 * @param maxSize the maximum size of the part
+	 * @return the range to request
+	 */
+	public RequestWindow.Range takeRange(int maxSize)
 	{
-		this.chunkNumber = chunkNumber;
+		var range = new RequestWindow.Range(requestOffset, (int) Math.min(maxSize, chunkEnd - requestOffset));
+		requestOffset += range.size();
+		return range;
+	}
+
+	public void addRetry(RequestWindow.Range range)
+	{
+		retries.add(range);
+	}
+
+	/**
+	 * Takes the next range that has to be requested again.
+	 *
+	 * @param maxSize the maximum size of the range, the rest is kept for later
+	 * @return the range, or null if there's none
+	 */
+	public RequestWindow.Range takeRetry(int maxSize)
+	{
+		var range = retries.poll();
+		if (range != null && range.size() > maxSize)
+		{
+			retries.addFirst(new RequestWindow.Range(range.offset() + maxSize, range.size() - maxSize, true));
+			range = new RequestWindow.Range(range.offset(), maxSize, true);
+		}
+		return range;
 	}
 
 	public boolean hasChunkMap()
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.app.xrs.service.filetransfer;
+
+import io.xeres.app.crypto.hash.sha1.Sha1MessageDigest;
+import io.xeres.common.id.Sha1Sum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.CHUNK_SIZE;
+
+/**
+ * Verifies the integrity of a file being downloaded.
+ * <p>
+ * Each chunk is hashed on a background executor as soon as it's complete. If the file doesn't match its hash,
+ * the chunks are compared with the hashes given by the seeders, and those that don't match are removed from
+ * the file so that they're downloaded again. Asking for the hashes only then saves a request per chunk.
+ * <p>
+ * The hash of the whole file is computed incrementally: when the next contiguous chunk is complete, it's
+ * read once and fed to both its own digest and the file's. Only one such job runs at a time, so the file
+ * digest is always updated in order. This way there's no need to read the whole file again once it's complete.
+ * <p>
+ * The results of the background jobs come back as {@link ActionChunkHashed} to the thread owning the download,
+ * which is the only one calling the methods of this class. Results made stale by a chunk being invalidated in
+ * the meantime are ignored.
+ */
+class ChunkVerifier
+{
+	private static final Logger log = LoggerFactory.getLogger(ChunkVerifier.class);
+
+	enum Status
+	{
+		VERIFYING,
+		VERIFIED,
+		CORRUPT
+	}
+
+	private final Sha1Sum hash;
+	private final FileProvider fileProvider;
+	private final Executor executor;
+	private final Consumer<ActionChunkHashed> resultConsumer;
+	private final int totalChunks;
+
+	private final BitSet completedChunks = new BitSet();
+	private final BitSet verifiedChunks = new BitSet();
+	private final Map<Integer, Sha1Sum> computedHashes = new HashMap<>();
+	private final Map<Integer, Sha1Sum> expectedHashes = new HashMap<>();
+	private final int[] chunkVersions;
+
+	private Sha1MessageDigest fileDigest = new Sha1MessageDigest();
+	private int digestGeneration;
+	private int digestedChunks;
+	private boolean digesting;
+	private Sha1Sum fileHash;
+
+	public ChunkVerifier(Sha1Sum hash, FileProvider fileProvider, Executor executor, Consumer<ActionChunkHashed> resultConsumer)
+	{
+		this.hash = hash;
+		this.fileProvider = fileProvider;
+		this.executor = executor;
+		this.resultConsumer = resultConsumer;
+		totalChunks = (int) ((fileProvider.getFileSize() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		chunkVersions = new int[totalChunks];
+	}
+
+	/**
+	 * Starts verifying the chunks that were already there, for example when resuming a download.
+	 */
+	public void start()
+	{
+		completedChunks.or(fileProvider.getChunkMap());
+		digestNextChunk();
+	}
+
+	/**
+	 * Adds a chunk that was just completed and starts hashing it.
+	 *
+	 * @param chunkNumber the chunk number
+	 * @return true if the chunk wasn't known as complete yet
+	 */
+	public boolean addCompletedChunk(int chunkNumber)
+	{
+		if (completedChunks.get(chunkNumber))
+		{
+			return false;
+		}
+		completedChunks.set(chunkNumber);
+
+		if (!digesting && chunkNumber == digestedChunks)
+		{
+			digestNextChunk();
+		}
+		else
+		{
+			submit(chunkNumber, null);
+		}
+		return true;
+	}
+
+	/**
+	 * Accounts for the hash of a chunk given by a seeder.
+	 *
+	 * @param chunkNumber  the chunk number
+	 * @param expectedHash the hash of the chunk
+	 * @return true if the chunk didn't match and was invalidated
+	 */
+	public boolean receiveExpectedHash(int chunkNumber, Sha1Sum expectedHash)
+	{
+		if (chunkNumber < 0 || chunkNumber >= totalChunks || !completedChunks.get(chunkNumber))
+		{
+			return false;
+		}
+		expectedHashes.put(chunkNumber, expectedHash);
+		return check(chunkNumber);
+	}
+
+	/**
+	 * Accounts for the result of a hashing job.
+	 *
+	 * @param result the result
+	 * @return true if the chunk didn't match and was invalidated
+	 */
+	public boolean receiveChunkHash(ActionChunkHashed result)
+	{
+		var chunkNumber = result.chunkNumber();
+		var invalidated = false;
+
+		if (result.chunkVersion() == chunkVersions[chunkNumber] && completedChunks.get(chunkNumber) && result.chunkHash() != null)
+		{
+			computedHashes.put(chunkNumber, result.chunkHash());
+			invalidated = check(chunkNumber);
+		}
+
+		if (result.digestGeneration() == digestGeneration && digesting)
+		{
+			digesting = false;
+			if (result.chunkHash() == null)
+			{
+				log.warn("Couldn't read chunk {} of file {}, verification suspended", chunkNumber, hash);
+				return invalidated;
+			}
+			digestedChunks++;
+			if (digestedChunks == totalChunks)
+			{
+				fileHash = fileDigest.getSum();
+				log.debug("Computed hash of file {}: {}", hash, fileHash);
+			}
+			digestNextChunk();
+		}
+		return invalidated;
+	}
+
+	public Status getStatus()
+	{
+		if (fileHash == null)
+		{
+			return Status.VERIFYING;
+		}
+		return fileHash.equals(hash) ? Status.VERIFIED : Status.CORRUPT;
+	}
+
+	/**
+	 * Tells if every chunk matched the hash given by a seeder.
+	 *
+	 * @return true if all the chunks are verified
+	 */
+	public boolean areAllChunksVerified()
+	{
+		return verifiedChunks.cardinality() == totalChunks;
+	}
+
+	/**
+	 * Gets the complete chunks that weren't verified against a seeder's hash yet.
+	 *
+	 * @return the chunk numbers
+	 */
+	public List<Integer> getUnverifiedChunks()
+	{
+		var unverifiedChunks = (BitSet) completedChunks.clone();
+		unverifiedChunks.andNot(verifiedChunks);
+		return unverifiedChunks.stream().boxed().toList();
+	}
+
+	private boolean check(int chunkNumber)
+	{
+		var computedHash = computedHashes.get(chunkNumber);
+		var expectedHash = expectedHashes.get(chunkNumber);
+		if (computedHash == null || expectedHash == null)
+		{
+			return false;
+		}
+		if (computedHash.equals(expectedHash))
+		{
+			verifiedChunks.set(chunkNumber);
+			return false;
+		}
+		invalidate(chunkNumber);
+		return true;
+	}
+
+	private void invalidate(int chunkNumber)
+	{
+		log.debug("Chunk {} of file {} doesn't match, invalidating", chunkNumber, hash);
+		fileProvider.invalidateChunk(chunkNumber);
+		completedChunks.clear(chunkNumber);
+		verifiedChunks.clear(chunkNumber);
+		computedHashes.remove(chunkNumber);
+		expectedHashes.remove(chunkNumber);
+		chunkVersions[chunkNumber]++;
+
+		if (chunkNumber < digestedChunks || (digesting && chunkNumber == digestedChunks))
+		{
+			// The digest can't be rewound, start over
+			fileDigest = new Sha1MessageDigest();
+			digestGeneration++;
+			digestedChunks = 0;
+			digesting = false;
+			fileHash = null;
+			digestNextChunk();
+		}
+	}
+
+	private void digestNextChunk()
+	{
+		if (!digesting && digestedChunks < totalChunks && completedChunks.get(digestedChunks))
+		{
+			digesting = true;
+			submit(digestedChunks, fileDigest);
+		}
+	}
+
+	private void submit(int chunkNumber, Sha1MessageDigest digest)
+	{
+		var chunkVersion = chunkVersions[chunkNumber];
+		var generation = digest != null ? digestGeneration : -1;
+		try
+		{
+			executor.execute(() -> resultConsumer.accept(new ActionChunkHashed(hash, chunkNumber, fileProvider.computeHash((long) chunkNumber * CHUNK_SIZE, digest), chunkVersion, generation)));
+		}
+		catch (RejectedExecutionException _)
+		{
+			log.debug("Hashing executor is shut down, not hashing chunk {}", chunkNumber);
+			if (digest != null)
+			{
+				digesting = false;
+			}
+		}
+	}
+}
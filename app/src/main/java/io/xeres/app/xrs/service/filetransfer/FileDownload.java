@@ -19,7 +19,7 @@
 
 package io.xeres.app.xrs.service.filetransfer;
 
-import io.xeres.common.id.Sha1Sum;
+import io.netty.buffer.ByteBuf;
 import io.xeres.common.util.OsUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.slf4j.Logger;
@@ -119,7 +119,7 @@ class FileDownload extends FileUpload
 	}
 
 	@Override
-	public byte[] read(long offset, int size) throws IOException
+	public ByteBuf read(long offset, int size) throws IOException
 	{
 		if (isChunkAvailable(offset, size))
 		{
@@ -131,14 +131,24 @@ class FileDownload extends FileUpload
 	@Override
 	public void write(long offset, byte[] data) throws IOException
 	{
+		if (chunkMap.get((int) (offset / CHUNK_SIZE)))
+		{
+			log.trace("Chunk at offset {} is already complete, ignoring", offset); // Happens when several seeders were asked for it
+			return;
+		}
 		var buf = ByteBuffer.wrap(data);
 		var size = channel.write(buf, offset);
-		bytesWritten += size;
 		if (size != data.length)
 		{
 			throw new IOException("Failed to write data, requested size: " + data.length + ", actually written: " + size);
 		}
-		markBlocksAsWritten(offset, size);
+		bytesWritten += markBlocksAsWritten(offset, size); // Blocks received twice in endgame mode are only counted once
+	}
+
+	@Override
+	public void sync() throws IOException
+	{
+		channel.force(false);
 	}
 
 	@Override
@@ -183,9 +193,15 @@ class FileDownload extends FileUpload
 	}
 
 	@Override
-	public Optional<Integer> getNeededChunk(BitSet chunkMap)
+	public Optional<Integer> getNeededChunk(BitSet chunkMap, int currentChunk)
+	{
+		return chunkDistributor.getNextChunk(chunkMap, currentChunk);
+	}
+
+	@Override
+	public void updateChunkAvailability(BitSet oldChunkMap, BitSet newChunkMap)
 	{
-		return chunkDistributor.getNextChunk(chunkMap);
+		chunkDistributor.updateAvailability(oldChunkMap, newChunkMap);
 	}
 
 	@Override
@@ -194,6 +210,17 @@ class FileDownload extends FileUpload
 		return chunkMap.get(index);
 	}
 
+	@Override
+	public void invalidateChunk(int index)
+	{
+		if (chunkMap.get(index))
+		{
+			chunkMap.clear(index);
+			bytesWritten -= Math.min(CHUNK_SIZE, fileSize - (long) index * CHUNK_SIZE);
+			chunkDistributor.resetChunk(index);
+		}
+	}
+
 	private boolean isChunkAvailable(long offset, int chunkSize)
 	{
 		int chunkStart = (int) (offset / chunkSize);
@@ -214,23 +241,18 @@ class FileDownload extends FileUpload
 		return true;
 	}
 
-	private void markBlocksAsWritten(long offset, int size)
+	private int markBlocksAsWritten(long offset, int size)
 	{
 		int chunkKey = (int) (offset / CHUNK_SIZE);
-		var chunk = chunks.computeIfAbsent(chunkKey, _ -> new Chunk(Math.min(CHUNK_SIZE, fileSize - offset)));
-		chunk.setBlocksAsWritten(offset, size);
+		var chunk = chunks.computeIfAbsent(chunkKey, _ -> new Chunk(Math.min(CHUNK_SIZE, fileSize - (long) chunkKey * CHUNK_SIZE)));
+		var newSize = chunk.setBlocksAsWritten(offset, size);
 
 		if (chunk.isComplete())
 		{
 			chunkMap.set(chunkKey);
 			chunks.remove(chunkKey);
 		}
-	}
-
-	@Override
-	public Sha1Sum computeHash(long offset)
-	{
-		throw new IllegalStateException("Cannot compute hashes of files being downloaded");
+		return newSize;
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,6 +19,8 @@
 
 package io.xeres.app.xrs.service.filetransfer;
 
+import io.netty.buffer.ByteBuf;
+import io.xeres.app.crypto.hash.sha1.Sha1MessageDigest;
 import io.xeres.common.id.Sha1Sum;
 
 import java.io.IOException;
@@ -35,20 +37,61 @@ interface FileProvider
 
 	boolean open();
 
-	byte[] read(long offset, int size) throws IOException;
+	/**
+	 * Reads a block of data.
+	 *
+	 * @param offset the offset within the file
+	 * @param size   the size to read, up to {@link FileTransferRsService#BLOCK_SIZE}
+	 * @return a pooled buffer containing the data, which can be smaller than the requested size at the end of the file. It must be released by the caller
+	 * @throws IOException if an I/O error occurs
+	 */
+	ByteBuf read(long offset, int size) throws IOException;
 
 	void write(long offset, byte[] data) throws IOException;
 
+	/**
+	 * Forces the written data to the storage device, so that the chunk map can be saved without
+	 * claiming data that would be lost by a crash.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	default void sync() throws IOException
+	{
+		// Nothing is written by default
+	}
+
 	void close();
 
 	void closeAndDelete();
 
 	BitSet getChunkMap();
 
-	Optional<Integer> getNeededChunk(BitSet chunkMap);
+	/**
+	 * Gets the next chunk to download from a seeder.
+	 *
+	 * @param chunkMap     the chunk map of the seeder
+	 * @param currentChunk the chunk currently downloaded from the seeder, -1 if none
+	 * @return the chunk number, or empty if the seeder has nothing we need
+	 */
+	Optional<Integer> getNeededChunk(BitSet chunkMap, int currentChunk);
+
+	/**
+	 * Updates how many seeders have each chunk.
+	 *
+	 * @param oldChunkMap the previous chunk map of a seeder, null if it's a new one
+	 * @param newChunkMap the new chunk map of a seeder, null if it left
+	 */
+	void updateChunkAvailability(BitSet oldChunkMap, BitSet newChunkMap);
 
 	boolean hasChunk(int index);
 
+	/**
+	 * Marks a complete chunk as missing again, for example because it's corrupt.
+	 *
+	 * @param index the chunk number
+	 */
+	void invalidateChunk(int index);
+
 	boolean isComplete();
 
 	Path getPath();
@@ -57,5 +100,17 @@ interface FileProvider
 
 	long getId();
 
-	Sha1Sum computeHash(long offset);
+	default Sha1Sum computeHash(long offset)
+	{
+		return computeHash(offset, null);
+	}
+
+	/**
+	 * Computes the hash of a chunk. Can be called from another thread than the one using the file provider.
+	 *
+	 * @param offset     the offset of the chunk
+	 * @param fileDigest a digest of the whole file to also update with the chunk's data, can be null
+	 * @return the hash of the chunk, or null if it couldn't be read
+	 */
+	Sha1Sum computeHash(long offset, Sha1MessageDigest fileDigest);
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2025-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -26,6 +26,8 @@ import java.util.BitSet;
 public class FileSeeder extends FilePeer
 {
 	private final ChunkReceiver chunkReceiver = new ChunkReceiver();
+	private final RequestWindow requestWindow = new RequestWindow();
+	private long lastChunkMapRequest;
 
 	FileSeeder(Location location)
 	{
@@ -37,16 +39,6 @@ public class FileSeeder extends FilePeer
 		chunkReceiver.setChunkMap(chunkMap);
 	}
 
-	public void setReceiving(boolean receiving)
-	{
-		chunkReceiver.setReceiving(receiving);
-	}
-
-	public boolean isReceiving()
-	{
-		return chunkReceiver.isReceiving();
-	}
-
 	public int getChunkNumber()
 	{
 		return chunkReceiver.getChunkNumber();
@@ -62,8 +54,43 @@ public class FileSeeder extends FilePeer
 		return chunkReceiver.getChunkMap();
 	}
 
-	public void setChunkNumber(int chunkNumber)
+	public void setChunkNumber(int chunkNumber, long fileSize)
+	{
+		chunkReceiver.setChunkNumber(chunkNumber, fileSize);
+	}
+
+	public boolean hasRemainingInChunk()
+	{
+		return chunkReceiver.hasRemaining();
+	}
+
+	public RequestWindow.Range takeRange(int maxSize)
+	{
+		return chunkReceiver.takeRange(maxSize);
+	}
+
+	public void addRetry(RequestWindow.Range range)
+	{
+		chunkReceiver.addRetry(range);
+	}
+
+	public RequestWindow.Range takeRetry(int maxSize)
+	{
+		return chunkReceiver.takeRetry(maxSize);
+	}
+
+	public RequestWindow getRequestWindow()
+	{
+		return requestWindow;
+	}
+
+	public long getLastChunkMapRequest()
+	{
+		return lastChunkMapRequest;
+	}
+
+	public void setLastChunkMapRequest(long lastChunkMapRequest)
 	{
-		chunkReceiver.setChunkNumber(chunkNumber);
+		this.lastChunkMapRequest = lastChunkMapRequest;
 	}
 }
@@ -48,12 +48,29 @@ class FileTransferAgent
 	 */
 	private static final long IDLE_TIME = Duration.ofMinutes(5).toNanos();
 
+	/**
+	 * Maximum time between two processing of a seeder. Data arrival and timeouts usually trigger it sooner.
+	 */
+	private static final Duration SEEDER_SCHEDULING = Duration.ofMillis(250);
+
+	/**
+	 * Time after which the chunk map of a seeder that doesn't have the whole file is asked again.
+	 */
+	private static final long CHUNK_MAP_REFRESH = Duration.ofMinutes(1).toNanos();
+
+	/**
+	 * Time after which the hashes of the chunks of a corrupt file are asked again, in case some seeders didn't answer.
+	 */
+	private static final long CHUNK_HASH_REFRESH = Duration.ofMinutes(1).toNanos();
+
 	private final FileTransferRsService fileTransferRsService;
 	private final FileProvider fileProvider;
 	private final Sha1Sum hash;
 	private final String fileName;
+	private final ChunkVerifier chunkVerifier;
 	private boolean done;
 	private long lastActivity;
+	private long nextChunkHashRequest;
 	private boolean trusted;
 
 	private final Map<Location, FileLeecher> leechers = new LinkedHashMap<>();
@@ -62,12 +79,32 @@ class FileTransferAgent
 	private final PriorityQueue<FilePeer> queue = new PriorityQueue<>();
 
 	public FileTransferAgent(FileTransferRsService fileTransferRsService, String fileName, Sha1Sum hash, FileProvider fileProvider)
+	{
+		this(fileTransferRsService, fileName, hash, fileProvider, null);
+	}
+
+	/**
+	 * Creates an agent.
+	 *
+	 * @param fileTransferRsService the file transfer service
+	 * @param fileName              the name of the file
+	 * @param hash                  the hash of the file
+	 * @param fileProvider          the file provider
+	 * @param chunkVerifier         the verifier of the downloaded chunks, null when uploading
+	 */
+	public FileTransferAgent(FileTransferRsService fileTransferRsService, String fileName, Sha1Sum hash, FileProvider fileProvider, ChunkVerifier chunkVerifier)
 	{
 		this.fileTransferRsService = fileTransferRsService;
 		this.hash = hash;
 		this.fileProvider = fileProvider;
 		this.fileName = fileName;
+		this.chunkVerifier = chunkVerifier;
 		lastActivity = System.nanoTime();
+		nextChunkHashRequest = lastActivity;
+		if (chunkVerifier != null)
+		{
+			chunkVerifier.start();
+		}
 	}
 
 	public void setTrusted(boolean trusted)
@@ -94,9 +131,10 @@ class FileTransferAgent
 	{
 		seeders.computeIfAbsent(peer, _ -> {
 			var fileSeeder = new FileSeeder(peer);
+			fileTransferRsService.getRtt(peer).ifPresent(rtt -> fileSeeder.getRequestWindow().setConnectionRtt(rtt));
 			queue.add(fileSeeder);
 			return fileSeeder;
-		});
+		}).setLastChunkMapRequest(System.nanoTime());
 		fileTransferRsService.sendChunkMapRequest(peer, hash, false);
 	}
 
@@ -115,9 +153,71 @@ class FileTransferAgent
 		}).addSliceSender(new SliceSender(fileTransferRsService, peer, fileProvider, hash, fileProvider.getFileSize(), offset, size));
 	}
 
+	/**
+	 * Accounts for data received from a seeder. If the seeder's request window has room
+	 * again, it's processed right away.
+	 *
+	 * @param peer   the seeder
+	 * @param offset the offset of the data within the file
+	 * @param size   the size of the data
+	 */
+	public void receiveData(Location peer, long offset, int size)
+	{
+		lastActivity = System.nanoTime();
+		var chunkNumber = (int) (offset / FileTransferRsService.CHUNK_SIZE);
+		if (chunkVerifier != null && fileProvider.hasChunk(chunkNumber))
+		{
+			chunkVerifier.addCompletedChunk(chunkNumber); // The seeders are only asked for the chunk hashes if the file turns out corrupt
+		}
+		var fileSeeder = seeders.get(peer);
+		if (fileSeeder == null)
+		{
+			log.debug("Received data from {} which isn't a seeder", peer);
+			return;
+		}
+		var requestWindow = fileSeeder.getRequestWindow();
+		if (requestWindow.receive(offset, size, lastActivity) && requestWindow.canRequest())
+		{
+			queue.remove(fileSeeder);
+			addNextScheduling(fileSeeder, Duration.ZERO);
+		}
+	}
+
+	/**
+	 * Accounts for the hash of a chunk computed in the background.
+	 *
+	 * @param result the result of the hashing
+	 */
+	public void receiveChunkHash(ActionChunkHashed result)
+	{
+		if (chunkVerifier != null && chunkVerifier.receiveChunkHash(result))
+		{
+			log.warn("Chunk {} of file {} is corrupt, downloading it again", result.chunkNumber(), fileName);
+		}
+	}
+
+	/**
+	 * Accounts for the hash of a chunk sent by a seeder.
+	 *
+	 * @param peer        the seeder
+	 * @param chunkNumber the chunk number
+	 * @param checkSum    the hash of the chunk
+	 */
+	public void receiveChunkCrc(Location peer, int chunkNumber, Sha1Sum checkSum)
+	{
+		if (chunkVerifier != null && chunkVerifier.receiveExpectedHash(chunkNumber, checkSum))
+		{
+			log.warn("Chunk {} of file {} doesn't match the one of {}, downloading it again", chunkNumber, fileName, peer);
+		}
+	}
+
 	public void removePeer(Location peer)
 	{
 		FilePeer removed = seeders.remove(peer);
+		if (removed instanceof FileSeeder fileSeeder && fileSeeder.hasChunkMap())
+		{
+			fileProvider.updateChunkAvailability(fileSeeder.getChunkMap(), null);
+		}
 		if (removed == null)
 		{
 			removed = leechers.remove(peer);
@@ -140,7 +240,7 @@ class FileTransferAgent
 
 	public void cancel()
 	{
-		if (!fileProvider.isComplete())
+		if (!done)
 		{
 			fileProvider.closeAndDelete();
 		}
@@ -159,6 +259,7 @@ class FileTransferAgent
 			log.error("Seeder not found for adding chunkmap");
 			return;
 		}
+		fileProvider.updateChunkAvailability(seeder.hasChunkMap() ? seeder.getChunkMap() : null, chunkMap);
 		seeder.updateChunkMap(chunkMap);
 	}
 
@@ -211,47 +312,147 @@ class FileTransferAgent
 
 	private void processSeeder(FileSeeder fileSeeder)
 	{
-		if (fileSeeder.isReceiving())
+		var now = System.nanoTime();
+		if (fileProvider.isComplete() && !done && isVerified(now))
+		{
+			log.debug("File is complete, size: {}, renaming to {}", fileProvider.getFileSize(), fileName);
+			stop();
+			fileTransferRsService.markDownloadAsCompleted(hash);
+			fileTransferRsService.deactivateTunnels(hash);
+			var newPath = renameFile(fileProvider.getPath(), fileName);
+			setFileSecurity(newPath);
+			removePeer(fileSeeder.getLocation());
+			done = true; // Prevents closing the file several times (we might have several seeders)
+			return; // Don't reinsert in the queue
+		}
+
+		var requestWindow = fileSeeder.getRequestWindow();
+		var lost = requestWindow.expire(now);
+		if (!lost.isEmpty())
 		{
-			lastActivity = System.nanoTime();
-			if (fileProvider.hasChunk(fileSeeder.getChunkNumber()))
+			log.debug("Requests {} to peer {} were lost, window is now {} bytes", lost, fileSeeder.getLocation(), requestWindow.getWindow());
+			lost.forEach(fileSeeder::addRetry);
+		}
+
+		if (!done && fileSeeder.hasChunkMap())
+		{
+			requestData(fileSeeder, requestWindow, now);
+			refreshChunkMapIfNeeded(fileSeeder, now);
+		}
+		// XXX: to know the bandwidth, we have to know to which tunnelId the virtual location maps to, then to which peer the tunnelId maps to and we finally got a bandwidth.
+		// then we also need to take into account the number of tunnels that are shared through that peer... what a mess. maybe we should push that info when creating the FileSeeder/Leecher?
+		addNextScheduling(fileSeeder, requestWindow.getNextTimeout(now, SEEDER_SCHEDULING));
+	}
+
+	/**
+	 * Checks that the whole file matches its hash. If it doesn't, the hashes of the chunks that weren't
+	 * verified yet are asked to the seeders so that the corrupt ones can be downloaded again.
+	 *
+	 * @param now the current time
+	 * @return true if the file can be completed
+	 */
+	private boolean isVerified(long now)
+	{
+		if (chunkVerifier == null)
+		{
+			return true;
+		}
+		return switch (chunkVerifier.getStatus())
+		{
+			case VERIFYING -> false;
+			case VERIFIED -> true;
+			case CORRUPT ->
 			{
-				log.debug("Chunk {} is complete", fileSeeder.getChunkNumber());
-				fileSeeder.setReceiving(false);
+				if (chunkVerifier.areAllChunksVerified())
+				{
+					log.error("File {} doesn't match its hash {} although all its chunks match the seeders', keeping it anyway", fileName, hash);
+					yield true;
+				}
+				requestChunkHashes(now);
+				yield false;
 			}
+		};
+	}
+
+	private void requestChunkHashes(long now)
+	{
+		if (now - nextChunkHashRequest < 0)
+		{
+			return;
 		}
-		else
+		nextChunkHashRequest = now + CHUNK_HASH_REFRESH;
+
+		var unverifiedChunks = chunkVerifier.getUnverifiedChunks();
+		log.warn("File {} doesn't match its hash, checking {} chunks", fileName, unverifiedChunks.size());
+		for (var chunkNumber : unverifiedChunks)
 		{
-			if (fileProvider.isComplete() && !done)
+			seeders.values().stream()
+					.filter(fileSeeder -> fileSeeder.hasChunkMap() && fileSeeder.getChunkMap().get(chunkNumber))
+					.findFirst()
+					.ifPresent(fileSeeder -> fileTransferRsService.sendSingleChunkCrcRequest(fileSeeder.getLocation(), hash, chunkNumber));
+		}
+	}
+
+	/**
+	 * Sends as many requests as the window of the seeder allows. Requests start small and get bigger as the window grows.
+	 *
+	 * @param fileSeeder    the seeder
+	 * @param requestWindow the request window of the seeder
+	 * @param now           the current time
+	 */
+	private void requestData(FileSeeder fileSeeder, RequestWindow requestWindow, long now)
+	{
+		while (requestWindow.canRequest())
+		{
+			var range = getNextRange(fileSeeder, requestWindow.getRequestSize());
+			if (range == null)
 			{
-				log.debug("File is complete, size: {}, renaming to {}", fileProvider.getFileSize(), fileName);
-				stop();
-				fileTransferRsService.markDownloadAsCompleted(hash);
-				fileTransferRsService.deactivateTunnels(hash);
-				var newPath = renameFile(fileProvider.getPath(), fileName);
-				setFileSecurity(newPath);
-				removePeer(fileSeeder.getLocation());
-				done = true; // Prevents closing the file several times (we might have several seeders)
-				return; // Don't reinsert in the queue
+				break;
 			}
-			else
+			log.trace("Requesting offset {}, size {} to peer {} (window: {}, in flight: {})", range.offset(), range.size(), fileSeeder.getLocation(), requestWindow.getWindow(), requestWindow.getInFlight());
+			fileTransferRsService.sendDataRequest(fileSeeder.getLocation(), hash, fileProvider.getFileSize(), range.offset(), range.size());
+			requestWindow.addRequest(range, now);
+		}
+	}
+
+	/**
+	 * Seeders that don't have the whole file might have more chunks after a while.
+	 *
+	 * @param fileSeeder the seeder
+	 * @param now        the current time
+	 */
+	private void refreshChunkMapIfNeeded(FileSeeder fileSeeder, long now)
+	{
+		var totalChunks = (int) ((fileProvider.getFileSize() + FileTransferRsService.CHUNK_SIZE - 1) / FileTransferRsService.CHUNK_SIZE);
+		if (fileSeeder.getChunkMap().cardinality() < totalChunks && now - fileSeeder.getLastChunkMapRequest() > CHUNK_MAP_REFRESH)
+		{
+			fileSeeder.setLastChunkMapRequest(now);
+			fileTransferRsService.sendChunkMapRequest(fileSeeder.getLocation(), hash, false);
+		}
+	}
+
+	private RequestWindow.Range getNextRange(FileSeeder fileSeeder, int maxSize)
+	{
+		RequestWindow.Range range;
+		while ((range = fileSeeder.takeRetry(maxSize)) != null)
+		{
+			if (!fileProvider.hasChunk((int) (range.offset() / FileTransferRsService.CHUNK_SIZE)))
 			{
-				if (fileSeeder.hasChunkMap())
-				{
-					getNextChunk(fileSeeder.getChunkMap()).ifPresent(chunkNumber -> {
-						log.debug("Requesting chunk number {} to peer {}", chunkNumber, fileSeeder.getLocation());
-						fileTransferRsService.sendDataRequest(fileSeeder.getLocation(), hash, fileProvider.getFileSize(), (long) chunkNumber * FileTransferRsService.CHUNK_SIZE, FileTransferRsService.CHUNK_SIZE);
-						fileSeeder.setChunkNumber(chunkNumber);
-						fileSeeder.setReceiving(true);
-					});
-				}
+				return range;
 			}
 		}
-		// Calculating the next computation would require guessing when we need to ask for the
-		// next chunk. Right now we ask for 1 MB, but we should ask for smaller and progressively bigger (up to 1 MB).
-		addNextScheduling(fileSeeder, Duration.ofMillis(250)); // XXX: use a real computation... not sure it needs to be done in each process*()... maybe in the processPeer() only? check...
-		// XXX: also to know the bandwidth, we have to know to which tunnelId the virtual location maps to, then to which peer the tunnelId maps to and we finally got a bandwidth.
-		// then we also need to take into account the number of tunnels that are shared through that peer... what a mess. maybe we should push that info when creating the FileSeeder/Leecher?
+
+		if (!fileSeeder.hasRemainingInChunk() || fileProvider.hasChunk(fileSeeder.getChunkNumber()))
+		{
+			var chunkNumber = getNextChunk(fileSeeder.getChunkMap(), fileSeeder.getChunkNumber());
+			if (chunkNumber.isEmpty())
+			{
+				return null;
+			}
+			log.debug("Requesting chunk number {} to peer {}", chunkNumber.get(), fileSeeder.getLocation());
+			fileSeeder.setChunkNumber(chunkNumber.get(), fileProvider.getFileSize());
+		}
+		return fileSeeder.takeRange(maxSize);
 	}
 
 	private void setFileSecurity(Path path)
@@ -337,8 +538,8 @@ class FileTransferAgent
 	 *
 	 * @return the chunk number
 	 */
-	private Optional<Integer> getNextChunk(BitSet chunkMap)
+	private Optional<Integer> getNextChunk(BitSet chunkMap, int currentChunk)
 	{
-		return fileProvider.getNeededChunk(chunkMap);
+		return fileProvider.getNeededChunk(chunkMap, currentChunk);
 	}
 }
\ No newline at end of file
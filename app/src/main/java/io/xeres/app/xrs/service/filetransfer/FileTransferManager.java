@@ -39,7 +39,6 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Stream;
 
 import static io.xeres.app.service.file.FileService.DOWNLOAD_EXTENSION;
 import static io.xeres.app.service.file.FileService.DOWNLOAD_PREFIX;
@@ -61,12 +60,32 @@ import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.CHUNK_
  * <p>
  * For requesting, ask for a chunk size of some small size, then monitor the speed and RTT while asking for more. We shouldn't
  * overflow our bandwidth nor the peer's one. We should also ask ahead of time for optimum speed including between chunks.
+ * <p>
+ * There are several FileTransferManagers running in parallel, each one owning the transfers whose hash maps to it (see
+ * {@link FileTransferRsService}). Agents are only processed when their next scheduling is due, which is tracked by a {@link TimerWheel}.
  */
 class FileTransferManager implements Runnable
 {
 	private static final Logger log = LoggerFactory.getLogger(FileTransferManager.class);
 
-	private static final int DEFAULT_TICK = 1000;
+	private static final Duration DEFAULT_TICK = Duration.ofSeconds(1);
+
+	/**
+	 * Resolution of the scheduling. The peers ask for 50 ms and more.
+	 */
+	private static final Duration WHEEL_TICK = Duration.ofMillis(5);
+	private static final int WHEEL_SIZE = 512;
+
+	/**
+	 * The chunk maps of the downloads are saved at least that often, so that a crash doesn't lose
+	 * much of what was downloaded.
+	 */
+	private static final Duration CHECKPOINT_INTERVAL = Duration.ofSeconds(30);
+
+	/**
+	 * A chunk map is saved earlier when that many chunks were completed since its last checkpoint.
+	 */
+	private static final int CHECKPOINT_CHUNKS = 16;
 
 	private final FileTransferRsService fileTransferRsService;
 	private final FileService fileService;
@@ -79,10 +98,15 @@ class FileTransferManager implements Runnable
 
 	private final Map<Sha1Sum, FileTransferAgent> downloads = new HashMap<>(); // files that we are downloading (client)
 	private final Map<Sha1Sum, FileTransferAgent> uploads = new HashMap<>(); // files that we are uploading (serving)
+	private final Map<Sha1Sum, BitSet> checkpoints = new HashMap<>(); // last saved chunk maps of the downloads
 
 	private final List<FileProgress> downloadsProgress = new ArrayList<>();
 	private final List<FileProgress> uploadsProgress = new ArrayList<>();
 
+	private final TimerWheel<FileTransferAgent> timerWheel = new TimerWheel<>(WHEEL_TICK, WHEEL_SIZE);
+	private Instant nextHousekeeping = Instant.EPOCH;
+	private Instant nextCheckpoint = Instant.EPOCH;
+
 	public FileTransferManager(FileTransferRsService fileTransferRsService, FileService fileService, SettingsService settingsService, LocationService locationService, DatabaseSessionManager databaseSessionManager, Location ownLocation, BlockingQueue<Action> queue, FileTransferStrategy fileTransferStrategy)
 	{
 		this.fileTransferRsService = fileTransferRsService;
@@ -106,8 +130,8 @@ class FileTransferManager implements Runnable
 			{
 				var action = getNextAction();
 				processAction(action);
-				processDownloads();
-				processUploads();
+				processAgents();
+				processHousekeeping();
 			}
 			catch (InterruptedException _)
 			{
@@ -121,7 +145,12 @@ class FileTransferManager implements Runnable
 
 	private void cleanup()
 	{
-		downloads.forEach((hash, download) -> fileService.suspendDownload(hash, download.getFileProvider().getChunkMap()));
+		downloads.forEach((hash, download) -> {
+			if (!download.isDone())
+			{
+				checkpoint(hash, download, download.getFileProvider().getChunkMap());
+			}
+		});
 	}
 
 	private Action getNextAction() throws InterruptedException
@@ -132,86 +161,125 @@ class FileTransferManager implements Runnable
 		}
 		else
 		{
-			return queue.poll(computeOptimalWaitingTime(), TimeUnit.MILLISECONDS);
+			return queue.poll(computeOptimalWaitingTime(), TimeUnit.NANOSECONDS);
 		}
 	}
 
 	private long computeOptimalWaitingTime()
 	{
-		var now = Instant.now();
-		int minWaitingTime = DEFAULT_TICK;
-
-		var agents = Stream.concat(downloads.values().stream(), uploads.values().stream())
-				.toList();
+		var waitingTime = timerWheel.getNextExpiration(DEFAULT_TICK);
+		log.trace("Calculated optimal time: {}", waitingTime);
+		return waitingTime.toNanos();
+	}
 
-		for (var agent : agents)
+	public List<FileProgress> getDownloadsProgress()
+	{
+		synchronized (downloadsProgress)
 		{
-			minWaitingTime = Math.min(minWaitingTime, durationBetween(now, agent.getNextProcessing()));
-			if (minWaitingTime == 0)
-			{
-				break;
-			}
+			//noinspection unchecked
+			return (List<FileProgress>) ((ArrayList<FileProgress>) downloadsProgress).clone();
 		}
-		log.debug("Calculated optimal time: {}", minWaitingTime);
-		return minWaitingTime;
 	}
 
-	private static int durationBetween(Instant now, Instant nextDelay)
+	public List<FileProgress> getUploadsProgress()
 	{
-		if (nextDelay == null)
-		{
-			return DEFAULT_TICK;
-		}
-		var duration = Duration.between(now, nextDelay);
-		if (duration.isNegative())
+		synchronized (uploadsProgress)
 		{
-			return 0;
+			//noinspection unchecked
+			return (List<FileProgress>) ((ArrayList<FileProgress>) uploadsProgress).clone();
 		}
-		return safeLongToInt(duration.toMillis());
 	}
 
-	private static int safeLongToInt(long value)
+	/**
+	 * Processes the agents that are due and schedules their next processing.
+	 */
+	private void processAgents()
 	{
-		if (value > Integer.MAX_VALUE)
+		for (var agent : timerWheel.expire())
 		{
-			return Integer.MAX_VALUE;
+			agent.process();
+			schedule(agent);
 		}
-		return (int) value;
 	}
 
-	public List<FileProgress> getDownloadsProgress()
+	private void schedule(FileTransferAgent agent)
 	{
-		synchronized (downloadsProgress)
+		var nextProcessing = agent.getNextProcessing();
+		if (nextProcessing != null)
 		{
-			//noinspection unchecked
-			return (List<FileProgress>) ((ArrayList<FileProgress>) downloadsProgress).clone();
+			timerWheel.schedule(agent, Duration.between(Instant.now(), nextProcessing));
 		}
 	}
 
-	public List<FileProgress> getUploadsProgress()
+	private void processHousekeeping()
 	{
-		synchronized (uploadsProgress)
+		var now = Instant.now();
+		if (now.isAfter(nextHousekeeping))
 		{
-			//noinspection unchecked
-			return (List<FileProgress>) ((ArrayList<FileProgress>) uploadsProgress).clone();
+			uploads.entrySet().removeIf(upload -> stopStalledUpload(upload.getValue()));
+			checkpointDownloads(now.isAfter(nextCheckpoint));
+			nextHousekeeping = now.plus(DEFAULT_TICK);
 		}
 	}
 
-	private void processDownloads()
+	/**
+	 * Checkpoints the chunk maps of the downloads that progressed enough, or of all the ones that
+	 * changed when the checkpoint interval is over.
+	 *
+	 * @param due true if the checkpoint interval is over
+	 */
+	private void checkpointDownloads(boolean due)
 	{
-		downloads.forEach((_, download) -> download.process());
+		downloads.forEach((hash, download) -> {
+			if (download.isDone())
+			{
+				return;
+			}
+			var chunkMap = download.getFileProvider().getChunkMap();
+			var checkpoint = checkpoints.get(hash);
+			if (chunkMap.equals(checkpoint))
+			{
+				return;
+			}
+			if (due || checkpoint == null || chunkMap.cardinality() - checkpoint.cardinality() >= CHECKPOINT_CHUNKS)
+			{
+				checkpoint(hash, download, chunkMap);
+			}
+		});
+		if (due)
+		{
+			nextCheckpoint = Instant.now().plus(CHECKPOINT_INTERVAL);
+		}
 	}
 
-	private void processUploads()
+	/**
+	 * Makes sure the data of the chunks is on the disk, then hands the chunk map over to be saved. This way
+	 * the saved chunk map never claims data that isn't written yet.
+	 *
+	 * @param hash     the hash of the download
+	 * @param download the download
+	 * @param chunkMap the chunk map, taken before syncing
+	 */
+	private void checkpoint(Sha1Sum hash, FileTransferAgent download, BitSet chunkMap)
 	{
-		uploads.entrySet().removeIf(upload -> stopStalledUpload(upload.getValue()));
-		uploads.forEach((_, upload) -> upload.process());
+		try
+		{
+			download.getFileProvider().sync();
+		}
+		catch (IOException e)
+		{
+			log.warn("Failed to sync download {} to disk, not saving its chunk map: {}", download.getFileName(), e.getMessage());
+			return;
+		}
+		checkpoints.put(hash, chunkMap);
+		fileTransferRsService.queueChunkMapCheckpoint(hash, chunkMap);
 	}
 
 	private boolean stopStalledUpload(FileTransferAgent upload)
 	{
 		if (upload.isIdle())
 		{
+			timerWheel.cancel(upload);
 			upload.stop();
 			return true;
 		}
@@ -229,7 +297,7 @@ class FileTransferManager implements Runnable
 			case ActionReceiveData(Location location, Sha1Sum hash, long offset, byte[] data) -> actionReceiveData(location, hash, offset, data);
 
 			case ActionDownload(long id, String name, Sha1Sum hash, long size, LocationIdentifier from, BitSet chunkMap) -> actionDownload(id, name, hash, size, from, chunkMap);
-			case ActionRemoveDownload(long id) -> actionRemoveDownload(id);
+			case ActionRemoveDownload(long id, Sha1Sum hash) -> actionRemoveDownload(id, hash);
 
 			case ActionGetDownloadsProgress() -> actionComputeDownloadsProgress();
 			case ActionGetUploadsProgress() -> actionComputeUploadsProgress();
@@ -239,6 +307,7 @@ class FileTransferManager implements Runnable
 
 			case ActionReceiveSingleChunkCrcRequest(Location location, Sha1Sum hash, int chunkNumber) -> actionReceiveChunkCrcRequest(location, hash, chunkNumber);
 			case ActionReceiveSingleChunkCrc(Location location, Sha1Sum hash, int chunkNumber, Sha1Sum checkSum) -> actionReceiveChunkCrc(location, hash, chunkNumber, checkSum);
+			case ActionChunkHashed chunkHashed -> actionChunkHashed(chunkHashed);
 			case null ->
 			{
 				// This is the return from a timeout. Nothing to do.
@@ -256,11 +325,14 @@ class FileTransferManager implements Runnable
 				var fileDownload = new FileDownload(id, file, size, chunkMap, from != null ? FileTransferStrategy.LINEAR : fileTransferStrategy);
 				if (fileDownload.open())
 				{
-					var download = new FileTransferAgent(fileTransferRsService, name, sha1Sum, fileDownload);
+					checkpoints.put(sha1Sum, fileDownload.getChunkMap());
+					var chunkVerifier = new ChunkVerifier(sha1Sum, fileDownload, fileTransferRsService.getHashExecutor(), fileTransferRsService::queueChunkHashed);
+					var download = new FileTransferAgent(fileTransferRsService, name, sha1Sum, fileDownload, chunkVerifier);
 					if (from != null)
 					{
 						download.setTrusted(true);
 						locationService.findLocationByLocationIdentifier(from).ifPresent(download::addSeeder);
+						schedule(download);
 					}
 					else
 					{
@@ -277,20 +349,19 @@ class FileTransferManager implements Runnable
 		}
 	}
 
-	public void actionRemoveDownload(long id)
+	public void actionRemoveDownload(long id, Sha1Sum hash)
 	{
 		try (var ignored = new DatabaseSession(databaseSessionManager))
 		{
-			fileService.findById(id).ifPresent(fileDownload -> {
-				fileTransferRsService.deactivateTunnels(fileDownload.getHash());
-				var download = downloads.get(fileDownload.getHash());
-				if (download != null)
-				{
-					download.cancel();
-					downloads.remove(fileDownload.getHash());
-				}
-				fileService.removeDownload(id);
-			});
+			fileTransferRsService.deactivateTunnels(hash);
+			var download = downloads.remove(hash);
+			checkpoints.remove(hash);
+			if (download != null)
+			{
+				timerWheel.cancel(download);
+				download.cancel();
+			}
+			fileService.removeDownload(id);
 		}
 	}
 
@@ -342,6 +413,7 @@ class FileTransferManager implements Runnable
 		if (download != null)
 		{
 			download.addSeeder(location);
+			schedule(download);
 		}
 	}
 
@@ -357,6 +429,7 @@ class FileTransferManager implements Runnable
 		if (download != null)
 		{
 			download.removePeer(location);
+			schedule(download);
 		}
 	}
 
@@ -392,7 +465,7 @@ class FileTransferManager implements Runnable
 					.map(Path::toFile)
 					.map(file -> {
 						log.debug("Serving file {} for hash {}", file, hash);
-						var upload = new FileUpload(file);
+						var upload = new FileUpload(file, h, fileTransferRsService.getBlockCache());
 						if (!upload.open())
 						{
 							log.debug("Failed to open file {} for serving", file);
@@ -423,7 +496,10 @@ class FileTransferManager implements Runnable
 		catch (IOException e)
 		{
 			log.error("Failed to write to file", e);
+			return;
 		}
+		download.receiveData(location, offset, data.length);
+		schedule(download);
 	}
 
 	private void actionReceiveChunkMapRequest(Location location, Sha1Sum hash, boolean isLeecher)
@@ -450,6 +526,7 @@ class FileTransferManager implements Runnable
 		}
 		var chunkMap = ChunkMapUtils.toBitSet(compressedChunkMap);
 		download.addChunkMap(location, chunkMap);
+		schedule(download);
 	}
 
 	private void actionReceiveLeecherChunkMapRequest(Location location, Sha1Sum hash)
@@ -508,10 +585,29 @@ class FileTransferManager implements Runnable
 	private void actionReceiveChunkCrc(Location location, Sha1Sum hash, int chunkNumber, Sha1Sum checkSum)
 	{
 		log.debug("Received chunk crc from {}", location);
-		// XXX: handle! need to check leecher...
+		var download = downloads.get(hash);
+		if (download == null)
+		{
+			log.debug("No matching download agent for hash {} for chunk crc", hash);
+			return;
+		}
+		download.receiveChunkCrc(location, chunkNumber, checkSum);
+		schedule(download);
+	}
+
+	private void actionChunkHashed(ActionChunkHashed chunkHashed)
+	{
+		var download = downloads.get(chunkHashed.hash());
+		if (download == null)
+		{
+			log.debug("Download for hash {} is gone, ignoring hash of chunk {}", chunkHashed.hash(), chunkHashed.chunkNumber());
+			return;
+		}
+		download.receiveChunkHash(chunkHashed);
+		schedule(download);
 	}
 
-	private static void handleLeecherRequest(Location location, FileTransferAgent upload, Sha1Sum hash, long offset, int chunkSize)
+	private void handleLeecherRequest(Location location, FileTransferAgent upload, Sha1Sum hash, long offset, int chunkSize)
 	{
 		if (chunkSize > CHUNK_SIZE)
 		{
@@ -520,5 +616,6 @@ class FileTransferManager implements Runnable
 		}
 		// XXX: update location stats for reading, see how RS does it
 		upload.addLeecher(location, offset, chunkSize);
+		schedule(upload);
 	}
 }
@@ -19,6 +19,10 @@
 
 package io.xeres.app.xrs.service.filetransfer;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.netty.buffer.ByteBuf;
 import io.xeres.app.crypto.rscrypto.RsCrypto;
 import io.xeres.app.database.DatabaseSession;
 import io.xeres.app.database.DatabaseSessionManager;
@@ -38,6 +42,7 @@ import io.xeres.app.xrs.service.RsService;
 import io.xeres.app.xrs.service.RsServiceInitPriority;
 import io.xeres.app.xrs.service.RsServiceRegistry;
 import io.xeres.app.xrs.service.filetransfer.item.*;
+import io.xeres.app.xrs.service.rtt.RttRsService;
 import io.xeres.app.xrs.service.turtle.TurtleRouter;
 import io.xeres.app.xrs.service.turtle.TurtleRsClient;
 import io.xeres.app.xrs.service.turtle.item.*;
@@ -45,17 +50,16 @@ import io.xeres.common.id.LocationIdentifier;
 import io.xeres.common.id.Sha1Sum;
 import io.xeres.common.protocol.xrs.RsServiceType;
 import io.xeres.common.rest.file.FileProgress;
+import io.xeres.common.util.ExecutorUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.file.Files;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static io.xeres.app.properties.NetworkProperties.*;
 import static io.xeres.common.protocol.xrs.RsServiceType.FILE_TRANSFER;
@@ -68,6 +72,11 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 	private TurtleRouter turtleRouter;
 
 	static final int CHUNK_SIZE = 1024 * 1024; // 1 MB
+
+	/**
+	 * Number of threads verifying the chunks of the files being downloaded.
+	 */
+	private static final int HASHING_THREADS = 2;
 	static final int BLOCK_SIZE = 1024 * 8; // 8 KB (warning: this got changed to 240 KB (!?) in recent RS)
 
 	private final FileService fileService;
@@ -81,14 +90,26 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 	private final RsCrypto.EncryptionFormat encryptionFormat;
 	private final FileTransferStrategy fileTransferStrategy;
 	private final FileDownloadRepository fileDownloadRepository;
-	private FileTransferManager fileTransferManager;
-	private Thread fileTransferManagerThread;
+	private final RttRsService rttRsService;
+	private final List<FileTransferManager> fileTransferManagers;
+	private final List<Thread> fileTransferManagerThreads;
+	private final ExecutorService hashExecutor;
+	private final BlockCache blockCache;
 
-	private final BlockingQueue<Action> fileCommandQueue = new LinkedBlockingQueue<>();
+	/**
+	 * One queue per {@link FileTransferManager}. Actions are routed by hash so that each file is always handled
+	 * by the same manager.
+	 */
+	private final List<BlockingQueue<Action>> fileCommandQueues;
 
 	private final Map<Sha1Sum, Sha1Sum> encryptedHashes = new ConcurrentHashMap<>();
 
-	public FileTransferRsService(RsServiceRegistry rsServiceRegistry, FileService fileService, PeerConnectionManager peerConnectionManager, FileSearchNotificationService fileSearchNotificationService, FileTrendNotificationService fileTrendNotificationService, DatabaseSessionManager databaseSessionManager, LocationService locationService, SettingsService settingsService, NetworkProperties networkProperties, FileDownloadRepository fileDownloadRepository)
+	/**
+	 * Chunk maps checkpointed by the file transfer managers and waiting to be saved.
+	 */
+	private final Map<Sha1Sum, BitSet> chunkMapCheckpoints = new ConcurrentHashMap<>();
+
+	public FileTransferRsService(RsServiceRegistry rsServiceRegistry, FileService fileService, PeerConnectionManager peerConnectionManager, FileSearchNotificationService fileSearchNotificationService, FileTrendNotificationService fileTrendNotificationService, DatabaseSessionManager databaseSessionManager, LocationService locationService, SettingsService settingsService, NetworkProperties networkProperties, FileDownloadRepository fileDownloadRepository, RttRsService rttRsService)
 	{
 		super(rsServiceRegistry);
 		this.fileService = fileService;
@@ -102,6 +123,42 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 		encryptionFormat = getEncryptionFormat(networkProperties);
 		fileTransferStrategy = getFileTransferStrategy(networkProperties);
 		this.fileDownloadRepository = fileDownloadRepository;
+		this.rttRsService = rttRsService;
+
+		var workers = getFileTransferWorkers(networkProperties);
+		fileCommandQueues = new ArrayList<>(workers);
+		for (var i = 0; i < workers; i++)
+		{
+			fileCommandQueues.add(new LinkedBlockingQueue<>());
+		}
+		fileTransferManagers = new ArrayList<>(workers);
+		fileTransferManagerThreads = new ArrayList<>(workers);
+		hashExecutor = Executors.newFixedThreadPool(HASHING_THREADS, Thread.ofPlatform()
+				.name("Chunk Verifier #", 0)
+				.daemon()
+				.factory());
+		blockCache = networkProperties.getUploadCacheSize() > 0 ? new BlockCache(networkProperties.getUploadCacheSize() * 1024L) : null;
+		if (blockCache != null)
+		{
+			registerBlockCacheMetrics(blockCache);
+		}
+	}
+
+	private static void registerBlockCacheMetrics(BlockCache blockCache)
+	{
+		FunctionCounter.builder("xrs.upload.cache.hits", blockCache, BlockCache::getHits)
+				.description("Uploaded blocks read from the cache")
+				.register(Metrics.globalRegistry);
+		FunctionCounter.builder("xrs.upload.cache.misses", blockCache, BlockCache::getMisses)
+				.description("Uploaded blocks read from the disk")
+				.register(Metrics.globalRegistry);
+		Gauge.builder("xrs.upload.cache.hit.ratio", blockCache, BlockCache::getHitRate)
+				.description("Ratio of uploaded blocks read from the cache")
+				.register(Metrics.globalRegistry);
+		Gauge.builder("xrs.upload.cache.size", blockCache, BlockCache::getSize)
+				.description("Size of the cached blocks")
+				.baseUnit("bytes")
+				.register(Metrics.globalRegistry);
 	}
 
 	private static RsCrypto.EncryptionFormat getEncryptionFormat(NetworkProperties networkProperties)
@@ -130,12 +187,25 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 		{
 			return FileTransferStrategy.RANDOM;
 		}
+		else if (networkProperties.getFileTransferStrategy().equals(FILE_TRANSFER_STRATEGY_RAREST_FIRST))
+		{
+			return FileTransferStrategy.RAREST_FIRST;
+		}
 		else
 		{
 			throw new IllegalArgumentException("Unsupported file transfer strategy: " + networkProperties.getFileTransferStrategy());
 		}
 	}
 
+	private static int getFileTransferWorkers(NetworkProperties networkProperties)
+	{
+		if (networkProperties.getFileTransferWorkers() > 0)
+		{
+			return networkProperties.getFileTransferWorkers();
+		}
+		return Math.clamp(Runtime.getRuntime().availableProcessors() / 2, 1, 8);
+	}
+
 	@Override
 	public void initialize()
 	{
@@ -145,14 +215,69 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 			ownLocation = locationService.findOwnLocation().orElseThrow();
 			fileDownloadRepository.deleteAllByCompletedTrue();
 			fileDownloadRepository.findAllByLocationIsNull()
-					.forEach(file -> fileCommandQueue.add(new ActionDownload(file.getId(), file.getName(), file.getHash(), file.getSize(), null, file.getChunkMap())));
+					.forEach(file -> queueAction(file.getHash(), new ActionDownload(file.getId(), file.getName(), file.getHash(), file.getSize(), null, file.getChunkMap())));
 		}
 
-		fileTransferManager = new FileTransferManager(this, fileService, settingsService, locationService, databaseSessionManager, ownLocation, fileCommandQueue, fileTransferStrategy);
+		log.debug("Starting {} file transfer managers", fileCommandQueues.size());
+		for (var i = 0; i < fileCommandQueues.size(); i++)
+		{
+			var fileTransferManager = new FileTransferManager(this, fileService, settingsService, locationService, databaseSessionManager, ownLocation, fileCommandQueues.get(i), fileTransferStrategy);
+			fileTransferManagers.add(fileTransferManager);
+			fileTransferManagerThreads.add(Thread.ofVirtual()
+					.name("File Transfer Manager #" + i)
+					.start(fileTransferManager));
+		}
+	}
 
-		fileTransferManagerThread = Thread.ofVirtual()
-				.name("File Transfer Manager")
-				.start(fileTransferManager);
+	/**
+	 * Queues an action to the file transfer manager responsible for the hash.
+	 *
+	 * @param hash   the hash of the file
+	 * @param action the action
+	 */
+	private void queueAction(Sha1Sum hash, Action action)
+	{
+		fileCommandQueues.get(getManagerIndex(hash, fileCommandQueues.size())).add(action);
+	}
+
+	/**
+	 * Queues the result of a chunk hashing back to the file transfer manager responsible for the file.
+	 *
+	 * @param chunkHashed the result
+	 */
+	void queueChunkHashed(ActionChunkHashed chunkHashed)
+	{
+		queueAction(chunkHashed.hash(), chunkHashed);
+	}
+
+	Executor getHashExecutor()
+	{
+		return hashExecutor;
+	}
+
+	/**
+	 * Gets the cache of blocks shared by all uploads.
+	 *
+	 * @return the block cache, or null if disabled
+	 */
+	BlockCache getBlockCache()
+	{
+		return blockCache;
+	}
+
+	static int getManagerIndex(Sha1Sum hash, int managers)
+	{
+		return Math.floorMod(hash.hashCode(), managers);
+	}
+
+	/**
+	 * Queues an action to all file transfer managers.
+	 *
+	 * @param action the action
+	 */
+	private void broadcastAction(Action action)
+	{
+		fileCommandQueues.forEach(queue -> queue.add(action));
 	}
 
 	@Override
@@ -185,7 +310,7 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 		try (var ignored = new DatabaseSession(databaseSessionManager))
 		{
 			fileDownloadRepository.findAllByLocation(peerConnection.getLocation())
-					.forEach(file -> fileCommandQueue.add(new ActionDownload(file.getId(), file.getName(), file.getHash(), file.getSize(), file.getLocation().getLocationIdentifier(), file.getChunkMap())));
+					.forEach(file -> queueAction(file.getHash(), new ActionDownload(file.getId(), file.getName(), file.getHash(), file.getSize(), file.getLocation().getLocationIdentifier(), file.getChunkMap())));
 		}
 	}
 
@@ -195,14 +320,14 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 		switch (item)
 		{
 			case FileTransferDataRequestItem ftItem -> // XXX: check for upload limit for this peer and drop it if exceeded!
-					fileCommandQueue.add(new ActionReceiveDataRequest(sender.getLocation(), ftItem.getFileItem().hash(), ftItem.getFileOffset(), ftItem.getChunkSize()));
-			case FileTransferDataItem ftItem -> fileCommandQueue.add(new ActionReceiveData(sender.getLocation(), ftItem.getFileData().fileItem().hash(), ftItem.getFileData().offset(), ftItem.getFileData().data()));
+					queueAction(ftItem.getFileItem().hash(), new ActionReceiveDataRequest(sender.getLocation(), ftItem.getFileItem().hash(), ftItem.getFileOffset(), ftItem.getChunkSize()));
+			case FileTransferDataItem ftItem -> queueAction(ftItem.getFileData().fileItem().hash(), new ActionReceiveData(sender.getLocation(), ftItem.getFileData().fileItem().hash(), ftItem.getFileData().offset(), ftItem.getFileData().data()));
 
-			case FileTransferChunkMapRequestItem ftItem -> fileCommandQueue.add(new ActionReceiveChunkMapRequest(sender.getLocation(), ftItem.getHash(), ftItem.isLeecher()));
-			case FileTransferChunkMapItem ftItem -> fileCommandQueue.add(new ActionReceiveChunkMap(sender.getLocation(), ftItem.getHash(), ftItem.getCompressedChunks()));
+			case FileTransferChunkMapRequestItem ftItem -> queueAction(ftItem.getHash(), new ActionReceiveChunkMapRequest(sender.getLocation(), ftItem.getHash(), ftItem.isLeecher()));
+			case FileTransferChunkMapItem ftItem -> queueAction(ftItem.getHash(), new ActionReceiveChunkMap(sender.getLocation(), ftItem.getHash(), ftItem.getCompressedChunks()));
 
-			case FileTransferSingleChunkCrcRequestItem ftItem -> fileCommandQueue.add(new ActionReceiveSingleChunkCrcRequest(sender.getLocation(), ftItem.getHash(), ftItem.getChunkNumber()));
-			case FileTransferSingleChunkCrcItem ftItem -> fileCommandQueue.add(new ActionReceiveSingleChunkCrc(sender.getLocation(), ftItem.getHash(), ftItem.getChunkNumber(), ftItem.getCheckSum()));
+			case FileTransferSingleChunkCrcRequestItem ftItem -> queueAction(ftItem.getHash(), new ActionReceiveSingleChunkCrcRequest(sender.getLocation(), ftItem.getHash(), ftItem.getChunkNumber()));
+			case FileTransferSingleChunkCrcItem ftItem -> queueAction(ftItem.getHash(), new ActionReceiveSingleChunkCrc(sender.getLocation(), ftItem.getHash(), ftItem.getChunkNumber(), ftItem.getCheckSum()));
 			default -> log.debug("Unhandled item {}", item);
 		}
 	}
@@ -261,14 +386,14 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 				// No need to dispose decryptedItem as it doesn't come from netty
 			}
 
-			case TurtleFileRequestItem turtleFileRequestItem -> fileCommandQueue.add(new ActionReceiveDataRequest(virtualLocation, hash, turtleFileRequestItem.getChunkOffset(), turtleFileRequestItem.getChunkSize()));
-			case TurtleFileDataItem turtleFileDataItem -> fileCommandQueue.add(new ActionReceiveData(virtualLocation, hash, turtleFileDataItem.getChunkOffset(), turtleFileDataItem.getChunkData()));
+			case TurtleFileRequestItem turtleFileRequestItem -> queueAction(hash, new ActionReceiveDataRequest(virtualLocation, hash, turtleFileRequestItem.getChunkOffset(), turtleFileRequestItem.getChunkSize()));
+			case TurtleFileDataItem turtleFileDataItem -> queueAction(hash, new ActionReceiveData(virtualLocation, hash, turtleFileDataItem.getChunkOffset(), turtleFileDataItem.getChunkData()));
 
-			case TurtleFileMapRequestItem turtleFileMapRequestItem -> fileCommandQueue.add(new ActionReceiveChunkMapRequest(virtualLocation, hash, turtleFileMapRequestItem.getDirection() == TunnelDirection.CLIENT));
-			case TurtleFileMapItem turtleFileMapItem -> fileCommandQueue.add(new ActionReceiveChunkMap(virtualLocation, hash, turtleFileMapItem.getCompressedChunks()));
+			case TurtleFileMapRequestItem turtleFileMapRequestItem -> queueAction(hash, new ActionReceiveChunkMapRequest(virtualLocation, hash, turtleFileMapRequestItem.getDirection() == TunnelDirection.CLIENT));
+			case TurtleFileMapItem turtleFileMapItem -> queueAction(hash, new ActionReceiveChunkMap(virtualLocation, hash, turtleFileMapItem.getCompressedChunks()));
 
-			case TurtleChunkCrcRequestItem turtleChunkCrcRequestItem -> fileCommandQueue.add(new ActionReceiveSingleChunkCrcRequest(virtualLocation, hash, turtleChunkCrcRequestItem.getChunkNumber()));
-			case TurtleChunkCrcItem turtleChunkCrcItem -> fileCommandQueue.add(new ActionReceiveSingleChunkCrc(virtualLocation, hash, turtleChunkCrcItem.getChunkNumber(), turtleChunkCrcItem.getChecksum()));
+			case TurtleChunkCrcRequestItem turtleChunkCrcRequestItem -> queueAction(hash, new ActionReceiveSingleChunkCrcRequest(virtualLocation, hash, turtleChunkCrcRequestItem.getChunkNumber()));
+			case TurtleChunkCrcItem turtleChunkCrcItem -> queueAction(hash, new ActionReceiveSingleChunkCrc(virtualLocation, hash, turtleChunkCrcItem.getChunkNumber(), turtleChunkCrcItem.getChecksum()));
 
 			case null -> throw new IllegalStateException("Null item");
 			default -> log.warn("Unknown packet type received: {}", item.getSubType());
@@ -308,7 +433,7 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 		}
 		if (direction == TunnelDirection.SERVER)
 		{
-			fileCommandQueue.add(new ActionAddPeer(hash, virtualLocation));
+			queueAction(hash, new ActionAddPeer(hash, virtualLocation));
 		}
 	}
 
@@ -321,7 +446,7 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 			log.warn("Couldn't remove virtual peer, not an encrypted hash");
 			return;
 		}
-		fileCommandQueue.add(new ActionRemovePeer(hash, virtualLocation));
+		queueAction(hash, new ActionRemovePeer(hash, virtualLocation));
 	}
 
 	public int turtleSearch(String search) // XXX: maybe make a generic version or so...
@@ -339,31 +464,87 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 		var id = fileService.addDownload(name, hash, size, locationService.findLocationByLocationIdentifier(locationIdentifier).orElse(null));
 		if (id != 0L)
 		{
-			fileCommandQueue.add(new ActionDownload(id, name, hash, size, locationIdentifier, null));
+			queueAction(hash, new ActionDownload(id, name, hash, size, locationIdentifier, null));
 		}
 		return id;
 	}
 
+	/**
+	 * Gets the round trip time to a peer.
+	 *
+	 * @param location the location
+	 * @return the RTT of the connection, empty for virtual peers as the RTT of a tunnel is unknown
+	 */
+	Optional<Duration> getRtt(Location location)
+	{
+		if (turtleRouter.isVirtualPeer(location))
+		{
+			return Optional.empty();
+		}
+		return rttRsService.getRtt(location);
+	}
+
 	public void markDownloadAsCompleted(Sha1Sum hash)
 	{
+		chunkMapCheckpoints.remove(hash);
 		fileService.markDownloadAsCompleted(hash);
 	}
 
+	/**
+	 * Queues the chunk map of a download to be saved. The data it refers to must already be on the disk.
+	 *
+	 * @param hash     the hash of the download
+	 * @param chunkMap the chunk map
+	 */
+	void queueChunkMapCheckpoint(Sha1Sum hash, BitSet chunkMap)
+	{
+		chunkMapCheckpoints.put(hash, chunkMap);
+	}
+
+	/**
+	 * Saves the queued chunk maps of all downloads in one transaction.
+	 */
+	public synchronized void saveChunkMapCheckpoints()
+	{
+		if (chunkMapCheckpoints.isEmpty())
+		{
+			return;
+		}
+		Map<Sha1Sum, BitSet> chunkMaps = new HashMap<>();
+		for (var hash : chunkMapCheckpoints.keySet())
+		{
+			var chunkMap = chunkMapCheckpoints.remove(hash);
+			if (chunkMap != null)
+			{
+				chunkMaps.put(hash, chunkMap);
+			}
+		}
+		log.debug("Saving chunk maps of {} downloads", chunkMaps.size());
+		fileService.saveChunkMaps(chunkMaps);
+	}
+
 	public List<FileProgress> getDownloadStatistics()
 	{
-		fileCommandQueue.add(new ActionGetDownloadsProgress());
-		return fileTransferManager.getDownloadsProgress();
+		broadcastAction(new ActionGetDownloadsProgress());
+		return fileTransferManagers.stream()
+				.flatMap(fileTransferManager -> fileTransferManager.getDownloadsProgress().stream())
+				.toList();
 	}
 
 	public List<FileProgress> getUploadStatistics()
 	{
-		fileCommandQueue.add(new ActionGetUploadsProgress());
-		return fileTransferManager.getUploadsProgress();
+		broadcastAction(new ActionGetUploadsProgress());
+		return fileTransferManagers.stream()
+				.flatMap(fileTransferManager -> fileTransferManager.getUploadsProgress().stream())
+				.toList();
 	}
 
 	public void removeDownload(long id)
 	{
-		fileCommandQueue.add(new ActionRemoveDownload(id));
+		try (var ignored = new DatabaseSession(databaseSessionManager))
+		{
+			fileService.findById(id).ifPresent(fileDownload -> queueAction(fileDownload.getHash(), new ActionRemoveDownload(id, fileDownload.getHash())));
+		}
 	}
 
 	@Override
@@ -371,15 +552,18 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 	{
 		fileSearchNotificationService.shutdown();
 		fileTrendNotificationService.shutdown();
-		if (fileTransferManagerThread != null)
+		if (!fileTransferManagerThreads.isEmpty())
 		{
-			log.info("Stopping FileTransferManager...");
-			fileTransferManagerThread.interrupt();
+			log.info("Stopping FileTransferManagers...");
+			fileTransferManagerThreads.forEach(Thread::interrupt);
 			try
 			{
-				log.info("Waiting for FileTransferManager to terminate...");
-				fileTransferManagerThread.join();
-				log.debug("FileTransferManager terminated");
+				log.info("Waiting for FileTransferManagers to terminate...");
+				for (var fileTransferManagerThread : fileTransferManagerThreads)
+				{
+					fileTransferManagerThread.join();
+				}
+				log.debug("FileTransferManagers terminated");
 			}
 			catch (InterruptedException e)
 			{
@@ -387,6 +571,13 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 				Thread.currentThread().interrupt();
 			}
 		}
+		saveChunkMapCheckpoints();
+		ExecutorUtils.cleanupExecutor(hashExecutor);
+		if (blockCache != null)
+		{
+			log.debug("Upload block cache hit rate: {}%", Math.round(blockCache.getHitRate() * 100));
+			blockCache.clear();
+		}
 	}
 
 	private void sendTurtleItem(Location virtualLocation, Sha1Sum hash, TurtleGenericTunnelItem item)
@@ -398,8 +589,15 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 	private TurtleGenericDataItem encryptItem(TurtleGenericTunnelItem item, Sha1Sum hash)
 	{
 		var key = new FileTransferEncryptionKey(hash);
-		var serializedItem = ItemUtils.serializeItem(item, this);
-		return new TurtleGenericDataItem(RsCrypto.encryptAuthenticateData(key, serializedItem, encryptionFormat));
+		var serializedItem = ItemUtils.serializeItemToBuffer(item, this);
+		try
+		{
+			return new TurtleGenericDataItem(RsCrypto.encryptAuthenticateData(key, serializedItem.nioBuffer(), encryptionFormat));
+		}
+		finally
+		{
+			serializedItem.release();
+		}
 	}
 
 	private TurtleGenericTunnelItem decryptItem(TurtleGenericDataItem item, Sha1Sum hash)
@@ -511,37 +709,46 @@ public class FileTransferRsService extends RsService implements TurtleRsClient
 	}
 
 	/**
-	 * Sends data as a server.
+	 * Sends data as a server. The data is serialized straight from the buffer.
 	 *
 	 * @param location  the location to send to (can be virtual too)
 	 * @param hash      the hash related to it
 	 * @param totalSize the total size of the file
 	 * @param offset    the offset within the file
-	 * @param data      the data to send
+	 * @param data      the data to send. It's released by this method
 	 */
-	void sendData(Location location, Sha1Sum hash, long totalSize, long offset, byte[] data)
+	void sendData(Location location, Sha1Sum hash, long totalSize, long offset, ByteBuf data)
 	{
-		if (data.length > 0)
+		try
 		{
-			if (data.length > BLOCK_SIZE)
+			var length = data.readableBytes();
+			if (length > 0)
 			{
-				throw new IllegalArgumentException("Maximum send totalSize must be " + BLOCK_SIZE + ", not " + data.length);
-			}
+				if (length > BLOCK_SIZE)
+				{
+					throw new IllegalArgumentException("Maximum send totalSize must be " + BLOCK_SIZE + ", not " + length);
+				}
 
-			if (turtleRouter.isVirtualPeer(location))
-			{
-				var item = new TurtleFileDataItem(offset, data);
-				sendTurtleItem(location, hash, item);
+				if (turtleRouter.isVirtualPeer(location))
+				{
+					var item = new TurtleFileDataItem(offset, data);
+					sendTurtleItem(location, hash, item);
+				}
+				else
+				{
+					// The item is serialized before writeItem() returns so the buffer can be released right after
+					var item = new FileTransferDataItem(offset, totalSize, hash, data);
+					peerConnectionManager.writeItem(location, item, this);
+				}
 			}
 			else
 			{
-				var item = new FileTransferDataItem(offset, totalSize, hash, data);
-				peerConnectionManager.writeItem(location, item, this);
+				log.debug("Empty data, nothing to send. Bug?!");
 			}
 		}
-		else
+		finally
 		{
-			log.debug("Empty data, nothing to send. Bug?!");
+			data.release();
 		}
 	}
 }
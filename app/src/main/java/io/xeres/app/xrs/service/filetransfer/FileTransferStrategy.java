@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -22,5 +22,10 @@ package io.xeres.app.xrs.service.filetransfer;
 public enum FileTransferStrategy
 {
 	LINEAR,
-	RANDOM
+	RANDOM,
+	/**
+	 * Picks the chunks that the fewest seeders have first, then duplicates the last
+	 * outstanding chunks across seeders (endgame).
+	 */
+	RAREST_FIRST
 }
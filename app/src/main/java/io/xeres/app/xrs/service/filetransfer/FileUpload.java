@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,6 +19,8 @@
 
 package io.xeres.app.xrs.service.filetransfer;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.xeres.app.crypto.hash.sha1.Sha1MessageDigest;
 import io.xeres.common.id.Sha1Sum;
 import org.slf4j.Logger;
@@ -43,16 +45,37 @@ import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.CHUNK_
 class FileUpload implements FileProvider
 {
 	private static final Logger log = LoggerFactory.getLogger(FileUpload.class);
+
+	/**
+	 * How many blocks to read at once when a file is read sequentially, and the cache is used.
+	 */
+	static final int READ_AHEAD_BLOCKS = 16;
+
 	protected final File file;
+	private final Sha1Sum hash;
+	private final BlockCache blockCache;
 	protected FileChannel channel;
 	protected FileLock lock;
 	protected long fileSize;
 	private BitSet chunkMap;
-	private ByteBuffer buf;
 
 	public FileUpload(File file)
+	{
+		this(file, null, null);
+	}
+
+	/**
+	 * Creates a file upload which reads its blocks through a cache.
+	 *
+	 * @param file       the file
+	 * @param hash       the hash of the file, used as a key in the cache
+	 * @param blockCache the block cache, can be null
+	 */
+	public FileUpload(File file, Sha1Sum hash, BlockCache blockCache)
 	{
 		this.file = file;
+		this.hash = hash;
+		this.blockCache = blockCache;
 	}
 
 	@Override
@@ -87,54 +110,103 @@ class FileUpload implements FileProvider
 	}
 
 	@Override
-	public byte[] read(long offset, int size) throws IOException // XXX: RS has an option to return unchecked chunks. not sure when it's used
+	public ByteBuf read(long offset, int size) throws IOException // XXX: RS has an option to return unchecked chunks. not sure when it's used
 	{
 		if (size > BLOCK_SIZE)
 		{
 			throw new IllegalArgumentException("size must be smaller than " + BLOCK_SIZE + " bytes");
 		}
-		allocateBufferIfNeeded();
 
-		buf.clear();
-		buf.limit(size);
+		if (blockCache != null && offset % BLOCK_SIZE == 0)
+		{
+			return readCached(offset, size);
+		}
+		return readFully(offset, size);
+	}
+
+	private ByteBuf readCached(long offset, int size) throws IOException
+	{
+		var block = offset / BLOCK_SIZE;
+		var buf = blockCache.get(hash, block);
+		if (buf != null)
+		{
+			if (buf.readableBytes() > size)
+			{
+				buf.writerIndex(buf.readerIndex() + size);
+			}
+			return buf;
+		}
+
+		// Sequential readers are likely to ask for the next blocks too
+		var blocks = block == 0L || blockCache.contains(hash, block - 1) ? READ_AHEAD_BLOCKS : 1;
+		var length = (int) Math.clamp(fileSize - offset, size, (long) blocks * BLOCK_SIZE);
+		buf = readFully(offset, length);
+		try
+		{
+			for (var blockOffset = 0; blockOffset < buf.readableBytes(); blockOffset += BLOCK_SIZE)
+			{
+				// Each block gets its own buffer, a slice would keep the whole read-ahead buffer in memory as long as one of its blocks is cached
+				blockCache.put(hash, block + blockOffset / BLOCK_SIZE, buf.copy(blockOffset, Math.min(BLOCK_SIZE, buf.readableBytes() - blockOffset)));
+			}
+			return buf.retainedSlice(0, Math.min(size, buf.readableBytes()));
+		}
+		finally
+		{
+			buf.release();
+		}
+	}
 
-		channel.read(buf, offset);
-		var a = new byte[buf.position()];
-		buf.flip();
-		buf.get(a);
-		return a;
+	private ByteBuf readFully(long offset, int size) throws IOException
+	{
+		// The data is read straight into a pooled direct buffer, which is then serialized as is
+		var buf = PooledByteBufAllocator.DEFAULT.directBuffer(size, size);
+		try
+		{
+			while (buf.isWritable())
+			{
+				if (buf.writeBytes(channel, offset + buf.writerIndex(), buf.writableBytes()) <= 0)
+				{
+					break; // End of file
+				}
+			}
+			return buf;
+		}
+		catch (IOException e)
+		{
+			buf.release();
+			throw e;
+		}
 	}
 
 	@Override
-	public Sha1Sum computeHash(long offset)
+	public Sha1Sum computeHash(long offset, Sha1MessageDigest fileDigest)
 	{
-		var hashBuf = ByteBuffer.allocate(CHUNK_SIZE);
+		var hashBuf = ByteBuffer.allocate(Math.clamp(fileSize - offset, 0, CHUNK_SIZE));
 
 		try
 		{
-			channel.read(hashBuf, offset);
+			while (hashBuf.hasRemaining())
+			{
+				if (channel.read(hashBuf, offset + hashBuf.position()) < 0)
+				{
+					break;
+				}
+			}
 		}
 		catch (IOException e)
 		{
 			log.error("Failed to compute hash: {}", e.getMessage());
 			return null;
 		}
-
-		var a = new byte[hashBuf.position()];
 		hashBuf.flip();
-		hashBuf.get(a);
 
 		var digest = new Sha1MessageDigest();
-		digest.update(a);
-		return digest.getSum();
-	}
-
-	private void allocateBufferIfNeeded()
-	{
-		if (buf == null)
+		digest.update(hashBuf.duplicate());
+		if (fileDigest != null)
 		{
-			buf = ByteBuffer.allocate(BLOCK_SIZE);
+			fileDigest.update(hashBuf);
 		}
+		return digest.getSum();
 	}
 
 	@Override
@@ -203,11 +275,23 @@ class FileUpload implements FileProvider
 	}
 
 	@Override
-	public Optional<Integer> getNeededChunk(BitSet chunkMap)
+	public void invalidateChunk(int index)
+	{
+		throw new IllegalStateException("Cannot invalidate chunks of a file being uploaded");
+	}
+
+	@Override
+	public Optional<Integer> getNeededChunk(BitSet chunkMap, int currentChunk)
 	{
 		return Optional.empty();
 	}
 
+	@Override
+	public void updateChunkAvailability(BitSet oldChunkMap, BitSet newChunkMap)
+	{
+		// Nothing to do, we have everything
+	}
+
 	@Override
 	public Path getPath()
 	{
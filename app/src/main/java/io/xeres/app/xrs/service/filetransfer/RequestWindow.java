@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.xrs.service.filetransfer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.BLOCK_SIZE;
+
+/**
+ * Congestion window used to pipeline data requests to one seeder.
+ * <p>
+ * It works mostly like TCP's: the window starts small and doubles every round trip (slow start) until
+ * a queue buildup is detected, then grows by one request per round trip. Request sizes grow with the window.
+ * <p>
+ * Since peers are connected through TCP, a lost request isn't a sign of congestion but of a tunnel or
+ * a peer dropping it. A request overtaken by several later ones is simply requested again. A timeout
+ * means the seeder stalled and collapses the window.
+ * <p>
+ * The round trip time is the time between sending a request and receiving its first byte, so that it
+ * doesn't depend on the request size but still shows the requests queueing up at the seeder. The RTT
+ * of the peer connection can be used as a starting point.
+ * <p>
+ * All times are in nanoseconds, as returned by {@link System#nanoTime()}. This class is not thread safe.
+ */
+class RequestWindow
+{
+	static final int MIN_REQUEST_SIZE = 2 * BLOCK_SIZE;
+	static final int MAX_REQUEST_SIZE = 32 * BLOCK_SIZE; // So that a full window has several requests in flight
+	static final long MIN_WINDOW = 2L * MIN_REQUEST_SIZE;
+	static final long INITIAL_WINDOW = 4L * MIN_REQUEST_SIZE;
+	static final long MAX_WINDOW = 16L * FileTransferRsService.CHUNK_SIZE;
+
+	private static final long MIN_TIMEOUT = Duration.ofSeconds(1).toNanos();
+	private static final long MAX_TIMEOUT = Duration.ofSeconds(60).toNanos();
+	private static final long INITIAL_TIMEOUT = Duration.ofSeconds(3).toNanos();
+
+	/**
+	 * How many later requests must complete before an unanswered one is considered lost.
+	 */
+	private static final int OVERTAKE_THRESHOLD = 3;
+
+	/**
+	 * When the round trip time goes above that many times the minimum, requests are queueing up
+	 * at the seeder or along the way.
+	 */
+	private static final int QUEUE_FACTOR = 2;
+
+	record Range(long offset, int size, boolean retry)
+	{
+		Range(long offset, int size)
+		{
+			this(offset, size, false);
+		}
+	}
+
+	private static final class Request
+	{
+		private final long offset;
+		private final int size;
+		private final long sent;
+		private final boolean retry;
+		private int received;
+		private int overtaken;
+
+		private Request(Range range, long sent)
+		{
+			offset = range.offset();
+			size = range.size();
+			retry = range.retry();
+			this.sent = sent;
+		}
+
+		private long end()
+		{
+			return offset + size;
+		}
+	}
+
+	private final TreeMap<Long, Request> requests = new TreeMap<>();
+	private long window = INITIAL_WINDOW;
+	private long slowStartThreshold = MAX_WINDOW;
+	private long inFlight;
+
+	private long smoothedRtt;
+	private long rttVariance;
+	private long minRtt = Long.MAX_VALUE;
+	private long timeout = INITIAL_TIMEOUT;
+	private long lastProgress;
+
+	private long deliveredBytes;
+	private long deliveryStart = Long.MIN_VALUE;
+	private long deliveryRate; // bytes per second
+
+	/**
+	 * Seeds the timeout with the round trip time of the connection, until real samples are available.
+	 *
+	 * @param rtt the round trip time of the peer connection
+	 */
+	public void setConnectionRtt(Duration rtt)
+	{
+		if (smoothedRtt == 0L && rtt.isPositive())
+		{
+			timeout = Math.clamp(3 * rtt.toNanos(), MIN_TIMEOUT, MAX_TIMEOUT);
+		}
+	}
+
+	/**
+	 * Tells if a new request can be sent.
+	 *
+	 * @return true if there's enough room in the window, or nothing is in flight
+	 */
+	public boolean canRequest()
+	{
+		return requests.isEmpty() || window - inFlight >= MIN_REQUEST_SIZE;
+	}
+
+	/**
+	 * Gets the size of the next request.
+	 *
+	 * @return the size, which is a multiple of {@link FileTransferRsService#BLOCK_SIZE}
+	 */
+	public int getRequestSize()
+	{
+		var size = Math.min(window / 4, Math.max(window - inFlight, MIN_REQUEST_SIZE));
+		return (int) Math.clamp(size - size % BLOCK_SIZE, MIN_REQUEST_SIZE, MAX_REQUEST_SIZE);
+	}
+
+	/**
+	 * Adds a request that was just sent.
+	 *
+	 * @param range the requested range
+	 * @param now   the current time
+	 */
+	public void addRequest(Range range, long now)
+	{
+		if (requests.isEmpty())
+		{
+			lastProgress = now;
+		}
+		if (deliveryStart == Long.MIN_VALUE)
+		{
+			deliveryStart = now;
+		}
+		requests.put(range.offset(), new Request(range, now));
+		inFlight += range.size();
+	}
+
+	/**
+	 * Accounts for received data.
+	 *
+	 * @param offset the offset of the data within the file
+	 * @param size   the size of the data
+	 * @param now    the current time
+	 * @return true if the data was requested through this window
+	 */
+	public boolean receive(long offset, int size, long now)
+	{
+		var entry = requests.floorEntry(offset);
+		if (entry == null || offset >= entry.getValue().end())
+		{
+			return false;
+		}
+		var request = entry.getValue();
+		if (request.received == 0 && !request.retry) // Karn's algorithm: retried requests give ambiguous samples
+		{
+			updateRtt(now - request.sent);
+		}
+		var accepted = (int) Math.min(size, request.end() - offset);
+		request.received += accepted;
+		inFlight -= accepted;
+		deliveredBytes += accepted;
+		lastProgress = now;
+
+		growWindow(accepted);
+
+		if (request.received >= request.size)
+		{
+			requests.remove(request.offset);
+			inFlight += request.received - request.size; // Duplicates
+			markOvertaken(request);
+			updateDeliveryRate(now);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the requests that are considered lost.
+	 *
+	 * @param now the current time
+	 * @return the ranges that have to be requested again
+	 */
+	public List<Range> expire(long now)
+	{
+		if (requests.isEmpty())
+		{
+			return List.of();
+		}
+
+		List<Range> lost = new ArrayList<>();
+		var timedOut = false;
+
+		var iterator = requests.values().iterator();
+		while (iterator.hasNext())
+		{
+			var request = iterator.next();
+			if (now - Math.max(request.sent, lastProgress) >= timeout)
+			{
+				timedOut = true;
+			}
+			else if (request.overtaken < OVERTAKE_THRESHOLD)
+			{
+				continue;
+			}
+			iterator.remove();
+			inFlight -= request.size - request.received;
+			lost.add(new Range(request.offset + request.received, request.size - request.received, true));
+		}
+
+		if (lost.isEmpty())
+		{
+			return lost;
+		}
+
+		if (timedOut)
+		{
+			slowStartThreshold = Math.max(window / 2, MIN_WINDOW);
+			window = MIN_WINDOW;
+			timeout = Math.min(timeout * 2, MAX_TIMEOUT);
+			lastProgress = now;
+		}
+		return lost;
+	}
+
+	/**
+	 * Gets the time until the next request would time out.
+	 *
+	 * @param now the current time
+	 * @param max the maximum duration to return
+	 * @return the duration until the next timeout, capped by max
+	 */
+	public Duration getNextTimeout(long now, Duration max)
+	{
+		if (requests.isEmpty())
+		{
+			return max;
+		}
+		var oldest = requests.values().stream()
+				.mapToLong(request -> Math.max(request.sent, lastProgress))
+				.min()
+				.orElse(now);
+		var remaining = Duration.ofNanos(Math.max(oldest + timeout - now, 0L));
+		return remaining.compareTo(max) < 0 ? remaining : max;
+	}
+
+	public long getWindow()
+	{
+		return window;
+	}
+
+	public long getInFlight()
+	{
+		return inFlight;
+	}
+
+	public boolean isEmpty()
+	{
+		return requests.isEmpty();
+	}
+
+	public Duration getTimeout()
+	{
+		return Duration.ofNanos(timeout);
+	}
+
+	public Duration getSmoothedRtt()
+	{
+		return Duration.ofNanos(smoothedRtt);
+	}
+
+	/**
+	 * Gets the observed delivery rate.
+	 *
+	 * @return the rate in bytes per second, 0 if unknown yet
+	 */
+	public long getDeliveryRate()
+	{
+		return deliveryRate;
+	}
+
+	private void growWindow(int bytes)
+	{
+		if (window < slowStartThreshold)
+		{
+			window += bytes;
+		}
+		else
+		{
+			window += Math.max((long) MIN_REQUEST_SIZE * bytes / window, 1L);
+		}
+		window = Math.min(window, MAX_WINDOW);
+	}
+
+	/**
+	 * Updates the RTT estimation and the timeout, as described in RFC 6298.
+	 *
+	 * @param sample the RTT sample
+	 */
+	private void updateRtt(long sample)
+	{
+		if (smoothedRtt == 0L)
+		{
+			smoothedRtt = sample;
+			rttVariance = sample / 2;
+		}
+		else
+		{
+			rttVariance = (3 * rttVariance + Math.abs(smoothedRtt - sample)) / 4;
+			smoothedRtt = (7 * smoothedRtt + sample) / 8;
+		}
+		minRtt = Math.min(minRtt, sample);
+		timeout = Math.clamp(smoothedRtt + 4 * rttVariance, MIN_TIMEOUT, MAX_TIMEOUT);
+	}
+
+	private void markOvertaken(Request completed)
+	{
+		for (var request : requests.headMap(completed.offset).values())
+		{
+			if (request.received == 0 && request.sent <= completed.sent)
+			{
+				request.overtaken++;
+			}
+		}
+	}
+
+	/**
+	 * Measures the delivery rate once per round trip. If the round trip time keeps growing while
+	 * the rate doesn't, requests are only queueing up so the window is brought back to about
+	 * twice the bandwidth-delay product.
+	 *
+	 * @param now the current time
+	 */
+	private void updateDeliveryRate(long now)
+	{
+		var elapsed = now - deliveryStart;
+		if (elapsed <= 0L || elapsed < smoothedRtt)
+		{
+			return;
+		}
+		deliveryRate = deliveredBytes * 1_000_000_000L / elapsed;
+		deliveredBytes = 0L;
+		deliveryStart = now;
+
+		if (minRtt != Long.MAX_VALUE && smoothedRtt > QUEUE_FACTOR * minRtt)
+		{
+			var bandwidthDelayProduct = deliveryRate * minRtt / 1_000_000_000L;
+			var target = Math.max(QUEUE_FACTOR * bandwidthDelayProduct, MIN_WINDOW);
+			if (window > target)
+			{
+				window = target;
+				slowStartThreshold = target;
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2025-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,6 +19,7 @@
 
 package io.xeres.app.xrs.service.filetransfer;
 
+import io.netty.buffer.ByteBuf;
 import io.xeres.app.database.model.location.Location;
 import io.xeres.common.id.Sha1Sum;
 import org.slf4j.Logger;
@@ -64,7 +65,7 @@ class SliceSender
 	{
 		var length = Math.min(BLOCK_SIZE, size);
 
-		byte[] data;
+		ByteBuf data;
 		try
 		{
 			data = provider.read(offset, length);
@@ -74,14 +75,20 @@ class SliceSender
 			log.error("Failed to read file", e);
 			return false;
 		}
-		if (data.length > 0)
+
+		var dataLength = data.readableBytes();
+		if (dataLength > 0)
+		{
+			fileTransferRsService.sendData(location, hash, totalSize, offset, data); // This releases the buffer
+		}
+		else
 		{
-			fileTransferRsService.sendData(location, hash, totalSize, offset, data);
+			data.release();
 		}
 
-		size -= data.length;
-		offset += data.length;
+		size -= dataLength;
+		offset += dataLength;
 
-		return size > 0 && data.length == length;
+		return size > 0 && dataLength == length;
 	}
 }
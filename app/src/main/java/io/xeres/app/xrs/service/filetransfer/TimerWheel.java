@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.xrs.service.filetransfer;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * A hashed timer wheel. Scheduling and cancelling are O(1), expiring is proportional to the
+ * number of ticks elapsed and the entries found in them.
+ * <p>
+ * Each entry can only be scheduled once. Scheduling it again moves it to its new deadline.
+ * <p>
+ * This class is not thread safe. It's meant to be used by a single {@link FileTransferManager} thread.
+ *
+ * @param <T> the type of the scheduled entries
+ */
+class TimerWheel<T>
+{
+	private final long tickDuration;
+	private final int mask;
+	private final List<Set<T>> slots;
+	private final Map<T, Long> deadlines = new HashMap<>(); // entry -> deadline tick
+	private final Set<T> expired = new LinkedHashSet<>();
+	private final LongSupplier clock;
+	private final long startTime;
+	private long currentTick;
+
+	/**
+	 * Creates a timer wheel.
+	 *
+	 * @param tickDuration the duration of one tick, which is the resolution of the wheel
+	 * @param wheelSize    the number of slots, rounded up to a power of 2
+	 */
+	TimerWheel(Duration tickDuration, int wheelSize)
+	{
+		this(tickDuration, wheelSize, System::nanoTime);
+	}
+
+	TimerWheel(Duration tickDuration, int wheelSize, LongSupplier clock)
+	{
+		if (tickDuration.isNegative() || tickDuration.isZero())
+		{
+			throw new IllegalArgumentException("tickDuration must be positive");
+		}
+		if (wheelSize < 1 || wheelSize > 1 << 16)
+		{
+			throw new IllegalArgumentException("wheelSize must be between 1 and 65536");
+		}
+		this.tickDuration = tickDuration.toNanos();
+		var size = Integer.highestOneBit(wheelSize) == wheelSize ? wheelSize : Integer.highestOneBit(wheelSize) << 1;
+		mask = size - 1;
+		slots = new ArrayList<>(size);
+		for (var i = 0; i < size; i++)
+		{
+			slots.add(new LinkedHashSet<>());
+		}
+		this.clock = clock;
+		startTime = clock.getAsLong();
+	}
+
+	/**
+	 * Schedules an entry. If the entry is already scheduled, it's moved to the new deadline.
+	 *
+	 * @param entry the entry
+	 * @param delay the delay after which the entry expires. Zero or negative values make it expire on the next call to {@link #expire()}
+	 */
+	public void schedule(T entry, Duration delay)
+	{
+		cancel(entry);
+
+		var delayNanos = delay.isNegative() ? 0L : delay.toNanos();
+		var deadlineTick = (clock.getAsLong() - startTime + delayNanos) / tickDuration;
+		if (deadlineTick <= currentTick || delayNanos == 0L)
+		{
+			expired.add(entry);
+			deadlines.put(entry, currentTick);
+		}
+		else
+		{
+			slots.get((int) (deadlineTick & mask)).add(entry);
+			deadlines.put(entry, deadlineTick);
+		}
+	}
+
+	/**
+	 * Cancels an entry.
+	 *
+	 * @param entry the entry
+	 * @return true if the entry was scheduled
+	 */
+	public boolean cancel(T entry)
+	{
+		var deadlineTick = deadlines.remove(entry);
+		if (deadlineTick == null)
+		{
+			return false;
+		}
+		if (!expired.remove(entry))
+		{
+			slots.get((int) (deadlineTick & mask)).remove(entry);
+		}
+		return true;
+	}
+
+	public boolean isScheduled(T entry)
+	{
+		return deadlines.containsKey(entry);
+	}
+
+	public boolean isEmpty()
+	{
+		return deadlines.isEmpty();
+	}
+
+	public int size()
+	{
+		return deadlines.size();
+	}
+
+	/**
+	 * Advances the wheel and removes all entries whose deadline has passed.
+	 *
+	 * @return the expired entries, in scheduling order per slot
+	 */
+	public List<T> expire()
+	{
+		var nowTick = getNowTick();
+		if (nowTick > currentTick)
+		{
+			// If a whole revolution passed, every slot needs a look but only once
+			var ticks = Math.min(nowTick - currentTick, (long) mask + 1);
+			for (var tick = nowTick - ticks + 1; tick <= nowTick; tick++)
+			{
+				var iterator = slots.get((int) (tick & mask)).iterator();
+				while (iterator.hasNext())
+				{
+					var entry = iterator.next();
+					if (deadlines.get(entry) <= nowTick)
+					{
+						iterator.remove();
+						expired.add(entry);
+					}
+				}
+			}
+			currentTick = nowTick;
+		}
+
+		if (expired.isEmpty())
+		{
+			return List.of();
+		}
+		var result = new ArrayList<>(expired);
+		result.forEach(deadlines::remove);
+		expired.clear();
+		return result;
+	}
+
+	/**
+	 * Finds out when the next entry expires. This only looks one revolution ahead.
+	 *
+	 * @param max the maximum delay to return
+	 * @return the delay until the next entry expires, capped to max. Zero if some entries are already expired
+	 */
+	public Duration getNextExpiration(Duration max)
+	{
+		if (!expired.isEmpty())
+		{
+			return Duration.ZERO;
+		}
+		var now = clock.getAsLong() - startTime;
+		var maxTicks = Math.min(max.toNanos() / tickDuration + 1, (long) mask + 1);
+		for (var tick = currentTick + 1; tick <= currentTick + maxTicks; tick++)
+		{
+			for (var entry : slots.get((int) (tick & mask)))
+			{
+				if (deadlines.get(entry) == tick)
+				{
+					var delay = Duration.ofNanos(Math.max(tick * tickDuration - now, 0L));
+					return delay.compareTo(max) < 0 ? delay : max;
+				}
+			}
+		}
+		return max;
+	}
+
+	private long getNowTick()
+	{
+		return (clock.getAsLong() - startTime) / tickDuration;
+	}
+}
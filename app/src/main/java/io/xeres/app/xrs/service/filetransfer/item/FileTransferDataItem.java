@@ -19,30 +19,41 @@
 
 package io.xeres.app.xrs.service.filetransfer.item;
 
+import io.netty.buffer.ByteBuf;
 import io.xeres.app.xrs.common.FileData;
 import io.xeres.app.xrs.common.FileItem;
 import io.xeres.app.xrs.item.Item;
 import io.xeres.app.xrs.item.ItemPriority;
-import io.xeres.app.xrs.serialization.RsSerialized;
+import io.xeres.app.xrs.serialization.RsSerializable;
+import io.xeres.app.xrs.serialization.SerializationFlags;
+import io.xeres.app.xrs.serialization.TlvSerializer;
 import io.xeres.common.id.Sha1Sum;
 import io.xeres.common.protocol.xrs.RsServiceType;
 
+import java.util.Set;
+
 import static io.xeres.app.xrs.serialization.TlvType.FILE_DATA;
 
-public class FileTransferDataItem extends Item
+public class FileTransferDataItem extends Item implements RsSerializable
 {
-	@RsSerialized(tlvType = FILE_DATA)
 	private FileData fileData;
 
+	/**
+	 * Outgoing data. It's written directly into the item's buffer when serializing, which avoids copying it into
+	 * an array first. The buffer is owned by the caller.
+	 */
+	private ByteBuf data;
+
 	@SuppressWarnings("unused")
 	public FileTransferDataItem()
 	{
 	}
 
-	public FileTransferDataItem(long offset, long size, Sha1Sum hash, byte[] data)
+	public FileTransferDataItem(long offset, long size, Sha1Sum hash, ByteBuf data)
 	{
 		var fileItem = new FileItem(size, hash, "", "", 0);
-		fileData = new FileData(fileItem, offset, data);
+		fileData = new FileData(fileItem, offset, null);
+		this.data = data;
 	}
 
 	@Override
@@ -68,6 +79,22 @@ public class FileTransferDataItem extends Item
 		return fileData;
 	}
 
+	@Override
+	public int writeObject(ByteBuf buf, Set<SerializationFlags> serializationFlags)
+	{
+		if (data != null)
+		{
+			return TlvSerializer.serializeTlvFileData(buf, fileData.fileItem(), fileData.offset(), data);
+		}
+		return TlvSerializer.serialize(buf, FILE_DATA, fileData);
+	}
+
+	@Override
+	public void readObject(ByteBuf buf)
+	{
+		fileData = (FileData) TlvSerializer.deserialize(buf, FILE_DATA);
+	}
+
 	@Override
 	public FileTransferDataItem clone()
 	{
@@ -79,6 +106,7 @@ public class FileTransferDataItem extends Item
 	{
 		return "FileTransferDataItem{" +
 				"fileData=" + fileData +
+				(data != null ? ", data.readableBytes=" + data.readableBytes() : "") +
 				'}';
 	}
 }
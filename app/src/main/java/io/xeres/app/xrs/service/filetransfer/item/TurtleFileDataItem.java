@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,21 +19,29 @@
 
 package io.xeres.app.xrs.service.filetransfer.item;
 
-import io.xeres.app.xrs.serialization.RsSerialized;
+import io.netty.buffer.ByteBuf;
+import io.xeres.app.xrs.serialization.RsSerializable;
+import io.xeres.app.xrs.serialization.SerializationFlags;
 import io.xeres.app.xrs.service.turtle.item.TurtleGenericTunnelItem;
 
 import java.util.Arrays;
+import java.util.Set;
 
+import static io.xeres.app.xrs.serialization.Serializer.*;
 import static io.xeres.app.xrs.service.turtle.item.TunnelDirection.CLIENT;
 
-public class TurtleFileDataItem extends TurtleGenericTunnelItem
+public class TurtleFileDataItem extends TurtleGenericTunnelItem implements RsSerializable
 {
-	@RsSerialized
 	private long chunkOffset;
 
-	@RsSerialized
 	private byte[] chunkData;
 
+	/**
+	 * Outgoing data. It's written directly into the item's buffer when serializing, which avoids copying it into
+	 * an array first. The buffer is owned by the caller.
+	 */
+	private ByteBuf chunkBuffer;
+
 	public TurtleFileDataItem()
 	{
 		setDirection(CLIENT);
@@ -46,6 +54,13 @@ public class TurtleFileDataItem extends TurtleGenericTunnelItem
 		this.chunkData = chunkData;
 	}
 
+	public TurtleFileDataItem(long chunkOffset, ByteBuf chunkBuffer)
+	{
+		this();
+		this.chunkOffset = chunkOffset;
+		this.chunkBuffer = chunkBuffer;
+	}
+
 	@Override
 	public boolean shouldStampTunnel()
 	{
@@ -68,6 +83,32 @@ public class TurtleFileDataItem extends TurtleGenericTunnelItem
 		return chunkData;
 	}
 
+	@Override
+	public int writeObject(ByteBuf buf, Set<SerializationFlags> serializationFlags)
+	{
+		var size = 0;
+
+		size += serialize(buf, getTunnelId());
+		size += serialize(buf, chunkOffset);
+		if (chunkBuffer != null)
+		{
+			size += serialize(buf, chunkBuffer);
+		}
+		else
+		{
+			size += serialize(buf, chunkData);
+		}
+		return size;
+	}
+
+	@Override
+	public void readObject(ByteBuf buf)
+	{
+		setTunnelId(deserializeInt(buf));
+		chunkOffset = deserializeLong(buf);
+		chunkData = deserializeByteArray(buf);
+	}
+
 	@Override
 	public TurtleFileDataItem clone()
 	{
@@ -79,7 +120,7 @@ public class TurtleFileDataItem extends TurtleGenericTunnelItem
 	{
 		return "TurtleFileDataItem{" +
 				"chunkOffset=" + chunkOffset +
-				", chunkData=" + Arrays.toString(chunkData) +
+				", chunkData=" + (chunkBuffer != null ? "[buffer of " + chunkBuffer.readableBytes() + " bytes]" : Arrays.toString(chunkData)) +
 				'}';
 	}
 }
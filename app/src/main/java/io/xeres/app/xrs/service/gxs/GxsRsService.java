@@ -19,6 +19,7 @@
 
 package io.xeres.app.xrs.service.gxs;
 
+import io.micrometer.core.instrument.Metrics;
 import io.xeres.app.crypto.hash.sha1.Sha1MessageDigest;
 import io.xeres.app.crypto.rsa.RSA;
 import io.xeres.app.database.DatabaseSession;
@@ -793,6 +794,9 @@ public abstract class GxsRsService<G extends GxsGroupItem, M extends GxsMessageI
 	private void verifyAndStoreGroups(PeerConnection peerConnection, Collection<G> groups)
 	{
 		List<G> savedGroups = new ArrayList<>(groups.size());
+		var start = System.nanoTime();
+		var rejected = 0;
+		var delayed = 0;
 
 		for (var group : groups)
 		{
@@ -805,6 +809,7 @@ public abstract class GxsRsService<G extends GxsGroupItem, M extends GxsMessageI
 				if (group.getAuthorGxsId() == null)
 				{
 					log.warn("Failed to validate group {}: missing author id", group);
+					rejected++;
 					continue;
 				}
 
@@ -815,6 +820,7 @@ public abstract class GxsRsService<G extends GxsGroupItem, M extends GxsMessageI
 				}
 				else if (validation == VerificationStatus.DELAYED)
 				{
+					delayed++;
 					continue;
 				}
 				else if (validation == VerificationStatus.FAILED)
@@ -838,11 +844,13 @@ public abstract class GxsRsService<G extends GxsGroupItem, M extends GxsMessageI
 			else if (validation == VerificationStatus.FAILED)
 			{
 				addRejectedGroup(group.getGxsId());
+				rejected++;
 			}
 
 			// If the group verification was delayed or failed, remove it
 			pendingGxsGroups.computeIfPresent(group, (_, _) -> -1L);
 		}
+		recordVerification("group", System.nanoTime() - start, groups.size(), savedGroups.size(), rejected, delayed);
 
 		if (!savedGroups.isEmpty())
 		{
@@ -1038,6 +1046,9 @@ public abstract class GxsRsService<G extends GxsGroupItem, M extends GxsMessageI
 		List<CommentMessageItem> savedComments = new ArrayList<>();
 		List<VoteMessageItem> savedVotes = new ArrayList<>();
 		Map<GxsId, Instant> lastPostedMap = new HashMap<>();
+		var start = System.nanoTime();
+		var rejected = 0;
+		var delayed = 0;
 
 		for (var message : messages)
 		{
@@ -1059,6 +1070,7 @@ public abstract class GxsRsService<G extends GxsGroupItem, M extends GxsMessageI
 				}
 				else if (validation == VerificationStatus.DELAYED)
 				{
+					delayed++;
 					continue;
 				}
 				else if (validation == VerificationStatus.FAILED)
@@ -1088,11 +1100,13 @@ public abstract class GxsRsService<G extends GxsGroupItem, M extends GxsMessageI
 			else
 			{
 				addRejectedMessage(message.getMsgId());
+				rejected++;
 			}
 
 			// If the message verification was delayed, remove it
 			pendingGxsMessages.computeIfPresent(message, (_, _) -> -1L);
 		}
+		recordVerification("message", System.nanoTime() - start, messages.size(), savedMessages.size() + savedComments.size() + savedVotes.size(), rejected, delayed);
 
 		if (!savedMessages.isEmpty())
 		{
@@ -1112,6 +1126,27 @@ public abstract class GxsRsService<G extends GxsGroupItem, M extends GxsMessageI
 		lastPostedMap.forEach(gxsHelperService::updateLastPosted);
 	}
 
+	/**
+	 * Records the verification of a batch of groups or messages. Those that were valid but not saved
+	 * were known already.
+	 *
+	 * @param type     the type, "group" or "message"
+	 * @param nanos    the time taken to verify and save the batch
+	 * @param total    the size of the batch
+	 * @param saved    how many were saved
+	 * @param rejected how many failed verification
+	 * @param delayed  how many will be verified later because the author's identity is missing
+	 */
+	private void recordVerification(String type, long nanos, int total, int saved, int rejected, int delayed)
+	{
+		var service = getServiceType().getName();
+		Metrics.timer("xrs.gxs.verification", "service", service, "type", type).record(nanos, TimeUnit.NANOSECONDS);
+		Metrics.counter("xrs.gxs.items", "service", service, "type", type, "result", "saved").increment(saved);
+		Metrics.counter("xrs.gxs.items", "service", service, "type", type, "result", "known").increment(Math.max(total - saved - rejected - delayed, 0));
+		Metrics.counter("xrs.gxs.items", "service", service, "type", type, "result", "rejected").increment(rejected);
+		Metrics.counter("xrs.gxs.items", "service", service, "type", type, "result", "delayed").increment(delayed);
+	}
+
 	protected void markOriginalMessageAsHidden(Collection<? extends GxsMessageItem> gxsMessageItems)
 	{
 		gxsMessageItems.forEach(gxsMessageItem -> {
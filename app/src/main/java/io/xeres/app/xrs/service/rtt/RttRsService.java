@@ -20,6 +20,7 @@
 package io.xeres.app.xrs.service.rtt;
 
 import io.xeres.app.application.events.PeerDisconnectedEvent;
+import io.xeres.app.database.model.location.Location;
 import io.xeres.app.net.peer.PeerConnection;
 import io.xeres.app.net.peer.PeerConnectionManager;
 import io.xeres.app.xrs.item.Item;
@@ -43,6 +44,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static io.xeres.common.protocol.xrs.RsServiceType.RTT;
@@ -155,6 +157,22 @@ public class RttRsService extends RsService
 		}
 	}
 
+	/**
+	 * Gets the last measured round trip time to a peer.
+	 *
+	 * @param location the location
+	 * @return the RTT, empty if the peer isn't connected or wasn't measured yet
+	 */
+	public Optional<Duration> getRtt(Location location)
+	{
+		var peerConnection = peerConnectionManager.getPeerByLocation(location.getId());
+		if (peerConnection == null)
+		{
+			return Optional.empty();
+		}
+		return peerConnection.getServiceData(this, KEY_RTT).map(rtt -> Duration.ofMillis((long) rtt));
+	}
+
 	public RttStatisticsResponse getStatistics()
 	{
 		List<RttPeer> rttPeers = new ArrayList<>(peerConnectionManager.getNumberOfPeers());
@@ -0,0 +1,5 @@
+--
+-- Add file keys (device and inode) so that moved files don't need to be hashed again
+--
+ALTER TABLE file ADD COLUMN file_key VARCHAR(64) DEFAULT NULL AFTER modified;
+CREATE INDEX idx_file_key ON file (file_key);
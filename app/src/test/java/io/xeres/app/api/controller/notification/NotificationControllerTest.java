@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -20,6 +20,7 @@
 package io.xeres.app.api.controller.notification;
 
 import io.xeres.app.api.controller.AbstractControllerTest;
+import io.xeres.app.service.notification.NotificationService;
 import io.xeres.app.service.notification.availability.AvailabilityNotificationService;
 import io.xeres.app.service.notification.board.BoardNotificationService;
 import io.xeres.app.service.notification.channel.ChannelNotificationService;
@@ -29,15 +30,23 @@ import io.xeres.app.service.notification.file.FileSearchNotificationService;
 import io.xeres.app.service.notification.file.FileTrendNotificationService;
 import io.xeres.app.service.notification.forum.ForumNotificationService;
 import io.xeres.app.service.notification.status.StatusNotificationService;
+import io.xeres.common.rest.notification.status.NatStatus;
+import io.xeres.common.rest.notification.status.StatusNotification;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.core.type.TypeReference;
+
+import java.time.Duration;
+import java.util.List;
 
 import static io.xeres.common.rest.PathConfig.NOTIFICATIONS_PATH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(NotificationController.class)
@@ -171,4 +180,42 @@ class NotificationControllerTest extends AbstractControllerTest
 		mvc.perform(get(BASE_URL + "/file-trend", MediaType.TEXT_EVENT_STREAM))
 				.andExpect(status().isOk());
 	}
+
+	/**
+	 * Sends notifications through a real emitter and reads them back the way the client does.
+	 */
+	@Test
+	void SetupStatusNotification_RoundTrip() throws Exception
+	{
+		var notificationService = new NotificationService()
+		{
+			@Override
+			protected Duration getFlushInterval()
+			{
+				return Duration.ZERO;
+			}
+		};
+		var notification = new StatusNotification(1, 2, NatStatus.UPNP, null);
+
+		when(statusNotificationService.addClient()).thenAnswer(_ -> notificationService.addClient());
+
+		var result = mvc.perform(get(BASE_URL + "/status", MediaType.TEXT_EVENT_STREAM))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		notificationService.sendNotification(notification);
+
+		var events = result.getResponse().getContentAsString().lines()
+				.filter(line -> line.startsWith("data:"))
+				.map(line -> line.substring("data:".length()))
+				.toList();
+
+		assertEquals(1, events.size());
+		var notifications = objectMapper.readValue(events.getFirst(), new TypeReference<List<StatusNotification>>()
+		{
+		});
+		assertEquals(List.of(notification), notifications);
+
+		notificationService.shutdown();
+	}
 }
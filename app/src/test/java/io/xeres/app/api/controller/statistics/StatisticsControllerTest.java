@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2025-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -20,14 +20,22 @@
 package io.xeres.app.api.controller.statistics;
 
 import io.xeres.app.api.controller.AbstractControllerTest;
+import io.xeres.app.job.PeerConnectionJob;
+import io.xeres.app.net.peer.ssl.HandshakeStatistics;
 import io.xeres.app.xrs.service.bandwidth.BandwidthRsService;
 import io.xeres.app.xrs.service.rtt.RttRsService;
 import io.xeres.app.xrs.service.turtle.TurtleRsService;
 import io.xeres.app.xrs.service.turtle.TurtleStatistics;
+import io.xeres.common.rest.statistics.ConnectionStatisticsResponse;
 import io.xeres.common.rest.statistics.DataCounterPeer;
 import io.xeres.common.rest.statistics.DataCounterStatisticsResponse;
+import io.xeres.common.rest.statistics.HandshakeStatisticsResponse;
 import io.xeres.common.rest.statistics.RttPeer;
 import io.xeres.common.rest.statistics.RttStatisticsResponse;
+import io.xeres.common.rest.statistics.TrafficPeer;
+import io.xeres.common.rest.statistics.TrafficResolution;
+import io.xeres.common.rest.statistics.TrafficService;
+import io.xeres.common.rest.statistics.TrafficStatisticsResponse;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
@@ -57,6 +65,12 @@ class StatisticsControllerTest extends AbstractControllerTest
 	@MockitoBean
 	private BandwidthRsService bandwidthRsService;
 
+	@MockitoBean
+	private PeerConnectionJob peerConnectionJob;
+
+	@MockitoBean
+	private HandshakeStatistics handshakeStatistics;
+
 	@Test
 	void GetTurtleStatistics_Success() throws Exception
 	{
@@ -103,4 +117,50 @@ class StatisticsControllerTest extends AbstractControllerTest
 
 		verify(bandwidthRsService).getDataCounterStatistics();
 	}
-}
\ No newline at end of file
+
+	@Test
+	void GetTrafficStatistics_Success() throws Exception
+	{
+		var trafficService = new TrafficService(0x11, "disc", new long[]{0L, 2048L}, new long[]{1024L, 0L});
+		var trafficPeer = new TrafficPeer(1L, "foo", 0x11, "disc", 2048L, 1024L, 4L, 2L);
+		var stats = new TrafficStatisticsResponse(TrafficResolution.MINUTES, 720L, List.of(trafficService), List.of(trafficPeer));
+		when(bandwidthRsService.getTrafficStatistics(TrafficResolution.MINUTES, 2)).thenReturn(stats);
+
+		mvc.perform(getJson(BASE_URL + "/traffic?resolution=MINUTES&buckets=2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.resolution").value(is("MINUTES"), String.class))
+				.andExpect(jsonPath("$.peers.[0].serviceName").value(is("disc"), String.class))
+				.andExpect(jsonPath("$.peers.[0].sentBytes").value(is(2048L), Long.class))
+				.andExpect(jsonPath("$.services.[0].sent.[1]").value(is(2048L), Long.class));
+
+		verify(bandwidthRsService).getTrafficStatistics(TrafficResolution.MINUTES, 2);
+	}
+
+	@Test
+	void GetConnectionStatistics_Success() throws Exception
+	{
+		when(peerConnectionJob.getStatistics()).thenReturn(new ConnectionStatisticsResponse(3, 12, 45_000L));
+
+		mvc.perform(getJson(BASE_URL + "/connections"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.dialing").value(is(3), Integer.class))
+				.andExpect(jsonPath("$.backingOff").value(is(12), Integer.class))
+				.andExpect(jsonPath("$.reconnectAllTime").value(is(45_000L), Long.class));
+
+		verify(peerConnectionJob).getStatistics();
+	}
+
+	@Test
+	void GetHandshakeStatistics_Success() throws Exception
+	{
+		when(handshakeStatistics.getStatistics()).thenReturn(new HandshakeStatisticsResponse(10L, 1L, 6L, 120L, 450L, 900L, 1_200L));
+
+		mvc.perform(getJson(BASE_URL + "/handshakes"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.handshakes").value(is(10L), Long.class))
+				.andExpect(jsonPath("$.verificationsSkipped").value(is(6L), Long.class))
+				.andExpect(jsonPath("$.p90").value(is(450L), Long.class));
+
+		verify(handshakeStatistics).getStatistics();
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.configuration;
+
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.xeres.common.util.RemoteUtils;
+import io.xeres.ui.configuration.ControlClientHttpConnector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRoutes;
+
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.cert.CertificateException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the round trips of the UI to the core when running in the same process (Unix domain socket, plain HTTP)
+ * and when running remotely (TCP, HTTPS). The server returns canned JSON bodies so that only the transport is measured.
+ * <p>
+ * Only runs with {@code -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ControlTransportBenchmarkTest
+{
+	private static final Logger log = LoggerFactory.getLogger(ControlTransportBenchmarkTest.class);
+
+	private static final int WARMUP = 200;
+	private static final int ITERATIONS = 1000;
+	private static final int COLD_ITERATIONS = 20;
+	private static final int FORUM_PAGE_SIZE = 50;
+
+	private static final String FORUM_PATH = "/api/v1/forums/groups/1/messages";
+	private static final String CHAT_PATH = "/api/v1/chat/rooms/1/messages";
+	private static final String CHAT_MESSAGE = "{\"roomId\":1,\"content\":\"Hello, this is a short chat message\"}";
+
+	private static final String FORUM_PAGE = createForumPage();
+
+	private static SelfSignedCertificate certificate;
+	private static Path socketDirectory;
+	private static DisposableServer networkServer;
+	private static DisposableServer socketServer;
+
+	@BeforeAll
+	static void setup() throws CertificateException, IOException
+	{
+		certificate = new SelfSignedCertificate();
+		var sslContext = SslContextBuilder.forServer(certificate.certificate(), certificate.privateKey()).build();
+		networkServer = HttpServer.create()
+				.host("127.0.0.1")
+				.port(0)
+				.secure(spec -> spec.sslContext(sslContext))
+				.route(ControlTransportBenchmarkTest::routes)
+				.bindNow();
+
+		socketDirectory = Files.createTempDirectory("xeres");
+		var socketPath = socketDirectory.resolve("control.sock");
+		socketServer = HttpServer.create()
+				.bindAddress(() -> UnixDomainSocketAddress.of(socketPath))
+				.route(ControlTransportBenchmarkTest::routes)
+				.bindNow();
+		RemoteUtils.setControlSocket(socketPath);
+	}
+
+	@AfterAll
+	static void tearDown() throws IOException
+	{
+		System.clearProperty("xrs.ui.socket-path");
+		networkServer.disposeNow();
+		socketServer.disposeNow();
+		certificate.delete();
+		Files.deleteIfExists(socketDirectory.resolve("control.sock"));
+		Files.deleteIfExists(socketDirectory);
+	}
+
+	@Test
+	void ForumPage_RoundTrip()
+	{
+		var network = measure(ControlTransportBenchmarkTest::createNetworkClient, ControlTransportBenchmarkTest::getForumPage, ITERATIONS);
+		var socket = measure(ControlTransportBenchmarkTest::createSocketClient, ControlTransportBenchmarkTest::getForumPage, ITERATIONS);
+
+		log.info("Forum page of {} bytes, HTTPS over TCP: {}, HTTP over local socket: {}", FORUM_PAGE.length(), network, socket);
+	}
+
+	@Test
+	void ChatMessage_RoundTrip()
+	{
+		var network = measure(ControlTransportBenchmarkTest::createNetworkClient, ControlTransportBenchmarkTest::sendChatMessage, ITERATIONS);
+		var socket = measure(ControlTransportBenchmarkTest::createSocketClient, ControlTransportBenchmarkTest::sendChatMessage, ITERATIONS);
+
+		log.info("Chat message, HTTPS over TCP: {}, HTTP over local socket: {}", network, socket);
+	}
+
+	/**
+	 * Measures the first request of a new client, which includes establishing the connection. That's
+	 * what every client pays at startup.
+	 */
+	@Test
+	void ChatMessage_Cold()
+	{
+		var network = measureCold(ControlTransportBenchmarkTest::createNetworkClient);
+		var socket = measureCold(ControlTransportBenchmarkTest::createSocketClient);
+
+		log.info("First request of a new client, HTTPS over TCP: {}, HTTP over local socket: {}", network, socket);
+	}
+
+	private static void getForumPage(WebClient webClient)
+	{
+		var page = webClient.get()
+				.uri(FORUM_PATH)
+				.retrieve()
+				.bodyToMono(String.class)
+				.block();
+		assertEquals(FORUM_PAGE.length(), page.length());
+	}
+
+	private static void sendChatMessage(WebClient webClient)
+	{
+		var echo = webClient.post()
+				.uri(CHAT_PATH)
+				.bodyValue(CHAT_MESSAGE)
+				.retrieve()
+				.bodyToMono(String.class)
+				.block();
+		assertEquals(CHAT_MESSAGE, echo);
+	}
+
+	private static Result measure(Supplier<WebClient> clientSupplier, Consumer<WebClient> roundTrip, int iterations)
+	{
+		var webClient = clientSupplier.get();
+		for (var i = 0; i < WARMUP; i++)
+		{
+			roundTrip.accept(webClient);
+		}
+		var samples = new long[iterations];
+		for (var i = 0; i < iterations; i++)
+		{
+			var start = System.nanoTime();
+			roundTrip.accept(webClient);
+			samples[i] = System.nanoTime() - start;
+		}
+		return new Result(samples);
+	}
+
+	private static Result measureCold(Supplier<WebClient> clientSupplier)
+	{
+		measure(clientSupplier, ControlTransportBenchmarkTest::sendChatMessage, 1); // Loads the classes
+		var samples = new long[COLD_ITERATIONS];
+		for (var i = 0; i < COLD_ITERATIONS; i++)
+		{
+			var webClient = clientSupplier.get();
+			var start = System.nanoTime();
+			sendChatMessage(webClient);
+			samples[i] = System.nanoTime() - start;
+		}
+		return new Result(samples);
+	}
+
+	private static WebClient createNetworkClient()
+	{
+		try
+		{
+			var sslContext = SslContextBuilder.forClient()
+					.trustManager(InsecureTrustManagerFactory.INSTANCE)
+					.build();
+			var httpClient = HttpClient.create().secure(spec -> spec.sslContext(sslContext));
+			return WebClient.builder()
+					.clientConnector(new ReactorClientHttpConnector(httpClient))
+					.baseUrl("https://127.0.0.1:" + networkServer.port())
+					.build();
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static WebClient createSocketClient()
+	{
+		return WebClient.builder()
+				.clientConnector(new ControlClientHttpConnector(new ReactorClientHttpConnector()))
+				.baseUrl(RemoteUtils.getControlUrl())
+				.build();
+	}
+
+	private static void routes(HttpServerRoutes routes)
+	{
+		routes.get(FORUM_PATH, (_, response) -> response.header("Content-Type", "application/json").sendString(Mono.just(FORUM_PAGE)))
+				.post(CHAT_PATH, (request, response) -> response.header("Content-Type", "application/json").send(request.receive().retain()));
+	}
+
+	private static String createForumPage()
+	{
+		var content = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(16);
+		var messages = new StringBuilder();
+		for (var i = 0; i < FORUM_PAGE_SIZE; i++)
+		{
+			if (i > 0)
+			{
+				messages.append(',');
+			}
+			messages.append("{\"id\":").append(i)
+					.append(",\"authorName\":\"Author ").append(i)
+					.append("\",\"name\":\"Subject ").append(i)
+					.append("\",\"published\":\"2026-01-01T00:00:00Z\",\"content\":\"").append(content)
+					.append("\",\"read\":false}");
+		}
+		return "{\"content\":[" + messages + "],\"page\":{\"size\":" + FORUM_PAGE_SIZE + ",\"number\":0,\"totalElements\":1000,\"totalPages\":20}}";
+	}
+
+	private record Result(long[] samples)
+	{
+		Result
+		{
+			samples = samples.clone();
+			Arrays.sort(samples);
+		}
+
+		Duration percentile(int percent)
+		{
+			return Duration.ofNanos(samples[Math.min(samples.length * percent / 100, samples.length - 1)]);
+		}
+
+		@Override
+		public String toString()
+		{
+			return "p50 " + percentile(50).toNanos() / 1000 + " µs, p99 " + percentile(99).toNanos() / 1000 + " µs";
+		}
+	}
+}
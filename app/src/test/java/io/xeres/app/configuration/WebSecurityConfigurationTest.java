@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.configuration;
+
+import io.xeres.app.service.SettingsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static io.xeres.app.configuration.WebSecurityConfiguration.METRICS_PATH;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(WebSecurityConfigurationTest.MetricsController.class)
+@Import({WebSecurityConfiguration.class, WebSecurityConfigurationTest.MetricsController.class})
+class WebSecurityConfigurationTest
+{
+	@RestController
+	static class MetricsController
+	{
+		@GetMapping(METRICS_PATH)
+		String getMetrics()
+		{
+			return "metrics";
+		}
+	}
+
+	@MockitoBean
+	private SettingsService settingsService;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Test
+	void Metrics_LocalHost_Allowed() throws Exception
+	{
+		mvc.perform(get(METRICS_PATH).with(remoteAddress("127.0.0.1")))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void Metrics_LocalHostIpv6_Allowed() throws Exception
+	{
+		mvc.perform(get(METRICS_PATH).with(remoteAddress("0:0:0:0:0:0:0:1")))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void Metrics_Remote_Denied() throws Exception
+	{
+		mvc.perform(get(METRICS_PATH).with(remoteAddress("192.168.1.20")))
+				.andExpect(status().isUnauthorized());
+	}
+
+	private static RequestPostProcessor remoteAddress(String address)
+	{
+		return request -> {
+			request.setRemoteAddr(address);
+			return request;
+		};
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.configuration;
+
+import io.xeres.app.service.SettingsService;
+import io.xeres.common.util.RemoteUtils;
+import io.xeres.ui.configuration.ControlClientHttpConnector;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.tomcat.servlet.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.filter.DelegatingFilterProxy;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static io.xeres.app.configuration.WebSecurityConfiguration.METRICS_PATH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Sends requests through the control socket like the UI does, to the Tomcat connector, the valve
+ * and the security rules of the core.
+ */
+class WebServerConfigurationTest
+{
+	private static final String CONTROL_SOCKET_PROPERTY = "xrs.ui.socket-path";
+
+	private static AnnotationConfigWebApplicationContext context;
+	private static WebServer webServer;
+
+	@BeforeAll
+	static void setup()
+	{
+		System.clearProperty(CONTROL_SOCKET_PROPERTY);
+		var factory = new TomcatServletWebServerFactory(0);
+		WebServerConfiguration.addControlSocket(factory);
+		assumeTrue(RemoteUtils.getControlSocket() != null, "Unix domain sockets aren't supported");
+
+		context = new AnnotationConfigWebApplicationContext();
+		context.register(WebSecurityConfiguration.class);
+		context.registerBean(SettingsService.class, () -> mock(SettingsService.class));
+
+		webServer = factory.getWebServer(servletContext -> {
+			context.setServletContext(servletContext);
+			context.refresh();
+			servletContext.addFilter("springSecurityFilterChain", new DelegatingFilterProxy("springSecurityFilterChain", context))
+					.addMappingForUrlPatterns(null, false, "/*");
+			servletContext.addServlet("remoteAddress", new RemoteAddressServlet())
+					.addMapping("/*");
+		});
+		webServer.start();
+	}
+
+	@AfterAll
+	static void tearDown() throws IOException
+	{
+		if (webServer != null)
+		{
+			webServer.stop();
+			context.close();
+		}
+		var socketPath = RemoteUtils.getControlSocket();
+		if (socketPath != null)
+		{
+			Files.deleteIfExists(socketPath);
+			Files.deleteIfExists(socketPath.getParent());
+		}
+		System.clearProperty(CONTROL_SOCKET_PROPERTY);
+	}
+
+	@Test
+	void ControlSocket_LoopbackAddress()
+	{
+		assertEquals("127.0.0.1", get("/api/v1/config"));
+	}
+
+	@Test
+	void ControlSocket_Metrics_Allowed()
+	{
+		assertEquals("127.0.0.1", get(METRICS_PATH));
+	}
+
+	private static String get(String path)
+	{
+		return WebClient.builder()
+				.clientConnector(new ControlClientHttpConnector(new ReactorClientHttpConnector()))
+				.baseUrl(RemoteUtils.getControlUrl())
+				.build()
+				.get()
+				.uri(path)
+				.retrieve()
+				.bodyToMono(String.class)
+				.block();
+	}
+
+	private static class RemoteAddressServlet extends HttpServlet
+	{
+		@Override
+		protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException
+		{
+			response.setContentType("text/plain");
+			response.getWriter().write(request.getRemoteAddr());
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -25,6 +25,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -66,4 +67,20 @@ class RsCryptoTest
 
 		assertArrayEquals(plainText, decryptedText);
 	}
+
+	@Test
+	void DirectBuffer_Encrypt_Decrypt_Success()
+	{
+		var plainText = "zero copy".getBytes(StandardCharsets.UTF_8);
+		var direct = ByteBuffer.allocateDirect(plainText.length);
+		direct.put(plainText).flip();
+
+		for (var format : RsCrypto.EncryptionFormat.values())
+		{
+			var cipherText = RsCrypto.encryptAuthenticateData(key, direct.duplicate(), format);
+			var decryptedText = RsCrypto.decryptAuthenticateData(key, cipherText);
+
+			assertArrayEquals(plainText, decryptedText);
+		}
+	}
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindQueueTest
+{
+	@Test
+	void New_InvalidBatchSize_Throws()
+	{
+		assertThrows(IllegalArgumentException.class, () -> new WriteBehindQueue<Integer>("Test", 10, 0, _ -> {
+		}));
+		assertThrows(IllegalArgumentException.class, () -> new WriteBehindQueue<Integer>("Test", 10, 20, _ -> {
+		}));
+	}
+
+	@Test
+	void Add_NotStarted_Kept()
+	{
+		List<Integer> written = new ArrayList<>();
+		var queue = new WriteBehindQueue<Integer>("Test", 10, 5, written::addAll);
+
+		queue.add(1);
+
+		assertTrue(written.isEmpty());
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	void Add_Stopped_WritesImmediately()
+	{
+		List<Integer> written = new CopyOnWriteArrayList<>();
+		var queue = new WriteBehindQueue<Integer>("Test", 10, 5, written::addAll);
+		queue.start();
+		queue.shutdown();
+
+		queue.add(1);
+
+		assertEquals(List.of(1), written);
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	void Add_WrittenByThread() throws InterruptedException
+	{
+		var latch = new CountDownLatch(3);
+		List<Integer> written = new CopyOnWriteArrayList<>();
+		var queue = new WriteBehindQueue<Integer>("Test", 10, 5, batch -> {
+			written.addAll(batch);
+			batch.forEach(_ -> latch.countDown());
+		});
+		queue.start();
+
+		queue.add(1);
+		queue.add(2);
+		queue.add(3);
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of(1, 2, 3), written);
+		queue.shutdown();
+	}
+
+	@Test
+	void Flush_Batches()
+	{
+		List<List<Integer>> batches = new ArrayList<>();
+		var queue = new WriteBehindQueue<Integer>("Test", 10, 4, batch -> batches.add(List.copyOf(batch)));
+
+		for (var i = 0; i < 10; i++)
+		{
+			queue.add(i);
+		}
+		queue.flush();
+
+		assertEquals(List.of(List.of(0, 1, 2, 3), List.of(4, 5, 6, 7), List.of(8, 9)), batches);
+		assertEquals(3, queue.getFlushes());
+		assertEquals(10, queue.getWritten());
+		assertEquals(4, queue.getMaxBatchSize());
+	}
+
+	@Test
+	void Add_Full_FlushesOnCaller()
+	{
+		var written = new ArrayList<Integer>();
+		var queue = new WriteBehindQueue<Integer>("Test", 2, 2, written::addAll);
+
+		queue.add(1);
+		queue.add(2);
+		assertTrue(written.isEmpty());
+		queue.add(3);
+
+		assertEquals(List.of(1, 2), written);
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	void Write_Failure_Retried()
+	{
+		var written = new ArrayList<Integer>();
+		var failures = new AtomicInteger(1);
+		var queue = new WriteBehindQueue<Integer>("Test", 10, 1, batch -> {
+			if (batch.getFirst() == 1 && failures.getAndDecrement() > 0)
+			{
+				throw new IllegalStateException("Database is gone");
+			}
+			written.addAll(batch);
+		});
+
+		queue.add(1);
+		queue.add(2);
+		queue.flush();
+
+		assertTrue(written.isEmpty());
+		assertEquals(1, queue.size());
+
+		queue.flush();
+
+		assertEquals(List.of(1, 2), written);
+		assertEquals(3, queue.getFlushes());
+		assertEquals(2, queue.getWritten());
+	}
+
+	@Test
+	void Write_Failure_DroppedAfterAttempts()
+	{
+		var written = new ArrayList<Integer>();
+		var queue = new WriteBehindQueue<Integer>("Test", 10, 1, batch -> {
+			if (batch.getFirst() == 1)
+			{
+				throw new IllegalStateException("Bad entry");
+			}
+			written.addAll(batch);
+		});
+
+		queue.add(1);
+		queue.add(2);
+		for (var i = 0; i < WriteBehindQueue.WRITE_ATTEMPTS; i++)
+		{
+			queue.flush();
+		}
+
+		assertEquals(List.of(2), written);
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	void Shutdown_DoesntInterruptWriter()
+	{
+		List<Boolean> interrupted = new CopyOnWriteArrayList<>();
+		var queue = new WriteBehindQueue<Integer>("Test", 10, 5, _ -> interrupted.add(Thread.currentThread().isInterrupted()));
+		queue.start();
+
+		queue.add(1);
+		queue.shutdown();
+
+		assertFalse(interrupted.isEmpty());
+		assertFalse(interrupted.contains(true));
+	}
+
+	@Test
+	void Shutdown_WritesPending()
+	{
+		List<Integer> written = new CopyOnWriteArrayList<>();
+		var queue = new WriteBehindQueue<Integer>("Test", 10, 5, written::addAll);
+		queue.start();
+
+		queue.add(1);
+		queue.add(2);
+		queue.shutdown();
+
+		assertEquals(List.of(1, 2), written);
+		assertEquals(0, queue.size());
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,12 +19,22 @@
 
 package io.xeres.app.database.repository;
 
+import io.xeres.app.database.model.connection.ConnectionFakes;
+import io.xeres.app.database.model.location.Location;
 import io.xeres.app.database.model.location.LocationFakes;
 import io.xeres.app.database.model.profile.ProfileFakes;
+import io.xeres.common.location.Availability;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static io.xeres.app.net.protocol.PeerAddress.Type.IPV4;
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
@@ -34,6 +44,8 @@ class LocationRepositoryTest
 	private ProfileRepository profileRepository;
 	@Autowired
 	private LocationRepository locationRepository;
+	@Autowired
+	private EntityManager entityManager;
 
 	@Test
 	void CRUD_Success()
@@ -79,4 +91,61 @@ class LocationRepositoryTest
 		deleted = locationRepository.findById(location2.getId());
 		assertTrue(deleted.isEmpty());
 	}
-}
+
+	@Test
+	void FindAllByConnectedFalseWithConnections_Success()
+	{
+		var profile = profileRepository.save(ProfileFakes.createFreshProfile("test", 1));
+
+		var recent = LocationFakes.createFreshLocation("recent", profile);
+		recent.setLastConnected(Instant.now());
+		recent.addConnection(ConnectionFakes.createConnection());
+		recent.addConnection(ConnectionFakes.createConnection());
+		var old = LocationFakes.createFreshLocation("old", profile);
+		old.setLastConnected(Instant.now().minus(Duration.ofDays(1)));
+		old.addConnection(ConnectionFakes.createConnection());
+		var connected = LocationFakes.createFreshLocation("connected", profile);
+		connected.setConnected(true);
+		connected.addConnection(ConnectionFakes.createConnection());
+		var noAddress = LocationFakes.createFreshLocation("noAddress", profile);
+
+		profile.addLocation(recent);
+		profile.addLocation(old);
+		profile.addLocation(connected);
+		profile.addLocation(noAddress);
+		profileRepository.saveAndFlush(profile);
+
+		var locations = locationRepository.findAllByConnectedFalseWithConnections();
+
+		assertEquals(List.of("recent", "old"), locations.stream().map(Location::getName).toList());
+		assertEquals(2, locations.getFirst().getConnections().size());
+	}
+
+	@Test
+	void UpdateConnectionState_Success()
+	{
+		var profile = profileRepository.save(ProfileFakes.createFreshProfile("test", 1));
+		var location = LocationFakes.createFreshLocation("test", profile);
+		location.addConnection(ConnectionFakes.createConnection(IPV4, "1.2.3.4:1234", true));
+		location.addConnection(ConnectionFakes.createConnection(IPV4, "5.6.7.8:1234", true));
+		profile.addLocation(location);
+		profileRepository.saveAndFlush(profile);
+		var id = locationRepository.findAll().getFirst().getId();
+		var now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+		assertEquals(1, locationRepository.updateConnected(id, true, now));
+		assertEquals(1, locationRepository.updateAvailability(id, Availability.BUSY));
+		locationRepository.updateConnectionLastConnected(id, IPV4, true, "1.2.3.4:%", now);
+		locationRepository.updateConnectionLastConnected(id, IPV4, true, "1.2.3.4:%", now.minusSeconds(60)); // Older, ignored
+		entityManager.clear();
+
+		var updated = locationRepository.findById(id).orElseThrow();
+		assertTrue(updated.isConnected());
+		assertEquals(now, updated.getLastConnected());
+		assertEquals(Availability.BUSY, updated.getAvailability());
+		assertEquals(now, updated.getConnections().stream().filter(connection -> connection.getAddress().equals("1.2.3.4:1234")).findFirst().orElseThrow().getLastConnected());
+		assertNull(updated.getConnections().stream().filter(connection -> connection.getAddress().equals("5.6.7.8:1234")).findFirst().orElseThrow().getLastConnected());
+
+		assertEquals(0, locationRepository.updateConnected(id + 1000, false, now));
+	}
+}
\ No newline at end of file
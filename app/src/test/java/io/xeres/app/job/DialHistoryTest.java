@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.app.job;
+
+import org.junit.jupiter.api.Test;
+
+import static io.xeres.app.job.DialHistory.MAX_BACKOFF;
+import static io.xeres.app.job.DialHistory.MIN_BACKOFF;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DialHistoryTest
+{
+	private static final String ADDRESS = "1.1.1.1:1234";
+
+	@Test
+	void IsDue_Unknown()
+	{
+		var dialHistory = new DialHistory();
+
+		assertTrue(dialHistory.isDue(ADDRESS, 0L));
+		assertEquals(0, dialHistory.getFailures(ADDRESS));
+	}
+
+	@Test
+	void RecordFailure_Backoff()
+	{
+		var dialHistory = new DialHistory();
+
+		dialHistory.recordFailure(ADDRESS, 0L);
+
+		assertFalse(dialHistory.isDue(ADDRESS, MIN_BACKOFF.toNanos() / 2));
+		assertTrue(dialHistory.isDue(ADDRESS, MIN_BACKOFF.toNanos() * 2));
+		assertEquals(1, dialHistory.getBackingOff(0L));
+	}
+
+	@Test
+	void RecordSuccess_ResetsBackoff()
+	{
+		var dialHistory = new DialHistory();
+
+		dialHistory.recordFailure(ADDRESS, 0L);
+		dialHistory.recordFailure(ADDRESS, 0L);
+		dialHistory.recordSuccess(ADDRESS);
+
+		assertTrue(dialHistory.isDue(ADDRESS, 0L));
+		assertEquals(0, dialHistory.getFailures(ADDRESS));
+	}
+
+	@Test
+	void GetBackoff_Grows()
+	{
+		var previous = DialHistory.getBackoff(1);
+		assertTrue(previous.compareTo(MIN_BACKOFF.multipliedBy(12).dividedBy(10)) <= 0);
+
+		for (var failures = 2; failures < 8; failures++)
+		{
+			var backoff = DialHistory.getBackoff(failures);
+			assertTrue(backoff.compareTo(previous) > 0 || backoff.compareTo(MAX_BACKOFF.multipliedBy(8).dividedBy(10)) >= 0);
+			previous = backoff;
+		}
+		assertTrue(DialHistory.getBackoff(100).compareTo(MAX_BACKOFF.multipliedBy(12).dividedBy(10)) <= 0);
+	}
+
+	@Test
+	void Reset_MakesDue()
+	{
+		var dialHistory = new DialHistory();
+
+		dialHistory.recordFailure(ADDRESS, 0L);
+		dialHistory.reset(1L);
+
+		assertTrue(dialHistory.isDue(ADDRESS, 1L));
+		assertEquals(1, dialHistory.getFailures(ADDRESS));
+	}
+
+	@Test
+	void ForgetStale_Forgets()
+	{
+		var dialHistory = new DialHistory();
+
+		dialHistory.recordFailure(ADDRESS, 0L);
+		dialHistory.forgetStale(MIN_BACKOFF.toNanos() * 2);
+		assertEquals(1, dialHistory.getFailures(ADDRESS));
+
+		dialHistory.forgetStale(MAX_BACKOFF.toNanos() * 3);
+		assertEquals(0, dialHistory.getFailures(ADDRESS));
+	}
+}
\ No newline at end of file
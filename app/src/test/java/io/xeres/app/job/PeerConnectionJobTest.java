@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,21 +19,27 @@
 
 package io.xeres.app.job;
 
-import io.xeres.app.database.model.connection.ConnectionFakes;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.xeres.app.application.events.PeerConnectedEvent;
 import io.xeres.app.net.peer.bootstrap.PeerI2pClient;
 import io.xeres.app.net.peer.bootstrap.PeerTcpClient;
 import io.xeres.app.net.peer.bootstrap.PeerTorClient;
 import io.xeres.app.net.protocol.PeerAddress;
 import io.xeres.app.service.LocationService;
 import io.xeres.app.service.PeerService;
+import io.xeres.common.id.LocationIdentifier;
+import io.xeres.testutils.IdFakes;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.SequencedMap;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -65,19 +71,19 @@ class PeerConnectionJobTest
 		peerConnectionJob.checkConnections();
 
 		verify(peerService).isRunning();
-		verify(locationService, never()).getConnectionsToConnectTo(anyInt());
+		verify(locationService, never()).getAddressesToConnectTo(any());
 	}
 
 	@Test
 	void ConnectToPeers_TCP_Success()
 	{
 		when(peerService.isRunning()).thenReturn(true);
-		when(locationService.getConnectionsToConnectTo(anyInt())).thenReturn(List.of(ConnectionFakes.createConnection(PeerAddress.Type.IPV4, "1.1.1.1:1234", true)));
+		when(locationService.getAddressesToConnectTo(any())).thenReturn(createAddresses("1.1.1.1:1234"));
 
 		peerConnectionJob.checkConnections();
 
 		verify(peerService).isRunning();
-		verify(locationService).getConnectionsToConnectTo(anyInt());
+		verify(locationService).getAddressesToConnectTo(any());
 		verify(peerTcpClient).connect(any(PeerAddress.class));
 	}
 
@@ -85,12 +91,12 @@ class PeerConnectionJobTest
 	void ConnectToPeers_Tor_Success()
 	{
 		when(peerService.isRunning()).thenReturn(true);
-		when(locationService.getConnectionsToConnectTo(anyInt())).thenReturn(List.of(ConnectionFakes.createConnection(PeerAddress.Type.TOR, "2gzyxa5ihm7nsggfxnu52rck2vv4rvmdlkiu3zzui5du4xyclen53wid.onion:80", true)));
+		when(locationService.getAddressesToConnectTo(any())).thenReturn(createAddresses("2gzyxa5ihm7nsggfxnu52rck2vv4rvmdlkiu3zzui5du4xyclen53wid.onion:80"));
 
 		peerConnectionJob.checkConnections();
 
 		verify(peerService).isRunning();
-		verify(locationService).getConnectionsToConnectTo(anyInt());
+		verify(locationService).getAddressesToConnectTo(any());
 		verify(peerTorClient).connect(any(PeerAddress.class));
 	}
 
@@ -98,12 +104,83 @@ class PeerConnectionJobTest
 	void ConnectToPeers_I2p_Success()
 	{
 		when(peerService.isRunning()).thenReturn(true);
-		when(locationService.getConnectionsToConnectTo(anyInt())).thenReturn(List.of(ConnectionFakes.createConnection(PeerAddress.Type.TOR, "udhdrtrcetjm5sxzskjyr5ztpeszydbh4dpl3pl4utgqqw2v4jna.b32.i2p:80", true)));
+		when(locationService.getAddressesToConnectTo(any())).thenReturn(createAddresses("udhdrtrcetjm5sxzskjyr5ztpeszydbh4dpl3pl4utgqqw2v4jna.b32.i2p:80"));
 
 		peerConnectionJob.checkConnections();
 
 		verify(peerService).isRunning();
-		verify(locationService).getConnectionsToConnectTo(anyInt());
+		verify(locationService).getAddressesToConnectTo(any());
 		verify(peerI2pClient).connect(any(PeerAddress.class));
 	}
+
+	@Test
+	void ConnectToPeers_AllAddresses()
+	{
+		var addresses = List.of("1.1.1.1:1234", "192.168.1.2:1234");
+		SequencedMap<LocationIdentifier, List<String>> locations = new LinkedHashMap<>();
+		locations.put(IdFakes.createLocationIdentifier(), addresses);
+		when(peerService.isRunning()).thenReturn(true);
+		when(locationService.getAddressesToConnectTo(any())).thenReturn(locations);
+
+		peerConnectionJob.checkConnections();
+
+		verify(peerTcpClient, times(2)).connect(any(PeerAddress.class));
+	}
+
+	@Test
+	void ConnectToPeers_Backoff()
+	{
+		when(peerService.isRunning()).thenReturn(true);
+		when(locationService.getAddressesToConnectTo(any())).thenReturn(createAddresses("1.1.1.1:1234"));
+
+		peerConnectionJob.checkConnections();
+		peerConnectionJob.checkConnections();
+
+		verify(peerTcpClient, times(1)).connect(any(PeerAddress.class));
+		assertEquals(1, peerConnectionJob.getStatistics().backingOff());
+	}
+
+	@Test
+	void ConnectToPeers_AuthenticationPending_NotDialedAgain()
+	{
+		var channel = new EmbeddedChannel();
+		when(peerService.isRunning()).thenReturn(true);
+		when(locationService.getAddressesToConnectTo(any())).thenReturn(createAddresses("1.1.1.1:1234"));
+		when(peerTcpClient.connect(any(PeerAddress.class))).thenReturn(channel.newSucceededFuture());
+
+		peerConnectionJob.checkConnections();
+		peerConnectionJob.checkConnections();
+
+		verify(peerTcpClient, times(1)).connect(any(PeerAddress.class));
+		assertEquals(1, peerConnectionJob.getStatistics().dialing());
+
+		channel.close();
+
+		assertEquals(0, peerConnectionJob.getStatistics().dialing());
+	}
+
+	@Test
+	void ConnectToPeers_Authenticated_DialReleased()
+	{
+		var locationIdentifier = IdFakes.createLocationIdentifier();
+		SequencedMap<LocationIdentifier, List<String>> locations = new LinkedHashMap<>();
+		locations.put(locationIdentifier, List.of("1.1.1.1:1234"));
+		when(peerService.isRunning()).thenReturn(true);
+		when(locationService.getAddressesToConnectTo(any())).thenReturn(locations);
+		when(peerTcpClient.connect(any(PeerAddress.class))).thenReturn(new EmbeddedChannel().newSucceededFuture());
+
+		peerConnectionJob.checkConnections();
+		assertEquals(1, peerConnectionJob.getStatistics().dialing());
+
+		peerConnectionJob.onPeerConnectedEvent(new PeerConnectedEvent(1L, locationIdentifier));
+
+		assertEquals(0, peerConnectionJob.getStatistics().dialing());
+	}
+
+	private static SequencedMap<LocationIdentifier, List<String>> createAddresses(String address)
+	{
+		SequencedMap<LocationIdentifier, List<String>> locations = new LinkedHashMap<>();
+		locations.put(IdFakes.createLocationIdentifier(), List.of(address));
+		return locations;
+	}
 }
@@ -19,17 +19,32 @@
 
 package io.xeres.app.net.peer;
 
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.xeres.app.database.model.location.LocationFakes;
+import io.xeres.app.net.peer.traffic.TrafficHistory;
 import io.xeres.app.service.notification.availability.AvailabilityNotificationService;
 import io.xeres.app.service.notification.status.StatusNotificationService;
+import io.xeres.app.xrs.item.RawItem;
+import io.xeres.app.xrs.service.rtt.item.RttPingItem;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class PeerConnectionManagerTest
@@ -43,6 +58,9 @@ class PeerConnectionManagerTest
 	@Mock
 	ApplicationEventPublisher publisher;
 
+	@Spy
+	private TrafficHistory trafficHistory = new TrafficHistory();
+
 	@InjectMocks
 	private PeerConnectionManager peerConnectionManager;
 
@@ -65,8 +83,46 @@ class PeerConnectionManagerTest
 	{
 		var location = LocationFakes.createLocation();
 
-		peerConnectionManager.addPeer(location, new ChannelHandlerContextFake());
+		var peerConnection = peerConnectionManager.addPeer(location, new ChannelHandlerContextFake());
 		assertThrows(IllegalStateException.class, () -> peerConnectionManager.addPeer(location, new ChannelHandlerContextFake()));
+		assertEquals(peerConnection, peerConnectionManager.getPeerByLocation(location.getId()));
+	}
+
+	@Test
+	void addPeerSimultaneously() throws InterruptedException
+	{
+		var location = LocationFakes.createLocation();
+		var added = new AtomicInteger();
+		var start = new CountDownLatch(1);
+
+		List<Thread> threads = new ArrayList<>();
+		for (var i = 0; i < 8; i++)
+		{
+			threads.add(Thread.ofVirtual().start(() -> {
+				try
+				{
+					start.await();
+					peerConnectionManager.addPeer(location, new ChannelHandlerContextFake());
+					added.incrementAndGet();
+				}
+				catch (IllegalStateException _)
+				{
+					// Expected for all but one
+				}
+				catch (InterruptedException _)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}));
+		}
+		start.countDown();
+		for (var thread : threads)
+		{
+			thread.join();
+		}
+
+		assertEquals(1, added.get());
+		assertEquals(1, peerConnectionManager.getNumberOfPeers());
 	}
 
 	@Test
@@ -93,4 +149,33 @@ class PeerConnectionManagerTest
 	{
 		assertNull(peerConnectionManager.getRandomPeer());
 	}
-}
\ No newline at end of file
+
+	@Test
+	void writeItem_SeveralLocations_SerializedOnce()
+	{
+		var location1 = LocationFakes.createLocation();
+		var location2 = LocationFakes.createLocation();
+		var disconnected = LocationFakes.createLocation();
+		var channel1 = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		var channel2 = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		peerConnectionManager.addPeer(location1, channel1.pipeline().firstContext());
+		peerConnectionManager.addPeer(location2, channel2.pipeline().firstContext());
+		var item = spy(new RttPingItem(1, 2L));
+
+		var futures = peerConnectionManager.writeItem(List.of(location1, disconnected, location2), item, null);
+
+		verify(item).serializeItem(any());
+		assertEquals(List.of(location1, disconnected, location2), List.copyOf(futures.keySet()));
+		assertTrue(futures.get(location1).isSuccess());
+		assertTrue(futures.get(location2).isSuccess());
+		assertFalse(futures.get(disconnected).isSuccess());
+
+		RawItem rawItem1 = channel1.readOutbound();
+		RawItem rawItem2 = channel2.readOutbound();
+		assertArrayEquals(ByteBufUtil.getBytes(rawItem1.getBuffer()), ByteBufUtil.getBytes(rawItem2.getBuffer()));
+		assertEquals(2, rawItem1.getBuffer().refCnt()); // Only the written items hold a reference
+		rawItem1.dispose();
+		rawItem2.dispose();
+		assertEquals(0, rawItem2.getBuffer().refCnt());
+	}
+}
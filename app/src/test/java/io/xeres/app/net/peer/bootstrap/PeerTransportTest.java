@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.net.peer.bootstrap;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.xeres.app.properties.NetworkProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.xeres.app.properties.NetworkProperties.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerTransportTest
+{
+	private static final Logger log = LoggerFactory.getLogger(PeerTransportTest.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long TRANSFER_SIZE = 4L * 1024 * 1024;
+	private static final long BENCHMARK_SIZE = 256L * 1024 * 1024;
+
+	/**
+	 * A native transport can be a bit slower than NIO on a loaded machine, but not by much.
+	 */
+	private static final double MIN_NATIVE_RATIO = 0.8;
+
+	@Test
+	void Select_Nio()
+	{
+		assertEquals(PeerTransport.NIO, PeerTransport.select(TRANSPORT_NIO));
+	}
+
+	@Test
+	void Select_Auto()
+	{
+		var transport = PeerTransport.select(TRANSPORT_AUTO);
+
+		assertTrue(transport.isAvailable());
+		assertNotEquals(PeerTransport.IO_URING, transport);
+	}
+
+	@Test
+	void Select_Native_FallbackIfUnavailable()
+	{
+		assertTrue(PeerTransport.select(TRANSPORT_EPOLL).isAvailable());
+		assertTrue(PeerTransport.select(TRANSPORT_IO_URING).isAvailable());
+	}
+
+	@Test
+	void Select_Unknown_Failure()
+	{
+		assertThrows(IllegalArgumentException.class, () -> PeerTransport.select("foobar"));
+	}
+
+	@Test
+	void GetOptions_Nio_NoNativeOptions()
+	{
+		var networkProperties = new NetworkProperties();
+		networkProperties.setNotSentLowWaterMark(16);
+		networkProperties.setTcpFastOpen(true);
+
+		var options = PeerTransport.NIO.getSocketOptions(networkProperties, true);
+
+		assertEquals(1, options.size());
+		assertTrue(options.containsKey(ChannelOption.WRITE_BUFFER_WATER_MARK));
+		assertFalse(PeerTransport.NIO.getServerOptions(networkProperties).containsKey(ChannelOption.TCP_FASTOPEN));
+	}
+
+	/**
+	 * Sends some data over the loopback interface with each available transport.
+	 */
+	@Test
+	void Loopback_Transfer() throws InterruptedException
+	{
+		var networkProperties = new NetworkProperties();
+
+		for (var transport : PeerTransport.values())
+		{
+			if (transport.isAvailable())
+			{
+				var received = new AtomicLong();
+				measure(transport, networkProperties, received, TRANSFER_SIZE);
+
+				assertEquals(TRANSFER_SIZE, received.get(), transport.name());
+			}
+		}
+	}
+
+	/**
+	 * Sends data over the loopback interface with each available transport and checks that the native ones
+	 * are about as fast as NIO, at least. Only runs with {@code -Dbenchmark=true}.
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void Loopback_Throughput() throws InterruptedException
+	{
+		var networkProperties = new NetworkProperties();
+		Map<PeerTransport, Long> throughputs = new EnumMap<>(PeerTransport.class);
+
+		for (var transport : PeerTransport.values())
+		{
+			if (!transport.isAvailable())
+			{
+				log.info("{}: not available", transport);
+				continue;
+			}
+			var received = new AtomicLong();
+			var elapsed = measure(transport, networkProperties, received, BENCHMARK_SIZE);
+
+			assertEquals(BENCHMARK_SIZE, received.get());
+			var throughput = BENCHMARK_SIZE * 1_000_000_000L / elapsed / 1024 / 1024;
+			throughputs.put(transport, throughput);
+			log.info("{}: {} MB in {} ms, {} MB/s", transport, BENCHMARK_SIZE / 1024 / 1024, TimeUnit.NANOSECONDS.toMillis(elapsed), throughput);
+		}
+
+		var nio = throughputs.get(PeerTransport.NIO);
+		throughputs.forEach((transport, throughput) -> assertTrue(throughput >= nio * MIN_NATIVE_RATIO, transport + " is slower than NIO: " + throughput + " MB/s vs " + nio + " MB/s"));
+	}
+
+	private static long measure(PeerTransport transport, NetworkProperties networkProperties, AtomicLong received, long size) throws InterruptedException
+	{
+		var bossGroup = transport.createEventLoopGroup(1);
+		var workerGroup = transport.createEventLoopGroup(2);
+		var done = new CountDownLatch(1);
+		try
+		{
+			var serverBootstrap = new ServerBootstrap()
+					.group(bossGroup, workerGroup)
+					.channel(transport.getServerSocketChannelClass())
+					.childHandler(new ChannelInitializer<SocketChannel>()
+					{
+						@Override
+						protected void initChannel(SocketChannel ch)
+						{
+							ch.pipeline().addLast(new SimpleChannelInboundHandler<ByteBuf>()
+							{
+								@Override
+								protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg)
+								{
+									if (received.addAndGet(msg.readableBytes()) >= size)
+									{
+										done.countDown();
+									}
+								}
+							});
+						}
+					});
+			PeerTransport.setOptions(transport.getServerOptions(networkProperties), serverBootstrap::option);
+			PeerTransport.setOptions(transport.getSocketOptions(networkProperties, false), serverBootstrap::childOption);
+			var serverChannel = serverBootstrap.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+
+			var bootstrap = new Bootstrap()
+					.group(workerGroup)
+					.channel(transport.getSocketChannelClass())
+					.handler(new ChannelInitializer<SocketChannel>()
+					{
+						@Override
+						protected void initChannel(SocketChannel ch)
+						{
+							// Nothing to add, the client only writes
+						}
+					});
+			PeerTransport.setOptions(transport.getSocketOptions(networkProperties, true), bootstrap::option);
+			var channel = bootstrap.connect(serverChannel.localAddress()).sync().channel();
+
+			var data = channel.alloc().directBuffer(BUFFER_SIZE).writeZero(BUFFER_SIZE);
+			var start = System.nanoTime();
+			for (var sent = 0L; sent < size; sent += BUFFER_SIZE)
+			{
+				if (channel.isWritable())
+				{
+					channel.write(data.retainedDuplicate());
+				}
+				else
+				{
+					channel.writeAndFlush(data.retainedDuplicate()).sync(); // Waits for the buffer to drain
+				}
+			}
+			channel.flush();
+			assertTrue(done.await(60, TimeUnit.SECONDS));
+			var elapsed = System.nanoTime() - start;
+			data.release();
+
+			channel.close().sync();
+			serverChannel.close().sync();
+			return elapsed;
+		}
+		finally
+		{
+			workerGroup.shutdownGracefully();
+			bossGroup.shutdownGracefully();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.net.peer.ssl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HandshakeStatisticsTest
+{
+	@Test
+	void GetStatistics_Empty()
+	{
+		var statistics = new HandshakeStatistics().getStatistics();
+
+		assertEquals(0L, statistics.handshakes());
+		assertEquals(0L, statistics.p50());
+		assertEquals(0L, statistics.max());
+	}
+
+	@Test
+	void GetStatistics_Percentiles()
+	{
+		var handshakeStatistics = new HandshakeStatistics();
+		for (var i = 100; i >= 1; i--)
+		{
+			handshakeStatistics.addHandshake(Duration.ofMillis(i));
+		}
+		handshakeStatistics.addFailure();
+
+		var statistics = handshakeStatistics.getStatistics();
+
+		assertEquals(100L, statistics.handshakes());
+		assertEquals(1L, statistics.failed());
+		assertEquals(50L, statistics.p50());
+		assertEquals(90L, statistics.p90());
+		assertEquals(99L, statistics.p99());
+		assertEquals(100L, statistics.max());
+	}
+
+	@Test
+	void GetStatistics_OnlyRecentSamples()
+	{
+		var handshakeStatistics = new HandshakeStatistics();
+		for (var i = 0; i < 1000; i++)
+		{
+			handshakeStatistics.addHandshake(Duration.ofSeconds(10));
+		}
+		for (var i = 0; i < 1000; i++)
+		{
+			handshakeStatistics.addHandshake(Duration.ofMillis(20));
+		}
+
+		var statistics = handshakeStatistics.getStatistics();
+
+		assertEquals(2000L, statistics.handshakes());
+		assertEquals(20L, statistics.max());
+	}
+}
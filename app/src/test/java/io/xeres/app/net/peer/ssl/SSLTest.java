@@ -23,6 +23,7 @@ import io.xeres.app.crypto.pgp.PGP;
 import io.xeres.app.crypto.rsa.RSA;
 import io.xeres.app.crypto.rsid.RSSerialVersion;
 import io.xeres.app.crypto.x509.X509;
+import io.xeres.app.database.model.location.Location;
 import io.xeres.app.database.model.location.LocationFakes;
 import io.xeres.app.database.model.profile.Profile;
 import io.xeres.app.database.model.profile.ProfileFakes;
@@ -51,6 +52,11 @@ import java.security.cert.X509Certificate;
 import java.security.spec.InvalidKeySpecException;
 import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static io.xeres.app.net.peer.ConnectionType.*;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -138,6 +144,21 @@ class SSLTest
 		verify(locationService).findLocationByLocationIdentifier(any(LocationIdentifier.class));
 	}
 
+	@Test
+	void CheckPeerCertificate_Again_VerifiedAlready() throws CertificateException
+	{
+		var location = LocationFakes.createLocation("bar", profile);
+
+		when(locationService.findLocationByLocationIdentifier(any(LocationIdentifier.class))).thenReturn(Optional.of(location));
+
+		SSL.checkPeerCertificate(profileService, locationService, new X509Certificate[]{certificate});
+		var hits = SSL.getVerifiedCertificateHits();
+		var result = SSL.checkPeerCertificate(profileService, locationService, new X509Certificate[]{certificate});
+
+		assertEquals(location, result);
+		assertEquals(hits + 1, SSL.getVerifiedCertificateHits());
+	}
+
 	@Test
 	void CheckPeerCertificate_EmptyCertificate_Failure()
 	{
@@ -149,17 +170,16 @@ class SSLTest
 	}
 
 	@Test
-	void CheckPeerCertificate_AlreadyConnected_Failure()
+	void CheckPeerCertificate_ConnectedFlag_Success() throws CertificateException
 	{
 		var location = LocationFakes.createLocation("bar", profile);
-		location.setConnected(true);
+		location.setConnected(true); // Can be stale, simultaneous connections are refused by PeerConnectionManager
 
 		when(locationService.findLocationByLocationIdentifier(any(LocationIdentifier.class))).thenReturn(Optional.of(location));
 
-		assertThatThrownBy(() -> SSL.checkPeerCertificate(profileService, locationService, new X509Certificate[]{certificate}))
-				.isInstanceOf(CertificateException.class)
-				.hasMessage("Already connected");
+		var result = SSL.checkPeerCertificate(profileService, locationService, new X509Certificate[]{certificate});
 
+		assertEquals(location, result);
 		verify(locationService).findLocationByLocationIdentifier(any(LocationIdentifier.class));
 	}
 
@@ -192,4 +212,35 @@ class SSLTest
 		assertEquals("[Unknown]", newLocation.getSafeName());
 		assertEquals(newLocation.getProfile(), profile);
 	}
+
+	@Test
+	void CheckPeerCertificate_NewLocation_Concurrent_CreatedOnce() throws InterruptedException, ExecutionException
+	{
+		var saved = new AtomicReference<Location>();
+		var start = new CountDownLatch(1);
+
+		when(locationService.findLocationByLocationIdentifier(any(LocationIdentifier.class))).thenAnswer(_ -> Optional.ofNullable(saved.get()));
+		when(profileService.findProfileByPgpIdentifier(profile.getPgpIdentifier())).thenReturn(Optional.of(profile));
+		when(profileService.createOrUpdateProfile(profile)).thenAnswer(_ -> {
+			Thread.sleep(100); // Gives the other connection the time to look for the location
+			saved.set(LocationFakes.createLocation("bar", profile));
+			return profile;
+		});
+
+		try (var executorService = Executors.newFixedThreadPool(2))
+		{
+			Callable<Location> check = () -> {
+				start.await();
+				return SSL.checkPeerCertificate(profileService, locationService, new X509Certificate[]{certificate});
+			};
+			var incoming = executorService.submit(check);
+			var outgoing = executorService.submit(check);
+			start.countDown();
+
+			assertNotNull(incoming.get());
+			assertNotNull(outgoing.get());
+		}
+
+		verify(profileService).createOrUpdateProfile(profile);
+	}
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.net.peer.ssl;
+
+import io.xeres.app.database.model.profile.ProfileFakes;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VerifiedCertificateCacheTest
+{
+	@Test
+	void Create_WrongCapacity()
+	{
+		assertThrows(IllegalArgumentException.class, () -> new VerifiedCertificateCache(0));
+	}
+
+	@Test
+	void Contains_SameCertificateAndProfile() throws CertificateEncodingException
+	{
+		var cache = new VerifiedCertificateCache(4);
+		var profile = ProfileFakes.createProfile();
+		var certificate = createCertificate(1);
+
+		assertFalse(cache.contains(certificate, profile));
+		cache.add(certificate, profile);
+		assertTrue(cache.contains(createCertificate(1), profile));
+		assertEquals(1L, cache.getHits());
+		assertEquals(1L, cache.getMisses());
+	}
+
+	@Test
+	void Contains_OtherProfileOrCertificate() throws CertificateEncodingException
+	{
+		var cache = new VerifiedCertificateCache(4);
+		var profile = ProfileFakes.createProfile();
+		var certificate = createCertificate(1);
+
+		cache.add(certificate, profile);
+
+		assertFalse(cache.contains(certificate, ProfileFakes.createProfile()));
+		assertFalse(cache.contains(createCertificate(2), profile));
+	}
+
+	@Test
+	void Add_EvictsLeastRecentlyUsed() throws CertificateEncodingException
+	{
+		var cache = new VerifiedCertificateCache(2);
+		var profile = ProfileFakes.createProfile();
+
+		cache.add(createCertificate(1), profile);
+		cache.add(createCertificate(2), profile);
+		assertTrue(cache.contains(createCertificate(1), profile));
+		cache.add(createCertificate(3), profile);
+
+		assertEquals(2, cache.size());
+		assertTrue(cache.contains(createCertificate(1), profile));
+		assertFalse(cache.contains(createCertificate(2), profile));
+		assertTrue(cache.contains(createCertificate(3), profile));
+	}
+
+	private static X509Certificate createCertificate(int content) throws CertificateEncodingException
+	{
+		var certificate = mock(X509Certificate.class);
+		when(certificate.getEncoded()).thenReturn(new byte[]{1, 2, 3, (byte) content});
+		return certificate;
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.net.peer.traffic;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.xeres.common.rest.statistics.TrafficResolution;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficHistoryTest
+{
+	private static final int TURTLE = 0x14;
+	private static final int CHAT = 0x12;
+
+	@Test
+	void Sample_PerServiceAndDirection()
+	{
+		var trafficHistory = new TrafficHistory();
+		var counter = trafficHistory.acquireCounter(1L);
+
+		counter.addSent(TURTLE, 1000);
+		counter.addSent(TURTLE, 500);
+		counter.addReceived(CHAT, 100);
+		trafficHistory.sample();
+		counter.addSent(TURTLE, 200);
+		trafficHistory.sample();
+
+		var statistics = trafficHistory.getStatistics(TrafficResolution.SECONDS, 3600, id -> "peer" + id, type -> "service" + type);
+
+		assertEquals(1L, statistics.bucketDuration());
+		assertEquals(2, statistics.services().size());
+		assertEquals(2, statistics.peers().size());
+
+		var turtleService = statistics.services().getFirst();
+		assertEquals(TURTLE, turtleService.serviceType());
+		assertEquals("service" + TURTLE, turtleService.serviceName());
+		assertEquals(1500L, turtleService.sent()[3598]);
+		assertEquals(200L, turtleService.sent()[3599]);
+
+		var turtle = statistics.peers().getFirst();
+		assertEquals(1L, turtle.locationId());
+		assertEquals("peer1", turtle.name());
+		assertEquals(TURTLE, turtle.serviceType());
+		assertEquals(1700L, turtle.sentBytes());
+		assertEquals(3L, turtle.sentItems());
+		assertEquals(0L, turtle.receivedBytes());
+
+		var chat = statistics.peers().getLast();
+		assertEquals(CHAT, chat.serviceType());
+		assertEquals(100L, chat.receivedBytes());
+		assertEquals(1L, chat.receivedItems());
+	}
+
+	@Test
+	void Sample_Minutes()
+	{
+		var trafficHistory = new TrafficHistory();
+		var counter = trafficHistory.acquireCounter(1L);
+
+		for (var i = 0; i < 60; i++)
+		{
+			counter.addSent(TURTLE, 10);
+			trafficHistory.sample();
+		}
+		counter.addSent(TURTLE, 10); // Part of the current minute
+
+		var statistics = trafficHistory.getStatistics(TrafficResolution.MINUTES, 24, _ -> "peer", _ -> "turtle");
+
+		assertEquals(3600L, statistics.bucketDuration());
+		assertEquals(600L, statistics.services().getFirst().sent()[23]);
+		assertEquals(600L, statistics.peers().getFirst().sentBytes());
+	}
+
+	/**
+	 * The totals of the peers are kept per hour for the last day.
+	 */
+	@Test
+	void Sample_Hours()
+	{
+		var trafficHistory = new TrafficHistory();
+		var counter = trafficHistory.acquireCounter(1L);
+
+		for (var i = 0; i < 2 * 3600; i++)
+		{
+			counter.addSent(TURTLE, 1);
+			trafficHistory.sample();
+		}
+
+		assertEquals(3600L, trafficHistory.getStatistics(TrafficResolution.SECONDS, 1, _ -> "peer", _ -> "turtle").peers().getFirst().sentBytes());
+		assertEquals(7200L, trafficHistory.getStatistics(TrafficResolution.MINUTES, 1, _ -> "peer", _ -> "turtle").peers().getFirst().sentBytes());
+	}
+
+	@Test
+	void ReleaseCounter_Removed()
+	{
+		var trafficHistory = new TrafficHistory();
+		var counter = trafficHistory.acquireCounter(1L);
+		assertSame(counter, trafficHistory.acquireCounter(1L)); // Reconnection before the other one is released
+		trafficHistory.releaseCounter(1L);
+		trafficHistory.sample();
+		assertSame(counter, trafficHistory.acquireCounter(1L));
+
+		trafficHistory.releaseCounter(1L);
+		counter.addSent(TURTLE, 100);
+		trafficHistory.releaseCounter(1L);
+		trafficHistory.sample();
+
+		assertNotSame(counter, trafficHistory.acquireCounter(1L));
+		assertEquals(100L, trafficHistory.getStatistics(TrafficResolution.SECONDS, 1, _ -> "peer", _ -> "turtle").peers().getFirst().sentBytes());
+	}
+
+	@Test
+	void Sample_Metrics()
+	{
+		var registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+		try
+		{
+			var trafficHistory = new TrafficHistory();
+			var counter = trafficHistory.acquireCounter(1L);
+
+			counter.addSent(TURTLE, 1000);
+			counter.addReceived(TURTLE, 300);
+			trafficHistory.sample();
+			counter.addSent(TURTLE, 24);
+			counter.addReceived(0xbeef, 10);
+			counter.addReceived(0xbeee, 10);
+			trafficHistory.sample();
+
+			assertEquals(1024.0, registry.get("xrs.traffic.bytes").tags("service", "turtle", "direction", "sent").counter().count());
+			assertEquals(300.0, registry.get("xrs.traffic.bytes").tags("service", "turtle", "direction", "received").counter().count());
+			assertEquals(2.0, registry.get("xrs.traffic.items").tags("service", "turtle", "direction", "sent").counter().count());
+			assertEquals(20.0, registry.get("xrs.traffic.bytes").tags("service", "unknown", "direction", "received").counter().count());
+		}
+		finally
+		{
+			Metrics.removeRegistry(registry);
+		}
+	}
+
+	@Test
+	void AcquireCounter_SameLocation()
+	{
+		var trafficHistory = new TrafficHistory();
+
+		assertSame(trafficHistory.acquireCounter(1L), trafficHistory.acquireCounter(1L));
+		assertNotSame(trafficHistory.acquireCounter(1L), trafficHistory.acquireCounter(2L));
+	}
+
+	@Test
+	void GetStatistics_NoTraffic()
+	{
+		var trafficHistory = new TrafficHistory();
+		trafficHistory.acquireCounter(1L);
+		trafficHistory.sample();
+
+		assertTrue(trafficHistory.getStatistics(TrafficResolution.SECONDS, 120, _ -> "peer", _ -> "service").peers().isEmpty());
+	}
+
+	/**
+	 * Counts from several threads while sampling and checks that nothing is lost.
+	 */
+	@Test
+	void Sample_Concurrent() throws InterruptedException
+	{
+		var trafficHistory = new TrafficHistory();
+		var counter = trafficHistory.acquireCounter(1L);
+		var threads = 4;
+		var iterations = 100_000;
+		var done = new CountDownLatch(threads);
+		var stop = new AtomicBoolean();
+
+		var sampler = Thread.ofPlatform().start(() -> {
+			for (var i = 0; i < TrafficResolution.SECONDS.getSlots() - 1 && !stop.get(); i++) // Stays within the hour
+			{
+				trafficHistory.sample();
+			}
+		});
+		for (var i = 0; i < threads; i++)
+		{
+			Thread.ofPlatform().start(() -> {
+				for (var j = 0; j < iterations; j++)
+				{
+					counter.addSent(TURTLE, 1);
+				}
+				done.countDown();
+			});
+		}
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		stop.set(true);
+		sampler.join();
+		trafficHistory.sample();
+
+		var statistics = trafficHistory.getStatistics(TrafficResolution.SECONDS, 1, _ -> "peer", _ -> "turtle");
+		assertEquals((long) threads * iterations, statistics.peers().getFirst().sentItems());
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.net.peer.traffic;
+
+import org.junit.jupiter.api.Test;
+
+import static io.xeres.app.net.peer.traffic.TrafficSeries.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficSeriesTest
+{
+	@Test
+	void Add_Wraps()
+	{
+		var series = new TrafficSeries(3);
+
+		for (var i = 1; i <= 4; i++)
+		{
+			series.add(i, 10L * i, 1L, 2L);
+		}
+
+		assertEquals(2L, series.get(0, SENT_BYTES));
+		assertEquals(4L, series.get(2, SENT_BYTES));
+		assertEquals(40L, series.get(2, RECEIVED_BYTES));
+		assertEquals(9L, series.sum(SENT_BYTES));
+		assertEquals(6L, series.sum(RECEIVED_ITEMS));
+	}
+
+	@Test
+	void Downsample()
+	{
+		var series = new TrafficSeries(6);
+
+		for (var i = 1; i <= 6; i++)
+		{
+			series.add(i, 0L, 1L, 0L);
+		}
+
+		assertArrayEquals(new long[]{3L, 7L, 11L}, series.downsample(SENT_BYTES, 3));
+		assertArrayEquals(new long[]{21L}, series.downsample(SENT_BYTES, 0));
+		assertEquals(6, series.downsample(SENT_ITEMS, 100).length);
+	}
+
+	@Test
+	void Create_WrongCapacity()
+	{
+		assertThrows(IllegalArgumentException.class, () -> new TrafficSeries(0));
+	}
+}
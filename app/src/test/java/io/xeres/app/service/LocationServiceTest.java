@@ -23,17 +23,23 @@ import io.xeres.app.crypto.pgp.PGP;
 import io.xeres.app.crypto.rsa.RSA;
 import io.xeres.app.crypto.rsid.RSSerialVersion;
 import io.xeres.app.crypto.x509.X509;
+import io.xeres.app.database.model.connection.Connection;
 import io.xeres.app.database.model.connection.ConnectionFakes;
 import io.xeres.app.database.model.location.Location;
 import io.xeres.app.database.model.location.LocationFakes;
 import io.xeres.app.database.model.profile.Profile;
 import io.xeres.app.database.model.profile.ProfileFakes;
 import io.xeres.app.database.repository.LocationRepository;
+import io.xeres.app.net.peer.PeerConnectionManager;
+import io.xeres.app.net.protocol.PeerAddress;
+import io.xeres.app.net.util.NetworkMode;
 import io.xeres.common.id.ProfileFingerprint;
+import io.xeres.common.location.Availability;
 import io.xeres.common.util.ScrambledString;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPSecretKey;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -41,9 +47,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Slice;
-import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -80,6 +84,12 @@ class LocationServiceTest
 	@Mock
 	private ApplicationEventPublisher publisher;
 
+	@Mock
+	private PeerConnectionManager peerConnectionManager;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
 	@InjectMocks
 	private LocationService locationService;
 
@@ -101,6 +111,12 @@ class LocationServiceTest
 		certificate = X509.generateCertificate(pgpSecretKey, passphrase, rsaKeys.getPublic(), "CN=", "CN=-", Instant.EPOCH, Instant.EPOCH, RSSerialVersion.V07_0001.serialNumber());
 	}
 
+	@AfterEach
+	void tearDown()
+	{
+		locationService.shutdown();
+	}
+
 	@Test
 	void LocationService_GenerateLocationKeys_Success()
 	{
@@ -146,7 +162,7 @@ class LocationServiceTest
 	}
 
 	@Test
-	void GetConnectionsToConnectTo_Success()
+	void GetAddressesToConnectTo_Success()
 	{
 		var now = Instant.now();
 
@@ -169,33 +185,18 @@ class LocationServiceTest
 		location2.addConnection(recentConnection);
 		location2.addConnection(nullConnection);
 
-		var locations = List.of(location1, location2);
-		Slice<Location> slice = new SliceImpl<>(locations);
-		when(locationRepository.findAllByConnectedFalse(any(Pageable.class))).thenReturn(slice);
+		when(locationRepository.findAllByConnectedFalseWithConnections()).thenReturn(List.of(location1, location2));
 
 		when(locationRepository.findById(OWN_LOCATION_ID)).thenReturn(Optional.of(ownLocation));
 
-		// First run
-		var connections = locationService.getConnectionsToConnectTo(10);
-		assertEquals(2, connections.size());
-		assertEquals(location1.getConnections().getFirst(), connections.get(0));
-		assertEquals(recentConnection, connections.get(1));
-
-		// Second run
-		connections = locationService.getConnectionsToConnectTo(10);
-		assertEquals(2, connections.size());
-		assertEquals(location1.getConnections().getFirst(), connections.get(0));
-		assertEquals(oldConnection, connections.get(1));
-
-		// Third run
-		connections = locationService.getConnectionsToConnectTo(10);
-		assertEquals(2, connections.size());
-		assertEquals(location1.getConnections().getFirst(), connections.get(0));
-		assertEquals(nullConnection, connections.get(1));
+		var addresses = locationService.getAddressesToConnectTo(_ -> true);
+		assertEquals(2, addresses.size());
+		assertEquals(List.of(location1.getConnections().getFirst().getAddress()), addresses.get(location1.getLocationIdentifier()));
+		assertEquals(List.of(recentConnection.getAddress(), oldConnection.getAddress(), nullConnection.getAddress()), addresses.get(location2.getLocationIdentifier()));
 	}
 
 	@Test
-	void GetConnectionsToConnectTo_PreferLAN()
+	void GetAddressesToConnectTo_PreferLAN()
 	{
 		var now = Instant.now();
 
@@ -216,33 +217,80 @@ class LocationServiceTest
 		lanConnection.setLastConnected(now);
 		location2.addConnection(lanConnection);
 
-		var locations = List.of(location1, location2);
-		Slice<Location> slice = new SliceImpl<>(locations);
-		when(locationRepository.findAllByConnectedFalse(any(Pageable.class))).thenReturn(slice);
+		when(locationRepository.findAllByConnectedFalseWithConnections()).thenReturn(List.of(location1, location2));
+
+		when(locationRepository.findById(OWN_LOCATION_ID)).thenReturn(Optional.of(ownLocation));
+
+		var addresses = locationService.getAddressesToConnectTo(_ -> true);
+		assertEquals(2, addresses.size());
+		assertEquals(List.of(location1.getConnections().getFirst().getAddress()), addresses.get(location1.getLocationIdentifier()));
+		assertEquals(List.of(lanConnection.getAddress(), wanConnection.getAddress()), addresses.get(location2.getLocationIdentifier()));
+	}
+
+	@Test
+	void GetAddressesToConnectTo_NotDue_Skipped()
+	{
+		var ownLocation = LocationFakes.createOwnLocation();
+
+		var location1 = LocationFakes.createLocation("test1", ownProfile);
+		var notDueConnection = ConnectionFakes.createConnection();
+		location1.addConnection(notDueConnection);
 
+		var location2 = LocationFakes.createLocation("test2", ownProfile);
+		location2.addConnection(ConnectionFakes.createConnection());
+
+		when(locationRepository.findAllByConnectedFalseWithConnections()).thenReturn(List.of(location1, location2));
 		when(locationRepository.findById(OWN_LOCATION_ID)).thenReturn(Optional.of(ownLocation));
 
-		// First run
-		var connections = locationService.getConnectionsToConnectTo(10);
-		assertEquals(2, connections.size());
-		assertEquals(location1.getConnections().getFirst(), connections.get(0));
-		assertEquals(lanConnection, connections.get(1));
-
-		// Second run
-		connections = locationService.getConnectionsToConnectTo(10);
-		assertEquals(2, connections.size());
-		assertEquals(location1.getConnections().getFirst(), connections.get(0));
-		assertEquals(wanConnection, connections.get(1));
+		var addresses = locationService.getAddressesToConnectTo(address -> !address.equals(notDueConnection.getAddress()));
+		assertEquals(1, addresses.size());
+		assertEquals(List.of(location2.getConnections().getFirst().getAddress()), addresses.get(location2.getLocationIdentifier()));
+	}
+
+	@Test
+	void Update_Unchanged_NoSave()
+	{
+		var location = LocationFakes.createLocation("foo", ProfileFakes.createProfile("foo", 1));
+		location.setDiscoverable(true);
+		location.setDht(true);
+		location.addConnection(Connection.from(PeerAddress.from("1.2.3.4", 1234)));
+
+		var updated = locationService.update(location, "foo", location.getNetMode(), location.getVersion(), NetworkMode.PUBLIC, List.of(PeerAddress.from("1.2.3.4", 1234)));
+
+		assertEquals(location, updated);
+		verify(locationRepository, never()).save(any(Location.class));
+	}
+
+	@Test
+	void Update_NewAddress_Save()
+	{
+		var location = LocationFakes.createLocation("foo", ProfileFakes.createProfile("foo", 1));
+		location.setDiscoverable(true);
+		location.setDht(true);
+		when(locationRepository.save(location)).thenReturn(location);
+
+		locationService.update(location, "foo", location.getNetMode(), location.getVersion(), NetworkMode.PUBLIC, List.of(PeerAddress.from("1.2.3.4", 1234)));
+
+		assertEquals(1, location.getConnections().size());
+		verify(locationRepository).save(location);
 	}
 
 	@Test
 	void updateConnectionAndSetConnected_Success()
 	{
 		var location = LocationFakes.createLocation("foo", ProfileFakes.createProfile("foo", 1));
+		location.addConnection(Connection.from(PeerAddress.from("1.2.3.4", 666)));
 
-		locationService.updateConnectionAndSetConnected(location, new InetSocketAddress("127.0.0.1", 666));
+		locationService.updateConnectionAndSetConnected(location, new InetSocketAddress("1.2.3.4", 666));
 
 		assertTrue(location.isConnected());
+		assertNotNull(location.getConnections().getFirst().getLastConnected());
+
+		locationService.flush();
+
+		verify(locationRepository).updateConnectionLastConnected(eq(location.getId()), eq(IPV4), anyBoolean(), eq("1.2.3.4:%"), eq(location.getConnections().getFirst().getLastConnected()));
+		verify(locationRepository).updateConnected(location.getId(), true, location.getLastConnected());
+		verify(locationRepository, never()).saveAll(anyIterable());
 	}
 
 	@Test
@@ -255,4 +303,23 @@ class LocationServiceTest
 
 		assertFalse(location.isConnected());
 	}
-}
+
+	@Test
+	void ConnectionStates_LastStateWritten()
+	{
+		var location = LocationFakes.createLocation("foo", ProfileFakes.createProfile("foo", 1));
+		when(locationRepository.updateConnected(anyLong(), anyBoolean(), any())).thenReturn(1);
+		when(locationRepository.updateAvailability(anyLong(), any())).thenReturn(1);
+
+		locationService.updateConnectionAndSetConnected(location, null);
+		locationService.setAvailability(location, Availability.AWAY);
+		locationService.setDisconnected(location);
+		locationService.shutdown();
+
+		verify(locationRepository).updateConnected(location.getId(), false, location.getLastConnected());
+		verify(locationRepository, never()).updateConnected(anyLong(), eq(true), any());
+		verify(locationRepository).updateAvailability(location.getId(), Availability.AWAY);
+		verify(locationRepository, never()).findAllById(anySet());
+		verify(locationRepository, never()).save(any(Location.class));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.app.service;
+
+import io.xeres.common.message.BatchedMessage;
+import io.xeres.common.message.chat.ChatRoomLists;
+import io.xeres.common.message.chat.ChatRoomMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.xeres.app.service.MessageService.BATCH_SIZE_MAX;
+import static io.xeres.common.message.MessageHeaders.MESSAGE_TYPE;
+import static io.xeres.common.message.MessagePath.chatPrivateDestination;
+import static io.xeres.common.message.MessagePath.chatRoomDestination;
+import static io.xeres.common.message.MessageType.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageServiceTest
+{
+	@Mock
+	private SimpMessageSendingOperations messagingTemplate;
+
+	@InjectMocks
+	private MessageService messageService;
+
+	@Test
+	void SendToConsumers_NotBatched()
+	{
+		for (var i = 0; i < 3; i++)
+		{
+			messageService.sendToConsumers(chatPrivateDestination(), CHAT_PRIVATE_MESSAGE, 1L, new ChatRoomMessage());
+		}
+		verify(messagingTemplate, times(3)).convertAndSend(eq(chatPrivateDestination()), any(Object.class), anyMap());
+	}
+
+	@Test
+	void SendToConsumers_FirstMessageImmediately()
+	{
+		var message = new ChatRoomMessage();
+
+		messageService.sendToConsumers(chatRoomDestination(), CHAT_ROOM_MESSAGE, 1L, message);
+
+		verify(messagingTemplate).convertAndSend(eq(chatRoomDestination()), eq(message), anyMap());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	void SendToConsumers_Burst()
+	{
+		var count = 1 + BATCH_SIZE_MAX + 3;
+		for (var i = 0; i < count; i++)
+		{
+			messageService.sendToConsumers(chatRoomDestination(), CHAT_ROOM_MESSAGE, i, new ChatRoomMessage());
+		}
+
+		ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+		ArgumentCaptor<Map<String, Object>> headers = ArgumentCaptor.forClass(Map.class);
+		verify(messagingTemplate, timeout(2000).times(3)).convertAndSend(eq(chatRoomDestination()), payloads.capture(), headers.capture());
+
+		assertEquals(CHAT_ROOM_MESSAGE.name(), headers.getAllValues().getFirst().get(MESSAGE_TYPE));
+		assertEquals(MESSAGE_BATCH.name(), headers.getAllValues().get(1).get(MESSAGE_TYPE));
+		assertEquals(BATCH_SIZE_MAX, ((List<BatchedMessage>) payloads.getAllValues().get(1)).size());
+		assertEquals(MESSAGE_BATCH.name(), headers.getAllValues().get(2).get(MESSAGE_TYPE));
+
+		var last = (List<BatchedMessage>) payloads.getAllValues().get(2);
+		assertEquals(3, last.size());
+		assertEquals(String.valueOf(count - 1), last.getLast().destinationId());
+	}
+
+	@Test
+	void SendToConsumers_UnbatchedTypeKeepsOrder()
+	{
+		var roomMessage = new ChatRoomMessage();
+		var pendingMessage = new ChatRoomMessage();
+		var chatRoomLists = new ChatRoomLists();
+
+		messageService.sendToConsumers(chatRoomDestination(), CHAT_ROOM_MESSAGE, 1L, roomMessage);
+		messageService.sendToConsumers(chatRoomDestination(), CHAT_ROOM_MESSAGE, 1L, pendingMessage);
+		messageService.sendToConsumers(chatRoomDestination(), CHAT_ROOM_LIST, chatRoomLists);
+
+		var inOrder = inOrder(messagingTemplate);
+		inOrder.verify(messagingTemplate).convertAndSend(eq(chatRoomDestination()), eq(roomMessage), anyMap());
+		inOrder.verify(messagingTemplate).convertAndSend(eq(chatRoomDestination()), eq(pendingMessage), anyMap());
+		inOrder.verify(messagingTemplate).convertAndSend(eq(chatRoomDestination()), eq(chatRoomLists), anyMap());
+	}
+}
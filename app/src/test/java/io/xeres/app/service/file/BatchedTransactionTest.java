@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.service.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchedTransactionTest
+{
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void Processed_CommitsEachBatch()
+	{
+		when(transactionManager.getTransaction(any())).thenAnswer(_ -> new SimpleTransactionStatus());
+
+		try (var batchedTransaction = new BatchedTransaction(transactionManager, 10))
+		{
+			for (var i = 0; i < 25; i++)
+			{
+				batchedTransaction.processed();
+			}
+			verify(transactionManager, times(2)).commit(any());
+		}
+		verify(transactionManager, times(3)).getTransaction(any());
+		verify(transactionManager, times(3)).commit(any());
+		verify(transactionManager, never()).rollback(any());
+	}
+
+	@Test
+	void Close_RollbackOnly()
+	{
+		var status = new SimpleTransactionStatus();
+		when(transactionManager.getTransaction(any())).thenReturn(status);
+
+		try (var _ = new BatchedTransaction(transactionManager, 10))
+		{
+			status.setRollbackOnly();
+		}
+		verify(transactionManager).rollback(status);
+		verify(transactionManager, never()).commit(any());
+	}
+
+	@Test
+	void Create_InvalidSize()
+	{
+		assertThrows(IllegalArgumentException.class, () -> new BatchedTransaction(transactionManager, 0));
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.app.service.file;
+
+import io.xeres.testutils.Sha1SumFakes;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileHasherTest
+{
+	@Test
+	void Drain_TooManyPending_Waits() throws InterruptedException
+	{
+		var hash = Sha1SumFakes.createSha1Sum();
+		List<Integer> hashed = new ArrayList<>();
+
+		try (var fileHasher = new FileHasher<Integer>(1, 0, (_, _) -> hash))
+		{
+			for (var i = 0; i < 6; i++)
+			{
+				fileHasher.submit(Path.of("file" + i), "device", i);
+			}
+			fileHasher.drain(result -> hashed.add(result.context()));
+
+			assertTrue(hashed.size() >= 2);
+
+			fileHasher.await(result -> hashed.add(result.context()));
+		}
+		assertEquals(6, hashed.size());
+	}
+}
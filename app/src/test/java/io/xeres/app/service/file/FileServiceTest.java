@@ -19,33 +19,60 @@
 
 package io.xeres.app.service.file;
 
+import io.xeres.app.database.model.file.File;
+import io.xeres.app.database.model.file.FileDownload;
 import io.xeres.app.database.model.file.FileFakes;
+import io.xeres.app.database.model.share.Share;
 import io.xeres.app.database.model.share.ShareFakes;
+import io.xeres.app.database.repository.FileDownloadRepository;
 import io.xeres.app.database.repository.FileRepository;
 import io.xeres.app.database.repository.ShareRepository;
+import io.xeres.app.properties.FileProperties;
 import io.xeres.app.service.notification.file.FileNotificationService;
 import io.xeres.common.id.Id;
+import io.xeres.common.id.Sha1Sum;
+import io.xeres.testutils.Sha1SumFakes;
+import org.apache.commons.lang3.RandomUtils;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.logging.LogLevel;
 import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class FileServiceTest
 {
+	private static final Logger log = LoggerFactory.getLogger(FileServiceTest.class);
+
 	@Mock
 	private FileNotificationService fileNotificationService;
 
@@ -58,6 +85,15 @@ class FileServiceTest
 	@Mock
 	private ShareRepository shareRepository;
 
+	@Mock
+	private FileDownloadRepository fileDownloadRepository;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	@Spy
+	private FileProperties fileProperties = new FileProperties();
+
 	@InjectMocks
 	private FileService fileService;
 
@@ -87,13 +123,193 @@ class FileServiceTest
 	void ScanShare_Success() throws URISyntaxException
 	{
 		var share = ShareFakes.createShare(Path.of(Objects.requireNonNull(FileServiceTest.class.getResource("/image")).toURI()));
+		mockScan(share);
 		fileService.scanShare(share);
 		verify(fileNotificationService).startScanning(share);
 		verify(fileNotificationService, times(2)).startScanningFile(any());
-		verify(fileNotificationService, times(2)).stopScanningFile();
+		verify(fileNotificationService, times(2)).stopScanningFile(any());
 		verify(fileNotificationService).stopScanning();
 	}
 
+	/**
+	 * Scans a synthetic tree with one hashing thread, then with several, and checks that the same
+	 * hashes are found.
+	 */
+	@Test
+	void ScanShare_Parallel() throws IOException
+	{
+		var root = Files.createTempDirectory("share");
+		createTree(root, 4, 25);
+		var share = ShareFakes.createShare(root);
+		mockScan(share);
+
+		fileProperties.setHashingThreads(1);
+		var sequential = scanHashes(share);
+		fileProperties.setHashingThreads(4);
+		var parallel = scanHashes(share);
+
+		assertEquals(100, sequential.size());
+		assertEquals(sequential, parallel);
+
+		deleteTree(root);
+	}
+
+	/**
+	 * Scans a bigger synthetic tree with one hashing thread, then with the default, and logs the time taken.
+	 * Only runs with {@code -Dbenchmark=true}.
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void ScanShare_Benchmark() throws IOException
+	{
+		var directories = 50;
+		var filesPerDirectory = 100;
+		var root = Files.createTempDirectory("share");
+		var totalSize = createTree(root, directories, filesPerDirectory);
+		var share = ShareFakes.createShare(root);
+		mockScan(share);
+
+		fileProperties.setHashingThreads(1);
+		var sequential = scan(share);
+		fileProperties.setHashingThreads(0);
+		var parallel = scan(share);
+		log.info("Scanned {} files ({} KB): {} ms with 1 thread, {} ms with {} threads", directories * filesPerDirectory, totalSize / 1024, sequential, parallel, Runtime.getRuntime().availableProcessors());
+
+		verify(fileNotificationService, times(2 * directories * filesPerDirectory)).stopScanningFile(any());
+
+		deleteTree(root);
+	}
+
+	private static long createTree(Path root, int directories, int filesPerDirectory) throws IOException
+	{
+		var totalSize = 0L;
+		for (var i = 0; i < directories; i++)
+		{
+			var directory = Files.createDirectory(root.resolve("dir" + i));
+			for (var j = 0; j < filesPerDirectory; j++)
+			{
+				var data = RandomUtils.insecure().randomBytes(RandomUtils.insecure().randomInt(1024, 2 * FileService.SMALL_FILE_SIZE));
+				Files.write(directory.resolve("file" + i + "_" + j + ".bin"), data);
+				totalSize += data.length;
+			}
+		}
+		return totalSize;
+	}
+
+	private static void deleteTree(Path root) throws IOException
+	{
+		try (var paths = Files.walk(root))
+		{
+			for (var path : paths.sorted(Comparator.reverseOrder()).toList())
+			{
+				Files.delete(path);
+			}
+		}
+	}
+
+	/**
+	 * Scans a share and gets the hashes of the files that were saved.
+	 */
+	private Map<String, Sha1Sum> scanHashes(Share share)
+	{
+		clearInvocations(fileRepository);
+		fileService.scanShare(share);
+
+		var captor = ArgumentCaptor.forClass(File.class);
+		verify(fileRepository, atLeastOnce()).save(captor.capture());
+		return captor.getAllValues().stream()
+				.filter(file -> file.getHash() != null)
+				.collect(Collectors.toMap(File::getName, File::getHash, (_, last) -> last));
+	}
+
+	private void mockScan(Share share)
+	{
+		when(transactionManager.getTransaction(any())).thenAnswer(_ -> new SimpleTransactionStatus());
+		when(fileRepository.findById(share.getFile().getId())).thenReturn(Optional.of(share.getFile()));
+	}
+
+	private long scan(Share share)
+	{
+		var start = System.nanoTime();
+		fileService.scanShare(share);
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	@Test
+	void UpdateShareFiles_NewFile() throws IOException
+	{
+		var root = Files.createTempDirectory("share");
+		var path = Files.writeString(root.resolve("new.txt"), "hello");
+		var share = ShareFakes.createShare(root);
+		when(transactionManager.getTransaction(any())).thenAnswer(_ -> new SimpleTransactionStatus());
+		when(shareRepository.findById(share.getId())).thenReturn(Optional.of(share));
+
+		fileService.updateShareFiles(share.getId(), List.of(path));
+
+		verify(fileRepository).save(argThat(file -> file.getName().equals("new.txt") && file.getHash() != null && file.getParent() == share.getFile()));
+		verify(fileRepository, never()).delete(any());
+		verify(transactionManager).commit(any());
+
+		Files.delete(path);
+		Files.delete(root);
+	}
+
+	@Test
+	void UpdateShareFiles_DeletedFile() throws IOException
+	{
+		var root = Files.createTempDirectory("share");
+		var share = ShareFakes.createShare(root);
+		var file = FileFakes.createFile("gone.txt", share.getFile());
+		when(transactionManager.getTransaction(any())).thenAnswer(_ -> new SimpleTransactionStatus());
+		when(shareRepository.findById(share.getId())).thenReturn(Optional.of(share));
+		when(fileRepository.findByNameAndParent("gone.txt", share.getFile())).thenReturn(Optional.of(file));
+
+		fileService.updateShareFiles(share.getId(), List.of(root.resolve("gone.txt")));
+
+		verify(fileRepository).delete(file);
+
+		Files.delete(root);
+	}
+
+	@Test
+	void ScanShare_MovedFile_ReusesHash() throws IOException
+	{
+		var root = Files.createTempDirectory("share");
+		var path = Files.writeString(root.resolve("new.txt"), "hello");
+		assumeTrue(Files.readAttributes(path, BasicFileAttributes.class).fileKey() != null, "Filesystem has no file keys");
+		var share = ShareFakes.createShare(root);
+		share.getFile().setId(1L);
+		var oldFile = FileFakes.createFile("old.txt", share.getFile());
+		oldFile.setHash(Sha1SumFakes.createSha1Sum());
+		when(fileRepository.findFirstByFileKeyAndSizeAndModified(anyString(), eq(Files.size(path)), eq(Files.getLastModifiedTime(path).toInstant()))).thenReturn(Optional.of(oldFile));
+		when(fileRepository.findAllByParent(share.getFile())).thenReturn(List.of(oldFile));
+		mockScan(share);
+
+		fileService.scanShare(share);
+
+		verify(fileRepository).save(argThat(file -> file.getName().equals("new.txt") && oldFile.getHash().equals(file.getHash())));
+		verify(fileRepository).delete(oldFile);
+		verify(fileNotificationService, never()).startScanningFile(any());
+
+		Files.delete(path);
+		Files.delete(root);
+	}
+
+	@Test
+	void GetFilePath_CachesDirectories()
+	{
+		var root = FileFakes.createFile("share");
+		root.setId(1L);
+		var directory = FileFakes.createFile("dir", root);
+		directory.setId(2L);
+		var file = FileFakes.createFile("file.txt", directory);
+
+		assertEquals(Path.of("share", "dir", "file.txt"), fileService.getFilePath(file));
+
+		directory.setName("changed"); // Not reflected because the directory's path is cached
+		assertEquals(Path.of("share", "dir", "other.txt"), fileService.getFilePath(FileFakes.createFile("other.txt", directory)));
+	}
+
 	@Test
 	void DeleteFile_SingleFile_Success()
 	{
@@ -260,4 +476,25 @@ class FileServiceTest
 		verify(fileRepository, never()).delete(fileRoot);
 	}
 
-}
\ No newline at end of file
+	@Test
+	void SaveChunkMaps_Success()
+	{
+		var first = new FileDownload();
+		first.setHash(Sha1SumFakes.createSha1Sum());
+		var second = new FileDownload();
+		second.setHash(Sha1SumFakes.createSha1Sum());
+		var firstChunkMap = new BitSet();
+		firstChunkMap.set(0, 4);
+		var secondChunkMap = new BitSet();
+		secondChunkMap.set(2);
+		var chunkMaps = Map.of(first.getHash(), firstChunkMap, second.getHash(), secondChunkMap);
+
+		when(fileDownloadRepository.findAllByHashIn(chunkMaps.keySet())).thenReturn(List.of(first, second));
+
+		fileService.saveChunkMaps(chunkMaps);
+
+		assertEquals(firstChunkMap, first.getChunkMap());
+		assertEquals(secondChunkMap, second.getChunkMap());
+		verify(fileDownloadRepository, times(1)).findAllByHashIn(chunkMaps.keySet());
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.service.file;
+
+import io.xeres.app.database.model.file.FileEncryptedHash;
+import io.xeres.app.database.repository.FileRepository;
+import io.xeres.common.id.Sha1Sum;
+import io.xeres.testutils.Sha1SumFakes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static io.xeres.app.service.file.HashBloomFilterManager.MIN_CAPACITY;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HashBloomFilterManagerTest
+{
+	@Mock
+	private FileRepository fileRepository;
+
+	private record Entry(long getId, Sha1Sum getEncryptedHash) implements FileEncryptedHash
+	{
+	}
+
+	private List<Sha1Sum> createIndex(int size)
+	{
+		var hashes = IntStream.range(0, size)
+				.mapToObj(_ -> Sha1SumFakes.createSha1Sum())
+				.toList();
+
+		// doReturn() and doAnswer() because some tests stub again, which would call the previous answer
+		doReturn((long) size).when(fileRepository).countByEncryptedHashIsNotNull();
+		doAnswer(invocation -> {
+			long afterId = invocation.getArgument(0);
+			Limit limit = invocation.getArgument(1);
+			List<FileEncryptedHash> batch = new ArrayList<>();
+			for (var id = (int) afterId + 1; id <= size && batch.size() < limit.max(); id++)
+			{
+				batch.add(new Entry(id, hashes.get(id - 1)));
+			}
+			return batch;
+		}).when(fileRepository).findByIdGreaterThanAndEncryptedHashIsNotNullOrderByIdAsc(anyLong(), any(Limit.class));
+		return hashes;
+	}
+
+	@Test
+	void MightContain_NotBuiltYet()
+	{
+		var manager = new HashBloomFilterManager(fileRepository, Runnable::run);
+
+		assertTrue(manager.mightContain(Sha1SumFakes.createSha1Sum()));
+		assertEquals(1.0d, manager.getFalsePositiveProbability());
+	}
+
+	@Test
+	void Build_Startup_InBackground()
+	{
+		var hashes = createIndex(100);
+		List<Runnable> tasks = new ArrayList<>();
+		var manager = new HashBloomFilterManager(fileRepository, tasks::add);
+
+		manager.build();
+
+		assertEquals(1, tasks.size());
+		assertTrue(manager.mightContain(Sha1SumFakes.createSha1Sum())); // Not ready yet
+
+		tasks.getFirst().run();
+
+		assertTrue(hashes.stream().allMatch(manager::mightContain));
+		assertTrue(manager.getFalsePositiveProbability() < 0.01d);
+
+		manager.maintain(); // Nothing changed since
+		verify(fileRepository, times(1)).countByEncryptedHashIsNotNull();
+	}
+
+	@Test
+	void Invalidate_Rebuild()
+	{
+		createIndex(100);
+		var manager = new HashBloomFilterManager(fileRepository, Runnable::run);
+		manager.build();
+
+		var hashes = createIndex(100); // Rewritten
+		manager.invalidate();
+
+		assertTrue(hashes.stream().allMatch(manager::mightContain));
+		assertTrue(manager.getFalsePositiveProbability() < 0.01d);
+	}
+
+	@Test
+	void Invalidate_WhileBuilding_StartsOver()
+	{
+		var hashes = IntStream.range(0, 100)
+				.mapToObj(_ -> Sha1SumFakes.createSha1Sum())
+				.toList();
+		List<FileEncryptedHash> rewritten = IntStream.range(0, hashes.size())
+				.mapToObj(i -> (FileEncryptedHash) new Entry(i + 1L, hashes.get(i)))
+				.toList();
+		List<Runnable> tasks = new ArrayList<>();
+		var manager = new HashBloomFilterManager(fileRepository, tasks::add);
+
+		when(fileRepository.countByEncryptedHashIsNotNull()).thenReturn((long) hashes.size());
+		when(fileRepository.findByIdGreaterThanAndEncryptedHashIsNotNullOrderByIdAsc(anyLong(), any(Limit.class)))
+				.thenAnswer(_ -> {
+					manager.invalidate(); // The hashes are rewritten while the build is reading them
+					return List.of();
+				})
+				.thenReturn(rewritten);
+
+		manager.build();
+		tasks.getFirst().run();
+
+		assertEquals(1, tasks.size()); // The running build started over instead of queuing another one
+		assertTrue(hashes.stream().allMatch(manager::mightContain));
+	}
+
+	@Test
+	void Maintain_Build()
+	{
+		var hashes = createIndex(100);
+		var manager = new HashBloomFilterManager(fileRepository, Runnable::run);
+
+		manager.maintain();
+
+		assertTrue(hashes.stream().allMatch(manager::mightContain));
+		var falsePositives = IntStream.range(0, 1000)
+				.filter(_ -> manager.mightContain(Sha1SumFakes.createSha1Sum()))
+				.count();
+		assertTrue(falsePositives < 50, "Too many false positives: " + falsePositives);
+		assertTrue(manager.getFalsePositiveProbability() < 0.01d);
+	}
+
+	@Test
+	void Maintain_Unchanged_NoQuery()
+	{
+		createIndex(10);
+		var manager = new HashBloomFilterManager(fileRepository, Runnable::run);
+
+		manager.maintain();
+		manager.maintain();
+
+		verify(fileRepository, times(1)).countByEncryptedHashIsNotNull();
+	}
+
+	@Test
+	void Add_Incremental()
+	{
+		createIndex(10);
+		var manager = new HashBloomFilterManager(fileRepository, Runnable::run);
+		manager.maintain();
+
+		var hash = Sha1SumFakes.createSha1Sum();
+		manager.add(hash);
+
+		assertTrue(manager.mightContain(hash));
+	}
+
+	@Test
+	void Maintain_Resize()
+	{
+		createIndex(10);
+		var manager = new HashBloomFilterManager(fileRepository, Runnable::run);
+		manager.maintain();
+
+		var added = IntStream.range(0, 2 * MIN_CAPACITY)
+				.mapToObj(_ -> Sha1SumFakes.createSha1Sum())
+				.toList();
+		added.forEach(manager::add);
+		var degraded = manager.getFalsePositiveProbability();
+		assertTrue(degraded > 0.05d);
+
+		createIndex(10 + added.size());
+		manager.maintain();
+
+		assertTrue(manager.getFalsePositiveProbability() < degraded);
+		assertTrue(manager.getFalsePositiveProbability() < 0.01d);
+	}
+
+	@Test
+	void EstimateFalsePositiveProbability()
+	{
+		assertEquals(0.01d, HashBloomFilterManager.estimateFalsePositiveProbability(MIN_CAPACITY, MIN_CAPACITY), 0.001d);
+		assertTrue(HashBloomFilterManager.estimateFalsePositiveProbability(MIN_CAPACITY, MIN_CAPACITY / 2) < 0.01d);
+		assertTrue(HashBloomFilterManager.estimateFalsePositiveProbability(MIN_CAPACITY, 2L * MIN_CAPACITY) > 0.1d);
+	}
+}
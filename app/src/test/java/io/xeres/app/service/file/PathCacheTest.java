@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.service.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathCacheTest
+{
+	@Test
+	void Put_Evicts_LeastRecentlyUsed()
+	{
+		var pathCache = new PathCache(2);
+
+		pathCache.put(1L, Path.of("one"));
+		pathCache.put(2L, Path.of("two"));
+		pathCache.get(1L);
+		pathCache.put(3L, Path.of("three"));
+
+		assertEquals(Path.of("one"), pathCache.get(1L));
+		assertNull(pathCache.get(2L));
+		assertEquals(Path.of("three"), pathCache.get(3L));
+	}
+
+	@Test
+	void Remove_WithSubdirectories()
+	{
+		var pathCache = new PathCache(10);
+
+		pathCache.put(1L, Path.of("share", "dir"));
+		pathCache.put(2L, Path.of("share", "dir", "subdir"));
+		pathCache.put(3L, Path.of("share", "dir-other"));
+
+		pathCache.remove(1L);
+
+		assertNull(pathCache.get(1L));
+		assertNull(pathCache.get(2L));
+		assertEquals(Path.of("share", "dir-other"), pathCache.get(3L));
+		assertEquals(1, pathCache.size());
+	}
+}
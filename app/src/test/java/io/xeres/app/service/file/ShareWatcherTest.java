@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.service.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShareWatcherTest
+{
+	private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+	@Mock
+	private FileService fileService;
+
+	@InjectMocks
+	private ShareWatcher shareWatcher;
+
+	@TempDir
+	private Path root;
+
+	@Test
+	void ApplyChanges_Debounce()
+	{
+		var file = root.resolve("file.txt");
+
+		shareWatcher.addPendingChange(1L, file, 0L);
+		shareWatcher.addPendingChange(1L, file, SECOND);
+
+		assertEquals(0, shareWatcher.applyChanges(2 * SECOND));
+		verifyNoInteractions(fileService);
+
+		assertEquals(1, shareWatcher.applyChanges(3 * SECOND));
+		verify(fileService).updateShareFiles(1L, List.of(file));
+
+		assertEquals(0, shareWatcher.applyChanges(10 * SECOND));
+	}
+
+	@Test
+	void ApplyChanges_GroupedByShare()
+	{
+		var file1 = root.resolve("file1.txt");
+		var file2 = root.resolve("file2.txt");
+		var file3 = root.resolve("file3.txt");
+
+		shareWatcher.addPendingChange(1L, file1, 0L);
+		shareWatcher.addPendingChange(2L, file2, 0L);
+		shareWatcher.addPendingChange(1L, file3, 0L);
+
+		assertEquals(3, shareWatcher.applyChanges(10 * SECOND));
+		verify(fileService).updateShareFiles(1L, List.of(file1, file3));
+		verify(fileService).updateShareFiles(2L, List.of(file2));
+	}
+
+	@Test
+	void ApplyChanges_Failure_RequestsFullScan()
+	{
+		var file = root.resolve("file.txt");
+		doThrow(new IllegalStateException("failed")).when(fileService).updateShareFiles(1L, List.of(file));
+
+		shareWatcher.addPendingChange(1L, file, 0L);
+		shareWatcher.applyChanges(10 * SECOND);
+
+		verify(fileService).requestFullScan(1L);
+	}
+
+	@Test
+	void RemoveNestedPaths() throws IOException
+	{
+		var directory = Files.createDirectory(root.resolve("dir"));
+		var nestedFile = Files.createFile(directory.resolve("file.txt"));
+		var deletedFile = directory.resolve("deleted.txt");
+		var otherFile = Files.createFile(root.resolve("dir-other.txt"));
+
+		assertEquals(List.of(directory, deletedFile, otherFile), ShareWatcher.removeNestedPaths(List.of(directory, nestedFile, deletedFile, otherFile)));
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.service.notification;
+
+import io.xeres.common.location.Availability;
+import io.xeres.common.rest.notification.availability.AvailabilityChange;
+import io.xeres.common.rest.notification.file.FileNotification;
+import io.xeres.common.rest.notification.file.FileSearchNotification;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.xeres.common.rest.notification.file.FileNotificationAction.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationStreamTest
+{
+	@Test
+	void New_InvalidCapacity_Throws()
+	{
+		assertThrows(IllegalArgumentException.class, () -> new NotificationStream(0));
+	}
+
+	@Test
+	void Add_SchedulesOnce()
+	{
+		var stream = new NotificationStream(10);
+
+		assertTrue(stream.add(createSearchResult(1)));
+		assertFalse(stream.add(createSearchResult(2)));
+		assertEquals(List.of(createSearchResult(1), createSearchResult(2)), stream.drain());
+
+		assertTrue(stream.add(createSearchResult(3)));
+	}
+
+	@Test
+	void Add_Coalesces()
+	{
+		var stream = new NotificationStream(10);
+
+		stream.add(createAvailabilityChange(1L, Availability.AVAILABLE));
+		stream.add(createAvailabilityChange(2L, Availability.AVAILABLE));
+		stream.add(createAvailabilityChange(1L, Availability.AWAY));
+
+		assertEquals(List.of(createAvailabilityChange(2L, Availability.AVAILABLE), createAvailabilityChange(1L, Availability.AWAY)), stream.drain());
+	}
+
+	@Test
+	void Add_Coalesces_KeepsOrder()
+	{
+		var stream = new NotificationStream(10);
+
+		stream.add(new FileNotification(START_SCANNING, "share", null));
+		stream.add(new FileNotification(START_HASHING, "share", "a"));
+		stream.add(new FileNotification(START_HASHING, "share", "b"));
+		stream.add(new FileNotification(STOP_HASHING, "share", null));
+		stream.add(new FileNotification(STOP_SCANNING, null, null));
+
+		assertEquals(List.of(
+				new FileNotification(START_SCANNING, "share", null),
+				new FileNotification(STOP_HASHING, "share", null),
+				new FileNotification(STOP_SCANNING, null, null)), stream.drain());
+	}
+
+	@Test
+	void Add_Full_DropsOldest()
+	{
+		var stream = new NotificationStream(3);
+
+		stream.add(createAvailabilityChange(1L, Availability.AVAILABLE));
+		stream.add(createSearchResult(1));
+		stream.add(createSearchResult(2));
+		stream.add(createSearchResult(3));
+
+		assertEquals(3, stream.size());
+		assertEquals(1, stream.takeDropped());
+		assertEquals(0, stream.takeDropped());
+		assertEquals(List.of(createAvailabilityChange(1L, Availability.AVAILABLE), createSearchResult(2), createSearchResult(3)), stream.drain());
+	}
+
+	@Test
+	void Add_Full_OnlyStates_DropsOldest()
+	{
+		var stream = new NotificationStream(2);
+
+		stream.add(createAvailabilityChange(1L, Availability.AVAILABLE));
+		stream.add(createAvailabilityChange(2L, Availability.AVAILABLE));
+		stream.add(createAvailabilityChange(3L, Availability.AVAILABLE));
+
+		assertEquals(List.of(createAvailabilityChange(2L, Availability.AVAILABLE), createAvailabilityChange(3L, Availability.AVAILABLE)), stream.drain());
+	}
+
+	@Test
+	void Drain_Empty()
+	{
+		var stream = new NotificationStream(2);
+
+		assertTrue(stream.drain().isEmpty());
+	}
+
+	private static FileSearchNotification createSearchResult(int index)
+	{
+		return new FileSearchNotification(1, "file" + index, 1024L, "0123456789012345678901234567890123456789");
+	}
+
+	private static AvailabilityChange createAvailabilityChange(long locationId, Availability availability)
+	{
+		return new AvailabilityChange(availability, 1L, "profile", locationId, "location");
+	}
+}
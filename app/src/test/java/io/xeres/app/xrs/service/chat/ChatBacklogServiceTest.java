@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.xrs.service.chat;
+
+import io.xeres.app.database.model.chat.ChatBacklog;
+import io.xeres.app.database.model.chat.ChatRoomBacklog;
+import io.xeres.app.database.model.chat.ChatRoomFakes;
+import io.xeres.app.database.model.location.LocationFakes;
+import io.xeres.app.database.repository.*;
+import io.xeres.testutils.IdFakes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatBacklogServiceTest
+{
+	@Mock
+	private ChatBacklogRepository chatBacklogRepository;
+
+	@Mock
+	private ChatRoomBacklogRepository chatRoomBacklogRepository;
+
+	@Mock
+	private DistantChatBacklogRepository distantChatBacklogRepository;
+
+	@Mock
+	private LocationRepository locationRepository;
+
+	@Mock
+	private ChatRoomRepository chatRoomRepository;
+
+	@Mock
+	private GxsIdentityRepository gxsIdentityRepository;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	@InjectMocks
+	private ChatBacklogService chatBacklogService;
+
+	@AfterEach
+	void tearDown()
+	{
+		chatBacklogService.shutdown();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	void GetChatRoomMessages_SeesPendingMessages()
+	{
+		var chatRoom = ChatRoomFakes.createChatRoomEntity();
+		when(chatRoomRepository.findByRoomId(chatRoom.getRoomId())).thenReturn(Optional.of(chatRoom));
+
+		chatBacklogService.storeIncomingChatRoomMessage(chatRoom.getRoomId(), IdFakes.createGxsId(), "foo", "hello");
+		chatBacklogService.storeOutgoingChatRoomMessage(chatRoom.getRoomId(), "bar", "hi");
+		chatBacklogService.getChatRoomMessages(chatRoom.getRoomId(), Instant.now(), 10);
+
+		var inOrder = inOrder(chatRoomBacklogRepository);
+		ArgumentCaptor<List<ChatRoomBacklog>> captor = ArgumentCaptor.forClass(List.class);
+		inOrder.verify(chatRoomBacklogRepository, atLeastOnce()).saveAll(captor.capture());
+		inOrder.verify(chatRoomBacklogRepository).findAllByRoomAndCreatedAfterOrderByCreatedDesc(eq(chatRoom), any(Instant.class), any());
+
+		var messages = captor.getAllValues().stream()
+				.flatMap(List::stream)
+				.map(ChatRoomBacklog::getMessage)
+				.toList();
+		assertEquals(List.of("hello", "hi"), messages);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	void StoreMessage_LookedUpOncePerBatch()
+	{
+		var location = LocationFakes.createLocation();
+		when(locationRepository.findByLocationIdentifier(location.getLocationIdentifier())).thenReturn(Optional.of(location));
+
+		chatBacklogService.storeIncomingMessage(location.getLocationIdentifier(), "one");
+		chatBacklogService.storeOutgoingMessage(location.getLocationIdentifier(), "two");
+		chatBacklogService.storeIncomingMessage(location.getLocationIdentifier(), "three");
+		chatBacklogService.shutdown();
+
+		ArgumentCaptor<List<ChatBacklog>> captor = ArgumentCaptor.forClass(List.class);
+		verify(chatBacklogRepository, atLeastOnce()).saveAll(captor.capture());
+		var batches = captor.getAllValues().stream()
+				.filter(batch -> !batch.isEmpty())
+				.count();
+		verify(locationRepository, times((int) batches)).findByLocationIdentifier(location.getLocationIdentifier());
+
+		var messages = captor.getAllValues().stream()
+				.flatMap(List::stream)
+				.toList();
+		assertEquals(List.of("one", "two", "three"), messages.stream().map(ChatBacklog::getMessage).toList());
+		assertEquals(List.of(false, true, false), messages.stream().map(ChatBacklog::isOwn).toList());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	void StoreMessage_UnknownLocation_Dropped()
+	{
+		var location = LocationFakes.createLocation();
+		when(locationRepository.findByLocationIdentifier(location.getLocationIdentifier())).thenReturn(Optional.empty());
+
+		chatBacklogService.storeIncomingMessage(location.getLocationIdentifier(), "lost");
+		chatBacklogService.getMessages(location, Instant.now(), 10);
+
+		ArgumentCaptor<List<ChatBacklog>> captor = ArgumentCaptor.forClass(List.class);
+		verify(chatBacklogRepository, atLeastOnce()).saveAll(captor.capture());
+		assertTrue(captor.getAllValues().stream().allMatch(List::isEmpty));
+		verify(transactionManager, atLeastOnce()).commit(any());
+	}
+}
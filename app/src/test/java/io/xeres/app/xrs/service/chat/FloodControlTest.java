@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.xrs.service.chat;
+
+import io.xeres.testutils.IdFakes;
+import org.junit.jupiter.api.Test;
+
+import static io.xeres.app.xrs.service.chat.FloodControl.*;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FloodControlTest
+{
+	private static final long ROOM_ID = 1L;
+
+	@Test
+	void TryAcquire_IdentityLimit()
+	{
+		var floodControl = new FloodControl();
+		var gxsId = IdFakes.createGxsId();
+
+		for (var i = 0; i < IDENTITY_ITEMS_MAX; i++)
+		{
+			assertTrue(floodControl.tryAcquirePeer(gxsId, 1L, ROOM_ID, 0L));
+			assertTrue(floodControl.tryAcquireIdentity(gxsId, 0L));
+		}
+		assertFalse(floodControl.tryAcquirePeer(gxsId, 1L, ROOM_ID, 0L));
+		assertFalse(floodControl.tryAcquireIdentity(gxsId, 0L));
+
+		// Another identity through the same peer is fine
+		assertTrue(floodControl.tryAcquirePeer(IdFakes.createGxsId(), 1L, ROOM_ID, 0L));
+
+		// Tokens come back with time
+		assertTrue(floodControl.tryAcquirePeer(gxsId, 1L, ROOM_ID, PERIOD.toNanos() / IDENTITY_ITEMS_MAX));
+		assertTrue(floodControl.tryAcquireIdentity(gxsId, PERIOD.toNanos() / IDENTITY_ITEMS_MAX));
+	}
+
+	@Test
+	void TryAcquire_PeerLimit()
+	{
+		var floodControl = new FloodControl();
+
+		for (var i = 0; i < PEER_ITEMS_MAX; i++)
+		{
+			assertTrue(floodControl.tryAcquirePeer(IdFakes.createGxsId(), 1L, ROOM_ID, 0L));
+		}
+		var gxsId = IdFakes.createGxsId();
+		assertFalse(floodControl.tryAcquirePeer(gxsId, 1L, ROOM_ID, 0L));
+
+		// Another peer is fine
+		assertTrue(floodControl.tryAcquirePeer(gxsId, 2L, ROOM_ID, 0L));
+
+		// So is another room relayed by the same peer
+		assertTrue(floodControl.tryAcquirePeer(gxsId, 1L, ROOM_ID + 1, 0L));
+	}
+
+	@Test
+	void TryAcquire_UnverifiedItems_DontChargeIdentity()
+	{
+		var floodControl = new FloodControl();
+		var gxsId = IdFakes.createGxsId();
+
+		// Items claiming to be from the identity but with a bad signature, through several peers
+		for (var i = 0; i < PEER_ITEMS_MAX; i++)
+		{
+			assertTrue(floodControl.tryAcquirePeer(gxsId, i, ROOM_ID, 0L));
+		}
+
+		for (var i = 0; i < IDENTITY_ITEMS_MAX; i++)
+		{
+			assertTrue(floodControl.tryAcquireIdentity(gxsId, 0L));
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.xrs.service.chat;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCacheTest
+{
+	@Test
+	void Exists_Echo()
+	{
+		var messageCache = new MessageCache();
+
+		assertFalse(messageCache.exists(1L, 1000));
+		messageCache.add(1L, 1000);
+		assertTrue(messageCache.exists(1L, 1001));
+	}
+
+	@Test
+	void Purge_Expired()
+	{
+		var messageCache = new MessageCache();
+
+		messageCache.add(1L, 1000);
+		messageCache.add(2L, 2000);
+		messageCache.purge(3000);
+
+		assertFalse(messageCache.exists(1L, 3000));
+		assertTrue(messageCache.exists(2L, 3000));
+	}
+
+	/**
+	 * An echo refreshes the message, so it must not expire with the ones added at the same time.
+	 */
+	@Test
+	void Purge_RefreshedByEcho()
+	{
+		var messageCache = new MessageCache();
+
+		messageCache.add(1L, 1000);
+		messageCache.add(2L, 1000);
+		assertTrue(messageCache.exists(1L, 2000));
+		messageCache.purge(2500);
+
+		assertTrue(messageCache.exists(1L, 2500));
+		assertFalse(messageCache.exists(2L, 2500));
+	}
+
+	@Test
+	void Add_Bounded()
+	{
+		var messageCache = new MessageCache();
+
+		for (var i = 0; i < MessageCache.MESSAGES_MAX + 10; i++)
+		{
+			messageCache.add(i, 1000);
+		}
+
+		assertEquals(MessageCache.MESSAGES_MAX, messageCache.size());
+		assertFalse(messageCache.exists(0L, 1000));
+		assertTrue(messageCache.exists(MessageCache.MESSAGES_MAX + 9L, 1000));
+	}
+}
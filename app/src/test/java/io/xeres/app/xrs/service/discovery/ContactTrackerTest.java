@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.app.xrs.service.discovery;
+
+import io.xeres.app.net.protocol.PeerAddress;
+import io.xeres.app.xrs.service.discovery.item.DiscoveryContactItem;
+import io.xeres.common.id.LocationIdentifier;
+import io.xeres.common.protocol.NetMode;
+import io.xeres.testutils.IdFakes;
+import org.junit.jupiter.api.Test;
+
+import static io.xeres.app.xrs.service.discovery.ContactTracker.MAX_AGE;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContactTrackerTest
+{
+	@Test
+	void MarkSent_OnlyChanges()
+	{
+		var contactTracker = new ContactTracker();
+		var locationIdentifier = IdFakes.createLocationIdentifier();
+
+		assertTrue(contactTracker.markSent(1L, 2L, createContact(locationIdentifier, "1.1.1.1", 100), 0L));
+		assertFalse(contactTracker.markSent(1L, 2L, createContact(locationIdentifier, "1.1.1.1", 200), 1L)); // Only the last contact time changed
+		assertTrue(contactTracker.markSent(3L, 2L, createContact(locationIdentifier, "1.1.1.1", 100), 1L)); // Another peer
+		assertTrue(contactTracker.markSent(1L, 2L, createContact(locationIdentifier, "2.2.2.2", 100), 2L));
+	}
+
+	@Test
+	void MarkSent_Expired()
+	{
+		var contactTracker = new ContactTracker();
+		var locationIdentifier = IdFakes.createLocationIdentifier();
+
+		assertTrue(contactTracker.markSent(1L, 2L, createContact(locationIdentifier, "1.1.1.1", 100), 0L));
+		assertTrue(contactTracker.markSent(1L, 2L, createContact(locationIdentifier, "1.1.1.1", 100), MAX_AGE.toNanos()));
+	}
+
+	private static DiscoveryContactItem createContact(LocationIdentifier locationIdentifier, String ip, int lastContact)
+	{
+		return DiscoveryContactItem.builder()
+				.setPgpIdentifier(1L)
+				.setLocationIdentifier(locationIdentifier)
+				.setLocationName("foo")
+				.setNetMode(NetMode.UPNP)
+				.setExternalAddressV4(PeerAddress.from(ip, 1234))
+				.setLastContact(lastContact)
+				.build();
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.xrs.service.filetransfer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.xeres.testutils.Sha1SumFakes;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockCacheTest
+{
+	private static final int BLOCK = 1024;
+
+	private static ByteBuf createBlock()
+	{
+		return Unpooled.buffer(BLOCK).writeZero(BLOCK);
+	}
+
+	@Test
+	void Get_Miss()
+	{
+		var blockCache = new BlockCache(4L * BLOCK);
+
+		assertNull(blockCache.get(Sha1SumFakes.createSha1Sum(), 0L));
+		assertEquals(1L, blockCache.getMisses());
+		assertEquals(0.0d, blockCache.getHitRate());
+	}
+
+	@Test
+	void Get_Hit()
+	{
+		var blockCache = new BlockCache(4L * BLOCK);
+		var hash = Sha1SumFakes.createSha1Sum();
+		var block = createBlock();
+
+		blockCache.put(hash, 0L, block);
+		var buf = blockCache.get(hash, 0L);
+
+		assertNotNull(buf);
+		assertEquals(BLOCK, buf.readableBytes());
+		assertEquals(2, block.refCnt());
+		buf.release();
+		assertEquals(1L, blockCache.getHits());
+		assertEquals(1.0d, blockCache.getHitRate());
+	}
+
+	@Test
+	void Put_Evicts()
+	{
+		var blockCache = new BlockCache(4L * BLOCK);
+		var hash = Sha1SumFakes.createSha1Sum();
+		var first = createBlock();
+
+		blockCache.put(hash, 0L, first);
+		for (var i = 1; i <= 4; i++)
+		{
+			blockCache.put(hash, i, createBlock());
+		}
+
+		assertEquals(4L * BLOCK, blockCache.getSize());
+		assertEquals(0, first.refCnt());
+		assertFalse(blockCache.contains(hash, 0L));
+		assertTrue(blockCache.contains(hash, 4L));
+	}
+
+	@Test
+	void Put_Duplicate_Released()
+	{
+		var blockCache = new BlockCache(4L * BLOCK);
+		var hash = Sha1SumFakes.createSha1Sum();
+		var duplicate = createBlock();
+
+		blockCache.put(hash, 0L, createBlock());
+		blockCache.put(hash, 0L, duplicate);
+
+		assertEquals(0, duplicate.refCnt());
+		assertEquals(BLOCK, blockCache.getSize());
+	}
+
+	/**
+	 * A block that was used twice must survive a scan of blocks that are only used once.
+	 */
+	@Test
+	void Put_ScanResistant()
+	{
+		var blockCache = new BlockCache(8L * BLOCK);
+		var popular = Sha1SumFakes.createSha1Sum();
+		var scanned = Sha1SumFakes.createSha1Sum();
+
+		blockCache.put(popular, 0L, createBlock());
+		blockCache.get(popular, 0L).release();
+
+		for (var i = 0; i < 32; i++)
+		{
+			blockCache.put(scanned, i, createBlock());
+		}
+
+		assertTrue(blockCache.contains(popular, 0L));
+		assertEquals(8L * BLOCK, blockCache.getSize());
+	}
+
+	@Test
+	void Clear_ReleasesBlocks()
+	{
+		var blockCache = new BlockCache(4L * BLOCK);
+		var hash = Sha1SumFakes.createSha1Sum();
+		var block = createBlock();
+
+		blockCache.put(hash, 0L, block);
+		blockCache.get(hash, 0L).release();
+		blockCache.clear();
+
+		assertEquals(0, block.refCnt());
+		assertEquals(0L, blockCache.getSize());
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -20,17 +20,18 @@
 package io.xeres.app.xrs.service.filetransfer;
 
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.BitSet;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 
-import static io.xeres.app.xrs.service.filetransfer.FileTransferStrategy.LINEAR;
-import static io.xeres.app.xrs.service.filetransfer.FileTransferStrategy.RANDOM;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static io.xeres.app.xrs.service.filetransfer.FileTransferStrategy.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 class ChunkDistributorTest
 {
+	private static final Logger log = LoggerFactory.getLogger(ChunkDistributorTest.class);
+
 	@Test
 	void Linear_Given()
 	{
@@ -122,4 +123,174 @@ class ChunkDistributorTest
 		assertEquals(Optional.empty(), chunkDistributor.getNextChunk(availableChunkMap));
 		assertEquals(Optional.empty(), chunkDistributor.getNextChunk(availableChunkMap));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void UpdateAvailability()
+	{
+		var chunkDistributor = new ChunkDistributor(new BitSet(4), 4, RAREST_FIRST);
+		var first = BitSet.valueOf(new long[]{0b0011});
+		var second = BitSet.valueOf(new long[]{0b0110});
+
+		chunkDistributor.updateAvailability(null, first);
+		chunkDistributor.updateAvailability(null, first);
+		assertArrayEquals(new int[]{2, 2, 0, 0}, getAvailability(chunkDistributor, 4));
+
+		chunkDistributor.updateAvailability(first, second);
+		assertArrayEquals(new int[]{1, 2, 1, 0}, getAvailability(chunkDistributor, 4));
+
+		chunkDistributor.updateAvailability(second, null);
+		assertArrayEquals(new int[]{1, 1, 0, 0}, getAvailability(chunkDistributor, 4));
+	}
+
+	@Test
+	void RarestFirst_Given()
+	{
+		var chunkMap = new BitSet(4);
+		var chunkDistributor = new ChunkDistributor(chunkMap, 4, RAREST_FIRST);
+		var full = BitSet.valueOf(new long[]{0b1111});
+		var partial = BitSet.valueOf(new long[]{0b1011});
+
+		chunkDistributor.updateAvailability(null, full);
+		chunkDistributor.updateAvailability(null, partial);
+
+		assertEquals(2, chunkDistributor.getNextChunk(full).orElseThrow());
+		var next = chunkDistributor.getNextChunk(partial).orElseThrow();
+		assertTrue(Set.of(0, 1, 3).contains(next));
+	}
+
+	@Test
+	void RarestFirst_NotAvailable()
+	{
+		var chunkMap = new BitSet(4);
+		var chunkDistributor = new ChunkDistributor(chunkMap, 4, RAREST_FIRST);
+		var partial = BitSet.valueOf(new long[]{0b0001});
+
+		chunkDistributor.updateAvailability(null, partial);
+
+		assertEquals(0, chunkDistributor.getNextChunk(partial).orElseThrow());
+		assertEquals(Optional.empty(), chunkDistributor.getNextChunk(partial));
+		assertFalse(chunkDistributor.isEndgame());
+	}
+
+	@Test
+	void RarestFirst_Endgame()
+	{
+		var chunkMap = new BitSet(2);
+		var chunkDistributor = new ChunkDistributor(chunkMap, 2, RAREST_FIRST);
+		var full = BitSet.valueOf(new long[]{0b11});
+
+		var first = chunkDistributor.getNextChunk(full, -1).orElseThrow();
+		var second = chunkDistributor.getNextChunk(full, first).orElseThrow();
+		assertNotEquals(first, second);
+		assertFalse(chunkDistributor.isEndgame());
+
+		// Everything is given out, the outstanding chunks are given again but not to the seeder already sending them
+		var duplicate = chunkDistributor.getNextChunk(full, second).orElseThrow();
+		assertEquals(first, duplicate);
+		assertTrue(chunkDistributor.isEndgame());
+
+		// The number of copies is limited
+		chunkDistributor.getNextChunk(full, -1).orElseThrow();
+		chunkDistributor.getNextChunk(full, -1).orElseThrow();
+		chunkDistributor.getNextChunk(full, -1).orElseThrow();
+		assertEquals(Optional.empty(), chunkDistributor.getNextChunk(full, -1));
+
+		chunkMap.set(0, 2);
+		assertEquals(Optional.empty(), chunkDistributor.getNextChunk(full, -1));
+		assertFalse(chunkDistributor.isEndgame());
+	}
+
+	/**
+	 * Simulates a swarm where fast seeders only have part of the file and a slow seeder has all of it.
+	 * Rarest first makes the slow seeder send the chunks that only it has.
+	 */
+	@Test
+	void RarestFirst_Swarm()
+	{
+		var random = new Random(42);
+		var randomRounds = 0;
+		var rarestFirstRounds = 0;
+
+		for (var i = 0; i < 5; i++)
+		{
+			var seeders = createSwarm(random, 64);
+			randomRounds += simulateSwarm(seeders, 64, RANDOM);
+			rarestFirstRounds += simulateSwarm(seeders, 64, RAREST_FIRST);
+		}
+		log.info("Random: {} rounds, rarest first: {} rounds", randomRounds, rarestFirstRounds);
+
+		assertTrue(rarestFirstRounds < randomRounds);
+	}
+
+	private static int[] getAvailability(ChunkDistributor chunkDistributor, int totalChunks)
+	{
+		var availability = new int[totalChunks];
+		for (var i = 0; i < totalChunks; i++)
+		{
+			availability[i] = chunkDistributor.getAvailability(i);
+		}
+		return availability;
+	}
+
+	private record SimulatedSeeder(BitSet chunkMap, int roundsPerChunk)
+	{
+	}
+
+	private static List<SimulatedSeeder> createSwarm(Random random, int totalChunks)
+	{
+		List<SimulatedSeeder> seeders = new ArrayList<>();
+		for (var i = 0; i < 3; i++)
+		{
+			var chunkMap = new BitSet(totalChunks);
+			for (var j = 0; j < totalChunks; j++)
+			{
+				chunkMap.set(j, random.nextBoolean());
+			}
+			seeders.add(new SimulatedSeeder(chunkMap, 1));
+		}
+		var full = new BitSet(totalChunks);
+		full.set(0, totalChunks);
+		seeders.add(new SimulatedSeeder(full, 8));
+		return seeders;
+	}
+
+	/**
+	 * Each round, every seeder sends a part of its current chunk, or is given a new one.
+	 *
+	 * @return the number of rounds needed to complete the file
+	 */
+	private static int simulateSwarm(List<SimulatedSeeder> seeders, int totalChunks, FileTransferStrategy strategy)
+	{
+		var chunkMap = new BitSet(totalChunks);
+		var chunkDistributor = new ChunkDistributor(chunkMap, totalChunks, strategy);
+		seeders.forEach(seeder -> chunkDistributor.updateAvailability(null, seeder.chunkMap()));
+		var currentChunks = new int[seeders.size()];
+		var remainingRounds = new int[seeders.size()];
+		Arrays.fill(currentChunks, -1);
+
+		var rounds = 0;
+		while (chunkMap.cardinality() < totalChunks)
+		{
+			rounds++;
+			for (var i = 0; i < seeders.size(); i++)
+			{
+				var seeder = seeders.get(i);
+				if (remainingRounds[i] == 0)
+				{
+					var chunk = chunkDistributor.getNextChunk(seeder.chunkMap(), currentChunks[i]);
+					if (chunk.isEmpty())
+					{
+						continue;
+					}
+					currentChunks[i] = chunk.get();
+					remainingRounds[i] = seeder.roundsPerChunk();
+				}
+				if (--remainingRounds[i] == 0)
+				{
+					chunkMap.set(currentChunks[i]);
+				}
+			}
+		}
+		return rounds;
+	}
+}
@@ -23,6 +23,7 @@ import org.junit.jupiter.api.Test;
 
 import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.BLOCK_SIZE;
 import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.CHUNK_SIZE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -53,4 +54,13 @@ class ChunkTest
 		chunk.setBlocksAsWritten(CHUNK_SIZE - BLOCK_SIZE, BLOCK_SIZE);
 		assertTrue(chunk.isComplete());
 	}
+
+	@Test
+	void fillTwice()
+	{
+		var chunk = new Chunk(CHUNK_SIZE);
+		assertEquals(2 * BLOCK_SIZE, chunk.setBlocksAsWritten(0, 2 * BLOCK_SIZE));
+		assertEquals(0, chunk.setBlocksAsWritten(0, BLOCK_SIZE));
+		assertEquals(BLOCK_SIZE, chunk.setBlocksAsWritten(BLOCK_SIZE, 2 * BLOCK_SIZE));
+	}
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.app.xrs.service.filetransfer;
+
+import io.xeres.app.crypto.hash.sha1.Sha1MessageDigest;
+import io.xeres.common.id.Sha1Sum;
+import io.xeres.testutils.Sha1SumFakes;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.CHUNK_SIZE;
+import static io.xeres.app.xrs.service.filetransfer.FileTransferStrategy.LINEAR;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkVerifierTest
+{
+	private static final int FILE_SIZE = 3 * CHUNK_SIZE + CHUNK_SIZE / 2;
+
+	private final Deque<ActionChunkHashed> results = new ArrayDeque<>();
+	private byte[] data;
+	private File file;
+	private FileDownload fileDownload;
+
+	@BeforeEach
+	void setup() throws IOException
+	{
+		data = RandomUtils.insecure().randomBytes(FILE_SIZE);
+		file = Files.createTempFile("chunkverifier", ".tmp").toFile();
+		Files.delete(file.toPath());
+		fileDownload = new FileDownload(0L, file, FILE_SIZE, null, LINEAR);
+		assertTrue(fileDownload.open());
+	}
+
+	@AfterEach
+	void cleanup()
+	{
+		fileDownload.closeAndDelete();
+	}
+
+	@Test
+	void Verify_Success() throws IOException
+	{
+		var chunkVerifier = createChunkVerifier(hash(data));
+
+		// Out of order, the file digest waits for the first chunk
+		for (var chunkNumber : List.of(2, 0, 1, 3))
+		{
+			writeChunk(chunkNumber, data);
+			assertTrue(chunkVerifier.addCompletedChunk(chunkNumber));
+			assertFalse(chunkVerifier.addCompletedChunk(chunkNumber));
+			processResults(chunkVerifier);
+		}
+
+		assertEquals(ChunkVerifier.Status.VERIFIED, chunkVerifier.getStatus());
+		assertTrue(fileDownload.isComplete());
+	}
+
+	@Test
+	void Verify_Resume() throws IOException
+	{
+		for (var chunkNumber = 0; chunkNumber < 4; chunkNumber++)
+		{
+			writeChunk(chunkNumber, data);
+		}
+		var chunkVerifier = createChunkVerifier(hash(data));
+
+		chunkVerifier.start();
+		processResults(chunkVerifier);
+
+		assertEquals(ChunkVerifier.Status.VERIFIED, chunkVerifier.getStatus());
+	}
+
+	@Test
+	void Verify_CorruptChunk() throws IOException
+	{
+		var chunkVerifier = createChunkVerifier(hash(data));
+		var corrupt = data.clone();
+		corrupt[CHUNK_SIZE + 10] ^= 1;
+
+		for (var chunkNumber = 0; chunkNumber < 4; chunkNumber++)
+		{
+			writeChunk(chunkNumber, corrupt);
+			chunkVerifier.addCompletedChunk(chunkNumber);
+			processResults(chunkVerifier);
+		}
+		assertEquals(ChunkVerifier.Status.CORRUPT, chunkVerifier.getStatus());
+		assertEquals(List.of(0, 1, 2, 3), chunkVerifier.getUnverifiedChunks());
+
+		// The seeders tell which chunk is wrong
+		assertFalse(chunkVerifier.receiveExpectedHash(0, hashChunk(data, 0)));
+		assertTrue(chunkVerifier.receiveExpectedHash(1, hashChunk(data, 1)));
+
+		assertFalse(fileDownload.hasChunk(1));
+		assertFalse(fileDownload.isComplete());
+		assertEquals(FILE_SIZE - CHUNK_SIZE, fileDownload.getBytesWritten());
+		assertEquals(ChunkVerifier.Status.VERIFYING, chunkVerifier.getStatus());
+
+		// Downloaded again
+		writeChunk(1, data);
+		assertTrue(chunkVerifier.addCompletedChunk(1));
+		processResults(chunkVerifier);
+
+		assertEquals(ChunkVerifier.Status.VERIFIED, chunkVerifier.getStatus());
+	}
+
+	@Test
+	void Verify_WrongFileHash() throws IOException
+	{
+		var chunkVerifier = createChunkVerifier(Sha1SumFakes.createSha1Sum());
+
+		for (var chunkNumber = 0; chunkNumber < 4; chunkNumber++)
+		{
+			writeChunk(chunkNumber, data);
+			chunkVerifier.addCompletedChunk(chunkNumber);
+			processResults(chunkVerifier);
+			assertFalse(chunkVerifier.receiveExpectedHash(chunkNumber, hashChunk(data, chunkNumber)));
+		}
+
+		assertEquals(ChunkVerifier.Status.CORRUPT, chunkVerifier.getStatus());
+		assertTrue(chunkVerifier.areAllChunksVerified());
+		assertTrue(chunkVerifier.getUnverifiedChunks().isEmpty());
+	}
+
+	private ChunkVerifier createChunkVerifier(Sha1Sum hash)
+	{
+		return new ChunkVerifier(hash, fileDownload, Runnable::run, results::add);
+	}
+
+	private void processResults(ChunkVerifier chunkVerifier)
+	{
+		ActionChunkHashed result;
+		while ((result = results.poll()) != null)
+		{
+			chunkVerifier.receiveChunkHash(result);
+		}
+	}
+
+	private void writeChunk(int chunkNumber, byte[] source) throws IOException
+	{
+		var offset = chunkNumber * CHUNK_SIZE;
+		fileDownload.write(offset, Arrays.copyOfRange(source, offset, Math.min(offset + CHUNK_SIZE, source.length)));
+	}
+
+	private static Sha1Sum hash(byte[] source)
+	{
+		var digest = new Sha1MessageDigest();
+		digest.update(source);
+		return digest.getSum();
+	}
+
+	private static Sha1Sum hashChunk(byte[] source, int chunkNumber)
+	{
+		var offset = chunkNumber * CHUNK_SIZE;
+		return hash(Arrays.copyOfRange(source, offset, Math.min(offset + CHUNK_SIZE, source.length)));
+	}
+}
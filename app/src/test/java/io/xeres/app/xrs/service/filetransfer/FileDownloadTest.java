@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -27,6 +27,7 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.nio.file.Paths;
 
+import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.BLOCK_SIZE;
 import static io.xeres.app.xrs.service.filetransfer.FileTransferStrategy.LINEAR;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -77,4 +78,18 @@ class FileDownloadTest
 		//noinspection ResultOfMethodCallIgnored
 		file.delete();
 	}
+
+	@Test
+	void Write_Duplicate_CountedOnce() throws IOException
+	{
+		var file = Paths.get(tempDir, "duplicate.tmp").toFile();
+		var fileLeecher = new FileDownload(0L, file, 4 * BLOCK_SIZE, null, LINEAR);
+		fileLeecher.open();
+		fileLeecher.write(0, new byte[BLOCK_SIZE]);
+		fileLeecher.write(0, new byte[BLOCK_SIZE]);
+		assertEquals(BLOCK_SIZE, fileLeecher.getBytesWritten());
+		fileLeecher.close();
+		//noinspection ResultOfMethodCallIgnored
+		file.delete();
+	}
 }
\ No newline at end of file
@@ -19,6 +19,7 @@
 
 package io.xeres.app.xrs.service.filetransfer;
 
+import io.netty.buffer.Unpooled;
 import io.xeres.app.database.model.location.LocationFakes;
 import io.xeres.testutils.Sha1SumFakes;
 import org.junit.jupiter.api.Test;
@@ -28,12 +29,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.BitSet;
+import java.util.Optional;
 
+import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.CHUNK_SIZE;
+import static io.xeres.app.xrs.service.filetransfer.RequestWindow.INITIAL_WINDOW;
+import static io.xeres.app.xrs.service.filetransfer.RequestWindow.MIN_REQUEST_SIZE;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class FileTransferAgentTest
@@ -53,7 +57,7 @@ class FileTransferAgentTest
 		var agent = new FileTransferAgent(fileTransferRsService, "foo", hash, fileProvider);
 
 		when(fileProvider.getFileSize()).thenReturn(1024L); // Same file size
-		when(fileProvider.read(0L, 1024)).thenReturn(new byte[1024]);
+		when(fileProvider.read(0L, 1024)).thenReturn(Unpooled.wrappedBuffer(new byte[1024]));
 
 		agent.addLeecher(leecher, 0, 1024);
 		agent.process();
@@ -70,7 +74,7 @@ class FileTransferAgentTest
 		var agent = new FileTransferAgent(fileTransferRsService, "foo", hash, fileProvider);
 
 		when(fileProvider.getFileSize()).thenReturn(16384L); // Same file size
-		when(fileProvider.read(0L, 8192)).thenReturn(new byte[8192]);
+		when(fileProvider.read(0L, 8192)).thenReturn(Unpooled.wrappedBuffer(new byte[8192]));
 
 		agent.addLeecher(leecher, 0, 16384);
 		agent.process();
@@ -79,4 +83,35 @@ class FileTransferAgentTest
 
 		verify(fileTransferRsService).sendData(eq(leecher), eq(hash), eq(16384L), eq(0L), any());
 	}
-}
\ No newline at end of file
+
+	@Test
+	void processSeeder_Pipelining()
+	{
+		var seeder = LocationFakes.createLocation();
+		var hash = Sha1SumFakes.createSha1Sum();
+		var chunkMap = new BitSet();
+		chunkMap.set(0, 4);
+
+		var agent = new FileTransferAgent(fileTransferRsService, "foo", hash, fileProvider);
+
+		when(fileProvider.getFileSize()).thenReturn(4L * CHUNK_SIZE);
+		when(fileProvider.getNeededChunk(chunkMap, -1)).thenReturn(Optional.of(0));
+
+		agent.addSeeder(seeder);
+		agent.addChunkMap(seeder, chunkMap);
+		agent.process();
+
+		// The initial window allows several small requests at once
+		for (var i = 0; i < INITIAL_WINDOW / MIN_REQUEST_SIZE; i++)
+		{
+			verify(fileTransferRsService).sendDataRequest(seeder, hash, 4L * CHUNK_SIZE, (long) i * MIN_REQUEST_SIZE, MIN_REQUEST_SIZE);
+		}
+		verify(fileTransferRsService, times((int) (INITIAL_WINDOW / MIN_REQUEST_SIZE))).sendDataRequest(eq(seeder), eq(hash), anyLong(), anyLong(), anyInt());
+
+		// Receiving data opens the window
+		agent.receiveData(seeder, 0L, MIN_REQUEST_SIZE);
+		agent.process();
+
+		verify(fileTransferRsService, times((int) (INITIAL_WINDOW / MIN_REQUEST_SIZE) + 2)).sendDataRequest(eq(seeder), eq(hash), anyLong(), anyLong(), anyInt());
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.xrs.service.filetransfer;
+
+import io.netty.buffer.ByteBuf;
+import io.xeres.app.database.DatabaseSessionManager;
+import io.xeres.app.database.model.location.LocationFakes;
+import io.xeres.app.service.LocationService;
+import io.xeres.app.service.SettingsService;
+import io.xeres.app.service.file.FileService;
+import io.xeres.common.id.Sha1Sum;
+import io.xeres.testutils.Sha1SumFakes;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.BLOCK_SIZE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FileTransferManagerTest
+{
+	private static final Logger log = LoggerFactory.getLogger(FileTransferManagerTest.class);
+
+	private static final int MANAGERS = 4;
+	private static final int FILES = 64;
+	private static final int FILE_SIZE = 64 * 1024;
+
+	@Mock
+	private FileTransferRsService fileTransferRsService;
+
+	@Mock
+	private FileService fileService;
+
+	@Mock
+	private SettingsService settingsService;
+
+	@Mock
+	private LocationService locationService;
+
+	@Mock
+	private DatabaseSessionManager databaseSessionManager;
+
+	/**
+	 * Serves many files at once to a leecher through several managers and
+	 * checks that everything is sent.
+	 */
+	@Test
+	void Upload_Sharded() throws IOException, InterruptedException
+	{
+		var ownLocation = LocationFakes.createOwnLocation();
+		var leecher = LocationFakes.createLocation();
+
+		Map<Sha1Sum, Path> files = new HashMap<>();
+		for (var i = 0; i < FILES; i++)
+		{
+			var path = Files.createTempFile("filetransfer", ".tmp");
+			Files.write(path, RandomUtils.insecure().randomBytes(FILE_SIZE));
+			var hash = Sha1SumFakes.createSha1Sum();
+			files.put(hash, path);
+			when(fileService.findFilePathByHash(hash)).thenReturn(Optional.of(path));
+		}
+
+		var bytesSent = new AtomicLong();
+		var blocksRemaining = new CountDownLatch(FILES * FILE_SIZE / BLOCK_SIZE);
+		doAnswer(invocation -> {
+			ByteBuf data = invocation.getArgument(4);
+			bytesSent.addAndGet(data.readableBytes());
+			data.release();
+			blocksRemaining.countDown();
+			return null;
+		}).when(fileTransferRsService).sendData(eq(leecher), any(), anyLong(), anyLong(), any());
+
+		List<BlockingQueue<Action>> queues = new ArrayList<>(MANAGERS);
+		List<Thread> threads = new ArrayList<>(MANAGERS);
+		for (var i = 0; i < MANAGERS; i++)
+		{
+			var queue = new LinkedBlockingQueue<Action>();
+			queues.add(queue);
+			threads.add(Thread.ofVirtual().start(new FileTransferManager(fileTransferRsService, fileService, settingsService, locationService, databaseSessionManager, ownLocation, queue, FileTransferStrategy.LINEAR)));
+		}
+
+		var start = System.nanoTime();
+		files.keySet().forEach(hash -> queues.get(FileTransferRsService.getManagerIndex(hash, MANAGERS)).add(new ActionReceiveDataRequest(leecher, hash, 0L, FILE_SIZE)));
+
+		assertTrue(blocksRemaining.await(30, TimeUnit.SECONDS));
+		var elapsed = System.nanoTime() - start;
+		log.info("Sent {} files of {} bytes in {} ms using {} managers, {} KB/s", FILES, FILE_SIZE, TimeUnit.NANOSECONDS.toMillis(elapsed), MANAGERS, bytesSent.get() * 1_000_000_000L / elapsed / 1024);
+
+		assertEquals((long) FILES * FILE_SIZE, bytesSent.get());
+
+		threads.forEach(Thread::interrupt);
+		for (var thread : threads)
+		{
+			thread.join();
+		}
+		for (var path : files.values())
+		{
+			Files.deleteIfExists(path);
+		}
+	}
+}
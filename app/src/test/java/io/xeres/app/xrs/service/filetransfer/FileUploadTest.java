@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2025-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,18 +19,29 @@
 
 package io.xeres.app.xrs.service.filetransfer;
 
+import io.netty.buffer.ByteBufUtil;
+import io.xeres.testutils.Sha1SumFakes;
 import org.apache.commons.lang3.RandomUtils;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
+import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.BLOCK_SIZE;
 import static org.junit.jupiter.api.Assertions.*;
 
 class FileUploadTest
 {
+	private static final Logger log = LoggerFactory.getLogger(FileUploadTest.class);
+
 	private static final int TEMP_FILE_SIZE = 256;
+	private static final int LARGE_FILE_SIZE = 16 * 1024 * 1024;
 
 	private static File createTempFile(int size) throws IOException
 	{
@@ -84,11 +95,82 @@ class FileUploadTest
 		var tempFile = createTempFile(TEMP_FILE_SIZE);
 		var fileSeeder = new FileUpload(tempFile);
 		fileSeeder.open();
-		assertArrayEquals(Files.readAllBytes(tempFile.toPath()), fileSeeder.read(0, TEMP_FILE_SIZE));
+		var buf = fileSeeder.read(0, TEMP_FILE_SIZE);
+		assertArrayEquals(Files.readAllBytes(tempFile.toPath()), ByteBufUtil.getBytes(buf));
+		buf.release();
 		fileSeeder.close();
 		deleteTempFile(tempFile);
 	}
 
+	/**
+	 * Reads a whole file block by block, like an upload does, and reports the throughput
+	 * and how much heap was allocated by the reading thread.
+	 */
+	@Test
+	void Read_Blocks_Throughput() throws IOException
+	{
+		var tempFile = createTempFile(LARGE_FILE_SIZE);
+		var fileSeeder = new FileUpload(tempFile);
+		fileSeeder.open();
+
+		var threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		var allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+		var start = System.nanoTime();
+		var total = 0L;
+		for (long offset = 0; offset < LARGE_FILE_SIZE; offset += BLOCK_SIZE)
+		{
+			var buf = fileSeeder.read(offset, BLOCK_SIZE);
+			total += buf.readableBytes();
+			buf.release();
+		}
+		var elapsed = System.nanoTime() - start;
+		var allocated = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+		log.info("Read {} bytes in {} ms, {} MB/s, {} bytes allocated on the heap", total, TimeUnit.NANOSECONDS.toMillis(elapsed), total * 1_000_000_000L / Math.max(elapsed, 1L) / (1024 * 1024), allocated);
+
+		assertEquals(LARGE_FILE_SIZE, total);
+		fileSeeder.close();
+		deleteTempFile(tempFile);
+	}
+
+	/**
+	 * Reads a file twice through a block cache. The second read must be served from the cache
+	 * and give the same data.
+	 */
+	@Test
+	void Read_Cached() throws IOException
+	{
+		var fileSize = 2 * FileUpload.READ_AHEAD_BLOCKS * BLOCK_SIZE + TEMP_FILE_SIZE;
+		var tempFile = createTempFile(fileSize);
+		var content = Files.readAllBytes(tempFile.toPath());
+		var blockCache = new BlockCache(4L * fileSize);
+		var hash = Sha1SumFakes.createSha1Sum();
+
+		for (var i = 0; i < 2; i++)
+		{
+			var fileSeeder = new FileUpload(tempFile, hash, blockCache);
+			fileSeeder.open();
+			for (var offset = 0; offset < fileSize; offset += BLOCK_SIZE)
+			{
+				var size = Math.min(BLOCK_SIZE, fileSize - offset);
+				var buf = fileSeeder.read(offset, size);
+				assertArrayEquals(Arrays.copyOfRange(content, offset, offset + size), ByteBufUtil.getBytes(buf));
+				buf.release();
+			}
+			fileSeeder.close();
+		}
+
+		// Only the first block of each read ahead is a miss
+		assertEquals(3L, blockCache.getMisses());
+		assertEquals(fileSize, blockCache.getSize());
+
+		// A cached block doesn't keep the rest of its read ahead in memory
+		var cached = blockCache.get(hash, 1);
+		assertEquals(BLOCK_SIZE, cached.unwrap().capacity());
+		cached.release();
+		blockCache.clear();
+		deleteTempFile(tempFile);
+	}
+
 	@Test
 	void GetCompressedChunkMap_Success() throws IOException
 	{
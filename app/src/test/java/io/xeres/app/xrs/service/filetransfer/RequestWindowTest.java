@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.xrs.service.filetransfer;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+
+import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.BLOCK_SIZE;
+import static io.xeres.app.xrs.service.filetransfer.FileTransferRsService.CHUNK_SIZE;
+import static io.xeres.app.xrs.service.filetransfer.RequestWindow.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestWindowTest
+{
+	private static final Logger log = LoggerFactory.getLogger(RequestWindowTest.class);
+
+	private static final long MS = Duration.ofMillis(1).toNanos();
+
+	@Test
+	void Request_Initial()
+	{
+		var requestWindow = new RequestWindow();
+
+		assertTrue(requestWindow.canRequest());
+		assertEquals(MIN_REQUEST_SIZE, requestWindow.getRequestSize());
+
+		for (var i = 0; i < INITIAL_WINDOW / MIN_REQUEST_SIZE; i++)
+		{
+			requestWindow.addRequest(new Range((long) i * MIN_REQUEST_SIZE, MIN_REQUEST_SIZE), 0L);
+		}
+		assertFalse(requestWindow.canRequest());
+		assertEquals(INITIAL_WINDOW, requestWindow.getInFlight());
+	}
+
+	@Test
+	void Receive_SlowStart()
+	{
+		var requestWindow = new RequestWindow();
+
+		requestWindow.addRequest(new Range(0L, MIN_REQUEST_SIZE), 0L);
+		assertTrue(requestWindow.receive(0L, BLOCK_SIZE, 100 * MS));
+		assertTrue(requestWindow.receive(BLOCK_SIZE, BLOCK_SIZE, 110 * MS));
+
+		assertEquals(INITIAL_WINDOW + MIN_REQUEST_SIZE, requestWindow.getWindow());
+		assertEquals(0L, requestWindow.getInFlight());
+		assertTrue(requestWindow.isEmpty());
+		assertEquals(Duration.ofMillis(100), requestWindow.getSmoothedRtt());
+	}
+
+	@Test
+	void Receive_Unknown()
+	{
+		var requestWindow = new RequestWindow();
+
+		requestWindow.addRequest(new Range(CHUNK_SIZE, MIN_REQUEST_SIZE), 0L);
+
+		assertFalse(requestWindow.receive(0L, BLOCK_SIZE, MS));
+		assertFalse(requestWindow.receive(CHUNK_SIZE + MIN_REQUEST_SIZE, BLOCK_SIZE, MS));
+		assertEquals(MIN_REQUEST_SIZE, requestWindow.getInFlight());
+	}
+
+	@Test
+	void GetRequestSize_Grows()
+	{
+		var requestWindow = new RequestWindow();
+		var now = 0L;
+
+		for (var offset = 0L; offset < 4L * CHUNK_SIZE; offset += BLOCK_SIZE)
+		{
+			requestWindow.addRequest(new Range(offset, BLOCK_SIZE), now);
+			now += MS;
+			requestWindow.receive(offset, BLOCK_SIZE, now);
+		}
+		assertEquals(MAX_REQUEST_SIZE, requestWindow.getRequestSize());
+	}
+
+	@Test
+	void Expire_Timeout()
+	{
+		var requestWindow = new RequestWindow();
+
+		requestWindow.addRequest(new Range(0L, MIN_REQUEST_SIZE), 0L);
+		requestWindow.receive(0L, BLOCK_SIZE, 100 * MS);
+
+		assertTrue(requestWindow.expire(200 * MS).isEmpty());
+
+		var timeout = requestWindow.getTimeout();
+		var lost = requestWindow.expire(100 * MS + timeout.toNanos());
+		assertEquals(List.of(new Range(BLOCK_SIZE, BLOCK_SIZE, true)), lost);
+		assertEquals(MIN_WINDOW, requestWindow.getWindow());
+		assertEquals(timeout.multipliedBy(2), requestWindow.getTimeout());
+		assertEquals(0L, requestWindow.getInFlight());
+	}
+
+	@Test
+	void Expire_Overtaken()
+	{
+		var requestWindow = new RequestWindow();
+		requestWindow.addRequest(new Range(0L, BLOCK_SIZE), 0L);
+		for (var i = 1; i <= 3; i++)
+		{
+			requestWindow.addRequest(new Range((long) i * BLOCK_SIZE, BLOCK_SIZE), 0L);
+		}
+		var window = requestWindow.getWindow();
+
+		for (var i = 1; i <= 3; i++)
+		{
+			requestWindow.receive((long) i * BLOCK_SIZE, BLOCK_SIZE, 100 * MS);
+		}
+		var lost = requestWindow.expire(100 * MS);
+
+		assertEquals(List.of(new Range(0L, BLOCK_SIZE, true)), lost);
+		assertEquals(window + 3 * BLOCK_SIZE, requestWindow.getWindow());
+		assertEquals(0L, requestWindow.getInFlight());
+	}
+
+	@Test
+	void SetConnectionRtt()
+	{
+		var requestWindow = new RequestWindow();
+
+		requestWindow.setConnectionRtt(Duration.ofSeconds(2));
+		assertEquals(Duration.ofSeconds(6), requestWindow.getTimeout());
+
+		requestWindow.setConnectionRtt(Duration.ofMillis(10));
+		assertEquals(Duration.ofSeconds(1), requestWindow.getTimeout());
+	}
+
+	/**
+	 * Downloads a file over a simulated link with a high latency and compares it with
+	 * asking for a whole chunk and waiting for it before asking for the next one.
+	 */
+	@Test
+	void Simulation_HighLatency()
+	{
+		var simulation = new Simulation(Duration.ofMillis(200), 2 * 1024 * 1024, 0.0);
+		var fileSize = 32L * CHUNK_SIZE;
+
+		var elapsed = simulation.run(fileSize);
+		var stopAndWait = simulation.getStopAndWaitTime(fileSize);
+		log.info("Pipelined: {} ms, stop and wait: {} ms, window: {}", elapsed / MS, stopAndWait / MS, simulation.getWindow());
+
+		assertTrue(simulation.isComplete(fileSize));
+		assertTrue(elapsed < stopAndWait * 3 / 4, "Pipelining should be faster than stop and wait");
+		assertTrue(elapsed < simulation.getLinkTime(fileSize) * 5 / 4, "Link should be mostly used");
+	}
+
+	/**
+	 * Same but some requests are lost and have to be requested again.
+	 */
+	@Test
+	void Simulation_HighLatency_Loss()
+	{
+		var simulation = new Simulation(Duration.ofMillis(200), 2 * 1024 * 1024, 0.02);
+		var fileSize = 32L * CHUNK_SIZE;
+
+		var elapsed = simulation.run(fileSize);
+		var stopAndWait = simulation.getStopAndWaitTime(fileSize);
+		log.info("Pipelined with losses: {} ms, stop and wait: {} ms, window: {}", elapsed / MS, stopAndWait / MS, simulation.getWindow());
+
+		assertTrue(simulation.isComplete(fileSize));
+		assertTrue(elapsed < stopAndWait * 3 / 4, "Pipelining should be faster than stop and wait");
+	}
+
+	/**
+	 * A discrete event simulation of a seeder behind a link with a fixed latency and bandwidth. The seeder
+	 * serves requests in order. Requests can be lost on the way.
+	 */
+	private static final class Simulation
+	{
+		private record Event(long time, long sequence, long offset, int size)
+		{
+			boolean isTimer()
+			{
+				return size == 0;
+			}
+		}
+
+		private static final Duration MAX_SCHEDULING = Duration.ofMillis(250);
+
+		private final long latency;
+		private final long blockTime;
+		private final double lossRate;
+		private final Random random = new Random(42);
+		private final PriorityQueue<Event> events = new PriorityQueue<>(Comparator.comparingLong(Event::time).thenComparingLong(Event::sequence));
+		private final RequestWindow requestWindow = new RequestWindow();
+		private final BitSet receivedBlocks = new BitSet();
+		private final Deque<Range> retries = new ArrayDeque<>();
+		private long sequence;
+		private long nextOffset;
+		private long seederAvailable;
+		private long nextTimer = -1L;
+		private long now;
+
+		Simulation(Duration latency, long bytesPerSecond, double lossRate)
+		{
+			this.latency = latency.toNanos();
+			blockTime = BLOCK_SIZE * 1_000_000_000L / bytesPerSecond;
+			this.lossRate = lossRate;
+		}
+
+		long run(long fileSize)
+		{
+			var blocks = (int) (fileSize / BLOCK_SIZE);
+			request(fileSize);
+			while (receivedBlocks.cardinality() < blocks)
+			{
+				var event = events.remove();
+				now = event.time();
+				if (!event.isTimer())
+				{
+					receivedBlocks.set((int) (event.offset() / BLOCK_SIZE));
+					requestWindow.receive(event.offset(), event.size(), now);
+				}
+				retries.addAll(requestWindow.expire(now));
+				request(fileSize);
+			}
+			return now;
+		}
+
+		boolean isComplete(long fileSize)
+		{
+			return receivedBlocks.nextClearBit(0) == fileSize / BLOCK_SIZE;
+		}
+
+		long getWindow()
+		{
+			return requestWindow.getWindow();
+		}
+
+		long getLinkTime(long fileSize)
+		{
+			return fileSize / BLOCK_SIZE * blockTime + 2 * latency;
+		}
+
+		long getStopAndWaitTime(long fileSize)
+		{
+			return fileSize / CHUNK_SIZE * (2 * latency + CHUNK_SIZE / BLOCK_SIZE * blockTime);
+		}
+
+		private void request(long fileSize)
+		{
+			while (requestWindow.canRequest())
+			{
+				var range = getNextRange(fileSize, requestWindow.getRequestSize());
+				if (range == null)
+				{
+					break;
+				}
+				requestWindow.addRequest(range, now);
+				if (random.nextDouble() >= lossRate)
+				{
+					serve(range);
+				}
+			}
+
+			var timer = now + requestWindow.getNextTimeout(now, MAX_SCHEDULING).toNanos();
+			if (nextTimer <= now || timer < nextTimer)
+			{
+				nextTimer = Math.max(timer, now + 1);
+				events.add(new Event(nextTimer, sequence++, 0L, 0));
+			}
+		}
+
+		private Range getNextRange(long fileSize, int maxSize)
+		{
+			Range range;
+			while ((range = retries.poll()) != null)
+			{
+				if (receivedBlocks.nextClearBit((int) (range.offset() / BLOCK_SIZE)) < (range.offset() + range.size()) / BLOCK_SIZE)
+				{
+					if (range.size() > maxSize)
+					{
+						retries.addFirst(new Range(range.offset() + maxSize, range.size() - maxSize, true));
+						range = new Range(range.offset(), maxSize, true);
+					}
+					return range;
+				}
+			}
+			if (nextOffset >= fileSize)
+			{
+				return null;
+			}
+			range = new Range(nextOffset, (int) Math.min(maxSize, fileSize - nextOffset));
+			nextOffset += range.size();
+			return range;
+		}
+
+		private void serve(Range range)
+		{
+			var sendTime = Math.max(now + latency, seederAvailable);
+			for (var offset = range.offset(); offset < range.offset() + range.size(); offset += BLOCK_SIZE)
+			{
+				sendTime += blockTime;
+				events.add(new Event(sendTime + latency, sequence++, offset, BLOCK_SIZE));
+			}
+			seederAvailable = sendTime;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.app.xrs.service.filetransfer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest
+{
+	private static final Duration TICK = Duration.ofMillis(10);
+
+	@Test
+	void Schedule_Immediate()
+	{
+		var clock = new AtomicLong();
+		var timerWheel = new TimerWheel<String>(TICK, 8, clock::get);
+
+		timerWheel.schedule("foo", Duration.ZERO);
+
+		assertEquals(Duration.ZERO, timerWheel.getNextExpiration(Duration.ofSeconds(1)));
+		assertEquals(List.of("foo"), timerWheel.expire());
+		assertTrue(timerWheel.isEmpty());
+	}
+
+	@Test
+	void Schedule_Delayed()
+	{
+		var clock = new AtomicLong();
+		var timerWheel = new TimerWheel<String>(TICK, 8, clock::get);
+
+		timerWheel.schedule("foo", Duration.ofMillis(30));
+
+		assertEquals(Duration.ofMillis(30), timerWheel.getNextExpiration(Duration.ofSeconds(1)));
+		clock.addAndGet(Duration.ofMillis(20).toNanos());
+		assertTrue(timerWheel.expire().isEmpty());
+		clock.addAndGet(Duration.ofMillis(10).toNanos());
+		assertEquals(List.of("foo"), timerWheel.expire());
+	}
+
+	@Test
+	void Schedule_SeveralRounds()
+	{
+		var clock = new AtomicLong();
+		var timerWheel = new TimerWheel<String>(TICK, 8, clock::get);
+
+		timerWheel.schedule("foo", Duration.ofMillis(250)); // more than 3 revolutions
+
+		for (var i = 0; i < 24; i++)
+		{
+			clock.addAndGet(TICK.toNanos());
+			assertTrue(timerWheel.expire().isEmpty());
+		}
+		clock.addAndGet(TICK.toNanos());
+		assertEquals(List.of("foo"), timerWheel.expire());
+	}
+
+	@Test
+	void Schedule_LongPause()
+	{
+		var clock = new AtomicLong();
+		var timerWheel = new TimerWheel<String>(TICK, 8, clock::get);
+
+		timerWheel.schedule("foo", Duration.ofMillis(20));
+		timerWheel.schedule("bar", Duration.ofMillis(70));
+
+		clock.addAndGet(Duration.ofSeconds(5).toNanos());
+		var expired = timerWheel.expire();
+		assertEquals(2, expired.size());
+		assertTrue(expired.containsAll(List.of("foo", "bar")));
+	}
+
+	@Test
+	void Schedule_Reschedule()
+	{
+		var clock = new AtomicLong();
+		var timerWheel = new TimerWheel<String>(TICK, 8, clock::get);
+
+		timerWheel.schedule("foo", Duration.ofMillis(20));
+		timerWheel.schedule("foo", Duration.ofMillis(50));
+		assertEquals(1, timerWheel.size());
+
+		clock.addAndGet(Duration.ofMillis(30).toNanos());
+		assertTrue(timerWheel.expire().isEmpty());
+		clock.addAndGet(Duration.ofMillis(20).toNanos());
+		assertEquals(List.of("foo"), timerWheel.expire());
+	}
+
+	@Test
+	void Cancel()
+	{
+		var clock = new AtomicLong();
+		var timerWheel = new TimerWheel<String>(TICK, 8, clock::get);
+
+		timerWheel.schedule("foo", Duration.ofMillis(20));
+		assertTrue(timerWheel.cancel("foo"));
+		assertFalse(timerWheel.cancel("foo"));
+
+		clock.addAndGet(Duration.ofMillis(50).toNanos());
+		assertTrue(timerWheel.expire().isEmpty());
+		assertEquals(Duration.ofSeconds(1), timerWheel.getNextExpiration(Duration.ofSeconds(1)));
+	}
+
+	@Test
+	void Constructor_Invalid()
+	{
+		assertThrows(IllegalArgumentException.class, () -> new TimerWheel<String>(Duration.ZERO, 8));
+		assertThrows(IllegalArgumentException.class, () -> new TimerWheel<String>(TICK, 0));
+	}
+}
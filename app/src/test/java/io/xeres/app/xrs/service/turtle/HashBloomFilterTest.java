@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2023 by David Gerber - https://zapek.com
+ * Copyright (c) 2023-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -33,7 +33,7 @@ class HashBloomFilterTest
 	@Test
 	void Add_Success()
 	{
-		var filter = new HashBloomFilter(null, 10_000, 0.01d);
+		var filter = new HashBloomFilter(10_000, 0.01d);
 
 		var s1 = Sha1SumFakes.createSha1Sum();
 		var s2 = Sha1SumFakes.createSha1Sum();
@@ -53,7 +53,7 @@ class HashBloomFilterTest
 	@Test
 	void Add_Multiple_Success()
 	{
-		var filter = new HashBloomFilter(null, 10_000, 0.01d);
+		var filter = new HashBloomFilter(10_000, 0.01d);
 
 		var s1 = Sha1SumFakes.createSha1Sum();
 		var s2 = Sha1SumFakes.createSha1Sum();
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.common.message;
+
+/**
+ * A message sent together with others to the same destination. It carries the headers that a single
+ * message would have.
+ *
+ * @param messageType   the type of the message
+ * @param destinationId the destination id, can be null
+ * @param payload       the payload
+ */
+public record BatchedMessage(MessageType messageType, String destinationId, Object payload)
+{
+}
@@ -256,6 +256,18 @@ public enum RsServiceType
 		return NONE;
 	}
 
+	public static RsServiceType fromType(int type)
+	{
+		for (RsServiceType serviceType : RsServiceType.values())
+		{
+			if (serviceType.getType() == type)
+			{
+				return serviceType;
+			}
+		}
+		return NONE;
+	}
+
 	RsServiceType(int type, String name, int versionMajor, int versionMinor, int minVersionMajor, int minVersionMinor)
 	{
 		this.type = type;
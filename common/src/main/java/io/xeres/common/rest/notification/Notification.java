@@ -88,4 +88,15 @@ public interface Notification
 	{
 		return false;
 	}
+
+	/**
+	 * Gets the key of the state carried by this notification. When several notifications of the same type
+	 * and with the same key are waiting to be sent, only the latest is.
+	 *
+	 * @return the key, or null if every notification has to be sent
+	 */
+	default Object coalescingKey()
+	{
+		return null;
+	}
 }
@@ -23,4 +23,9 @@ import io.xeres.common.location.Availability;
 
 public record AvailabilityChange(Availability availability, long profileId, String profileName, long locationId, String locationName) implements AvailabilityNotification
 {
+	@Override
+	public Object coalescingKey()
+	{
+		return locationId;
+	}
 }
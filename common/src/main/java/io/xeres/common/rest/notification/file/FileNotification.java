@@ -23,4 +23,10 @@ import io.xeres.common.rest.notification.Notification;
 
 public record FileNotification(FileNotificationAction action, String shareName, String scannedFile) implements Notification
 {
+	@Override
+	public Object coalescingKey()
+	{
+		// Only the latest hashed file is of interest
+		return action == FileNotificationAction.START_HASHING || action == FileNotificationAction.STOP_HASHING ? FileNotificationAction.START_HASHING : null;
+	}
 }
@@ -28,4 +28,10 @@ public record StatusNotification(int currentUsers, int totalUsers, NatStatus nat
 	{
 		return true;
 	}
+
+	@Override
+	public Object coalescingKey()
+	{
+		return Boolean.TRUE; // There's only one status
+	}
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.common.rest.statistics;
+
+/**
+ * Statistics of the outgoing connections.
+ *
+ * @param dialing          the number of locations being connected to
+ * @param backingOff       the number of addresses waiting before being tried again
+ * @param reconnectAllTime the time it took, after startup or the last IP change, to try all unconnected locations, in milliseconds. 0 if not done yet
+ */
+public record ConnectionStatisticsResponse(
+		int dialing,
+		int backingOff,
+		long reconnectAllTime
+)
+{
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.common.rest.statistics;
+
+/**
+ * Statistics of the TLS handshakes with peers. The percentiles are computed over the most recent handshakes,
+ * from the TCP connection to the peer being accepted, certificate check included.
+ *
+ * @param handshakes           the number of successful handshakes
+ * @param failed               the number of failed handshakes
+ * @param verificationsSkipped the number of certificate checks that found the certificate verified already
+ * @param p50                  the median handshake time, in milliseconds
+ * @param p90                  the 90th percentile of the handshake time, in milliseconds
+ * @param p99                  the 99th percentile of the handshake time, in milliseconds
+ * @param max                  the longest handshake time, in milliseconds
+ */
+public record HandshakeStatisticsResponse(
+		long handshakes,
+		long failed,
+		long verificationsSkipped,
+		long p50,
+		long p90,
+		long p99,
+		long max
+)
+{
+}
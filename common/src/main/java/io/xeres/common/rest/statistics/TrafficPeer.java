@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.common.rest.statistics;
+
+/**
+ * The traffic of one service with one peer.
+ *
+ * @param locationId    the id of the location
+ * @param name          the name of the peer
+ * @param serviceType   the type of the service, as in {@link io.xeres.common.protocol.xrs.RsServiceType}
+ * @param serviceName   the name of the service
+ * @param sentBytes     the bytes sent during the whole period
+ * @param receivedBytes the bytes received during the whole period
+ * @param sentItems     the items sent during the whole period
+ * @param receivedItems the items received during the whole period
+ */
+public record TrafficPeer(
+		long locationId,
+		String name,
+		int serviceType,
+		String serviceName,
+		long sentBytes,
+		long receivedBytes,
+		long sentItems,
+		long receivedItems
+)
+{
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.common.rest.statistics;
+
+import java.time.Duration;
+
+/**
+ * The resolution of the traffic time series.
+ */
+public enum TrafficResolution
+{
+	/**
+	 * One slot per second, for the last hour.
+	 */
+	SECONDS(Duration.ofSeconds(1), 3600),
+
+	/**
+	 * One slot per minute, for the last 24 hours.
+	 */
+	MINUTES(Duration.ofMinutes(1), 1440);
+
+	private final Duration interval;
+	private final int slots;
+
+	TrafficResolution(Duration interval, int slots)
+	{
+		this.interval = interval;
+		this.slots = slots;
+	}
+
+	public Duration getInterval()
+	{
+		return interval;
+	}
+
+	public int getSlots()
+	{
+		return slots;
+	}
+}
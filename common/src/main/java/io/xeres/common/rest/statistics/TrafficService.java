@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.common.rest.statistics;
+
+/**
+ * The traffic of one service, all peers together.
+ *
+ * @param serviceType the type of the service, as in {@link io.xeres.common.protocol.xrs.RsServiceType}
+ * @param serviceName the name of the service
+ * @param sent        the bytes sent for each bucket, oldest first
+ * @param received    the bytes received for each bucket, oldest first
+ */
+public record TrafficService(
+		int serviceType,
+		String serviceName,
+		long[] sent,
+		long[] received
+)
+{
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.common.rest.statistics;
+
+import java.util.List;
+
+/**
+ * The traffic with the peers, per service.
+ *
+ * @param resolution     the resolution of the time series
+ * @param bucketDuration the duration covered by each bucket, in seconds
+ * @param services       the time series of each service that had some traffic during the period
+ * @param peers          the traffic of each peer and service that had some during the period
+ */
+public record TrafficStatisticsResponse(TrafficResolution resolution, long bucketDuration, List<TrafficService> services, List<TrafficPeer> peers)
+{
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -19,11 +19,16 @@
 
 package io.xeres.common.util;
 
+import java.net.URI;
+import java.nio.file.Path;
+
 /**
  * Some utility class to get remote information for the client.
  */
 public final class RemoteUtils
 {
+	private static final String CONTROL_SOCKET_PROPERTY = "xrs.ui.socket-path";
+
 	private RemoteUtils()
 	{
 		throw new UnsupportedOperationException("Utility class");
@@ -64,4 +69,36 @@ public final class RemoteUtils
 	{
 		return "none".equals(System.getProperty("spring.main.web-application-type"));
 	}
+
+	/**
+	 * Sets the Unix domain socket that a UI running in the same process can use to reach the control server.
+	 *
+	 * @param path the socket path
+	 */
+	public static void setControlSocket(Path path)
+	{
+		System.setProperty(CONTROL_SOCKET_PROPERTY, path.toString());
+	}
+
+	/**
+	 * Gets the Unix domain socket of the control server, if the UI runs in the same process.
+	 *
+	 * @return the socket path or null if there's none
+	 */
+	public static Path getControlSocket()
+	{
+		var path = System.getProperty(CONTROL_SOCKET_PROPERTY);
+		return path != null ? Path.of(path) : null;
+	}
+
+	/**
+	 * Checks if a URI points to the control server.
+	 *
+	 * @param uri the URI
+	 * @return true if it's the control server
+	 */
+	public static boolean isControlUri(URI uri)
+	{
+		return getHostname().equals(uri.getHost()) && getControlPort() == uri.getPort();
+	}
 }
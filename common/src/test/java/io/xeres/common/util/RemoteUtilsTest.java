@@ -22,6 +22,11 @@ package io.xeres.common.util;
 import io.xeres.testutils.TestUtils;
 import org.junit.jupiter.api.Test;
 
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 class RemoteUtilsTest
 {
 	@Test
@@ -29,4 +34,12 @@ class RemoteUtilsTest
 	{
 		TestUtils.assertUtilityClass(RemoteUtils.class);
 	}
-}
\ No newline at end of file
+
+	@Test
+	void IsControlUri()
+	{
+		assertTrue(RemoteUtils.isControlUri(URI.create("https://127.0.0.1:6232/api/v1/forums/groups")));
+		assertFalse(RemoteUtils.isControlUri(URI.create("https://127.0.0.1:8080/api/v1/forums/groups")));
+		assertFalse(RemoteUtils.isControlUri(URI.create("https://xeres.io/update")));
+	}
+}
@@ -37,8 +37,14 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 
+import java.util.List;
+
 import static io.xeres.common.rest.PathConfig.NOTIFICATIONS_PATH;
 
+/**
+ * Receives the notifications of the core. Each server-sent event contains an array of notifications,
+ * they're given out one by one.
+ */
 @Component
 public class NotificationClient
 {
@@ -64,9 +70,10 @@ public class NotificationClient
 		return webClient.get()
 				.uri("/status")
 				.retrieve()
-				.bodyToFlux(new ParameterizedTypeReference<>()
+				.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<List<StatusNotification>>>()
 				{
-				});
+				})
+				.concatMapIterable(NotificationClient::unbatch);
 	}
 
 	public Flux<ServerSentEvent<ForumNotification>> getForumNotifications()
@@ -74,9 +81,10 @@ public class NotificationClient
 		return webClient.get()
 				.uri("/forum")
 				.retrieve()
-				.bodyToFlux(new ParameterizedTypeReference<>()
+				.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<List<ForumNotification>>>()
 				{
-				});
+				})
+				.concatMapIterable(NotificationClient::unbatch);
 	}
 
 
@@ -85,9 +93,10 @@ public class NotificationClient
 		return webClient.get()
 				.uri("/board")
 				.retrieve()
-				.bodyToFlux(new ParameterizedTypeReference<>()
+				.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<List<BoardNotification>>>()
 				{
-				});
+				})
+				.concatMapIterable(NotificationClient::unbatch);
 	}
 
 	public Flux<ServerSentEvent<ChannelNotification>> getChannelNotifications()
@@ -95,9 +104,10 @@ public class NotificationClient
 		return webClient.get()
 				.uri("/channel")
 				.retrieve()
-				.bodyToFlux(new ParameterizedTypeReference<>()
+				.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<List<ChannelNotification>>>()
 				{
-				});
+				})
+				.concatMapIterable(NotificationClient::unbatch);
 	}
 
 	public Flux<ServerSentEvent<FileNotification>> getFileNotifications()
@@ -105,9 +115,10 @@ public class NotificationClient
 		return webClient.get()
 				.uri("/file")
 				.retrieve()
-				.bodyToFlux(new ParameterizedTypeReference<>()
+				.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<List<FileNotification>>>()
 				{
-				});
+				})
+				.concatMapIterable(NotificationClient::unbatch);
 	}
 
 	public Flux<ServerSentEvent<FileSearchNotification>> getFileSearchNotifications()
@@ -115,9 +126,10 @@ public class NotificationClient
 		return webClient.get()
 				.uri("/file-search")
 				.retrieve()
-				.bodyToFlux(new ParameterizedTypeReference<>()
+				.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<List<FileSearchNotification>>>()
 				{
-				});
+				})
+				.concatMapIterable(NotificationClient::unbatch);
 	}
 
 	public Flux<ServerSentEvent<FileTrendNotification>> getFileTrendNotifications()
@@ -125,9 +137,10 @@ public class NotificationClient
 		return webClient.get()
 				.uri("/file-trend")
 				.retrieve()
-				.bodyToFlux(new ParameterizedTypeReference<>()
+				.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<List<FileTrendNotification>>>()
 				{
-				});
+				})
+				.concatMapIterable(NotificationClient::unbatch);
 	}
 
 	public Flux<ServerSentEvent<ContactNotification>> getContactNotifications()
@@ -135,9 +148,10 @@ public class NotificationClient
 		return webClient.get()
 				.uri("/contact")
 				.retrieve()
-				.bodyToFlux(new ParameterizedTypeReference<>()
+				.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<List<ContactNotification>>>()
 				{
-				});
+				})
+				.concatMapIterable(NotificationClient::unbatch);
 	}
 
 	public Flux<ServerSentEvent<AvailabilityChange>> getAvailabilityNotifications()
@@ -145,8 +159,27 @@ public class NotificationClient
 		return webClient.get()
 				.uri("/availability")
 				.retrieve()
-				.bodyToFlux(new ParameterizedTypeReference<>()
+				.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<List<AvailabilityChange>>>()
 				{
-				});
+				})
+				.concatMapIterable(NotificationClient::unbatch);
+	}
+
+	/**
+	 * Splits an event containing several notifications into one event per notification.
+	 *
+	 * @param sse the event
+	 * @param <T> the type of notification
+	 * @return the events
+	 */
+	private static <T> List<ServerSentEvent<T>> unbatch(ServerSentEvent<List<T>> sse)
+	{
+		if (sse.data() == null)
+		{
+			return List.of();
+		}
+		return sse.data().stream()
+				.map(notification -> ServerSentEvent.builder(notification).build())
+				.toList();
 	}
 }
@@ -22,6 +22,8 @@ package io.xeres.ui.client;
 import io.xeres.common.events.StartupEvent;
 import io.xeres.common.rest.statistics.DataCounterStatisticsResponse;
 import io.xeres.common.rest.statistics.RttStatisticsResponse;
+import io.xeres.common.rest.statistics.TrafficResolution;
+import io.xeres.common.rest.statistics.TrafficStatisticsResponse;
 import io.xeres.common.rest.statistics.TurtleStatisticsResponse;
 import io.xeres.common.util.RemoteUtils;
 import org.springframework.context.event.EventListener;
@@ -74,4 +76,16 @@ public class StatisticsClient
 				.retrieve()
 				.bodyToMono(DataCounterStatisticsResponse.class);
 	}
+
+	public Mono<TrafficStatisticsResponse> getTrafficStatistics(TrafficResolution resolution, int buckets)
+	{
+		return webClient.get()
+				.uri(uriBuilder -> uriBuilder
+						.path("/traffic")
+						.queryParam("resolution", resolution)
+						.queryParam("buckets", buckets)
+						.build())
+				.retrieve()
+				.bodyToMono(TrafficStatisticsResponse.class);
+	}
 }
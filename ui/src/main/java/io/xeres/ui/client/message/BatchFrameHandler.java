@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.ui.client.message;
+
+import io.xeres.common.message.BatchedMessage;
+import javafx.application.Platform;
+import org.jspecify.annotations.NonNull;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.xeres.common.message.MessageHeaders.DESTINATION_ID;
+import static io.xeres.common.message.MessageHeaders.MESSAGE_TYPE;
+import static io.xeres.common.message.MessageType.MESSAGE_BATCH;
+
+/**
+ * Unpacks the batches sent by the server and gives their messages to the handler
+ * as if they had been sent one by one. A whole batch is applied in a single JavaFX pulse.
+ */
+class BatchFrameHandler implements StompFrameHandler
+{
+	private record Frame(StompHeaders headers, Object payload)
+	{
+	}
+
+	private final FxFrameHandler delegate;
+	private final JsonMapper jsonMapper;
+
+	BatchFrameHandler(FxFrameHandler delegate, JsonMapper jsonMapper)
+	{
+		this.delegate = delegate;
+		this.jsonMapper = jsonMapper;
+	}
+
+	@Override
+	public @NonNull Type getPayloadType(@NonNull StompHeaders headers)
+	{
+		if (isBatch(headers))
+		{
+			return BatchedMessage[].class;
+		}
+		return delegate.getPayloadType(headers);
+	}
+
+	@Override
+	public void handleFrame(@NonNull StompHeaders headers, Object payload)
+	{
+		if (!isBatch(headers))
+		{
+			delegate.handleFrame(headers, payload);
+			return;
+		}
+
+		var batchedMessages = (BatchedMessage[]) payload;
+		List<Frame> frames = new ArrayList<>(batchedMessages.length);
+		for (var batchedMessage : batchedMessages)
+		{
+			var frameHeaders = new StompHeaders();
+			frameHeaders.set(MESSAGE_TYPE, batchedMessage.messageType().name());
+			if (batchedMessage.destinationId() != null)
+			{
+				frameHeaders.set(DESTINATION_ID, batchedMessage.destinationId());
+			}
+			var type = jsonMapper.constructType(delegate.getPayloadType(frameHeaders));
+			frames.add(new Frame(frameHeaders, jsonMapper.convertValue(batchedMessage.payload(), type)));
+		}
+		Platform.runLater(() -> frames.forEach(frame -> delegate.applyFrame(frame.headers(), frame.payload())));
+	}
+
+	private static boolean isBatch(StompHeaders headers)
+	{
+		return MESSAGE_BATCH.name().equals(headers.getFirst(MESSAGE_TYPE));
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -20,9 +20,7 @@
 package io.xeres.ui.client.message;
 
 import io.xeres.common.message.MessageType;
-import javafx.application.Platform;
 import org.jspecify.annotations.NonNull;
-import org.springframework.messaging.simp.stomp.StompFrameHandler;
 import org.springframework.messaging.simp.stomp.StompHeaders;
 
 import java.lang.reflect.Type;
@@ -33,7 +31,7 @@ import static io.xeres.common.message.MessageHeaders.MESSAGE_TYPE;
  * This handles the incoming broadcast messages from the server to the UI.
  * XXX: not used yet
  */
-public class BroadcastChatFrameHandler implements StompFrameHandler
+public class BroadcastChatFrameHandler extends FxFrameHandler
 {
 	/**
 	 * Gets the payload type. It's not possible to use null or new Object(). It has to be a class
@@ -54,17 +52,14 @@ public class BroadcastChatFrameHandler implements StompFrameHandler
 	}
 
 	@Override
-	public void handleFrame(StompHeaders headers, Object payload)
+	protected void applyFrame(StompHeaders headers, Object payload)
 	{
 		var messageType = MessageType.valueOf(headers.getFirst(MESSAGE_TYPE));
-		Platform.runLater(() -> {
-					switch (messageType)
-					{
-						case CHAT_BROADCAST_MESSAGE ->
-						{ /* handled as a notification */ }
-						default -> throw new IllegalStateException("Unexpected value: " + messageType);
-					}
-				}
-		);
+		switch (messageType)
+		{
+			case CHAT_BROADCAST_MESSAGE ->
+			{ /* handled as a notification */ }
+			default -> throw new IllegalStateException("Unexpected value: " + messageType);
+		}
 	}
 }
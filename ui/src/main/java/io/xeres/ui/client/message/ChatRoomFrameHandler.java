@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -22,9 +22,7 @@ package io.xeres.ui.client.message;
 import io.xeres.common.message.MessageType;
 import io.xeres.common.message.chat.*;
 import io.xeres.ui.controller.chat.ChatViewController;
-import javafx.application.Platform;
 import org.jspecify.annotations.NonNull;
-import org.springframework.messaging.simp.stomp.StompFrameHandler;
 import org.springframework.messaging.simp.stomp.StompHeaders;
 
 import java.lang.reflect.Type;
@@ -36,7 +34,7 @@ import static io.xeres.common.message.MessageHeaders.MESSAGE_TYPE;
 /**
  * This handles the incoming chat room messages from the server to the UI.
  */
-public class ChatRoomFrameHandler implements StompFrameHandler
+public class ChatRoomFrameHandler extends FxFrameHandler
 {
 	private final ChatViewController chatViewController;
 
@@ -68,25 +66,22 @@ public class ChatRoomFrameHandler implements StompFrameHandler
 	}
 
 	@Override
-	public void handleFrame(StompHeaders headers, Object payload)
+	protected void applyFrame(StompHeaders headers, Object payload)
 	{
 		var messageType = MessageType.valueOf(headers.getFirst(MESSAGE_TYPE));
-		Platform.runLater(() -> {
-					switch (messageType)
-					{
-						case CHAT_ROOM_MESSAGE, CHAT_ROOM_TYPING_NOTIFICATION -> chatViewController.showMessage(getChatRoomMessage(headers, payload));
-						case CHAT_ROOM_JOIN -> chatViewController.roomJoined(getRoomId(headers));
-						case CHAT_ROOM_LEAVE -> chatViewController.roomLeft(getRoomId(headers));
-						case CHAT_ROOM_LIST -> chatViewController.addRooms((ChatRoomLists) payload);
-						case CHAT_ROOM_USER_JOIN -> chatViewController.userJoined(getRoomId(headers), (ChatRoomUserEvent) payload);
-						case CHAT_ROOM_USER_LEAVE -> chatViewController.userLeft(getRoomId(headers), (ChatRoomUserEvent) payload);
-						case CHAT_ROOM_USER_KEEP_ALIVE -> chatViewController.userKeepAlive(getRoomId(headers), (ChatRoomUserEvent) payload);
-						case CHAT_ROOM_USER_TIMEOUT -> chatViewController.userTimeout(getRoomId(headers), (ChatRoomTimeoutEvent) payload);
-						case CHAT_ROOM_INVITE -> chatViewController.openInvite(getRoomId(headers), (ChatRoomInviteEvent) payload);
-						default -> throw new IllegalStateException("Unexpected value: " + messageType);
-					}
-				}
-		);
+		switch (messageType)
+		{
+			case CHAT_ROOM_MESSAGE, CHAT_ROOM_TYPING_NOTIFICATION -> chatViewController.showMessage(getChatRoomMessage(headers, payload));
+			case CHAT_ROOM_JOIN -> chatViewController.roomJoined(getRoomId(headers));
+			case CHAT_ROOM_LEAVE -> chatViewController.roomLeft(getRoomId(headers));
+			case CHAT_ROOM_LIST -> chatViewController.addRooms((ChatRoomLists) payload);
+			case CHAT_ROOM_USER_JOIN -> chatViewController.userJoined(getRoomId(headers), (ChatRoomUserEvent) payload);
+			case CHAT_ROOM_USER_LEAVE -> chatViewController.userLeft(getRoomId(headers), (ChatRoomUserEvent) payload);
+			case CHAT_ROOM_USER_KEEP_ALIVE -> chatViewController.userKeepAlive(getRoomId(headers), (ChatRoomUserEvent) payload);
+			case CHAT_ROOM_USER_TIMEOUT -> chatViewController.userTimeout(getRoomId(headers), (ChatRoomTimeoutEvent) payload);
+			case CHAT_ROOM_INVITE -> chatViewController.openInvite(getRoomId(headers), (ChatRoomInviteEvent) payload);
+			default -> throw new IllegalStateException("Unexpected value: " + messageType);
+		}
 	}
 
 	private static ChatRoomMessage getChatRoomMessage(StompHeaders headers, Object payload)
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2019-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -24,9 +24,7 @@ import io.xeres.common.location.Availability;
 import io.xeres.common.message.MessageType;
 import io.xeres.common.message.chat.ChatMessage;
 import io.xeres.ui.support.window.WindowManager;
-import javafx.application.Platform;
 import org.jspecify.annotations.NonNull;
-import org.springframework.messaging.simp.stomp.StompFrameHandler;
 import org.springframework.messaging.simp.stomp.StompHeaders;
 
 import java.lang.reflect.Type;
@@ -37,7 +35,7 @@ import static io.xeres.common.message.MessageHeaders.MESSAGE_TYPE;
 /**
  * This handles the incoming distant chat messages from the server to the UI.
  */
-public class DistantChatFrameHandler implements StompFrameHandler
+public class DistantChatFrameHandler extends FxFrameHandler
 {
 	private final WindowManager windowManager;
 
@@ -66,17 +64,14 @@ public class DistantChatFrameHandler implements StompFrameHandler
 	}
 
 	@Override
-	public void handleFrame(StompHeaders headers, Object payload)
+	protected void applyFrame(StompHeaders headers, Object payload)
 	{
 		var messageType = MessageType.valueOf(headers.getFirst(MESSAGE_TYPE));
-		Platform.runLater(() -> {
-					switch (messageType)
-					{
-						case CHAT_PRIVATE_MESSAGE, CHAT_TYPING_NOTIFICATION -> windowManager.openMessaging(GxsId.fromString(headers.getFirst(DESTINATION_ID)), (ChatMessage) payload);
-						case CHAT_AVAILABILITY -> windowManager.sendMessaging(headers.getFirst(DESTINATION_ID), (Availability) payload);
-						default -> throw new IllegalStateException("Unexpected value: " + messageType);
-					}
-				}
-		);
+		switch (messageType)
+		{
+			case CHAT_PRIVATE_MESSAGE, CHAT_TYPING_NOTIFICATION -> windowManager.openMessaging(GxsId.fromString(headers.getFirst(DESTINATION_ID)), (ChatMessage) payload);
+			case CHAT_AVAILABILITY -> windowManager.sendMessaging(headers.getFirst(DESTINATION_ID), (Availability) payload);
+			default -> throw new IllegalStateException("Unexpected value: " + messageType);
+		}
 	}
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.xeres.ui.client.message;
+
+import javafx.application.Platform;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+
+/**
+ * A frame handler that applies its frames on the JavaFX application thread.
+ */
+public abstract class FxFrameHandler implements StompFrameHandler
+{
+	@Override
+	public final void handleFrame(StompHeaders headers, Object payload)
+	{
+		Platform.runLater(() -> applyFrame(headers, payload));
+	}
+
+	/**
+	 * Applies a frame. Always called from the JavaFX application thread.
+	 *
+	 * @param headers the headers
+	 * @param payload the payload, converted to the type returned by {@link #getPayloadType(StompHeaders)}
+	 */
+	protected abstract void applyFrame(StompHeaders headers, Object payload);
+}
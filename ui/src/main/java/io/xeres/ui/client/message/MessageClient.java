@@ -174,6 +174,10 @@ public class MessageClient implements SmartLifecycle
 
 	public MessageClient subscribe(String path, StompFrameHandler frameHandler)
 	{
+		if (frameHandler instanceof FxFrameHandler fxFrameHandler)
+		{
+			frameHandler = new BatchFrameHandler(fxFrameHandler, jsonMapper);
+		}
 		pendingSubscriptions.add(new PendingSubscription(path, frameHandler));
 
 		if (stompSession != null)
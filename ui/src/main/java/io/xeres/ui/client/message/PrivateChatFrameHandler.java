@@ -25,9 +25,7 @@ import io.xeres.common.message.MessageType;
 import io.xeres.common.message.chat.ChatAvatar;
 import io.xeres.common.message.chat.ChatMessage;
 import io.xeres.ui.support.window.WindowManager;
-import javafx.application.Platform;
 import org.jspecify.annotations.NonNull;
-import org.springframework.messaging.simp.stomp.StompFrameHandler;
 import org.springframework.messaging.simp.stomp.StompHeaders;
 
 import java.lang.reflect.Type;
@@ -38,7 +36,7 @@ import static io.xeres.common.message.MessageHeaders.MESSAGE_TYPE;
 /**
  * This handles the incoming private messages from the server to the UI.
  */
-public class PrivateChatFrameHandler implements StompFrameHandler
+public class PrivateChatFrameHandler extends FxFrameHandler
 {
 	private final WindowManager windowManager;
 
@@ -68,18 +66,15 @@ public class PrivateChatFrameHandler implements StompFrameHandler
 	}
 
 	@Override
-	public void handleFrame(StompHeaders headers, Object payload)
+	protected void applyFrame(StompHeaders headers, Object payload)
 	{
 		var messageType = MessageType.valueOf(headers.getFirst(MESSAGE_TYPE));
-		Platform.runLater(() -> {
-					switch (messageType)
-					{
-						case CHAT_PRIVATE_MESSAGE, CHAT_TYPING_NOTIFICATION -> windowManager.openMessaging(LocationIdentifier.fromString(headers.getFirst(DESTINATION_ID)), (ChatMessage) payload);
-						case CHAT_AVATAR -> windowManager.sendMessaging(headers.getFirst(DESTINATION_ID), (ChatAvatar) payload);
-						case CHAT_AVAILABILITY -> windowManager.sendMessaging(headers.getFirst(DESTINATION_ID), (Availability) payload);
-						default -> throw new IllegalStateException("Unexpected value: " + messageType);
-					}
-				}
-		);
+		switch (messageType)
+		{
+			case CHAT_PRIVATE_MESSAGE, CHAT_TYPING_NOTIFICATION -> windowManager.openMessaging(LocationIdentifier.fromString(headers.getFirst(DESTINATION_ID)), (ChatMessage) payload);
+			case CHAT_AVATAR -> windowManager.sendMessaging(headers.getFirst(DESTINATION_ID), (ChatAvatar) payload);
+			case CHAT_AVAILABILITY -> windowManager.sendMessaging(headers.getFirst(DESTINATION_ID), (Availability) payload);
+			default -> throw new IllegalStateException("Unexpected value: " + messageType);
+		}
 	}
 }
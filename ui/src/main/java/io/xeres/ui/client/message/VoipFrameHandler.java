@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2025-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -21,16 +21,14 @@ package io.xeres.ui.client.message;
 
 import io.xeres.common.message.voip.VoipMessage;
 import io.xeres.ui.support.window.WindowManager;
-import javafx.application.Platform;
 import org.jspecify.annotations.NonNull;
-import org.springframework.messaging.simp.stomp.StompFrameHandler;
 import org.springframework.messaging.simp.stomp.StompHeaders;
 
 import java.lang.reflect.Type;
 
 import static io.xeres.common.message.MessageHeaders.DESTINATION_ID;
 
-public class VoipFrameHandler implements StompFrameHandler
+public class VoipFrameHandler extends FxFrameHandler
 {
 	private final WindowManager windowManager;
 
@@ -46,8 +44,8 @@ public class VoipFrameHandler implements StompFrameHandler
 	}
 
 	@Override
-	public void handleFrame(@NonNull StompHeaders headers, Object payload)
+	protected void applyFrame(StompHeaders headers, Object payload)
 	{
-		Platform.runLater(() -> windowManager.doVoip(headers.getFirst(DESTINATION_ID), (VoipMessage) payload));
+		windowManager.doVoip(headers.getFirst(DESTINATION_ID), (VoipMessage) payload);
 	}
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.xeres.ui.configuration;
+
+import io.xeres.common.util.RemoteUtils;
+import org.jspecify.annotations.NonNull;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * Selects how to reach the control server. When the UI runs in the same process as the core, the
+ * requests go through a Unix domain socket in plain HTTP, which avoids TLS and the TCP stack. Otherwise,
+ * and for any other server, the network connector is used.
+ */
+public class ControlClientHttpConnector implements ClientHttpConnector
+{
+	private final ClientHttpConnector networkConnector;
+	private Path socketPath;
+	private ClientHttpConnector socketConnector;
+
+	public ControlClientHttpConnector(ClientHttpConnector networkConnector)
+	{
+		this.networkConnector = networkConnector;
+	}
+
+	@Override
+	public @NonNull Mono<ClientHttpResponse> connect(@NonNull HttpMethod method, @NonNull URI uri, @NonNull Function<? super ClientHttpRequest, Mono<Void>> requestCallback)
+	{
+		if (RemoteUtils.isControlUri(uri))
+		{
+			var connector = getSocketConnector();
+			if (connector != null)
+			{
+				return connector.connect(method, toPlainUri(uri), requestCallback);
+			}
+		}
+		return networkConnector.connect(method, uri, requestCallback);
+	}
+
+	/**
+	 * Gets the socket connector. The socket is only known once the core has configured the control server,
+	 * which is after this connector is created.
+	 *
+	 * @return the socket connector or null if there's no control socket
+	 */
+	private synchronized ClientHttpConnector getSocketConnector()
+	{
+		var path = RemoteUtils.getControlSocket();
+		if (path == null)
+		{
+			return null;
+		}
+		if (!path.equals(socketPath))
+		{
+			socketPath = path;
+			socketConnector = new ReactorClientHttpConnector(HttpClient.create()
+					.remoteAddress(() -> UnixDomainSocketAddress.of(path)));
+		}
+		return socketConnector;
+	}
+
+	private static URI toPlainUri(URI uri)
+	{
+		if (!"https".equals(uri.getScheme()))
+		{
+			return uri;
+		}
+		return URI.create("http" + uri.toString().substring("https".length()));
+	}
+}
@@ -75,11 +75,11 @@ public class WebClientConfiguration
 					.build();
 			var httpClient = HttpClient.create().secure(t -> t.sslContext(sslContext));
 
-			return WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient));
+			return WebClient.builder().clientConnector(new ControlClientHttpConnector(new ReactorClientHttpConnector(httpClient)));
 		}
 		else
 		{
-			return WebClient.builder();
+			return WebClient.builder().clientConnector(new ControlClientHttpConnector(new ReactorClientHttpConnector()));
 		}
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2024-2025 by David Gerber - https://zapek.com
+ * Copyright (c) 2024-2026 by David Gerber - https://zapek.com
  *
  * This file is part of Xeres.
  *
@@ -42,6 +42,9 @@ public class StatisticsMainWindowController implements WindowController
 	@FXML
 	private StatisticsDataCounterController statisticsDataCounterController;
 
+	@FXML
+	private StatisticsTrafficController statisticsTrafficController;
+
 	@Override
 	public void initialize()
 	{
@@ -54,6 +57,7 @@ public class StatisticsMainWindowController implements WindowController
 		statisticsTurtleController.start();
 		statisticsRttController.start();
 		statisticsDataCounterController.start();
+		statisticsTrafficController.start();
 	}
 
 	@Override
@@ -62,5 +66,6 @@ public class StatisticsMainWindowController implements WindowController
 		statisticsTurtleController.stop();
 		statisticsRttController.stop();
 		statisticsDataCounterController.stop();
+		statisticsTrafficController.stop();
 	}
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2026 by David Gerber - https://zapek.com
+ *
+ * This file is part of Xeres.
+ *
+ * Xeres is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Xeres is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Xeres.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.xeres.ui.controller.statistics;
+
+import io.xeres.common.rest.statistics.TrafficPeer;
+import io.xeres.common.rest.statistics.TrafficResolution;
+import io.xeres.common.rest.statistics.TrafficStatisticsResponse;
+import io.xeres.common.util.ByteUnitUtils;
+import io.xeres.common.util.ExecutorUtils;
+import io.xeres.ui.client.StatisticsClient;
+import io.xeres.ui.controller.Controller;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.fxml.FXML;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import net.rgielen.fxweaver.core.FxmlView;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Component
+@FxmlView(value = "/view/statistics/traffic.fxml")
+public class StatisticsTrafficController implements Controller
+{
+	private static final int UPDATE_IN_SECONDS = 10;
+	private static final int BUCKETS = 120;
+	private static final int MAX_SERVICES = 8; // Only the services sending the most are drawn
+
+	@FXML
+	private ChoiceBox<String> period;
+
+	@FXML
+	private LineChart<Number, Number> lineChart;
+
+	@FXML
+	private NumberAxis xAxis;
+
+	@FXML
+	private TableView<TrafficPeer> tableView;
+
+	@FXML
+	private TableColumn<TrafficPeer, String> tablePeer;
+
+	@FXML
+	private TableColumn<TrafficPeer, String> tableService;
+
+	@FXML
+	private TableColumn<TrafficPeer, Long> tableSent;
+
+	@FXML
+	private TableColumn<TrafficPeer, Long> tableReceived;
+
+	@FXML
+	private TableColumn<TrafficPeer, Long> tableSentItems;
+
+	@FXML
+	private TableColumn<TrafficPeer, Long> tableReceivedItems;
+
+	private ScheduledExecutorService executorService;
+	private volatile TrafficResolution resolution = TrafficResolution.SECONDS;
+
+	private final StatisticsClient statisticsClient;
+	private final ResourceBundle bundle;
+
+	public StatisticsTrafficController(StatisticsClient statisticsClient, ResourceBundle bundle)
+	{
+		this.statisticsClient = statisticsClient;
+		this.bundle = bundle;
+	}
+
+	@Override
+	public void initialize()
+	{
+		period.setItems(FXCollections.observableArrayList(bundle.getString("statistics.traffic.last-hour"), bundle.getString("statistics.traffic.last-day")));
+		period.getSelectionModel().select(0);
+		period.getSelectionModel().selectedIndexProperty().addListener((_, _, newValue) -> {
+			resolution = newValue.intValue() == 0 ? TrafficResolution.SECONDS : TrafficResolution.MINUTES;
+			if (executorService != null)
+			{
+				refresh();
+			}
+		});
+
+		xAxis.setTickLabelFormatter(new NumberAxis.DefaultFormatter(xAxis)
+		{
+			@Override
+			public String toString(Number object)
+			{
+				return String.valueOf(-object.intValue());
+			}
+		});
+
+		tablePeer.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().name()));
+		tableService.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().serviceName()));
+		tableSent.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().sentBytes()));
+		tableSent.setCellFactory(_ -> new SizeCell());
+		tableReceived.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().receivedBytes()));
+		tableReceived.setCellFactory(_ -> new SizeCell());
+		tableSentItems.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().sentItems()));
+		tableReceivedItems.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().receivedItems()));
+	}
+
+	public void start()
+	{
+		executorService = ExecutorUtils.createFixedRateExecutor(this::refresh,
+				0,
+				UPDATE_IN_SECONDS);
+	}
+
+	public void stop()
+	{
+		ExecutorUtils.cleanupExecutor(executorService);
+		executorService = null;
+		lineChart.getData().clear();
+		tableView.getItems().clear();
+	}
+
+	private void refresh()
+	{
+		statisticsClient.getTrafficStatistics(resolution, BUCKETS)
+				.doOnSuccess(trafficStatisticsResponse -> Platform.runLater(() -> {
+					assert trafficStatisticsResponse != null;
+					tableView.getItems().setAll(trafficStatisticsResponse.peers());
+					updateChart(trafficStatisticsResponse);
+				}))
+				.subscribe();
+	}
+
+	/**
+	 * Draws the upload speed of each service, all peers together.
+	 *
+	 * @param trafficStatisticsResponse the traffic statistics
+	 */
+	private void updateChart(TrafficStatisticsResponse trafficStatisticsResponse)
+	{
+		var bucketDuration = trafficStatisticsResponse.bucketDuration();
+		var minutes = trafficStatisticsResponse.resolution().getSlots() * trafficStatisticsResponse.resolution().getInterval().toMinutes();
+		xAxis.setLowerBound(-minutes);
+		xAxis.setTickUnit(minutes / 6.0);
+
+		List<XYChart.Series<Number, Number>> seriesList = new ArrayList<>();
+		trafficStatisticsResponse.services().stream() // Already sorted by bytes sent
+				.limit(MAX_SERVICES)
+				.forEach(trafficService -> {
+					var series = new XYChart.Series<Number, Number>();
+					series.setName(trafficService.serviceName());
+					var sent = trafficService.sent();
+					for (var i = 0; i < sent.length; i++)
+					{
+						var minutesAgo = (double) (sent.length - 1 - i) * bucketDuration / 60.0;
+						series.getData().add(new XYChart.Data<>(-minutesAgo, sent[i] / (float) bucketDuration / 1024.0f));
+					}
+					seriesList.add(series);
+				});
+		lineChart.getData().setAll(seriesList);
+	}
+
+	private static class SizeCell extends TableCell<TrafficPeer, Long>
+	{
+		@Override
+		protected void updateItem(Long value, boolean empty)
+		{
+			super.updateItem(value, empty);
+			setText(empty ? null : ByteUnitUtils.fromBytes(value));
+		}
+	}
+}